@@ -40,6 +40,7 @@ import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.FileUtils;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixTestDriver;
+import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.schema.IllegalDataException;
 import org.apache.phoenix.schema.types.PInteger;
 import org.apache.phoenix.schema.types.PArrayDataType;
@@ -801,4 +802,75 @@ public class CSVCommonsLoaderIT extends ParallelStatsDisabledIT {
         assertFalse(rs.next());
 
     }
-}
\ No newline at end of file
+
+    private static String getParallelCsv(int rowCount, int duplicateCount) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < rowCount; i++) {
+            buf.append(String.format("K%04d,%d%n", i, i));
+        }
+        // Later records of a row key replace the earlier ones
+        for (int i = 0; i < duplicateCount; i++) {
+            buf.append(String.format("K%04d,%d%n", i, -i));
+        }
+        return buf.toString();
+    }
+
+    private void assertParallelUpsert(String splitClause) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(QueryServices.MUTATE_BATCH_SIZE_ATTRIB, "10");
+        try (PhoenixConnection conn = DriverManager.getConnection(getUrl(), props)
+                .unwrap(PhoenixConnection.class)) {
+            String tableName = generateUniqueName();
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + "(K VARCHAR NOT NULL PRIMARY KEY, V INTEGER) " + splitClause);
+            // More threads than regions
+            CSVCommonsLoader csvUtil = new CSVCommonsLoader(conn, tableName,
+                    Arrays.asList("K", "V"), true, ',', '"', null,
+                    CSVCommonsLoader.DEFAULT_ARRAY_ELEMENT_SEPARATOR, 8);
+            csvUtil.upsert(new StringReader(getParallelCsv(1000, 100)));
+
+            ResultSet rs = conn.createStatement().executeQuery("SELECT K, V FROM " + tableName + " ORDER BY K");
+            int count = 0;
+            while (rs.next()) {
+                int i = Integer.parseInt(rs.getString(1).substring(1));
+                assertEquals(count, i);
+                assertEquals(i < 100 ? -i : i, rs.getInt(2));
+                count++;
+            }
+            assertEquals(1000, count);
+        }
+    }
+
+    @Test
+    public void testCSVCommonsUpsertInParallelSingleRegion() throws Exception {
+        assertParallelUpsert("");
+    }
+
+    @Test
+    public void testCSVCommonsUpsertInParallelSplitTable() throws Exception {
+        assertParallelUpsert("SPLIT ON ('K0250','K0500','K0750')");
+    }
+
+    @Test
+    public void testCSVCommonsUpsertInParallelFailure() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(QueryServices.MUTATE_BATCH_SIZE_ATTRIB, "10");
+        try (PhoenixConnection conn = DriverManager.getConnection(getUrl(), props)
+                .unwrap(PhoenixConnection.class)) {
+            String tableName = generateUniqueName();
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + "(K VARCHAR NOT NULL PRIMARY KEY, V INTEGER)");
+            CSVCommonsLoader csvUtil = new CSVCommonsLoader(conn, tableName,
+                    Arrays.asList("K", "V"), true, ',', '"', null,
+                    CSVCommonsLoader.DEFAULT_ARRAY_ELEMENT_SEPARATOR, 4);
+            // The invalid record fails its upsert thread in strict mode
+            String csv = getParallelCsv(500, 0) + "K9999,NOT_A_NUMBER\n" + getParallelCsv(500, 0);
+            try {
+                csvUtil.upsert(new StringReader(csv));
+                fail("The failure of an upsert thread should be rethrown");
+            } catch (IllegalDataException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests that MIN and MAX aggregations evaluated on the first row of each group, seeking
+ * from one group to the next with the DistinctPrefixFilter, return the same results as
+ * a scan visiting every row.
+ */
+public class LooseIndexScanMinMaxIT extends ParallelStatsDisabledIT {
+    private static final String PREFIX = "SERVER DISTINCT PREFIX";
+    private static final String[] K1_VALUES = {"a", "b", "bb", "c", "d"};
+    private Connection conn;
+
+    @Before
+    public void initConnection() throws Exception {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        conn = DriverManager.getConnection(getUrl(), props);
+    }
+
+    @After
+    public void closeConnection() throws Exception {
+        conn.close();
+    }
+
+    private String createTable(String k2SortOrder, String options) throws SQLException {
+        String tableName = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + tableName
+                + " (k1 VARCHAR NOT NULL, k2 INTEGER NOT NULL, k3 INTEGER NOT NULL, v VARCHAR"
+                + " CONSTRAINT pk PRIMARY KEY (k1, k2 " + k2SortOrder + ", k3)) " + options);
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES(?, ?, ?, ?)");
+        for (int i = 0; i < K1_VALUES.length; i++) {
+            // Each group has a different range of k2 values with gaps, and several rows per k2 value
+            for (int k2 = i; k2 < 10 + 3 * i; k2++) {
+                if ((k2 + i) % 3 == 0) {
+                    continue;
+                }
+                for (int k3 = 0; k3 < 3; k3++) {
+                    stmt.setString(1, K1_VALUES[i]);
+                    stmt.setInt(2, k2);
+                    stmt.setInt(3, k3);
+                    stmt.setString(4, "v" + k2 + k3);
+                    stmt.execute();
+                }
+            }
+        }
+        conn.commit();
+        return tableName;
+    }
+
+    private List<String> getRows(String query) throws SQLException {
+        List<String> rows = Lists.newArrayList();
+        ResultSet rs = conn.createStatement().executeQuery(query);
+        int columnCount = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            StringBuilder row = new StringBuilder();
+            for (int i = 1; i <= columnCount; i++) {
+                row.append(rs.getString(i)).append(',');
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    /**
+     * Compares the results of a query, in which %s is replaced by an optional hint, without
+     * and with the RANGE_SCAN hint, which disables the loose index scan.
+     */
+    private void assertSameResults(String query) throws SQLException {
+        List<String> expected = getRows(String.format(query, "/*+ RANGE_SCAN */"));
+        assertFalse(query, expected.isEmpty());
+        assertEquals(query, expected, getRows(String.format(query, "")));
+    }
+
+    private void assertLooseIndexScan(String query, boolean isLooseIndexScan) throws SQLException {
+        String plan = QueryUtil.getExplainPlan(conn.createStatement().executeQuery("EXPLAIN " + String.format(query, "")));
+        assertEquals(plan, isLooseIndexScan, plan.contains(PREFIX));
+        assertSameResults(query);
+    }
+
+    @Test
+    public void testAscColumn() throws Exception {
+        String tableName = createTable("ASC", "");
+        assertLooseIndexScan("SELECT %s k1, MIN(k2) FROM " + tableName + " GROUP BY k1", true);
+        assertLooseIndexScan("SELECT %s k1, MIN(k2), MAX(k1) FROM " + tableName + " GROUP BY k1", true);
+        assertLooseIndexScan("SELECT %s k1, MAX(k2) FROM " + tableName + " GROUP BY k1", false);
+        assertLooseIndexScan("SELECT %s k1, k2, MIN(k3) FROM " + tableName + " GROUP BY k1, k2", true);
+        // A reverse scan visits the largest k2 value of a group first
+        assertLooseIndexScan("SELECT %s k1, MAX(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1 DESC", true);
+        assertLooseIndexScan("SELECT %s k1, MIN(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1 DESC", false);
+    }
+
+    @Test
+    public void testDescColumn() throws Exception {
+        String tableName = createTable("DESC", "");
+        assertLooseIndexScan("SELECT %s k1, MAX(k2) FROM " + tableName + " GROUP BY k1", true);
+        assertLooseIndexScan("SELECT %s k1, MIN(k2) FROM " + tableName + " GROUP BY k1", false);
+        assertLooseIndexScan("SELECT %s k1, MIN(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1 DESC", true);
+        assertLooseIndexScan("SELECT %s k1, MAX(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1 DESC", false);
+    }
+
+    @Test
+    public void testSaltedTable() throws Exception {
+        String tableName = createTable("ASC", "SALT_BUCKETS=4");
+        assertSameResults("SELECT %s k1, MIN(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1");
+        assertSameResults("SELECT %s k1, MAX(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1");
+        assertSameResults("SELECT %s k1, k2, MIN(k3) FROM " + tableName + " GROUP BY k1, k2 ORDER BY k1, k2");
+        tableName = createTable("DESC", "SALT_BUCKETS=4");
+        assertSameResults("SELECT %s k1, MAX(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1");
+        assertSameResults("SELECT %s k1, MIN(k2) FROM " + tableName + " GROUP BY k1 ORDER BY k1 DESC");
+    }
+
+    @Test
+    public void testSkipScan() throws Exception {
+        // The conditions on k2 are part of the skip scan filter, which filters out the smallest
+        // k2 values of a group before the first row of the group is aggregated
+        String tableName = createTable("ASC", "");
+        assertLooseIndexScan("SELECT %s k1, MIN(k2) FROM " + tableName
+                + " WHERE k1 IN ('a', 'bb', 'd') AND k2 > 4 GROUP BY k1", true);
+        assertLooseIndexScan("SELECT %s k1, MIN(k2) FROM " + tableName
+                + " WHERE k1 IN ('a', 'bb', 'd') AND k2 IN (3, 7, 8, 11) GROUP BY k1", true);
+        assertLooseIndexScan("SELECT %s k1, MAX(k2) FROM " + tableName
+                + " WHERE k1 IN ('b', 'bb', 'c') AND k2 < 9 GROUP BY k1 ORDER BY k1 DESC", true);
+        assertSameResults("SELECT %s k1, MAX(k2) FROM " + tableName
+                + " WHERE k1 >= 'b' AND k2 < 9 GROUP BY k1 ORDER BY k1 DESC");
+        assertSameResults("SELECT %s k1, MIN(k2) FROM " + tableName + " WHERE k2 > 4 GROUP BY k1");
+        assertSameResults("SELECT %s k1, k2, MIN(k3) FROM " + tableName
+                + " WHERE k1 IN ('a', 'c') AND k3 > 0 GROUP BY k1, k2");
+        tableName = createTable("DESC", "SALT_BUCKETS=4");
+        assertSameResults("SELECT %s k1, MAX(k2) FROM " + tableName
+                + " WHERE k1 IN ('a', 'bb', 'd') AND k2 < 9 GROUP BY k1 ORDER BY k1");
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
+import org.apache.phoenix.hbase.index.IndexRegionObserver;
+import org.apache.phoenix.hbase.index.metrics.GlobalIndexCheckerSource;
+import org.apache.phoenix.hbase.index.metrics.GlobalIndexCheckerSourceImpl;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests that unverified global index rows are repaired in batches when
+ * {@link QueryServices#GLOBAL_INDEX_REPAIR_BATCH_SIZE_ATTRIB} is greater than one.
+ */
+public class GlobalIndexCheckerBatchRepairIT extends BaseUniqueNamesOwnClusterIT {
+    private static final int REPAIR_BATCH_SIZE = 4;
+    private static final int NUM_ROWS = 20;
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.GLOBAL_INDEX_REPAIR_BATCH_SIZE_ATTRIB, Integer.toString(REPAIR_BATCH_SIZE));
+        // Delete invalid unverified rows right away, so that a repaired index has no unverified rows left
+        props.put(QueryServices.GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS_ATTRIB, Long.toString(0));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    @After
+    public void unsetFailForTesting() {
+        IndexRegionObserver.setFailPostIndexUpdatesForTesting(false);
+    }
+
+    private static long getRepairBatches() {
+        GlobalIndexCheckerSourceImpl source = (GlobalIndexCheckerSourceImpl)
+                MetricsIndexerSourceFactory.getInstance().getGlobalIndexCheckerSource();
+        return source.getMetricsRegistry().getCounter(GlobalIndexCheckerSource.INDEX_REPAIR_BATCH, 0).value();
+    }
+
+    private static List<String> getRows(Connection conn, String query) throws Exception {
+        List<String> rows = Lists.newArrayList();
+        ResultSet rs = conn.createStatement().executeQuery(query);
+        while (rs.next()) {
+            rows.add(rs.getString(1) + ":" + rs.getString(2) + ":" + rs.getString(3));
+        }
+        return rows;
+    }
+
+    @Test
+    public void testRepairUnverifiedRowsInBatches() throws Exception {
+        String dataTableName = generateUniqueName();
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableName
+                    + " (ID VARCHAR NOT NULL PRIMARY KEY, VAL1 VARCHAR, VAL2 VARCHAR)");
+            conn.createStatement().execute("CREATE INDEX " + indexTableName + " ON "
+                    + dataTableName + " (VAL1) INCLUDE (VAL2)");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + dataTableName + " VALUES(?, ?, ?)");
+            for (int i = 0; i < NUM_ROWS; i++) {
+                String id = String.format("r%02d", i);
+                stmt.setString(1, id);
+                stmt.setString(2, "v" + id);
+                stmt.setString(3, "w" + id);
+                stmt.execute();
+            }
+            conn.commit();
+
+            // Fail the last write phase while updating every other row, which leaves a run of unverified new
+            // index rows followed by unverified old index rows interleaved with verified ones
+            IndexRegionObserver.setFailPostIndexUpdatesForTesting(true);
+            for (int i = 0; i < NUM_ROWS; i += 2) {
+                String id = String.format("r%02d", i);
+                stmt.setString(1, id);
+                stmt.setString(2, "u" + id);
+                stmt.setString(3, "x" + id);
+                stmt.execute();
+            }
+            conn.commit();
+            IndexRegionObserver.setFailPostIndexUpdatesForTesting(false);
+
+            String indexQuery = "SELECT /*+ INDEX(" + dataTableName + " " + indexTableName + ") */ VAL1, ID, VAL2 FROM "
+                    + dataTableName + " ORDER BY VAL1";
+            String dataQuery = "SELECT /*+ NO_INDEX */ VAL1, ID, VAL2 FROM " + dataTableName + " ORDER BY VAL1";
+            List<String> expected = getRows(conn, dataQuery);
+            assertEquals(NUM_ROWS, expected.size());
+
+            long batchesBefore = getRepairBatches();
+            assertEquals(expected, getRows(conn, indexQuery));
+            long batches = getRepairBatches() - batchesBefore;
+            // One unverified new and one unverified old index row for each updated row
+            int unverifiedRows = NUM_ROWS;
+            assertTrue("batches: " + batches, batches > 0);
+            assertTrue("batches: " + batches, batches < unverifiedRows);
+
+            // The index has been repaired, so it's read without any further repair
+            batchesBefore = getRepairBatches();
+            assertEquals(expected, getRows(conn, indexQuery));
+            assertEquals(0, getRepairBatches() - batchesBefore);
+            ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + indexTableName);
+            assertTrue(rs.next());
+            assertEquals(NUM_ROWS, rs.getInt(1));
+            assertFalse(rs.next());
+
+            // Point lookups through the index see the repaired rows
+            rs = conn.createStatement().executeQuery("SELECT ID, VAL2 FROM " + dataTableName + " WHERE VAL1 = 'ur04'");
+            assertTrue(rs.next());
+            assertEquals("r04", rs.getString(1));
+            assertEquals("xr04", rs.getString(2));
+            assertFalse(rs.next());
+            rs = conn.createStatement().executeQuery("SELECT ID FROM " + dataTableName + " WHERE VAL1 = 'vr04'");
+            assertFalse(rs.next());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
+import org.apache.phoenix.execute.HashJoinPlan;
+import org.apache.phoenix.iterate.ResultIterator;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.join.MaxServerCacheSizeExceededException;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests hash joins whose build side exceeds the max server cache size and is therefore
+ * joined one hash partition at a time.
+ */
+public class PartitionedHashJoinIT extends BaseUniqueNamesOwnClusterIT {
+    private static final int PARTITION_COUNT = 8;
+    private static final int LHS_ROWS = 300;
+    private static final int RHS_ROWS = 200;
+    private static final String PAD = StringUtils.repeat("x", 100);
+
+    private String lhs;
+    private String rhs;
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(3);
+        // Fits about a tenth of the build side, so a single cache can't hold it but a partition can
+        props.put(QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB, Long.toString(10000));
+        props.put(QueryServices.PARTITIONED_HASH_JOIN_ENABLED_ATTRIB, Boolean.toString(true));
+        props.put(QueryServices.PARTITIONED_HASH_JOIN_PARTITION_COUNT_ATTRIB,
+                Integer.toString(PARTITION_COUNT));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    @Before
+    public void createTables() throws Exception {
+        lhs = generateUniqueName();
+        rhs = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + lhs
+                    + " (ID INTEGER NOT NULL PRIMARY KEY, K INTEGER)");
+            conn.createStatement().execute("CREATE TABLE " + rhs
+                    + " (K INTEGER NOT NULL PRIMARY KEY, PAD VARCHAR)");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + lhs + " VALUES(?, ?)");
+            for (int i = 0; i < LHS_ROWS; i++) {
+                stmt.setInt(1, i);
+                // About a third of the rows have no match on the build side
+                stmt.setInt(2, (i * 7) % LHS_ROWS);
+                stmt.execute();
+            }
+            stmt = conn.prepareStatement("UPSERT INTO " + rhs + " VALUES(?, ?)");
+            for (int i = 0; i < RHS_ROWS; i++) {
+                stmt.setInt(1, i);
+                stmt.setString(2, PAD + i);
+                stmt.execute();
+            }
+            conn.commit();
+        }
+    }
+
+    private static List<String> getRows(Connection conn, String query) throws SQLException {
+        List<String> rows = Lists.newArrayList();
+        ResultSet rs = conn.createStatement().executeQuery(query);
+        while (rs.next()) {
+            rows.add(rs.getInt(1) + ":" + rs.getString(2) + ":" + rs.getString(3));
+        }
+        // Partition passes return rows in a different order than a single scan
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private void assertPartitionedJoin(String joinType, int expectedRows) throws Exception {
+        String query = "SELECT L.ID, L.K, R.PAD FROM " + lhs + " L " + joinType + " JOIN "
+                + rhs + " R ON L.K = R.K";
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String plan = QueryUtil.getExplainPlan(
+                    conn.createStatement().executeQuery("EXPLAIN " + query));
+            assertTrue(plan, plan.contains("HASH PARTITIONED JOIN IN " + PARTITION_COUNT
+                    + " PASSES, EACH RE-SCANNING THE FULL PROBE SIDE"));
+            List<String> partitioned = getRows(conn, query);
+            // A sort merge join doesn't use the server cache, so it gives the unpartitioned result
+            List<String> expected = getRows(conn,
+                    query.replaceFirst("SELECT", "SELECT /*+ USE_SORT_MERGE_JOIN */"));
+            assertEquals(expectedRows, expected.size());
+            assertEquals(expected, partitioned);
+        }
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        int expectedRows = 0;
+        for (int i = 0; i < LHS_ROWS; i++) {
+            if ((i * 7) % LHS_ROWS < RHS_ROWS) {
+                expectedRows++;
+            }
+        }
+        assertPartitionedJoin("INNER", expectedRows);
+    }
+
+    @Test
+    public void testLeftJoin() throws Exception {
+        assertPartitionedJoin("LEFT", LHS_ROWS);
+    }
+
+    private static int countRows(QueryPlan plan) throws SQLException {
+        int count = 0;
+        ResultIterator iterator = plan.iterator();
+        try {
+            while (iterator.next() != null) {
+                count++;
+            }
+        } finally {
+            iterator.close();
+        }
+        return count;
+    }
+
+    private static int countInnerJoinRows(int rhsRows) {
+        int count = 0;
+        for (int i = 0; i < LHS_ROWS; i++) {
+            if ((i * 7) % LHS_ROWS < rhsRows) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testNotPartitionedAfterPartitionedExecution() throws Exception {
+        String query = "SELECT L.ID, L.K, R.PAD FROM " + lhs + " L JOIN " + rhs + " R ON L.K = R.K";
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            QueryPlan plan = conn.createStatement().unwrap(PhoenixStatement.class).optimizeQuery(query);
+            assertTrue(plan instanceof HashJoinPlan);
+            assertEquals(countInnerJoinRows(RHS_ROWS), countRows(plan));
+            assertFalse(((HashJoinPlan) plan).getJoinInfo().isPartitioned());
+
+            // Shrink the build side so that it fits in a single cache, making the next
+            // execution of the same plan take the unpartitioned path, which must scan every
+            // probe side row rather than only those of the last partition
+            int rhsRows = 20;
+            conn.createStatement().execute("DELETE FROM " + rhs + " WHERE K >= " + rhsRows);
+            conn.commit();
+            String explain = QueryUtil.getExplainPlan(
+                    conn.createStatement().executeQuery("EXPLAIN " + query));
+            assertTrue(explain, explain.contains("HASH PARTITIONED JOIN"));
+            assertEquals(countInnerJoinRows(rhsRows), countRows(plan));
+            assertEquals(countInnerJoinRows(rhsRows), getRows(conn, query).size());
+        }
+    }
+
+    @Test
+    public void testOrderedJoinIsNotPartitioned() throws Exception {
+        // Partition passes can't preserve order, so the build side must fit in one cache
+        String query = "SELECT L.ID, L.K, R.PAD FROM " + lhs + " L JOIN " + rhs
+                + " R ON L.K = R.K ORDER BY L.K";
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String plan = QueryUtil.getExplainPlan(
+                    conn.createStatement().executeQuery("EXPLAIN " + query));
+            assertFalse(plan, plan.contains("HASH PARTITIONED JOIN"));
+            try {
+                getRows(conn, query);
+                fail();
+            } catch (SQLException e) {
+                Throwable cause = e;
+                while (cause != null && !(cause instanceof MaxServerCacheSizeExceededException)) {
+                    cause = cause.getCause();
+                }
+                assertNotNull(e.toString(), cause);
+            }
+        }
+    }
+}
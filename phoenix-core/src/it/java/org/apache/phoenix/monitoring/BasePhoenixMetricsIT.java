@@ -47,6 +47,7 @@ public class BasePhoenixMetricsIT extends BaseUniqueNamesOwnClusterIT {
     Lists.newArrayList(MetricType.MUTATION_COMMIT_TIME);
     static final List<MetricType> readMetricsToSkip =
     Lists.newArrayList(MetricType.TASK_QUEUE_WAIT_TIME,
+            MetricType.TASK_LOW_LATENCY_QUEUE_WAIT_TIME, MetricType.TASK_NORMAL_QUEUE_WAIT_TIME,
             MetricType.TASK_EXECUTION_TIME, MetricType.TASK_END_TO_END_TIME,
             MetricType.COUNT_MILLS_BETWEEN_NEXTS);
     static final String CUSTOM_URL_STRING = "SESSION";
@@ -27,8 +27,8 @@ import org.apache.phoenix.query.QueryServicesOptions;
 import com.google.common.annotations.VisibleForTesting;
 
 /**
- * {@link RpcScheduler} that first checks to see if this is an index or metedata update before passing off the
- * call to the delegate {@link RpcScheduler}.
+ * {@link RpcScheduler} that first checks to see if this is an index or metedata update, or a server cache
+ * relayed by another region server, before passing off the call to the delegate {@link RpcScheduler}.
  */
 public class PhoenixRpcScheduler extends RpcScheduler {
 
@@ -40,23 +40,35 @@ public class PhoenixRpcScheduler extends RpcScheduler {
     private RpcScheduler delegate;
     private int indexPriority;
     private int metadataPriority;
+    private int serverCacheRelayPriority;
     private RpcExecutor indexCallExecutor;
     private RpcExecutor metadataCallExecutor;
+    private RpcExecutor serverCacheRelayCallExecutor;
     private int port;
     
 
     public PhoenixRpcScheduler(Configuration conf, RpcScheduler delegate, int indexPriority, int metadataPriority, PriorityFunction priorityFunction, Abortable abortable) {
+        this(conf, delegate, indexPriority, metadataPriority, PhoenixRpcSchedulerFactory.getServerCacheRelayPriority(conf), priorityFunction, abortable);
+    }
+
+    public PhoenixRpcScheduler(Configuration conf, RpcScheduler delegate, int indexPriority, int metadataPriority, int serverCacheRelayPriority, PriorityFunction priorityFunction, Abortable abortable) {
         // copied from org.apache.hadoop.hbase.ipc.SimpleRpcScheduler in HBase 0.98.4
     	int indexHandlerCount = conf.getInt(QueryServices.INDEX_HANDLER_COUNT_ATTRIB, QueryServicesOptions.DEFAULT_INDEX_HANDLER_COUNT);
     	int metadataHandlerCount = conf.getInt(QueryServices.METADATA_HANDLER_COUNT_ATTRIB, QueryServicesOptions.DEFAULT_INDEX_HANDLER_COUNT);
         int maxIndexQueueLength =  conf.getInt(CALLQUEUE_LENGTH_CONF_KEY, indexHandlerCount*DEFAULT_MAX_CALLQUEUE_LENGTH_PER_HANDLER);
         int maxMetadataQueueLength =  conf.getInt(CALLQUEUE_LENGTH_CONF_KEY, metadataHandlerCount*DEFAULT_MAX_CALLQUEUE_LENGTH_PER_HANDLER);
+        int serverCacheRelayHandlerCount = conf.getInt(QueryServices.SERVER_CACHE_RELAY_HANDLER_COUNT_ATTRIB, QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_HANDLER_COUNT);
+        int maxServerCacheRelayQueueLength =  conf.getInt(CALLQUEUE_LENGTH_CONF_KEY, serverCacheRelayHandlerCount*DEFAULT_MAX_CALLQUEUE_LENGTH_PER_HANDLER);
 
         this.indexPriority = indexPriority;
         this.metadataPriority = metadataPriority;
+        this.serverCacheRelayPriority = serverCacheRelayPriority;
         this.delegate = delegate;
         this.indexCallExecutor = new BalancedQueueRpcExecutor("Index", indexHandlerCount, maxIndexQueueLength, priorityFunction,conf,abortable);
         this.metadataCallExecutor = new BalancedQueueRpcExecutor("Metadata", metadataHandlerCount, maxMetadataQueueLength, priorityFunction,conf,abortable);
+        // Server cache relays get their own handlers, as a handler relaying a cache waits on the
+        // handlers of the region servers it relays to
+        this.serverCacheRelayCallExecutor = new BalancedQueueRpcExecutor("ServerCacheRelay", serverCacheRelayHandlerCount, maxServerCacheRelayQueueLength, priorityFunction,conf,abortable);
     }
 
     @Override
@@ -70,6 +82,7 @@ public class PhoenixRpcScheduler extends RpcScheduler {
         delegate.start();
         indexCallExecutor.start(port);
         metadataCallExecutor.start(port);
+        serverCacheRelayCallExecutor.start(port);
     }
 
     @Override
@@ -77,6 +90,7 @@ public class PhoenixRpcScheduler extends RpcScheduler {
         delegate.stop();
         indexCallExecutor.stop();
         metadataCallExecutor.stop();
+        serverCacheRelayCallExecutor.stop();
     }
 
     @Override
@@ -87,6 +101,8 @@ public class PhoenixRpcScheduler extends RpcScheduler {
             return indexCallExecutor.dispatch(callTask);
         } else if (metadataPriority == priority) {
             return metadataCallExecutor.dispatch(callTask);
+        } else if (serverCacheRelayPriority == priority) {
+            return serverCacheRelayCallExecutor.dispatch(callTask);
         } else {
             return delegate.dispatch(callTask);
         }
@@ -101,7 +117,8 @@ public class PhoenixRpcScheduler extends RpcScheduler {
     public int getGeneralQueueLength() {
         // not the best way to calculate, but don't have a better way to hook
         // into metrics at the moment
-        return this.delegate.getGeneralQueueLength() + this.indexCallExecutor.getQueueLength() + this.metadataCallExecutor.getQueueLength();
+        return this.delegate.getGeneralQueueLength() + this.indexCallExecutor.getQueueLength() + this.metadataCallExecutor.getQueueLength()
+                + this.serverCacheRelayCallExecutor.getQueueLength();
     }
 
     @Override
@@ -116,7 +133,8 @@ public class PhoenixRpcScheduler extends RpcScheduler {
 
     @Override
     public int getActiveRpcHandlerCount() {
-        return this.delegate.getActiveRpcHandlerCount() + this.indexCallExecutor.getActiveHandlerCount() + this.metadataCallExecutor.getActiveHandlerCount();
+        return this.delegate.getActiveRpcHandlerCount() + this.indexCallExecutor.getActiveHandlerCount() + this.metadataCallExecutor.getActiveHandlerCount()
+                + this.serverCacheRelayCallExecutor.getActiveHandlerCount();
     }
 
     @Override
@@ -139,6 +157,11 @@ public class PhoenixRpcScheduler extends RpcScheduler {
         this.metadataCallExecutor = executor;
     }
 
+    @VisibleForTesting
+    public void setServerCacheRelayExecutorForTesting(RpcExecutor executor) {
+        this.serverCacheRelayCallExecutor = executor;
+    }
+
     @Override
     public int getWriteQueueLength() {
         return delegate.getWriteQueueLength();
@@ -58,14 +58,21 @@ public class PhoenixRpcSchedulerFactory implements RpcSchedulerFactory {
         // get the metadata priority configs
         int metadataPriority = getMetadataPriority(conf);
         validatePriority(metadataPriority);
+        // get the server cache relay priority configs
+        int serverCacheRelayPriority = getServerCacheRelayPriority(conf);
+        validatePriority(serverCacheRelayPriority);
 
         // validate index and metadata priorities are not the same
         Preconditions.checkArgument(indexPriority != metadataPriority, "Index and Metadata priority must not be same "+ indexPriority);
+        Preconditions.checkArgument(serverCacheRelayPriority != indexPriority
+                && serverCacheRelayPriority != metadataPriority,
+                "Server cache relay priority must not be same as Index or Metadata priority " + serverCacheRelayPriority);
         LOGGER.info("Using custom Phoenix Index RPC Handling with index rpc priority "
-                + indexPriority + " and metadata rpc priority " + metadataPriority);
+                + indexPriority + ", metadata rpc priority " + metadataPriority
+                + " and server cache relay rpc priority " + serverCacheRelayPriority);
 
         PhoenixRpcScheduler scheduler =
-                new PhoenixRpcScheduler(conf, delegate, indexPriority, metadataPriority, priorityFunction,abortable);
+                new PhoenixRpcScheduler(conf, delegate, indexPriority, metadataPriority, serverCacheRelayPriority, priorityFunction,abortable);
         return scheduler;
     }
 
@@ -89,5 +96,9 @@ public class PhoenixRpcSchedulerFactory implements RpcSchedulerFactory {
     public static int getMetadataPriority(Configuration conf) {
         return conf.getInt(QueryServices.METADATA_PRIOIRTY_ATTRIB, QueryServicesOptions.DEFAULT_METADATA_PRIORITY);
     }
+
+    public static int getServerCacheRelayPriority(Configuration conf) {
+        return conf.getInt(QueryServices.SERVER_CACHE_RELAY_PRIORITY_ATTRIB, QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_PRIORITY);
+    }
     
 }
\ No newline at end of file
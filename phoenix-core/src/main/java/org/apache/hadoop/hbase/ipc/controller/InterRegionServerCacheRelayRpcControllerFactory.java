@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc.controller;
+
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CellScannable;
+import org.apache.hadoop.hbase.CellScanner;
+import org.apache.hadoop.hbase.ipc.HBaseRpcController;
+import org.apache.hadoop.hbase.ipc.RpcControllerFactory;
+
+/**
+ * {@link RpcControllerFactory} that should only be used when creating {@link Table} for
+ * relaying server caches from a region server to the other region servers.
+ * This controller factory shouldn't be globally configured anywhere and is meant to be used
+ * only internally by the Phoenix server cache endpoint.
+ */
+public class InterRegionServerCacheRelayRpcControllerFactory extends RpcControllerFactory {
+
+    public InterRegionServerCacheRelayRpcControllerFactory(Configuration conf) {
+        super(conf);
+    }
+
+    @Override
+    public HBaseRpcController newController() {
+        HBaseRpcController delegate = super.newController();
+        return getController(delegate);
+    }
+
+    @Override
+    public HBaseRpcController newController(CellScanner cellScanner) {
+        HBaseRpcController delegate = super.newController(cellScanner);
+        return getController(delegate);
+    }
+
+    @Override
+    public HBaseRpcController newController(List<CellScannable> cellIterables) {
+        HBaseRpcController delegate = super.newController(cellIterables);
+        return getController(delegate);
+    }
+
+    private HBaseRpcController getController(HBaseRpcController delegate) {
+        return new ServerCacheRelayRpcController(delegate, conf);
+    }
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.BaseRegionScanner;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.coprocessor.DelegateRegionScanner;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.index.PhoenixIndexCodec;
+import org.apache.phoenix.join.HashJoinInfo;
+import org.apache.phoenix.memory.InsufficientMemoryException;
+import org.apache.phoenix.memory.MemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.ScanUtil;
+import org.apache.phoenix.util.SizedUtil;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * 
+ * Server side cache of the results of aggregate scans over a region, so that repeating an
+ * aggregate query over data that did not change does not aggregate it again. Results are
+ * keyed by the region and the scan, including its filter, aggregators, key range and time
+ * range, and are only valid for the version of the region data they were computed from: the
+ * MVCC read point of the region, which advances with every write, and its set of store files,
+ * which changes with bulk loads. A result whose version differs from the current version of
+ * its region is dropped when it is looked up.
+ *
+ * The memory of cached results is allocated from the {@link GlobalCache} memory manager, and
+ * the least recently used results are evicted when the cache is full or the memory manager
+ * has no memory left.
+ *
+ */
+public class AggregateResultCache {
+    private static final long ENTRY_OVERHEAD = SizedUtil.OBJECT_SIZE * 4 + SizedUtil.IMMUTABLE_BYTES_PTR_SIZE;
+    private static final long ROW_OVERHEAD = SizedUtil.ARRAY_SIZE + SizedUtil.POINTER_SIZE;
+    private static final long CELL_OVERHEAD = SizedUtil.OBJECT_SIZE + SizedUtil.POINTER_SIZE + SizedUtil.INT_SIZE * 2;
+
+    private final MemoryManager memoryManager;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final AggregateResultCacheSource metricsSource;
+    // Results in least recently used order
+    private final LinkedHashMap<ImmutableBytesPtr,Entry> entries = new LinkedHashMap<ImmutableBytesPtr,Entry>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * @param memoryManager memory manager the memory of the cached results is allocated from
+     * @param maxBytes max bytes of cached results
+     * @param maxEntryBytes max bytes of the results of a single scan
+     * @param metricsSource metrics source for the hits, misses and evictions of the cache
+     */
+    public AggregateResultCache(MemoryManager memoryManager, long maxBytes, long maxEntryBytes,
+            AggregateResultCacheSource metricsSource) {
+        this.memoryManager = memoryManager;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxBytes, maxEntryBytes);
+        this.metricsSource = metricsSource;
+    }
+
+    /**
+     * Gets the cache key of the results of an aggregate scan over a region
+     * @return the cache key, or null if the results of the scan may not be cached since
+     * the scan writes, depends on state other than the region data, such as a transaction
+     * or a hash join cache, or reads a table whose cells expire
+     */
+    public ImmutableBytesPtr getCacheKey(Region region, Scan scan) throws IOException {
+        if (!isCacheable(region, scan)) {
+            return null;
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(stream);
+        Bytes.writeByteArray(output, region.getRegionInfo().getEncodedNameAsBytes());
+        Bytes.writeByteArray(output, scan.getStartRow());
+        output.writeBoolean(scan.includeStartRow());
+        Bytes.writeByteArray(output, scan.getStopRow());
+        output.writeBoolean(scan.includeStopRow());
+        output.writeLong(scan.getTimeRange().getMin());
+        output.writeLong(scan.getTimeRange().getMax());
+        output.writeInt(scan.getMaxVersions());
+        output.writeInt(scan.getBatch());
+        output.writeBoolean(scan.isRaw());
+        output.writeBoolean(scan.isReversed());
+        Map<byte[],NavigableSet<byte[]>> familyMap = scan.getFamilyMap();
+        output.writeInt(familyMap.size());
+        for (Map.Entry<byte[],NavigableSet<byte[]>> family : familyMap.entrySet()) {
+            Bytes.writeByteArray(output, family.getKey());
+            if (family.getValue() == null) {
+                output.writeInt(-1);
+            } else {
+                output.writeInt(family.getValue().size());
+                for (byte[] qualifier : family.getValue()) {
+                    Bytes.writeByteArray(output, qualifier);
+                }
+            }
+        }
+        Filter filter = scan.getFilter();
+        if (filter == null) {
+            output.writeUTF("");
+        } else {
+            output.writeUTF(filter.getClass().getName());
+            Bytes.writeByteArray(output, filter.toByteArray());
+        }
+        // Attributes carry the aggregators, group by expressions and projections
+        TreeMap<String,byte[]> attributes = new TreeMap<String,byte[]>(scan.getAttributesMap());
+        output.writeInt(attributes.size());
+        for (Map.Entry<String,byte[]> attribute : attributes.entrySet()) {
+            output.writeUTF(attribute.getKey());
+            Bytes.writeByteArray(output, attribute.getValue());
+        }
+        output.close();
+        return new ImmutableBytesPtr(stream.toByteArray());
+    }
+
+    private static boolean isCacheable(Region region, Scan scan) {
+        if (ScanUtil.isAnalyzeTable(scan)
+                || ScanUtil.isIndexRebuild(scan)
+                || ScanUtil.isLocalIndex(scan)
+                || HashJoinInfo.isHashJoin(scan)
+                || scan.getAttribute(BaseScannerRegionObserver.TX_STATE) != null
+                || scan.getAttribute(BaseScannerRegionObserver.UPSERT_SELECT_TABLE) != null
+                || scan.getAttribute(BaseScannerRegionObserver.DELETE_AGG) != null
+                || scan.getAttribute(BaseScannerRegionObserver.DELETE_CF) != null
+                || scan.getAttribute(BaseScannerRegionObserver.EMPTY_CF) != null
+                || scan.getAttribute(BaseScannerRegionObserver.UPGRADE_DESC_ROW_KEY) != null
+                || scan.getAttribute(BaseScannerRegionObserver.LOCAL_INDEX_BUILD) != null
+                || scan.getAttribute(BaseScannerRegionObserver.LOCAL_INDEX_BUILD_PROTO) != null
+                || scan.getAttribute(BaseScannerRegionObserver.REPLAY_WRITES) != null
+                || scan.getAttribute(PhoenixIndexCodec.INDEX_UUID) != null) {
+            return false;
+        }
+        for (ColumnFamilyDescriptor family : region.getTableDescriptor().getColumnFamilies()) {
+            if (family.getTimeToLive() != HConstants.FOREVER) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the version of the region data read by a scanner opened at the given read point
+     */
+    public static String getRegionVersion(Region region, long readPoint) {
+        List<String> storeFiles = new ArrayList<String>();
+        for (Store store : region.getStores()) {
+            for (StoreFile storeFile : store.getStorefiles()) {
+                storeFiles.add(storeFile.getPath().getName());
+            }
+        }
+        Collections.sort(storeFiles);
+        StringBuilder buf = new StringBuilder();
+        buf.append(readPoint);
+        for (String storeFile : storeFiles) {
+            buf.append(',').append(storeFile);
+        }
+        return buf.toString();
+    }
+
+    private static long getCurrentReadPoint(Region region) {
+        return ((HRegion)region).getMVCC().getReadPoint();
+    }
+
+    /**
+     * Gets a scanner returning the cached results of an aggregate scan
+     * @param key the cache key of the scan
+     * @param s the scanner of the region, closed when the returned scanner is closed
+     * @return the scanner, or null if the results of the scan are not cached for the
+     * current version of the region data
+     */
+    public RegionScanner getCachedScanner(ImmutableBytesPtr key, Region region, RegionScanner s) {
+        List<CachedRow> rows = get(key, getRegionVersion(region, getCurrentReadPoint(region)));
+        return rows == null ? null : new CachedResultScanner(s, rows);
+    }
+
+    /**
+     * Wraps the scanner returning the results of an aggregate scan to cache the results once
+     * they are all returned
+     * @param key the cache key of the scan
+     * @param readPoint the read point the region data was read at
+     * @param scanner the scanner returning the aggregated rows
+     */
+    public RegionScanner newCachingScanner(ImmutableBytesPtr key, Region region, long readPoint, RegionScanner scanner) {
+        return new CachingResultScanner(scanner, key, getRegionVersion(region, readPoint));
+    }
+
+    @VisibleForTesting
+    List<CachedRow> get(ImmutableBytesPtr key, String version) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.version.equals(version)) {
+                    metricsSource.incrementCacheHits();
+                    return entry.rows;
+                }
+                // The region data changed since the results were cached
+                remove(key);
+            }
+        }
+        metricsSource.incrementCacheMisses();
+        return null;
+    }
+
+    @VisibleForTesting
+    boolean put(ImmutableBytesPtr key, String version, List<CachedRow> rows, long rowsSize) {
+        long entrySize = ENTRY_OVERHEAD + key.getLength() + version.length() * 2 + rowsSize;
+        if (entrySize > maxEntryBytes) {
+            return false;
+        }
+        synchronized (entries) {
+            remove(key);
+            while (size + entrySize > maxBytes && evictEldest()) {
+            }
+            MemoryChunk chunk = null;
+            while (chunk == null) {
+                try {
+                    chunk = memoryManager.allocate(entrySize);
+                } catch (InsufficientMemoryException e) {
+                    if (!evictEldest()) {
+                        return false;
+                    }
+                }
+            }
+            entries.put(key, new Entry(version, rows, chunk));
+            size += entrySize;
+            metricsSource.setCacheSize(size);
+            return true;
+        }
+    }
+
+    /**
+     * Drops the results cached for the scans of a region, when the region is closed
+     */
+    public void invalidate(Region region) {
+        byte[] encodedName = region.getRegionInfo().getEncodedNameAsBytes();
+        byte[] prefix = new byte[Bytes.SIZEOF_INT + encodedName.length];
+        // Key prefix written by Bytes.writeByteArray
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(prefix.length);
+        DataOutputStream output = new DataOutputStream(stream);
+        try {
+            Bytes.writeByteArray(output, encodedName);
+            output.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e); // Impossible
+        }
+        prefix = stream.toByteArray();
+        synchronized (entries) {
+            Iterator<Map.Entry<ImmutableBytesPtr,Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<ImmutableBytesPtr,Entry> entry = iterator.next();
+                ImmutableBytesPtr key = entry.getKey();
+                if (key.getLength() >= prefix.length
+                        && Bytes.equals(key.get(), key.getOffset(), prefix.length, prefix, 0, prefix.length)) {
+                    iterator.remove();
+                    release(entry.getValue());
+                }
+            }
+            metricsSource.setCacheSize(size);
+        }
+    }
+
+    @VisibleForTesting
+    long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    private void remove(ImmutableBytesPtr key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            release(entry);
+            metricsSource.setCacheSize(size);
+        }
+    }
+
+    private boolean evictEldest() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        Entry entry = iterator.next();
+        iterator.remove();
+        release(entry);
+        metricsSource.incrementCacheEvictions();
+        return true;
+    }
+
+    private void release(Entry entry) {
+        size -= entry.chunk.getSize();
+        entry.chunk.close();
+    }
+
+    private static class Entry {
+        private final String version;
+        private final List<CachedRow> rows;
+        private final MemoryChunk chunk;
+
+        private Entry(String version, List<CachedRow> rows, MemoryChunk chunk) {
+            this.version = version;
+            this.rows = rows;
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * Cells returned by a call to next of an aggregate scanner, and whether it returned more
+     */
+    @VisibleForTesting
+    static class CachedRow {
+        private final KeyValue[] cells;
+        private final boolean hasMore;
+
+        CachedRow(KeyValue[] cells, boolean hasMore) {
+            this.cells = cells;
+            this.hasMore = hasMore;
+        }
+    }
+
+    private static class CachedResultScanner extends BaseRegionScanner {
+        private final List<CachedRow> rows;
+        private int index;
+
+        private CachedResultScanner(RegionScanner s, List<CachedRow> rows) {
+            super(s);
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean isFilterDone() {
+            return index >= rows.size();
+        }
+
+        @Override
+        public boolean next(List<Cell> results) throws IOException {
+            if (index >= rows.size()) {
+                return false;
+            }
+            CachedRow row = rows.get(index++);
+            Collections.addAll(results, row.cells);
+            return row.hasMore;
+        }
+    }
+
+    private class CachingResultScanner extends DelegateRegionScanner {
+        private final ImmutableBytesPtr key;
+        private final String version;
+        private List<CachedRow> rows = new ArrayList<CachedRow>();
+        private long rowsSize;
+
+        private CachingResultScanner(RegionScanner scanner, ImmutableBytesPtr key, String version) {
+            super(scanner);
+            this.key = key;
+            this.version = version;
+        }
+
+        @Override
+        public boolean next(List<Cell> results) throws IOException {
+            int start = results.size();
+            boolean hasMore = delegate.next(results);
+            record(results, start, hasMore);
+            return hasMore;
+        }
+
+        @Override
+        public boolean nextRaw(List<Cell> results) throws IOException {
+            int start = results.size();
+            boolean hasMore = delegate.nextRaw(results);
+            record(results, start, hasMore);
+            return hasMore;
+        }
+
+        @Override
+        public boolean next(List<Cell> results, ScannerContext scannerContext) throws IOException {
+            int start = results.size();
+            boolean hasMore = delegate.next(results, scannerContext);
+            record(results, start, hasMore);
+            return hasMore;
+        }
+
+        @Override
+        public boolean nextRaw(List<Cell> results, ScannerContext scannerContext) throws IOException {
+            int start = results.size();
+            boolean hasMore = delegate.nextRaw(results, scannerContext);
+            record(results, start, hasMore);
+            return hasMore;
+        }
+
+        private void record(List<Cell> results, int start, boolean hasMore) {
+            if (rows == null) {
+                return;
+            }
+            KeyValue[] cells = new KeyValue[results.size() - start];
+            rowsSize += ROW_OVERHEAD + SizedUtil.POINTER_SIZE * cells.length;
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = PhoenixKeyValueUtil.maybeCopyCell(results.get(start + i));
+                rowsSize += CELL_OVERHEAD + cells[i].getLength();
+            }
+            rows.add(new CachedRow(cells, hasMore));
+            if (rowsSize > maxEntryBytes) {
+                // Too large to be cached
+                rows = null;
+            } else if (!hasMore) {
+                put(key, version, rows, rowsSize);
+                rows = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import org.apache.hadoop.hbase.metrics.BaseSource;
+
+/**
+ * Interface for metrics from {@link AggregateResultCache}
+ */
+public interface AggregateResultCacheSource extends BaseSource {
+    // Metrics2 and JMX constants
+    String METRICS_NAME = "AggregateResultCache";
+    String METRICS_CONTEXT = "phoenix";
+    String METRICS_DESCRIPTION = "Metrics about the Phoenix aggregate result cache";
+    String METRICS_JMX_CONTEXT = "RegionServer,sub=" + METRICS_NAME;
+
+    String CACHE_HIT = "aggregateResultCacheHits";
+    String CACHE_HIT_DESC = "The number of aggregate scans answered from the cache";
+
+    String CACHE_MISS = "aggregateResultCacheMisses";
+    String CACHE_MISS_DESC = "The number of cacheable aggregate scans not found in the cache";
+
+    String CACHE_EVICTION = "aggregateResultCacheEvictions";
+    String CACHE_EVICTION_DESC = "The number of cached results evicted to make room for others";
+
+    String CACHE_SIZE = "aggregateResultCacheSize";
+    String CACHE_SIZE_DESC = "The number of bytes of cached results";
+
+    /**
+     * Increments the number of cache hits
+     */
+    void incrementCacheHits();
+
+    /**
+     * Increments the number of cache misses
+     */
+    void incrementCacheMisses();
+
+    /**
+     * Increments the number of evicted results
+     */
+    void incrementCacheEvictions();
+
+    /**
+     * Sets the number of bytes of cached results
+     *
+     * @param size size in bytes
+     */
+    void setCacheSize(long size);
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import org.apache.hadoop.hbase.metrics.BaseSourceImpl;
+import org.apache.hadoop.metrics2.lib.MutableFastCounter;
+import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
+
+/**
+ * Implementation for tracking {@link AggregateResultCache} metrics.
+ */
+public class AggregateResultCacheSourceImpl extends BaseSourceImpl implements AggregateResultCacheSource {
+
+    private final MutableFastCounter cacheHits;
+    private final MutableFastCounter cacheMisses;
+    private final MutableFastCounter cacheEvictions;
+    private final MutableGaugeLong cacheSize;
+
+    public AggregateResultCacheSourceImpl() {
+        this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
+    }
+
+    public AggregateResultCacheSourceImpl(String metricsName,
+                                          String metricsDescription,
+                                          String metricsContext,
+                                          String metricsJmxContext) {
+        super(metricsName, metricsDescription, metricsContext, metricsJmxContext);
+
+        cacheHits = getMetricsRegistry().newCounter(CACHE_HIT, CACHE_HIT_DESC, 0L);
+        cacheMisses = getMetricsRegistry().newCounter(CACHE_MISS, CACHE_MISS_DESC, 0L);
+        cacheEvictions = getMetricsRegistry().newCounter(CACHE_EVICTION, CACHE_EVICTION_DESC, 0L);
+        cacheSize = getMetricsRegistry().newGauge(CACHE_SIZE, CACHE_SIZE_DESC, 0L);
+    }
+
+    @Override
+    public void incrementCacheHits() {
+        cacheHits.incr();
+    }
+
+    @Override
+    public void incrementCacheMisses() {
+        cacheMisses.incr();
+    }
+
+    @Override
+    public void incrementCacheEvictions() {
+        cacheEvictions.incr();
+    }
+
+    @Override
+    public void setCacheSize(long size) {
+        cacheSize.set(size);
+    }
+}
@@ -62,6 +62,8 @@ public class GlobalCache extends TenantCacheImpl {
     private final ConcurrentMap<ImmutableBytesWritable,TenantCache> perTenantCacheMap = new ConcurrentHashMap<ImmutableBytesWritable,TenantCache>();
     // Cache for lastest PTable for a given Phoenix table
     private volatile Cache<ImmutableBytesPtr,PMetaDataEntity> metaDataCache;
+    // Cache for the results of aggregate scans, null until first used
+    private volatile AggregateResultCache aggregateResultCache;
     
     public long clearTenantCache() {
         long unfreedBytes = getMemoryManager().getMaxMemory() - getMemoryManager().getAvailableMemory();
@@ -117,6 +119,31 @@ public class GlobalCache extends TenantCacheImpl {
         return result;
     }
 
+    /**
+     * Get the cache of aggregate scan results, shared by all regions of the region server
+     * @return the cache, or null if it is disabled
+     */
+    public AggregateResultCache getAggregateResultCache() {
+        long maxBytes = config.getLong(QueryServices.AGGREGATE_RESULT_CACHE_MAX_BYTES_ATTRIB,
+                QueryServicesOptions.DEFAULT_AGGREGATE_RESULT_CACHE_MAX_BYTES);
+        if (maxBytes <= 0) {
+            return null;
+        }
+        AggregateResultCache result = aggregateResultCache;
+        if (result == null) {
+            synchronized(this) {
+                result = aggregateResultCache;
+                if(result == null) {
+                    long maxEntryBytes = config.getLong(QueryServices.AGGREGATE_RESULT_CACHE_MAX_ENTRY_BYTES_ATTRIB,
+                            QueryServicesOptions.DEFAULT_AGGREGATE_RESULT_CACHE_MAX_ENTRY_BYTES);
+                    aggregateResultCache = result = new AggregateResultCache(getMemoryManager(), maxBytes,
+                            maxEntryBytes, new AggregateResultCacheSourceImpl());
+                }
+            }
+        }
+        return result;
+    }
+
     public static GlobalCache getInstance(RegionCoprocessorEnvironment env) {
         GlobalCache result = INSTANCE;
         if (result == null) {
@@ -272,6 +272,7 @@ public class ServerCacheClient {
             // Size these based on worst case
             futures = new ArrayList<Future<Boolean>>(nRegions);
             Set<HRegionLocation> servers = new HashSet<HRegionLocation>(nRegions);
+            List<byte[]> keys = new ArrayList<byte[]>(nRegions);
             for (HRegionLocation entry : locations) {
                 // Keep track of servers we've sent to and only send once
                 byte[] regionStartKey = entry.getRegion().getStartKey();
@@ -285,31 +286,7 @@ public class ServerCacheClient {
                         LOGGER.debug(addCustomAnnotations(
                                 "Adding cache entry to be sent for " + entry, connection));
                     }
-                    final byte[] key = getKeyInRegion(entry.getRegionInfo().getStartKey());
-                    final Table htable = services.getTable(cacheUsingTable.getPhysicalName().getBytes());
-                    closeables.add(htable);
-                    futures.add(executor.submit(new JobCallable<Boolean>() {
-                        
-                        @Override
-                        public Boolean call() throws Exception {
-                            return addServerCache(htable, key, cacheUsingTable, cacheId, cachePtr, cacheFactory, txState, usePersistentCache);
-                        }
-
-                        /**
-                         * Defines the grouping for round robin behavior.  All threads spawned to process
-                         * this scan will be grouped together and time sliced with other simultaneously
-                         * executing parallel scans.
-                         */
-                        @Override
-                        public Object getJobId() {
-                            return ServerCacheClient.this;
-                        }
-                        
-                        @Override
-                        public TaskExecutionMetricsHolder getTaskExecutionMetric() {
-                            return NO_OP_INSTANCE;
-                        }
-                    }));
+                    keys.add(getKeyInRegion(entry.getRegionInfo().getStartKey()));
                 } else {
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug(addCustomAnnotations(
@@ -318,6 +295,55 @@ public class ServerCacheClient {
                     }
                 }
             }
+            /*
+             * With a fanout, send to that many region servers only and have each of them relay the
+             * cache to the other region servers of its group, so that the client sends the cache
+             * fanout times instead of once per region server.
+             */
+            final int fanout = services.getProps().getInt(QueryServices.SERVER_CACHE_FANOUT_ATTRIB,
+                    QueryServicesOptions.DEFAULT_SERVER_CACHE_FANOUT);
+            for (List<byte[]> group : getRelayGroups(keys, fanout <= 0 ? keys.size() : fanout)) {
+                final byte[] key = group.get(0);
+                final List<byte[]> relayKeys = group.subList(1, group.size());
+                final Table htable = services.getTable(cacheUsingTable.getPhysicalName().getBytes());
+                closeables.add(htable);
+                futures.add(executor.submit(new JobCallable<Boolean>() {
+                    
+                    @Override
+                    public Boolean call() throws Exception {
+                        if (addServerCache(htable, key, cacheUsingTable, cacheId, cachePtr, cacheFactory, txState,
+                                usePersistentCache, relayKeys, fanout) || relayKeys.isEmpty()) {
+                            return true;
+                        }
+                        // The relay timed out or failed somewhere in the group, so send to the
+                        // region servers of the group directly
+                        LOGGER.warn(addCustomAnnotations("Cache " + Bytes.toLong(cacheId)
+                                + " not relayed to all " + relayKeys.size()
+                                + " region servers, sending it to them directly", connection));
+                        boolean added = true;
+                        for (byte[] relayKey : relayKeys) {
+                            added &= addServerCache(htable, relayKey, cacheUsingTable, cacheId, cachePtr,
+                                    cacheFactory, txState, usePersistentCache);
+                        }
+                        return added;
+                    }
+
+                    /**
+                     * Defines the grouping for round robin behavior.  All threads spawned to process
+                     * this scan will be grouped together and time sliced with other simultaneously
+                     * executing parallel scans.
+                     */
+                    @Override
+                    public Object getJobId() {
+                        return ServerCacheClient.this;
+                    }
+                    
+                    @Override
+                    public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                        return NO_OP_INSTANCE;
+                    }
+                }));
+            }
 
             hashCacheSpec = new ServerCache(cacheId,servers,cachePtr, services, storeCacheOnClient);
             // Execute in parallel
@@ -460,6 +486,25 @@ public class ServerCacheClient {
         return Long.toString(Bytes.toLong(uuid));
     }
 
+    /**
+     * Splits the keys of the region servers a server cache is sent to into groups, the first
+     * region server of a group being sent the cache and relaying it to the others
+     * @param keys keys in a region of each region server
+     * @param fanout max number of groups
+     * @return groups of consecutive keys whose sizes differ by at most one
+     */
+    public static <T> List<List<T>> getRelayGroups(List<T> keys, int fanout) {
+        int nGroups = Math.min(Math.max(fanout, 1), keys.size());
+        List<List<T>> groups = new ArrayList<List<T>>(nGroups);
+        int start = 0;
+        for (int i = 0; i < nGroups; i++) {
+            int end = start + (keys.size() - start) / (nGroups - i);
+            groups.add(keys.subList(start, end));
+            start = end;
+        }
+        return groups;
+    }
+
     private static byte[] getKeyInRegion(byte[] regionStartKey) {
         assert (regionStartKey != null);
         if (Bytes.equals(regionStartKey, HConstants.EMPTY_START_ROW)) {
@@ -495,6 +540,20 @@ public class ServerCacheClient {
     public boolean addServerCache(Table htable, byte[] key, final PTable cacheUsingTable, final byte[] cacheId,
             final ImmutableBytesWritable cachePtr, final ServerCacheFactory cacheFactory, final byte[] txState, final boolean usePersistentCache)
             throws Exception {
+        return addServerCache(htable, key, cacheUsingTable, cacheId, cachePtr, cacheFactory, txState,
+                usePersistentCache, Collections.<byte[]>emptyList(), 0);
+    }
+
+    /**
+     * Sends a server cache to the region server of the region containing key, which relays it to
+     * the region servers of the regions containing relayKeys
+     * @return true if the cache was added to the region server and all the region servers it
+     * was relayed to
+     */
+    public boolean addServerCache(Table htable, byte[] key, final PTable cacheUsingTable, final byte[] cacheId,
+            final ImmutableBytesWritable cachePtr, final ServerCacheFactory cacheFactory, final byte[] txState,
+            final boolean usePersistentCache, List<byte[]> relayKeys, int relayFanout)
+            throws Exception {
         byte[] keyInRegion = getKeyInRegion(key);
         final Map<byte[], AddServerCacheResponse> results;
 
@@ -526,6 +585,12 @@ public class ServerCacheClient {
         builder.setCacheFactory(svrCacheFactoryBuider.build());
         builder.setTxState(ByteStringer.wrap(txState));
         builder.setClientVersion(MetaDataProtocol.PHOENIX_VERSION);
+        if (!relayKeys.isEmpty()) {
+            for (byte[] relayKey : relayKeys) {
+                builder.addRelayKeys(ByteStringer.wrap(relayKey));
+            }
+            builder.setRelayFanout(relayFanout);
+        }
         final AddServerCacheRequest request = builder.build();
 
         try {
@@ -245,7 +245,11 @@ public class TenantCacheImpl implements TenantCache {
             CacheEntry entry;
             synchronized(this) {
                 entry = getIfPresent(cacheId);
-                if (entry == null) {
+                if (entry != null) {
+                    // Sent again, such as a persistent cache or a cache resent after a failed
+                    // relay, so only the memory of the existing entry is kept
+                    chunk.close();
+                } else {
                     entry = new CacheEntry(
                             cacheId, cachePtr, cacheFactory, txState, chunk,
                             usePersistentCache, useProtoForIndexMaintainer,
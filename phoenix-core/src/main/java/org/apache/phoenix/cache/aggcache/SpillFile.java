@@ -21,6 +21,7 @@ package org.apache.phoenix.cache.aggcache;
 import com.google.common.collect.Maps;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.phoenix.util.Closeables;
+import org.apache.phoenix.util.MappedByteBufferUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,9 +29,11 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.UUID;
 
@@ -39,6 +42,10 @@ import java.util.UUID;
  * For every SpillFile object a single spill file is always created. 
  * Additional overflow files are dynamically created in case the page index requested is not covered by
  * the spillFiles allocated so far
+ * If the spill file is mapped, as enabled by
+ * {@link org.apache.phoenix.query.QueryServices#SPOOL_MMAP_ENABLED_ATTRIB}, pages are accessed
+ * through memory mapped regions of the files, mapped lazily as they are first used, so that
+ * reading and writing a page doesn't take a system call per value.
  */
 public class SpillFile implements Closeable {
 
@@ -47,23 +54,44 @@ public class SpillFile implements Closeable {
     private static final int SPILL_FILE_SIZE = Integer.MAX_VALUE;
     // Page size for a spill file 4K
     static final int DEFAULT_PAGE_SIZE = 4096;
+    // Size of a single memory mapped region of a spill file 64MB, a multiple of the page size
+    private static final int MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    private static final int PAGES_PER_REGION = MAPPED_REGION_SIZE / DEFAULT_PAGE_SIZE;
+    private static final int REGIONS_PER_FILE = SPILL_FILE_SIZE / MAPPED_REGION_SIZE;
     // Map of initial SpillFile at index 0, and overflow spillFiles
     private Map<Integer, TempFile> tempFiles;
     // Custom spill files directory
     private File spillFilesDirectory = null;
+    // Whether pages are accessed through memory mapped regions
+    private final boolean isMapped;
 
-    // Wrapper class for a TempFile: File + RandomAccessFile
+    // Wrapper class for a TempFile: File + RandomAccessFile + mapped regions
     private static class TempFile implements Closeable {
         private final RandomAccessFile rndFile;
         private final File file;
+        private final MappedByteBuffer[] regions = new MappedByteBuffer[REGIONS_PER_FILE];
 
         public TempFile(File file, RandomAccessFile rndFile) {
             this.file = file;
             this.rndFile = rndFile;
         }
 
+        private MappedByteBuffer getRegion(int index) throws IOException {
+            MappedByteBuffer region = regions[index];
+            if (region == null) {
+                region = rndFile.getChannel().map(MapMode.READ_WRITE,
+                        (long) index * MAPPED_REGION_SIZE, MAPPED_REGION_SIZE);
+                regions[index] = region;
+            }
+            return region;
+        }
+
         @Override
         public void close() throws IOException {
+            for (MappedByteBuffer region : regions) {
+                MappedByteBufferUtil.unmap(region);
+            }
+            Arrays.fill(regions, null);
             Closeables.closeQuietly(rndFile.getChannel());
             Closeables.closeQuietly(rndFile);
 
@@ -80,8 +108,9 @@ public class SpillFile implements Closeable {
         }
     }
 
-    private SpillFile(File spillFilesDirectory) throws IOException {
+    private SpillFile(File spillFilesDirectory, boolean isMapped) throws IOException {
       this.spillFilesDirectory = spillFilesDirectory;
+      this.isMapped = isMapped;
       this.tempFiles = Maps.newHashMap();
       // Init the first pre-allocated spillFile
       tempFiles.put(0, createTempFile());
@@ -90,10 +119,12 @@ public class SpillFile implements Closeable {
     /**
      * Create a new SpillFile using the Java TempFile creation function. SpillFile is access in
      * pages.
+     * @param isMapped whether pages are accessed through {@link #getMappedPage(int)} rather
+     * than {@link #getPage(int)}
      */
-    public static SpillFile createSpillFile(File spillFilesDir) {
+    public static SpillFile createSpillFile(File spillFilesDir, boolean isMapped) {
     	try {
-    		return new SpillFile(spillFilesDir);
+    		return new SpillFile(spillFilesDir, isMapped);
     	} catch (IOException ioe) {
         	throw new RuntimeException("Could not create Spillfile " + ioe);
         }
@@ -113,6 +144,10 @@ public class SpillFile implements Closeable {
         return new TempFile(tempFile, file);
     }
 
+    public boolean isMapped() {
+        return isMapped;
+    }
+
     /**
      * Random access to a page of the current spill file
      * @param index
@@ -150,6 +185,40 @@ public class SpillFile implements Closeable {
         }
     }
 
+    /**
+     * Random access to a page of the current spill file through its memory mapped region
+     * @param index
+     * @return a buffer over the mapped page, positioned at its start
+     */
+    public ByteBuffer getMappedPage(int index) {
+        try {
+            TempFile tempFile = null;
+            // Get the index of the file that should contain the pageID
+            int regionIndex = index / PAGES_PER_REGION;
+            int fileIndex = regionIndex / REGIONS_PER_FILE;
+            if (!tempFiles.containsKey(fileIndex)) {
+                // Dynamically add new spillFiles if directory grows beyond
+                // max page ID.
+                tempFile = createTempFile();
+                tempFiles.put(fileIndex, tempFile);
+            }
+            tempFile = tempFiles.get(fileIndex);
+            ByteBuffer page = tempFile.getRegion(regionIndex % REGIONS_PER_FILE).duplicate();
+            int offset = (index % PAGES_PER_REGION) * DEFAULT_PAGE_SIZE;
+            page.position(offset);
+            page.limit(offset + DEFAULT_PAGE_SIZE);
+            return page.slice();
+        } catch (IOException ioe) {
+            // Close resource
+            close();
+            throw new RuntimeException("Could not get page at index: " + index);
+        } catch (IllegalArgumentException iae) {
+            // Close resource
+            close();
+            throw iae;
+        }
+    }
+
     @Override
     public void close() {
     	for(TempFile file : tempFiles.values()) {
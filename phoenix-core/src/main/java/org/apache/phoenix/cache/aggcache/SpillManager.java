@@ -39,6 +39,7 @@ import org.apache.phoenix.expression.function.SingleAggregateFunction;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.KeyValueSchema;
 import org.apache.phoenix.schema.ValueBitSet;
 import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
@@ -117,13 +118,16 @@ public class SpillManager implements Closeable {
             File spillFilesDir = conf.get(QueryServices.SPOOL_DIRECTORY) != null ?
                 new File(conf.get(QueryServices.SPOOL_DIRECTORY)) : null;
             
+            boolean isSpillFileMapped = conf.getBoolean(QueryServices.SPOOL_MMAP_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
+
             // Ensure that a single element fits onto a page!!!
             Preconditions.checkArgument(SpillFile.DEFAULT_PAGE_SIZE > estValueSize);
 
             // Create a list of spillFiles
             // Each Spillfile only handles up to 2GB data
             for (int i = 0; i < numSpillFiles; i++) {
-                SpillFile file = SpillFile.createSpillFile(spillFilesDir);
+                SpillFile file = SpillFile.createSpillFile(spillFilesDir, isSpillFileMapped);
                 spillMaps.add(new SpillMap(file, SpillFile.DEFAULT_PAGE_SIZE, estValueSize, cache));
             }
         } catch (IOException ioe) {
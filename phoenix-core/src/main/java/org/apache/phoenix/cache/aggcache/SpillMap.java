@@ -21,6 +21,7 @@ package org.apache.phoenix.cache.aggcache;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -362,32 +363,36 @@ public class SpillMap extends AbstractMap<ImmutableBytesPtr, byte[]> implements
             return true;
         }
 
-        // Flush the current page to the memory mapped byte buffer
+        // Flush the current page to the spill file
         private void flushBuffer() {
             if (pagedIn) {
                 // Only flush if page was changed
                 if (dirtyPage) {
                     Collection<byte[]> values = pageMap.values();
-                    RandomAccessFile file = spillFile.getPage(pageIndex);
-                    // number of elements
-                    try {
-                        file.writeInt(values.size());
-                        int written = Bytes.SIZEOF_INT;
-                        for (byte[] value : values) {
-                            written += Bytes.SIZEOF_INT + value.length;
-                            // safety check
-                            if (written > SpillFile.DEFAULT_PAGE_SIZE) {
-                                throw new BufferOverflowException();
+                    if (spillFile.isMapped()) {
+                        flushMappedPage(values);
+                    } else {
+                        RandomAccessFile file = spillFile.getPage(pageIndex);
+                        // number of elements
+                        try {
+                            file.writeInt(values.size());
+                            int written = Bytes.SIZEOF_INT;
+                            for (byte[] value : values) {
+                                written += Bytes.SIZEOF_INT + value.length;
+                                // safety check
+                                if (written > SpillFile.DEFAULT_PAGE_SIZE) {
+                                    throw new BufferOverflowException();
+                                }
+                                // element length
+                                file.writeInt(value.length);
+                                // element
+                                file.write(value, 0, value.length);
                             }
-                            // element length
-                            file.writeInt(value.length);
-                            // element
-                            file.write(value, 0, value.length);
+                        } catch (IOException ioe) {
+                            // Error during key access on spilled resource
+                            // TODO rework error handling
+                            throw new RuntimeException(ioe);
                         }
-                    } catch (IOException ioe) {
-                        // Error during key access on spilled resource
-                        // TODO rework error handling
-                        throw new RuntimeException(ioe);
                     }
                 }
                 // Reset page stats
@@ -398,29 +403,65 @@ public class SpillMap extends AbstractMap<ImmutableBytesPtr, byte[]> implements
             dirtyPage = false;
         }
 
+        // Flush the current page to the memory mapped page of the spill file
+        private void flushMappedPage(Collection<byte[]> values) {
+            ByteBuffer page = spillFile.getMappedPage(pageIndex);
+            // number of elements
+            page.putInt(values.size());
+            int written = Bytes.SIZEOF_INT;
+            for (byte[] value : values) {
+                written += Bytes.SIZEOF_INT + value.length;
+                // safety check
+                if (written > SpillFile.DEFAULT_PAGE_SIZE) {
+                    throw new BufferOverflowException();
+                }
+                // element length
+                page.putInt(value.length);
+                // element
+                page.put(value, 0, value.length);
+            }
+        }
+
         // load a page into a map for fast element access
         private void pageIn() {
             if (!pagedIn) {
-                RandomAccessFile file = spillFile.getPage(pageIndex);
-                try {
-                int numElements = file.readInt();
-                for (int i = 0; i < numElements; i++) {
-                    int kvSize = file.readInt();
-                    byte[] data = new byte[kvSize];
-                    file.readFully(data);
-                    pageMap.put(SpillManager.getKey(data), data);
-                    totalResultSize += (data.length + Bytes.SIZEOF_INT);
-                }
-                } catch (IOException ioe) {
-                    // Error during key access on spilled resource
-                    // TODO rework error handling
-                    throw new RuntimeException(ioe);
+                if (spillFile.isMapped()) {
+                    pageInMapped();
+                } else {
+                    RandomAccessFile file = spillFile.getPage(pageIndex);
+                    try {
+                        int numElements = file.readInt();
+                        for (int i = 0; i < numElements; i++) {
+                            int kvSize = file.readInt();
+                            byte[] data = new byte[kvSize];
+                            file.readFully(data);
+                            pageMap.put(SpillManager.getKey(data), data);
+                            totalResultSize += (data.length + Bytes.SIZEOF_INT);
+                        }
+                    } catch (IOException ioe) {
+                        // Error during key access on spilled resource
+                        // TODO rework error handling
+                        throw new RuntimeException(ioe);
+                    }
                 }
                 pagedIn = true;
                 dirtyPage = false;
             }
         }
 
+        // load the memory mapped page of the spill file into the map
+        private void pageInMapped() {
+            ByteBuffer page = spillFile.getMappedPage(pageIndex);
+            int numElements = page.getInt();
+            for (int i = 0; i < numElements; i++) {
+                int kvSize = page.getInt();
+                byte[] data = new byte[kvSize];
+                page.get(data);
+                pageMap.put(SpillManager.getKey(data), data);
+                totalResultSize += (data.length + Bytes.SIZEOF_INT);
+            }
+        }
+
         /**
          * Return a cache element currently page into memory Direct access via mapped page map
          * 
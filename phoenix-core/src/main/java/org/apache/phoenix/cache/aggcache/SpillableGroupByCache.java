@@ -50,6 +50,7 @@ import org.apache.phoenix.expression.aggregator.ServerAggregators;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.memory.InsufficientMemoryException;
 import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.Closeables;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
 import org.slf4j.Logger;
@@ -253,6 +254,11 @@ public class SpillableGroupByCache implements GroupByCache {
         return rowAggregators;
     }
 
+    @Override
+    public void aggregate(ImmutableBytesPtr cacheKey, Tuple result) {
+        aggregators.aggregate(cache(cacheKey), result);
+    }
+
     /**
      * Iterator over the cache and the spilled data structures by returning CacheEntries. CacheEntries are either
      * extracted from the LRU cache or from the spillable data structures.The key/value tuples are returned in
@@ -64,5 +64,39 @@ public interface ColumnProjector {
      */
     Object getValue(Tuple tuple, PDataType type, ImmutableBytesWritable ptr) throws SQLException;
     
+    /**
+     * Get the value of the column as a long, without creating an object for it
+     * @param tuple the row containing the column
+     * @param ptr used to retrieve the value, left empty if the value is null
+     * @return the value of the column, or 0 if it is null
+     * @throws SQLException
+     */
+    long getLong(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * Get the value of the column as an int. See {@link #getLong(Tuple, ImmutableBytesWritable)}
+     */
+    int getInt(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * Get the value of the column as a short. See {@link #getLong(Tuple, ImmutableBytesWritable)}
+     */
+    short getShort(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * Get the value of the column as a byte. See {@link #getLong(Tuple, ImmutableBytesWritable)}
+     */
+    byte getByte(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * Get the value of the column as a double. See {@link #getLong(Tuple, ImmutableBytesWritable)}
+     */
+    double getDouble(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
+    /**
+     * Get the value of the column as a float. See {@link #getLong(Tuple, ImmutableBytesWritable)}
+     */
+    float getFloat(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+    
     boolean isCaseSensitive();
 }
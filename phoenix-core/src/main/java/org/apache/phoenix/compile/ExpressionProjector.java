@@ -23,7 +23,20 @@ import java.sql.SQLException;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
 import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ByteUtil;
 
 
 
@@ -39,12 +52,19 @@ public class ExpressionProjector implements ColumnProjector {
     private final Expression expression;
     private final String tableName;
     private final boolean isCaseSensitive;
+    // Whether the primitive getters can decode the value with the codec of the expression type,
+    // as the numeric PDataType.toObject implementations do for these types
+    private final boolean isCodecDecodable;
     
     public ExpressionProjector(String name, String tableName, Expression expression, boolean isCaseSensitive) {
         this.name = name;
         this.expression = expression;
         this.tableName = tableName;
         this.isCaseSensitive = isCaseSensitive;
+        this.isCodecDecodable = PDataType.equalsAny(expression.getDataType(), PLong.INSTANCE,
+                PUnsignedLong.INSTANCE, PInteger.INSTANCE, PUnsignedInt.INSTANCE, PSmallint.INSTANCE,
+                PUnsignedSmallint.INSTANCE, PTinyint.INSTANCE, PUnsignedTinyint.INSTANCE, PFloat.INSTANCE,
+                PUnsignedFloat.INSTANCE, PDouble.INSTANCE, PUnsignedDouble.INSTANCE);
     }
     
     @Override
@@ -74,12 +94,124 @@ public class ExpressionProjector implements ColumnProjector {
             }        
             return type.toObject(ptr, expression.getDataType(), expression.getSortOrder(), expression.getMaxLength(), expression.getScale());
         } catch (RuntimeException e) {
-            // FIXME: Expression.evaluate does not throw SQLException
-            // so this will unwrap throws from that.
-            if (e.getCause() instanceof SQLException) {
-                throw (SQLException) e.getCause();
-            }
-            throw e;
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Evaluate the expression, leaving ptr empty if the value is null
+     * @return true if the value is not null
+     */
+    private boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        if (!getExpression().evaluate(tuple, ptr)) {
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            return false;
+        }
+        return ptr.getLength() != 0;
+    }
+
+    private static RuntimeException unwrap(RuntimeException e) throws SQLException {
+        // FIXME: Expression.evaluate does not throw SQLException
+        // so this will unwrap throws from that.
+        if (e.getCause() instanceof SQLException) {
+            throw (SQLException) e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * Get the value through {@link #getValue(Tuple, PDataType, ImmutableBytesWritable)} for
+     * the types that are not decoded with a codec
+     */
+    private Object getObject(Tuple tuple, PDataType type, ImmutableBytesWritable ptr) throws SQLException {
+        Object value = getValue(tuple, type, ptr);
+        if (value == null) {
+            ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+        }
+        return value;
+    }
+
+    @Override
+    public final long getLong(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        if (!isCodecDecodable) {
+            Long value = (Long)getObject(tuple, PLong.INSTANCE, ptr);
+            return value == null ? 0 : value;
+        }
+        try {
+            Expression expression = getExpression();
+            return evaluate(tuple, ptr) ? expression.getDataType().getCodec().decodeLong(ptr, expression.getSortOrder()) : 0;
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public final int getInt(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        if (!isCodecDecodable) {
+            Integer value = (Integer)getObject(tuple, PInteger.INSTANCE, ptr);
+            return value == null ? 0 : value;
+        }
+        try {
+            Expression expression = getExpression();
+            return evaluate(tuple, ptr) ? expression.getDataType().getCodec().decodeInt(ptr, expression.getSortOrder()) : 0;
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public final short getShort(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        if (!isCodecDecodable) {
+            Short value = (Short)getObject(tuple, PSmallint.INSTANCE, ptr);
+            return value == null ? 0 : value;
+        }
+        try {
+            Expression expression = getExpression();
+            return evaluate(tuple, ptr) ? expression.getDataType().getCodec().decodeShort(ptr, expression.getSortOrder()) : 0;
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public final byte getByte(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        if (!isCodecDecodable) {
+            Byte value = (Byte)getObject(tuple, PTinyint.INSTANCE, ptr);
+            return value == null ? 0 : value;
+        }
+        try {
+            Expression expression = getExpression();
+            return evaluate(tuple, ptr) ? expression.getDataType().getCodec().decodeByte(ptr, expression.getSortOrder()) : 0;
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public final double getDouble(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        if (!isCodecDecodable) {
+            Double value = (Double)getObject(tuple, PDouble.INSTANCE, ptr);
+            return value == null ? 0 : value;
+        }
+        try {
+            Expression expression = getExpression();
+            return evaluate(tuple, ptr) ? expression.getDataType().getCodec().decodeDouble(ptr, expression.getSortOrder()) : 0;
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public final float getFloat(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+        if (!isCodecDecodable) {
+            Float value = (Float)getObject(tuple, PFloat.INSTANCE, ptr);
+            return value == null ? 0 : value;
+        }
+        try {
+            Expression expression = getExpression();
+            return evaluate(tuple, ptr) ? expression.getDataType().getCodec().decodeFloat(ptr, expression.getSortOrder()) : 0;
+        } catch (RuntimeException e) {
+            throw unwrap(e);
         }
     }
 
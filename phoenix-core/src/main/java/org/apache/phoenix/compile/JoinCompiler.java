@@ -651,14 +651,57 @@ public class JoinCompiler {
                         Collections.<Expression> singletonList(LiteralExpression.newConstant(1)));
             }
 
-            List<Pair<Expression, Expression>> compiled = Lists.<Pair<Expression, Expression>> newArrayListWithExpectedSize(onConditions.size());
+            List<Expression[]> compiled = compileJoinConditions(lhsCtx, rhsCtx, null, strategy);
+            List<Expression> lConditions = Lists.<Expression> newArrayListWithExpectedSize(compiled.size());
+            List<Expression> rConditions = Lists.<Expression> newArrayListWithExpectedSize(compiled.size());
+            for (Expression[] condition : compiled) {
+                lConditions.add(condition[0]);
+                rConditions.add(condition[1]);
+            }
+
+            return new Pair<List<Expression>, List<Expression>>(lConditions, rConditions);
+        }
+
+        /**
+         * Compiles the left hand side of the join conditions against the unprojected left table
+         * in rawLhsCtx, coerced and ordered exactly like the expressions returned by
+         * {@link #compileJoinConditions(StatementContext, StatementContext, Strategy)}, so that
+         * they evaluate to the same join key directly over the cells of the left table scan.
+         * @return the raw join key expressions or null if there are no join conditions
+         */
+        public List<Expression> compileRawLhsJoinConditions(StatementContext lhsCtx, StatementContext rhsCtx, StatementContext rawLhsCtx, Strategy strategy) throws SQLException {
+            if (onConditions.isEmpty()) {
+                return null;
+            }
+
+            List<Expression[]> compiled = compileJoinConditions(lhsCtx, rhsCtx, rawLhsCtx, strategy);
+            List<Expression> rawConditions = Lists.<Expression> newArrayListWithExpectedSize(compiled.size());
+            for (Expression[] condition : compiled) {
+                rawConditions.add(condition[2]);
+            }
+
+            return rawConditions;
+        }
+
+        /**
+         * @return for each join condition, the compiled left expression, right expression and,
+         * if rawLhsCtx is not null, the left expression compiled against rawLhsCtx.
+         */
+        private List<Expression[]> compileJoinConditions(StatementContext lhsCtx, StatementContext rhsCtx, StatementContext rawLhsCtx, Strategy strategy) throws SQLException {
+            List<Expression[]> compiled = Lists.<Expression[]> newArrayListWithExpectedSize(onConditions.size());
             ExpressionCompiler lhsCompiler = new ExpressionCompiler(lhsCtx);
             ExpressionCompiler rhsCompiler = new ExpressionCompiler(rhsCtx);
+            ExpressionCompiler rawLhsCompiler = rawLhsCtx == null ? null : new ExpressionCompiler(rawLhsCtx);
             for (EqualParseNode condition : onConditions) {
                 lhsCompiler.reset();
                 Expression left = condition.getLHS().accept(lhsCompiler);
                 rhsCompiler.reset();
                 Expression right = condition.getRHS().accept(rhsCompiler);
+                Expression rawLeft = null;
+                if (rawLhsCompiler != null) {
+                    rawLhsCompiler.reset();
+                    rawLeft = condition.getLHS().accept(rawLhsCompiler);
+                }
                 PDataType toType = getCommonType(left.getDataType(), right.getDataType());
                 SortOrder toSortOrder = strategy == Strategy.SORT_MERGE ? SortOrder.ASC : (strategy == Strategy.HASH_BUILD_LEFT ? right.getSortOrder() : left.getSortOrder());
                 if (left.getDataType() != toType || left.getSortOrder() != toSortOrder) {
@@ -667,18 +710,21 @@ public class JoinCompiler {
                 if (right.getDataType() != toType || right.getSortOrder() != toSortOrder) {
                     right = CoerceExpression.create(right, toType, toSortOrder, right.getMaxLength());
                 }
-                compiled.add(new Pair<Expression, Expression>(left, right));
+                if (rawLeft != null && (rawLeft.getDataType() != toType || rawLeft.getSortOrder() != toSortOrder)) {
+                    rawLeft = CoerceExpression.create(rawLeft, toType, toSortOrder, rawLeft.getMaxLength());
+                }
+                compiled.add(new Expression[] {left, right, rawLeft});
             }
             // TODO PHOENIX-4618:
             // For Stategy.SORT_MERGE, we probably need to re-order the join keys based on the
             // specific ordering required by the join's parent, or re-order the following way
             // to align with group-by expressions' re-ordering.
             if (strategy != Strategy.SORT_MERGE) {
-                Collections.sort(compiled, new Comparator<Pair<Expression, Expression>>() {
+                Collections.sort(compiled, new Comparator<Expression[]>() {
                     @Override
-                    public int compare(Pair<Expression, Expression> o1, Pair<Expression, Expression> o2) {
-                        Expression e1 = o1.getFirst();
-                        Expression e2 = o2.getFirst();
+                    public int compare(Expression[] o1, Expression[] o2) {
+                        Expression e1 = o1[0];
+                        Expression e2 = o2[0];
                         boolean isFixed1 = e1.getDataType().isFixedWidth();
                         boolean isFixed2 = e2.getDataType().isFixedWidth();
                         boolean isFixedNullable1 = e1.isNullable() &&isFixed1;
@@ -699,14 +745,7 @@ public class JoinCompiler {
                     }
                 });
             }
-            List<Expression> lConditions = Lists.<Expression> newArrayListWithExpectedSize(compiled.size());
-            List<Expression> rConditions = Lists.<Expression> newArrayListWithExpectedSize(compiled.size());
-            for (Pair<Expression, Expression> pair : compiled) {
-                lConditions.add(pair.getFirst());
-                rConditions.add(pair.getSecond());
-            }
-
-            return new Pair<List<Expression>, List<Expression>>(lConditions, rConditions);
+            return compiled;
         }
 
         private PDataType getCommonType(PDataType lType, PDataType rType) throws SQLException {
@@ -323,6 +323,9 @@ public class QueryCompiler {
                 QueryPlan[] subPlans = new QueryPlan[count];
                 HashSubPlan[] hashPlans = new HashSubPlan[count];
                 fieldPositions[0] = projectedTable.getColumns().size() - projectedTable.getPKColumns().size();
+                boolean bloomFilterEnabled = !table.isSubselect() && context.getConnection().getQueryServices().getProps().getBoolean(
+                        QueryServices.HASH_JOIN_BLOOM_FILTER_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_HASH_JOIN_BLOOM_FILTER_ENABLED);
+                ColumnResolver lhsResolver = context.getResolver();
                 for (int i = 0; i < count; i++) {
                     JoinSpec joinSpec = joinSpecs.get(i);
                     Scan subScan = ScanUtil.newScan(originalScan);
@@ -357,7 +360,17 @@ public class QueryCompiler {
                     if (i < count - 1) {
                         fieldPositions[i + 1] = fieldPositions[i] + (tables[i] == null ? 0 : (tables[i].getColumns().size() - tables[i].getPKColumns().size()));
                     }
-                    hashPlans[i] = new HashSubPlan(i, subPlans[i], optimized ? null : hashExpressions, joinSpec.isSingleValueOnly(), usePersistentCache, keyRangeLhsExpression, keyRangeRhsExpression);
+                    // Rows of the left table whose join key is not in the hash cache can only be
+                    // dropped before the join if the join only depends on the left table and
+                    // does not preserve unmatched left rows.
+                    List<Expression> bloomFilterLhsExpressions = null;
+                    if (bloomFilterEnabled && !optimized && starJoinVector != null && starJoinVector[i]
+                            && (joinSpec.getType() == JoinType.Inner || joinSpec.getType() == JoinType.Semi)) {
+                        StatementContext lhsContext = new StatementContext(statement, lhsResolver, context.getBindManager(), ScanUtil.newScan(context.getScan()), new SequenceManager(statement));
+                        lhsContext.setCurrentTable(tableRef);
+                        bloomFilterLhsExpressions = joinSpec.compileRawLhsJoinConditions(context, subContexts[i], lhsContext, strategy);
+                    }
+                    hashPlans[i] = new HashSubPlan(i, subPlans[i], optimized ? null : hashExpressions, joinSpec.isSingleValueOnly(), usePersistentCache, keyRangeLhsExpression, keyRangeRhsExpression, bloomFilterLhsExpressions);
                 }
                 TupleProjector.serializeProjectorIntoScan(context.getScan(), tupleProjector,
                         wildcardIncludesDynamicCols);
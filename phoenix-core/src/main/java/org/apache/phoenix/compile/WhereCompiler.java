@@ -43,6 +43,7 @@ import org.apache.phoenix.filter.MultiEncodedCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.RowKeyComparisonFilter;
 import org.apache.phoenix.filter.SingleCFCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.SingleCQKeyValueComparisonFilter;
+import org.apache.phoenix.filter.SkipScanFilter;
 import org.apache.phoenix.parse.ColumnParseNode;
 import org.apache.phoenix.parse.FilterableStatement;
 import org.apache.phoenix.parse.ParseNode;
@@ -51,6 +52,8 @@ import org.apache.phoenix.parse.SelectStatement;
 import org.apache.phoenix.parse.StatelessTraverseAllParseNodeVisitor;
 import org.apache.phoenix.parse.SubqueryParseNode;
 import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.AmbiguousColumnException;
 import org.apache.phoenix.schema.ColumnNotFoundException;
 import org.apache.phoenix.schema.ColumnRef;
@@ -305,7 +308,11 @@ public class WhereCompiler {
 
         ScanRanges scanRanges = context.getScanRanges();
         if (scanRanges.useSkipScanFilter()) {
-            ScanUtil.andFilterAtBeginning(scan, scanRanges.getSkipScanFilter());
+            SkipScanFilter skipScanFilter = scanRanges.getSkipScanFilter();
+            skipScanFilter.setCompactSlotThreshold(context.getConnection().getQueryServices().getProps().getInt(
+                    QueryServices.SKIP_SCAN_COMPACT_SLOT_THRESHOLD_ATTRIB,
+                    QueryServicesOptions.DEFAULT_SKIP_SCAN_COMPACT_SLOT_THRESHOLD));
+            ScanUtil.andFilterAtBeginning(scan, skipScanFilter);
         }
     }
     
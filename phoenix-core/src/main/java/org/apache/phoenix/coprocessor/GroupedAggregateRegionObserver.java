@@ -21,8 +21,10 @@ import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_ESTIMATED_DISTINCT_VALUES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_PRIMITIVE_CACHE_ENABLED_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_ESTIMATED_DISTINCT_VALUES;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_PRIMITIVE_CACHE_ENABLED;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILLABLE;
 
 import java.io.ByteArrayInputStream;
@@ -50,6 +52,7 @@ import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.cache.AggregateResultCache;
 import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.cache.TenantCache;
 import org.apache.phoenix.cache.aggcache.SpillableGroupByCache;
@@ -82,6 +85,7 @@ import org.apache.phoenix.util.TupleUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.Maps;
 
 /**
@@ -118,6 +122,17 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
             expressionBytes = scan.getAttribute(BaseScannerRegionObserver.KEY_ORDERED_GROUP_BY_EXPRESSIONS);
             keyOrdered = true;
         }
+        AggregateResultCache resultCache = GlobalCache.getInstance(c.getEnvironment()).getAggregateResultCache();
+        ImmutableBytesPtr resultCacheKey = null;
+        if (resultCache != null) {
+            resultCacheKey = resultCache.getCacheKey(c.getEnvironment().getRegion(), scan);
+            if (resultCacheKey != null) {
+                RegionScanner cachedScanner = resultCache.getCachedScanner(resultCacheKey, c.getEnvironment().getRegion(), s);
+                if (cachedScanner != null) {
+                    return cachedScanner;
+                }
+            }
+        }
         int offset = 0;
         boolean useNewValueColumnQualifier = EncodedColumnsUtil.useNewValueColumnQualifier(scan);
         if (ScanUtil.isLocalIndex(scan)) {
@@ -176,12 +191,17 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
             if (limitBytes != null) {
                 limit = PInteger.INSTANCE.getCodec().decodeInt(limitBytes, 0, SortOrder.getDefault());
             }
+            RegionScanner scanner;
             if (keyOrdered) { // Optimize by taking advantage that the rows are
                               // already in the required group by key order
-                return scanOrdered(c, scan, innerScanner, expressions, aggregators, limit);
+                scanner = scanOrdered(c, scan, innerScanner, expressions, aggregators, limit);
             } else { // Otherwse, collect them all up in an in memory map
-                return scanUnordered(c, scan, innerScanner, expressions, aggregators, limit);
+                scanner = scanUnordered(c, scan, innerScanner, expressions, aggregators, limit);
+            }
+            if (resultCacheKey != null) {
+                scanner = resultCache.newCachingScanner(resultCacheKey, c.getEnvironment().getRegion(), s.getMvccReadPoint(), scanner);
             }
+            return scanner;
         }
     }
 
@@ -304,6 +324,11 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
             return rowAggregators;
         }
 
+        @Override
+        public void aggregate(ImmutableBytesPtr cacheKey, Tuple result) {
+            aggregators.aggregate(cache(cacheKey), result);
+        }
+
         @Override
         public RegionScanner getScanner(final RegionScanner s) {
             // Compute final allocation
@@ -370,10 +395,32 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
         private GroupByCacheFactory() {
         }
 
-        GroupByCache newCache(RegionCoprocessorEnvironment env, ImmutableBytesPtr tenantId, byte[] customAnnotations, ServerAggregators aggregators, int estDistVals) {
+        GroupByCache newCache(final RegionCoprocessorEnvironment env, final ImmutableBytesPtr tenantId, byte[] customAnnotations, List<Expression> expressions, final ServerAggregators aggregators, final int estDistVals) {
             Configuration conf = env.getConfiguration();
             boolean spillableEnabled =
                     conf.getBoolean(GROUPBY_SPILLABLE_ATTRIB, DEFAULT_GROUPBY_SPILLABLE);
+            if (conf.getBoolean(GROUPBY_PRIMITIVE_CACHE_ENABLED_ATTRIB, DEFAULT_GROUPBY_PRIMITIVE_CACHE_ENABLED)) {
+                TenantCache tenantCache = GlobalCache.getTenantCache(env, tenantId);
+                MemoryChunk chunk = tenantCache.getMemoryManager().allocate(0);
+                // Groups that no longer fit in memory go to a spillable cache, if enabled
+                Supplier<GroupByCache> overflowCacheSupplier = !spillableEnabled ? null : new Supplier<GroupByCache>() {
+                    @Override
+                    public GroupByCache get() {
+                        return new SpillableGroupByCache(env, tenantId, aggregators, estDistVals);
+                    }
+                };
+                GroupByCache cache = null;
+                try {
+                    cache = PrimitiveGroupByCache.newCache(chunk, expressions, aggregators, estDistVals, overflowCacheSupplier);
+                } finally {
+                    if (cache == null) {
+                        chunk.close();
+                    }
+                }
+                if (cache != null) {
+                    return cache;
+                }
+            }
             if (spillableEnabled) {
                 return new SpillableGroupByCache(env, tenantId, aggregators, estDistVals);
             }
@@ -415,7 +462,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
         GroupByCache groupByCache =
                 GroupByCacheFactory.INSTANCE.newCache(
                         env, ScanUtil.getTenantId(scan), ScanUtil.getCustomAnnotations(scan),
-                        aggregators, estDistVals);
+                        expressions, aggregators, estDistVals);
         boolean success = false;
         try {
             boolean hasMore;
@@ -443,9 +490,8 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
                             result.setKeyValues(results);
                             ImmutableBytesPtr key =
                                 TupleUtil.getConcatenatedValue(result, expressions);
-                            Aggregator[] rowAggregators = groupByCache.cache(key);
                             // Aggregate values here
-                            aggregators.aggregate(rowAggregators, result);
+                            groupByCache.aggregate(key, result);
                         }
                     } while (hasMore && groupByCache.size() < limit);
                 }
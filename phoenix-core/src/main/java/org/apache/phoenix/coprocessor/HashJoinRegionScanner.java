@@ -162,6 +162,12 @@ public class HashJoinRegionScanner implements RegionScanner {
             if (!(joinInfo.earlyEvaluation()[i]) || hashCaches[i] == null)
                 continue;
             ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(tuple, joinInfo.getJoinExpressions()[i]);
+            // Rows outside of the current partition are joined in another pass
+            if (joinInfo.isPartitioned()
+                    && HashJoinInfo.getPartition(key, joinInfo.getPartitionCount()) != joinInfo.getPartitionIndex()) {
+                cont = false;
+                break;
+            }
             tempTuples[i] = hashCaches[i].get(key);
             JoinType type = joinInfo.getJoinTypes()[i];
             if (((type == JoinType.Inner || type == JoinType.Semi) && tempTuples[i] == null)
@@ -0,0 +1,503 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.BaseAggregator;
+import org.apache.phoenix.expression.aggregator.CountAggregator;
+import org.apache.phoenix.expression.aggregator.DoubleSumAggregator;
+import org.apache.phoenix.expression.aggregator.NumberSumAggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.InsufficientMemoryException;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDataType.PDataCodec;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.SizedUtil;
+
+import com.google.common.base.Supplier;
+
+/**
+ *
+ * Cache for distinct values and their aggregations when the group by key is made up of
+ * fixed width values of at most 8 bytes and all aggregates are COUNT or SUM of a fixed width
+ * type. Each key is packed into a long and kept in an open-addressing table, and the state
+ * of each aggregate is kept in a primitive array indexed by group, instead of a key object
+ * and an array of {@link Aggregator} instances per distinct value. The table is sized through
+ * a {@link MemoryChunk}. Once it can't grow any further, groups not already in the table are
+ * handed to an overflow cache, such as the spillable cache, if one is supplied; otherwise the
+ * {@link InsufficientMemoryException} is thrown, as with the in-memory cache.
+ *
+ */
+final class PrimitiveGroupByCache implements GroupByCache {
+    static final int MAX_KEY_LENGTH = Bytes.SIZEOF_LONG;
+    private static final int EMPTY = -1;
+    private static final int INITIAL_GROUP_CAPACITY = 64;
+
+    private final MemoryChunk chunk;
+    private final ServerAggregators aggregators;
+    private final Expression[] expressions;
+    private final AggregateColumn[] columns;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    // Supplies the cache of the groups that don't fit in the table, or null if there is none
+    private final Supplier<GroupByCache> overflowCacheSupplier;
+    private GroupByCache overflowCache;
+    // Open-addressing table of group index by key hash, EMPTY for unused slots
+    private int[] slots;
+    private int mask;
+    // Packed key and key length of each group
+    private long[] keys;
+    private byte[] keyLengths;
+    private int nGroups;
+
+    private PrimitiveGroupByCache(MemoryChunk chunk, ServerAggregators aggregators, AggregateColumn[] columns,
+            int estDistVals, Supplier<GroupByCache> overflowCacheSupplier) {
+        this.chunk = chunk;
+        this.aggregators = aggregators;
+        this.columns = columns;
+        this.overflowCacheSupplier = overflowCacheSupplier;
+        SingleAggregateFunction[] functions = aggregators.getFunctions();
+        this.expressions = new Expression[functions.length];
+        for (int i = 0; i < functions.length; i++) {
+            expressions[i] = functions[i].getAggregatorExpression();
+        }
+        int groupCapacity = Math.max(INITIAL_GROUP_CAPACITY, estDistVals);
+        resize(Integer.highestOneBit(groupCapacity - 1) << 1);
+    }
+
+    /**
+     * @return a cache for the given group by expressions and aggregators, or null if the key
+     * isn't fixed width with at most {@link #MAX_KEY_LENGTH} bytes or an aggregator isn't
+     * supported.
+     */
+    static PrimitiveGroupByCache newCache(MemoryChunk chunk, List<Expression> groupByExpressions, ServerAggregators aggregators, int estDistVals) {
+        return newCache(chunk, groupByExpressions, aggregators, estDistVals, null);
+    }
+
+    /**
+     * @param overflowCacheSupplier supplies the cache aggregating the groups that no longer fit
+     * in the memory of the chunk, or null to throw {@link InsufficientMemoryException} instead
+     * @return a cache for the given group by expressions and aggregators, or null if not supported
+     */
+    static PrimitiveGroupByCache newCache(MemoryChunk chunk, List<Expression> groupByExpressions, ServerAggregators aggregators,
+            int estDistVals, Supplier<GroupByCache> overflowCacheSupplier) {
+        int keyLength = 0;
+        for (Expression expression : groupByExpressions) {
+            PDataType type = expression.getDataType();
+            if (type == null || !type.isFixedWidth() || type.getByteSize() == null) {
+                return null;
+            }
+            keyLength += type.getByteSize();
+        }
+        if (keyLength > MAX_KEY_LENGTH) {
+            return null;
+        }
+        Aggregator[] templates = aggregators.getAggregators();
+        SingleAggregateFunction[] functions = aggregators.getFunctions();
+        AggregateColumn[] columns = new AggregateColumn[templates.length];
+        for (int i = 0; i < templates.length; i++) {
+            Expression expression = functions[i].getAggregatorExpression();
+            if (templates[i] instanceof CountAggregator) {
+                columns[i] = new CountColumn();
+            } else if (templates[i] instanceof NumberSumAggregator) {
+                columns[i] = new LongSumColumn(expression.getDataType(), expression.getSortOrder());
+            } else if (templates[i] instanceof DoubleSumAggregator) {
+                columns[i] = new DoubleSumColumn(expression.getDataType(), expression.getSortOrder());
+            } else {
+                return null;
+            }
+        }
+        return new PrimitiveGroupByCache(chunk, aggregators, columns, estDistVals, overflowCacheSupplier);
+    }
+
+    private static int hash(long key, int length) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int)key ^ length;
+    }
+
+    private long getSize(int groupCapacity) {
+        long size = (long)groupCapacity * 2 * SizedUtil.INT_SIZE // slots
+                + (long)groupCapacity * (SizedUtil.LONG_SIZE + 1);
+        for (AggregateColumn column : columns) {
+            size += (long)groupCapacity * column.getBytesPerGroup();
+        }
+        return size;
+    }
+
+    private void resize(int groupCapacity) {
+        chunk.resize(getSize(groupCapacity));
+        keys = keys == null ? new long[groupCapacity] : Arrays.copyOf(keys, groupCapacity);
+        keyLengths = keyLengths == null ? new byte[groupCapacity] : Arrays.copyOf(keyLengths, groupCapacity);
+        for (AggregateColumn column : columns) {
+            column.resize(groupCapacity);
+        }
+        // Keep the load factor at or below 0.5
+        slots = new int[groupCapacity * 2];
+        mask = slots.length - 1;
+        Arrays.fill(slots, EMPTY);
+        for (int i = 0; i < nGroups; i++) {
+            slots[findSlot(keys[i], keyLengths[i])] = i;
+        }
+    }
+
+    /**
+     * Returns the slot holding the given key or, if absent, the empty slot where it belongs.
+     */
+    private int findSlot(long key, int length) {
+        int slot = hash(key, length) & mask;
+        while (true) {
+            int group = slots[slot];
+            if (group == EMPTY || (keys[group] == key && keyLengths[group] == length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the group of the given key, adding it if absent, or EMPTY if the key belongs to
+     * the overflow cache
+     */
+    private int getGroup(ImmutableBytesPtr cacheKey) {
+        byte[] b = cacheKey.get();
+        int offset = cacheKey.getOffset();
+        int length = cacheKey.getLength();
+        long key = 0;
+        for (int i = offset; i < offset + length; i++) {
+            key = (key << 8) | (b[i] & 0xff);
+        }
+        int slot = findSlot(key, length);
+        int group = slots[slot];
+        if (group == EMPTY) {
+            if (nGroups == keys.length) {
+                if (overflowCache != null) {
+                    return EMPTY;
+                }
+                try {
+                    resize(keys.length * 2);
+                } catch (InsufficientMemoryException e) {
+                    if (overflowCacheSupplier == null) {
+                        throw e;
+                    }
+                    // The table stays as is, since the chunk is resized first
+                    overflowCache = overflowCacheSupplier.get();
+                    return EMPTY;
+                }
+                slot = findSlot(key, length);
+            }
+            group = nGroups++;
+            keys[group] = key;
+            keyLengths[group] = (byte)length;
+            slots[slot] = group;
+        }
+        return group;
+    }
+
+    @Override
+    public void aggregate(ImmutableBytesPtr cacheKey, Tuple result) {
+        int group = getGroup(cacheKey);
+        if (group == EMPTY) {
+            overflowCache.aggregate(cacheKey, result);
+            return;
+        }
+        for (int i = 0; i < expressions.length; i++) {
+            if (expressions[i].evaluate(result, ptr) && ptr.getLength() != 0) {
+                columns[i].aggregateGroup(group, ptr);
+            }
+            expressions[i].reset();
+        }
+    }
+
+    /**
+     * Returns aggregators bound to the group of the given key, adding the group if absent. They
+     * read and update the primitive state of the group, so unlike {@link #aggregate} this
+     * allocates an aggregator per aggregate and call.
+     */
+    @Override
+    public Aggregator[] cache(ImmutableBytesPtr cacheKey) {
+        int group = getGroup(cacheKey);
+        if (group == EMPTY) {
+            return overflowCache.cache(cacheKey);
+        }
+        Aggregator[] rowAggregators = new Aggregator[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            rowAggregators[i] = new GroupAggregator(columns[i], group);
+        }
+        return rowAggregators;
+    }
+
+    @Override
+    public long size() {
+        return overflowCache == null ? nGroups : nGroups + overflowCache.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            chunk.close();
+        } finally {
+            if (overflowCache != null) {
+                overflowCache.close();
+            }
+        }
+    }
+
+    @Override
+    public RegionScanner getScanner(final RegionScanner s) {
+        // Closed along with this cache rather than through its own scanner
+        final RegionScanner overflowScanner = overflowCache == null ? null : overflowCache.getScanner(s);
+        return new BaseRegionScanner(s) {
+            private int group = 0;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    s.close();
+                } finally {
+                    PrimitiveGroupByCache.this.close();
+                }
+            }
+
+            @Override
+            public boolean next(List<Cell> results) throws IOException {
+                if (group >= nGroups) {
+                    return overflowScanner != null && overflowScanner.next(results);
+                }
+                for (AggregateColumn column : columns) {
+                    column.group = group;
+                }
+                byte[] value = aggregators.toBytes(columns);
+                int length = keyLengths[group];
+                byte[] key = new byte[length];
+                for (int i = 0, shift = 8 * (length - 1); i < length; i++, shift -= 8) {
+                    key[i] = (byte)(keys[group] >>> shift);
+                }
+                Cell keyValue = PhoenixKeyValueUtil.newKeyValue(key, 0, length,
+                        SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, AGG_TIMESTAMP, value, 0, value.length);
+                results.add(keyValue);
+                group++;
+                return group < nGroups || overflowScanner != null;
+            }
+        };
+    }
+
+    /**
+     * State of one aggregate across all groups. It serves as the {@link Aggregator} of the
+     * group it is positioned on when the aggregated values are serialized.
+     */
+    private abstract static class AggregateColumn extends BaseAggregator {
+        // Both COUNT and SUM serialize to 8 bytes
+        protected final byte[] buffer = new byte[Bytes.SIZEOF_LONG];
+        protected int group;
+
+        protected AggregateColumn() {
+            super(SortOrder.getDefault());
+        }
+
+        abstract int getBytesPerGroup();
+        abstract void resize(int groupCapacity);
+        abstract void aggregateGroup(int group, ImmutableBytesWritable ptr);
+
+        @Override
+        public void aggregate(Tuple tuple, ImmutableBytesWritable ptr) {
+            aggregateGroup(group, ptr);
+        }
+    }
+
+    /**
+     * {@link Aggregator} of a single group, backed by the state of the group in its column.
+     */
+    private static final class GroupAggregator extends BaseAggregator {
+        private final AggregateColumn column;
+        private final int group;
+
+        GroupAggregator(AggregateColumn column, int group) {
+            super(SortOrder.getDefault());
+            this.column = column;
+            this.group = group;
+        }
+
+        @Override
+        public void aggregate(Tuple tuple, ImmutableBytesWritable ptr) {
+            column.aggregateGroup(group, ptr);
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            column.group = group;
+            return column.evaluate(tuple, ptr);
+        }
+
+        @Override
+        public boolean isNullable() {
+            return column.isNullable();
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return column.getDataType();
+        }
+    }
+
+    private static final class CountColumn extends AggregateColumn {
+        private long[] counts = new long[0];
+
+        @Override
+        int getBytesPerGroup() {
+            return SizedUtil.LONG_SIZE;
+        }
+
+        @Override
+        void resize(int groupCapacity) {
+            counts = Arrays.copyOf(counts, groupCapacity);
+        }
+
+        @Override
+        void aggregateGroup(int group, ImmutableBytesWritable ptr) {
+            counts[group]++;
+        }
+
+        @Override
+        public boolean isNullable() {
+            return false;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            PLong.INSTANCE.getCodec().encodeLong(counts[group], buffer, 0);
+            ptr.set(buffer);
+            return true;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return PLong.INSTANCE;
+        }
+    }
+
+    private static final class LongSumColumn extends AggregateColumn {
+        private final PDataCodec inputCodec;
+        private final SortOrder inputSortOrder;
+        private long[] sums = new long[0];
+        // Whether a group has seen a non null value, since the sum of none is null
+        private boolean[] hasValue = new boolean[0];
+
+        LongSumColumn(PDataType inputType, SortOrder inputSortOrder) {
+            this.inputCodec = inputType.getCodec();
+            this.inputSortOrder = inputSortOrder;
+        }
+
+        @Override
+        int getBytesPerGroup() {
+            return SizedUtil.LONG_SIZE + 1;
+        }
+
+        @Override
+        void resize(int groupCapacity) {
+            sums = Arrays.copyOf(sums, groupCapacity);
+            hasValue = Arrays.copyOf(hasValue, groupCapacity);
+        }
+
+        @Override
+        void aggregateGroup(int group, ImmutableBytesWritable ptr) {
+            sums[group] += inputCodec.decodeLong(ptr, inputSortOrder);
+            hasValue[group] = true;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            if (!hasValue[group]) {
+                return false;
+            }
+            PLong.INSTANCE.getCodec().encodeLong(sums[group], buffer, 0);
+            ptr.set(buffer);
+            return true;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return PLong.INSTANCE;
+        }
+    }
+
+    private static final class DoubleSumColumn extends AggregateColumn {
+        private final PDataCodec inputCodec;
+        private final SortOrder inputSortOrder;
+        private double[] sums = new double[0];
+        // Whether a group has seen a non null value, since the sum of none is null
+        private boolean[] hasValue = new boolean[0];
+
+        DoubleSumColumn(PDataType inputType, SortOrder inputSortOrder) {
+            this.inputCodec = inputType.getCodec();
+            this.inputSortOrder = inputSortOrder;
+        }
+
+        @Override
+        int getBytesPerGroup() {
+            return SizedUtil.LONG_SIZE + 1;
+        }
+
+        @Override
+        void resize(int groupCapacity) {
+            sums = Arrays.copyOf(sums, groupCapacity);
+            hasValue = Arrays.copyOf(hasValue, groupCapacity);
+        }
+
+        @Override
+        void aggregateGroup(int group, ImmutableBytesWritable ptr) {
+            sums[group] += inputCodec.decodeDouble(ptr, inputSortOrder);
+            hasValue[group] = true;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            if (!hasValue[group]) {
+                return false;
+            }
+            PDouble.INSTANCE.getCodec().encodeDouble(sums[group], buffer, 0);
+            ptr.set(buffer);
+            return true;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return PDouble.INSTANCE;
+        }
+    }
+}
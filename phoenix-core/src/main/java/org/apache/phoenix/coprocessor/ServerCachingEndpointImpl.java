@@ -18,14 +18,28 @@
 package org.apache.phoenix.coprocessor;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.CoprocessorException;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.coprocessor.Batch;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils.BlockingRpcCallback;
+import org.apache.hadoop.hbase.ipc.ServerRpcController;
 import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.cache.ServerCacheClient;
 import org.apache.phoenix.cache.TenantCache;
 import org.apache.phoenix.coprocessor.ServerCachingProtocol.ServerCacheFactory;
 import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.AddServerCacheRequest;
@@ -33,12 +47,23 @@ import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.AddServerCac
 import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.RemoveServerCacheRequest;
 import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.RemoveServerCacheResponse;
 import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.ServerCachingService;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolBuilder;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolManager;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.protobuf.ProtobufUtil;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.ServerUtil;
+import org.apache.phoenix.util.ServerUtil.ConnectionFactory;
+import org.apache.phoenix.util.ServerUtil.ConnectionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.RpcCallback;
 import com.google.protobuf.RpcController;
 import com.google.protobuf.Service;
@@ -53,7 +78,12 @@ import com.google.protobuf.Service;
 public class ServerCachingEndpointImpl extends ServerCachingService implements RegionCoprocessor 
      {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServerCachingEndpointImpl.class);
+  private static final String RELAY_POOL_NAME = "ServerCacheRelay";
+
   private RegionCoprocessorEnvironment env;
+  // Pool relaying caches to other region servers, shared by the regions of the region server
+  private ExecutorService relayPool;
   
   @Override
   public Iterable<Service> getServices() {
@@ -73,6 +103,8 @@ public class ServerCachingEndpointImpl extends ServerCachingService implements R
               .toImmutableBytesWritable(request.getCachePtr());
       byte[] txState = request.hasTxState() ? request.getTxState().toByteArray() : ByteUtil.EMPTY_BYTE_ARRAY;
 
+      IOException failure = null;
+      boolean relayed = true;
       try {
           @SuppressWarnings("unchecked")
           Class<ServerCacheFactory> serverCacheFactoryClass =
@@ -82,15 +114,130 @@ public class ServerCachingEndpointImpl extends ServerCachingService implements R
               cachePtr, txState, cacheFactory, request.hasHasProtoBufIndexMaintainer() && request.getHasProtoBufIndexMaintainer(),
               request.getUsePersistentCache(), request.hasClientVersion() ? request.getClientVersion() : ScanUtil.UNKNOWN_CLIENT_VERSION);
         } catch (Throwable e) {
-            ProtobufUtil.setControllerException(controller,
-                ServerUtil.createIOException("Error when adding cache: ", e));
+            failure = ServerUtil.createIOException("Error when adding cache: ", e);
         }
+      if (failure == null && request.getRelayKeysCount() > 0) {
+          /*
+           * Reply once the whole subtree of region servers has the cache, or false once the relay
+           * timeout elapses or a relay fails, the client then sending the cache to the region
+           * servers of the relay keys itself.
+           */
+          try {
+              relayed = relayServerCache(request);
+          } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              relayed = false;
+          } catch (Throwable e) {
+              LOGGER.warn("Error when relaying cache", e);
+              relayed = false;
+          }
+      }
+      if (failure != null) {
+          ProtobufUtil.setControllerException(controller, failure);
+      }
       AddServerCacheResponse.Builder responseBuilder = AddServerCacheResponse.newBuilder();
-      responseBuilder.setReturn(true);
+      responseBuilder.setReturn(relayed);
       AddServerCacheResponse result = responseBuilder.build();
       done.run(result);
   }
 
+  /**
+   * Relays a server cache to the region servers of the relay keys of the request. The relay
+   * keys are split into fanout groups, the region server of the first key of a group being
+   * sent the cache along with the other keys of the group to relay it to in turn. Relays are
+   * sent with their own RPC priority, so that they are not queued behind the client calls
+   * waiting on them, and waited for at most the relay timeout, so that a handler never waits
+   * indefinitely on the handlers of other region servers.
+   * @return true if all the region servers of the relay keys got the cache
+   */
+  private boolean relayServerCache(AddServerCacheRequest request)
+          throws IOException, InterruptedException {
+      List<List<ByteString>> groups = ServerCacheClient.getRelayGroups(request.getRelayKeysList(),
+              request.getRelayFanout());
+      long timeoutMs = env.getConfiguration().getLong(QueryServices.SERVER_CACHE_RELAY_TIMEOUT_MS_ATTRIB,
+              QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_TIMEOUT_MS);
+      final Table htable = ConnectionFactory.getConnection(ConnectionType.SERVER_CACHE_RELAY_CONNECTION, env)
+              .getTable(env.getRegion().getTableDescriptor().getTableName());
+      try {
+          ExecutorService pool = getRelayPool();
+          List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(groups.size());
+          for (List<ByteString> group : groups) {
+              final byte[] key = group.get(0).toByteArray();
+              final AddServerCacheRequest relayRequest = AddServerCacheRequest.newBuilder(request)
+                      .clearRelayKeys().addAllRelayKeys(group.subList(1, group.size())).build();
+              futures.add(pool.submit(new Callable<Boolean>() {
+                  @Override
+                  public Boolean call() throws Exception {
+                      return relayServerCache(htable, key, relayRequest);
+                  }
+              }));
+          }
+          return awaitRelays(futures, timeoutMs);
+      } finally {
+          htable.close();
+      }
+  }
+
+  /**
+   * Waits for relays until they all succeed, one of them fails or the timeout elapses,
+   * cancelling the relays still running in the last two cases
+   * @return true if all the relays succeeded
+   */
+  @VisibleForTesting
+  static boolean awaitRelays(List<Future<Boolean>> futures, long timeoutMs) throws InterruptedException {
+      long deadline = EnvironmentEdgeManager.currentTimeMillis() + timeoutMs;
+      boolean relayed = true;
+      for (Future<Boolean> future : futures) {
+          if (!relayed) {
+              future.cancel(true);
+              continue;
+          }
+          try {
+              long remainingMs = Math.max(0, deadline - EnvironmentEdgeManager.currentTimeMillis());
+              relayed = future.get(remainingMs, TimeUnit.MILLISECONDS);
+          } catch (ExecutionException e) {
+              LOGGER.warn("Error when relaying cache", e.getCause());
+              relayed = false;
+          } catch (TimeoutException e) {
+              LOGGER.warn("Timed out after " + timeoutMs + " ms relaying cache");
+              future.cancel(true);
+              relayed = false;
+          }
+      }
+      return relayed;
+  }
+
+  private static boolean relayServerCache(Table htable, byte[] key, final AddServerCacheRequest request)
+          throws IOException {
+      Map<byte[], AddServerCacheResponse> results;
+      try {
+          results = htable.coprocessorService(ServerCachingService.class, key, key,
+                  new Batch.Call<ServerCachingService, AddServerCacheResponse>() {
+                      @Override
+                      public AddServerCacheResponse call(ServerCachingService instance) throws IOException {
+                          ServerRpcController controller = new ServerRpcController();
+                          BlockingRpcCallback<AddServerCacheResponse> rpcCallback = new BlockingRpcCallback<AddServerCacheResponse>();
+                          instance.addServerCache(controller, request, rpcCallback);
+                          if (controller.getFailedOn() != null) { throw controller.getFailedOn(); }
+                          return rpcCallback.get();
+                      }
+                  });
+      } catch (Throwable t) {
+          throw ServerUtil.createIOException("Error when relaying cache: ", t);
+      }
+      return results != null && results.size() == 1 && results.values().iterator().next().getReturn();
+  }
+
+  private synchronized ExecutorService getRelayPool() {
+      if (relayPool == null) {
+          relayPool = ThreadPoolManager.getExecutor(
+                  new ThreadPoolBuilder(RELAY_POOL_NAME, env.getConfiguration()).setMaxThread(
+                          QueryServices.SERVER_CACHE_RELAY_THREADS_ATTRIB,
+                          QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_THREADS), env);
+      }
+      return relayPool;
+  }
+
   @Override
   public void removeServerCache(RpcController controller, RemoveServerCacheRequest request,
       RpcCallback<RemoveServerCacheResponse> done) {
@@ -116,8 +263,12 @@ public class ServerCachingEndpointImpl extends ServerCachingService implements R
   }
 
   @Override
-  public void stop(CoprocessorEnvironment arg0) throws IOException {
-    // nothing to do
+  public synchronized void stop(CoprocessorEnvironment arg0) throws IOException {
+    if (relayPool != null) {
+      // Releases the reference to the shared pool
+      relayPool.shutdown();
+      relayPool = null;
+    }
   }
 
 }
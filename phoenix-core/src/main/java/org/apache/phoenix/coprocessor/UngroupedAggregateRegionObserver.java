@@ -24,6 +24,8 @@ import static org.apache.phoenix.query.QueryConstants.UNGROUPED_AGG_ROW_KEY;
 import static org.apache.phoenix.query.QueryServices.INDEX_REBUILD_PAGE_SIZE_IN_ROWS;
 import static org.apache.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_BYTES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.UNGROUPED_AGGREGATE_BATCH_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.UNGROUPED_AGGREGATE_PIPELINED_WRITES_ATTRIB;
 import static org.apache.phoenix.schema.PTableImpl.getColumnsToClone;
 import static org.apache.phoenix.schema.stats.StatisticsCollectionRunTracker.COMPACTION_UPDATE_STATS_ROW_COUNT;
 import static org.apache.phoenix.schema.stats.StatisticsCollectionRunTracker.CONCURRENT_UPDATE_STATS_ROW_COUNT;
@@ -42,6 +44,9 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.concurrent.GuardedBy;
 
@@ -86,6 +91,7 @@ import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.cache.AggregateResultCache;
 import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.cache.ServerCacheClient;
 import org.apache.phoenix.cache.TenantCache;
@@ -96,11 +102,12 @@ import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.expression.aggregator.Aggregator;
-import org.apache.phoenix.expression.aggregator.Aggregators;
 import org.apache.phoenix.expression.aggregator.ServerAggregators;
 import org.apache.phoenix.hbase.index.ValueGetter;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
 import org.apache.phoenix.hbase.index.exception.IndexWriteException;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolBuilder;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolManager;
 import org.apache.phoenix.hbase.index.util.GenericKeyValueBuilder;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
@@ -165,10 +172,12 @@ import org.apache.phoenix.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 
 /**
@@ -221,6 +230,14 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
     private Configuration compactionConfig;
     private Configuration indexWriteConfig;
     private ReadOnlyProps indexWriteProps;
+    private static final String COMMIT_POOL_NAME = "UngroupedAggregateCommit";
+    // Commits batches of mutations for scans with pipelined writes, shared by the regions of the
+    // region server and obtained on first use
+    private ExecutorService commitExecutor;
+
+    // Longest time a batch waits for the memstore to drop below the blocking size
+    private static final long MAX_MEMSTORE_WAIT_MS = 3000;
+    private static final long MIN_MEMSTORE_WAIT_MS = 10;
 
     @Override
     public Optional<RegionObserver> getRegionObserver() {
@@ -257,6 +274,147 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         indexWriteProps = new ReadOnlyProps(indexWriteConfig.iterator());
     }
 
+    @Override
+    public void stop(CoprocessorEnvironment e) throws IOException {
+        synchronized (lock) {
+            if (commitExecutor != null) {
+                // Releases the reference to the shared pool
+                commitExecutor.shutdown();
+                commitExecutor = null;
+            }
+        }
+    }
+
+    private ExecutorService getCommitExecutor(RegionCoprocessorEnvironment env) {
+        synchronized (lock) {
+            if (commitExecutor == null) {
+                commitExecutor = ThreadPoolManager.getExecutor(
+                        new ThreadPoolBuilder(COMMIT_POOL_NAME, env.getConfiguration()).setMaxThread(
+                                QueryServices.UNGROUPED_AGGREGATE_COMMIT_THREADS_ATTRIB,
+                                QueryServicesOptions.DEFAULT_UNGROUPED_AGGREGATE_COMMIT_THREADS), env);
+            }
+            return commitExecutor;
+        }
+    }
+
+    /**
+     * Registers a scan writing to the region, so that closing or splitting the region waits for it
+     * @throws IOException if the region is closing or splitting
+     */
+    @VisibleForTesting
+    void acquireWritingScan() throws IOException {
+        synchronized (lock) {
+            if (isRegionClosingOrSplitting) {
+                throw new IOException("Temporarily unable to write from scan because region is closing or splitting");
+            }
+            scansReferenceCount++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Unregisters a scan writing to the region once the batch its committer is writing, if any,
+     * is written, so that no write of the scan is in flight once the region is closed or split
+     */
+    @VisibleForTesting
+    void releaseWritingScan(PipelinedCommitter committer) {
+        if (committer != null) {
+            committer.close();
+        }
+        synchronized (lock) {
+            scansReferenceCount--;
+            if (scansReferenceCount < 0) {
+                LOGGER.warn(
+                    "Scan reference count went below zero. Something isn't correct. Resetting it back to zero");
+                scansReferenceCount = 0;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Commits the batches of mutations of a scan on another thread, one batch at a time, so
+     * that the scan fills the next batch while the previous one is written. Submitting a batch
+     * waits for the previous one, which bounds the mutations held by the scan to two batches
+     * and slows the scan down to the pace of the writes.
+     */
+    @VisibleForTesting
+    static class PipelinedCommitter implements Closeable {
+        private final ExecutorService executor;
+        private Future<?> pending;
+
+        PipelinedCommitter(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        void submit(Callable<Void> commit) throws IOException {
+            await();
+            pending = executor.submit(commit);
+        }
+
+        /**
+         * Wait for the batch being written, rethrowing the failure to write it.
+         */
+        void await() throws IOException {
+            if (pending == null) {
+                return;
+            }
+            Future<?> future = pending;
+            pending = null;
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                throw new IOException(e.getCause());
+            }
+        }
+
+        /**
+         * Wait for the batch being written without rethrowing its failure, so that no write is
+         * in flight once the scan releases the region.
+         */
+        @Override
+        public void close() {
+            if (pending != null) {
+                try {
+                    Uninterruptibles.getUninterruptibly(pending);
+                } catch (ExecutionException e) {
+                    LOGGER.warn("Failed to commit batch of mutations", e.getCause());
+                }
+                pending = null;
+            }
+        }
+    }
+
+    private void commitAsync(PipelinedCommitter committer, final Region region,
+            final List<Mutation> mutations, final byte[] indexUUID, final long blockingMemStoreSize,
+            final byte[] indexMaintainersPtr, final byte[] txState, final Table targetHTable,
+            final boolean useIndexProto, final boolean isPKChanging,
+            final byte[] clientVersionBytes) throws IOException {
+        committer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr,
+                    txState, targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
+                return null;
+            }
+        });
+    }
+
+    private void commitBatchAsync(PipelinedCommitter committer, final Region region,
+            final List<Mutation> mutations, final long blockingMemstoreSize) throws IOException {
+        committer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                commitBatch(region, mutations, blockingMemstoreSize);
+                return null;
+            }
+        });
+    }
+
     private void commitBatchWithRetries(final Region region, final List<Mutation> localRegionMutations, final long blockingMemstoreSize) throws IOException {
         try {
             commitBatch(region, localRegionMutations, blockingMemstoreSize);
@@ -281,17 +439,26 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
       }
 
         Mutation[] mutationArray = new Mutation[mutations.size()];
-      // When memstore size reaches blockingMemstoreSize we are waiting 3 seconds for the
+      // When memstore size reaches blockingMemstoreSize we are waiting up to 3 seconds for the
       // flush happen which decrease the memstore size and then writes allowed on the region.
-      for (int i = 0; blockingMemstoreSize > 0 && (region.getMemStoreHeapSize() + region.getMemStoreOffHeapSize()) > blockingMemstoreSize
-                && i < 30; i++) {
+      // The wait starts short and doubles while the memstore stays above the blocking size, and
+      // is longer the further above it the memstore is, so that writes resume soon after a flush.
+      long waitedMs = 0;
+      long waitMs = MIN_MEMSTORE_WAIT_MS;
+      long memStoreSize;
+      while (blockingMemstoreSize > 0 && waitedMs < MAX_MEMSTORE_WAIT_MS
+              && (memStoreSize = region.getMemStoreHeapSize() + region.getMemStoreOffHeapSize()) > blockingMemstoreSize) {
+          long sleepMs = Math.min(MAX_MEMSTORE_WAIT_MS - waitedMs,
+                  waitMs * Math.min(4, memStoreSize / blockingMemstoreSize));
           try {
               checkForRegionClosing();
-              Thread.sleep(100);
+              Thread.sleep(sleepMs);
           } catch (InterruptedException e) {
               Thread.currentThread().interrupt();
               throw new IOException(e);
           }
+          waitedMs += sleepMs;
+          waitMs = Math.min(waitMs * 2, MAX_MEMSTORE_WAIT_MS / 10);
       }
       // TODO: should we use the one that is all or none?
       LOGGER.debug("Committing batch of " + mutations.size() + " mutations for " + region.getRegionInfo().getTable().getNameAsString());
@@ -429,6 +596,17 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             return rebuildIndices(s, region, scan, env.getConfiguration());
         }
 
+        final AggregateResultCache resultCache = GlobalCache.getInstance(env).getAggregateResultCache();
+        ImmutableBytesPtr resultCacheKey = null;
+        if (resultCache != null) {
+            resultCacheKey = resultCache.getCacheKey(region, scan);
+            if (resultCacheKey != null) {
+                RegionScanner cachedScanner = resultCache.getCachedScanner(resultCacheKey, region, s);
+                if (cachedScanner != null) {
+                    return cachedScanner;
+                }
+            }
+        }
         PTable.QualifierEncodingScheme encodingScheme = EncodedColumnsUtil.getQualifierEncodingScheme(scan);
         boolean useNewValueColumnQualifier = EncodedColumnsUtil.useNewValueColumnQualifier(scan);
         int offsetToBe = 0;
@@ -561,7 +739,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         boolean hasAny = false;
         boolean acquiredLock = false;
         boolean incrScanRefCount = false;
-        Aggregators aggregators = null;
+        PipelinedCommitter committer = null;
+        int mutationsCapacity = Ints.saturatedCast(maxBatchSize + maxBatchSize / 10);
+        ServerAggregators aggregators = null;
         Aggregator[] rowAggregators = null;
         final RegionScanner innerScanner = theScanner;
         final TenantCache tenantCache = GlobalCache.getTenantCache(env, ScanUtil.getTenantId(scan));
@@ -571,6 +751,18 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             rowAggregators = aggregators.getAggregators();
             Pair<Integer, Integer> minMaxQualifiers = EncodedColumnsUtil.getMinMaxQualifiersFromScan(scan);
             Tuple result = useQualifierAsIndex ? new PositionBasedMultiKeyValueTuple() : new MultiKeyValueTuple();
+            // When rows are only aggregated, aggregate them in batches so that each aggregator
+            // expression is evaluated over many rows at a time.
+            Tuple[] aggregateBatch = null;
+            int aggregateBatchCount = 0;
+            int aggregateBatchSize = conf.getInt(UNGROUPED_AGGREGATE_BATCH_SIZE_ATTRIB,
+                QueryServicesOptions.DEFAULT_UNGROUPED_AGGREGATE_BATCH_SIZE);
+            if (!needToWrite && aggregateBatchSize > 1) {
+                aggregateBatch = new Tuple[aggregateBatchSize];
+                for (int i = 0; i < aggregateBatchSize; i++) {
+                    aggregateBatch[i] = useQualifierAsIndex ? new PositionBasedMultiKeyValueTuple() : new MultiKeyValueTuple();
+                }
+            }
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug(LogUtil.addCustomAnnotations("Starting ungrouped coprocessor scan " + scan + " "+region.getRegionInfo(), ScanUtil.getCustomAnnotations(scan)));
             }
@@ -583,17 +775,16 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             }
     
             if(needToWrite) {
-                synchronized (lock) {
-                    if (isRegionClosingOrSplitting) {
-                        throw new IOException("Temporarily unable to write from scan because region is closing or splitting");
-                    }
-                    scansReferenceCount++;
-                    incrScanRefCount = true;
-                    lock.notifyAll();
-                }
+                acquireWritingScan();
+                incrScanRefCount = true;
             }
             region.startRegionOperation();
             acquiredLock = true;
+            if (needToWrite && !isDescRowKeyOrderUpgrade && conf.getBoolean(
+                    UNGROUPED_AGGREGATE_PIPELINED_WRITES_ATTRIB,
+                    QueryServicesOptions.DEFAULT_UNGROUPED_AGGREGATE_PIPELINED_WRITES)) {
+                committer = new PipelinedCommitter(getCommitExecutor(env));
+            }
             synchronized (innerScanner) {
                 do {
                     List<Cell> results = useQualifierAsIndex ? new EncodedColumnQualiferCellsList(minMaxQualifiers.getFirst(), minMaxQualifiers.getSecond(), encodingScheme) : new ArrayList<Cell>();
@@ -820,21 +1011,49 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                             }
                         }
                         if (ServerUtil.readyToCommit(mutations.size(), mutations.byteSize(), maxBatchSize, maxBatchSizeBytes)) {
-                            commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr,
-                                txState, targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
-                            mutations.clear();
+                            if (committer != null) {
+                                // Keep scanning into a new batch while this one is written
+                                commitAsync(committer, region, mutations, indexUUID, blockingMemStoreSize,
+                                    indexMaintainersPtr, txState, targetHTable, useIndexProto, isPKChanging,
+                                    clientVersionBytes);
+                                mutations = new MutationList(mutationsCapacity);
+                            } else {
+                                commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr,
+                                    txState, targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
+                                mutations.clear();
+                            }
                         }
                         // Commit in batches based on UPSERT_BATCH_SIZE_BYTES_ATTRIB in config
 
                         if (ServerUtil.readyToCommit(indexMutations.size(), indexMutations.byteSize(), maxBatchSize, maxBatchSizeBytes)) {
                             setIndexAndTransactionProperties(indexMutations, indexUUID, indexMaintainersPtr, txState, clientVersionBytes, useIndexProto);
-                            commitBatch(region, indexMutations, blockingMemStoreSize);
-                            indexMutations.clear();
+                            if (committer != null) {
+                                commitBatchAsync(committer, region, indexMutations, blockingMemStoreSize);
+                                indexMutations = new MutationList(1024);
+                            } else {
+                                commitBatch(region, indexMutations, blockingMemStoreSize);
+                                indexMutations.clear();
+                            }
+                        }
+                        if (aggregateBatch == null) {
+                            aggregators.aggregate(rowAggregators, result);
+                        } else {
+                            aggregateBatch[aggregateBatchCount++].setKeyValues(results);
+                            if (aggregateBatchCount == aggregateBatch.length) {
+                                aggregators.aggregate(rowAggregators, aggregateBatch, aggregateBatchCount);
+                                aggregateBatchCount = 0;
+                            }
                         }
-                        aggregators.aggregate(rowAggregators, result);
                         hasAny = true;
                     }
                 } while (hasMore);
+                if (aggregateBatchCount > 0) {
+                    aggregators.aggregate(rowAggregators, aggregateBatch, aggregateBatchCount);
+                }
+                if (committer != null) {
+                    // The remaining mutations are committed on this thread after the last batch
+                    committer.await();
+                }
                 if (!mutations.isEmpty()) {
                     commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr, txState,
                         targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
@@ -847,16 +1066,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                 }
             }
         } finally {
+            // The committer is only created once the scan is registered
             if (needToWrite && incrScanRefCount) {
-                synchronized (lock) {
-                    scansReferenceCount--;
-                    if (scansReferenceCount < 0) {
-                        LOGGER.warn(
-                            "Scan reference count went below zero. Something isn't correct. Resetting it back to zero");
-                        scansReferenceCount = 0;
-                    }
-                    lock.notifyAll();
-                }
+                releaseWritingScan(committer);
             }
             try {
                 tryClosingResourceSilently(targetHTable);
@@ -902,6 +1114,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                 return scan.getMaxResultSize();
             }
         };
+        if (resultCacheKey != null) {
+            scanner = resultCache.newCachingScanner(resultCacheKey, region, s.getMvccReadPoint(), scanner);
+        }
         return scanner;
 
     }
@@ -1104,6 +1319,7 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         private Region region;
         private IndexMaintainer indexMaintainer;
         private byte[] indexRowKey = null;
+        private List<byte[]> builtIndexRowKeys = null;
 
         IndexRebuildRegionScanner (final RegionScanner innerScanner, final Region region, final Scan scan,
                                    final Configuration config) {
@@ -1132,6 +1348,10 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             this.innerScanner = innerScanner;
             this.region = region;
             indexRowKey = scan.getAttribute(BaseScannerRegionObserver.INDEX_ROW_KEY);
+            if (scan.getAttribute(BaseScannerRegionObserver.RETURN_INDEX_ROW_KEYS) != null) {
+                // GlobalIndexChecker repairs a batch of index rows and needs to know which ones were built
+                builtIndexRowKeys = new ArrayList<byte[]>();
+            }
         }
 
         @Override
@@ -1195,6 +1415,15 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         }
 
         private boolean checkIndexRow(final byte[] indexRowKey, final Put put) throws IOException {
+            byte[] builtIndexRowKey = buildIndexRowKey(put);
+            if (Bytes.compareTo(builtIndexRowKey, 0, builtIndexRowKey.length,
+                    indexRowKey, 0, indexRowKey.length) != 0) {
+                return false;
+            }
+            return true;
+        }
+
+        private byte[] buildIndexRowKey(final Put put) throws IOException {
             ValueGetter getter = new ValueGetter() {
                 final ImmutableBytesWritable valuePtr = new ImmutableBytesWritable();
 
@@ -1214,18 +1443,16 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                     return put.getRow();
                 }
             };
-            byte[] builtIndexRowKey = indexMaintainer.buildRowKey(getter, new ImmutableBytesWritable(put.getRow()),
+            return indexMaintainer.buildRowKey(getter, new ImmutableBytesWritable(put.getRow()),
                     null, null, HConstants.LATEST_TIMESTAMP);
-            if (Bytes.compareTo(builtIndexRowKey, 0, builtIndexRowKey.length,
-                    indexRowKey, 0, indexRowKey.length) != 0) {
-                return false;
-            }
-            return true;
         }
 
         @Override
         public boolean next(List<Cell> results) throws IOException {
             int rowCount = 0;
+            if (builtIndexRowKeys != null) {
+                builtIndexRowKeys.clear();
+            }
             region.startRegionOperation();
             try {
                 byte[] uuidValue = ServerCacheClient.generateId();
@@ -1275,6 +1502,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                                 }
                                 break;
                             }
+                            if (builtIndexRowKeys != null && put != null) {
+                                builtIndexRowKeys.add(buildIndexRowKey(put));
+                            }
                             rowCount++;
                         }
 
@@ -1291,7 +1521,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             } finally {
                 region.closeRegionOperation();
             }
-            byte[] rowCountBytes = PLong.INSTANCE.toBytes(Long.valueOf(rowCount));
+            byte[] rowCountBytes = builtIndexRowKeys != null
+                    ? ByteUtil.toBytes(builtIndexRowKeys.toArray(new byte[builtIndexRowKeys.size()][]))
+                    : PLong.INSTANCE.toBytes(Long.valueOf(rowCount));
             final Cell aggKeyValue = PhoenixKeyValueUtil.newKeyValue(UNGROUPED_AGG_ROW_KEY, SINGLE_COLUMN_FAMILY,
                     SINGLE_COLUMN, AGG_TIMESTAMP, rowCountBytes, 0, rowCountBytes.length);
             results.add(aggKeyValue);
@@ -1526,6 +1758,10 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
     @Override
     public void preClose(ObserverContext<RegionCoprocessorEnvironment> c, boolean abortRequested)
             throws IOException {
+        AggregateResultCache resultCache = GlobalCache.getInstance(c.getEnvironment()).getAggregateResultCache();
+        if (resultCache != null) {
+            resultCache.invalidate(c.getEnvironment().getRegion());
+        }
         synchronized (lock) {
             isRegionClosingOrSplitting = true;
             while (scansReferenceCount > 0) {
@@ -5770,6 +5770,30 @@ public final class ServerCachingProtos {
      * <code>optional bool usePersistentCache = 8;</code>
      */
     boolean getUsePersistentCache();
+
+    // repeated bytes relayKeys = 9;
+    /**
+     * <code>repeated bytes relayKeys = 9;</code>
+     */
+    java.util.List<com.google.protobuf.ByteString> getRelayKeysList();
+    /**
+     * <code>repeated bytes relayKeys = 9;</code>
+     */
+    int getRelayKeysCount();
+    /**
+     * <code>repeated bytes relayKeys = 9;</code>
+     */
+    com.google.protobuf.ByteString getRelayKeys(int index);
+
+    // optional int32 relayFanout = 10;
+    /**
+     * <code>optional int32 relayFanout = 10;</code>
+     */
+    boolean hasRelayFanout();
+    /**
+     * <code>optional int32 relayFanout = 10;</code>
+     */
+    int getRelayFanout();
   }
   /**
    * Protobuf type {@code AddServerCacheRequest}
@@ -5878,6 +5902,19 @@ public final class ServerCachingProtos {
               usePersistentCache_ = input.readBool();
               break;
             }
+            case 74: {
+              if (!((mutable_bitField0_ & 0x00000100) == 0x00000100)) {
+                relayKeys_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                mutable_bitField0_ |= 0x00000100;
+              }
+              relayKeys_.add(input.readBytes());
+              break;
+            }
+            case 80: {
+              bitField0_ |= 0x00000100;
+              relayFanout_ = input.readInt32();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -5886,6 +5923,9 @@ public final class ServerCachingProtos {
         throw new com.google.protobuf.InvalidProtocolBufferException(
             e.getMessage()).setUnfinishedMessage(this);
       } finally {
+        if (((mutable_bitField0_ & 0x00000100) == 0x00000100)) {
+          relayKeys_ = java.util.Collections.unmodifiableList(relayKeys_);
+        }
         this.unknownFields = unknownFields.build();
         makeExtensionsImmutable();
       }
@@ -6058,6 +6098,45 @@ public final class ServerCachingProtos {
       return usePersistentCache_;
     }
 
+    // repeated bytes relayKeys = 9;
+    public static final int RELAYKEYS_FIELD_NUMBER = 9;
+    private java.util.List<com.google.protobuf.ByteString> relayKeys_;
+    /**
+     * <code>repeated bytes relayKeys = 9;</code>
+     */
+    public java.util.List<com.google.protobuf.ByteString>
+        getRelayKeysList() {
+      return relayKeys_;
+    }
+    /**
+     * <code>repeated bytes relayKeys = 9;</code>
+     */
+    public int getRelayKeysCount() {
+      return relayKeys_.size();
+    }
+    /**
+     * <code>repeated bytes relayKeys = 9;</code>
+     */
+    public com.google.protobuf.ByteString getRelayKeys(int index) {
+      return relayKeys_.get(index);
+    }
+
+    // optional int32 relayFanout = 10;
+    public static final int RELAYFANOUT_FIELD_NUMBER = 10;
+    private int relayFanout_;
+    /**
+     * <code>optional int32 relayFanout = 10;</code>
+     */
+    public boolean hasRelayFanout() {
+      return ((bitField0_ & 0x00000100) == 0x00000100);
+    }
+    /**
+     * <code>optional int32 relayFanout = 10;</code>
+     */
+    public int getRelayFanout() {
+      return relayFanout_;
+    }
+
     private void initFields() {
       tenantId_ = com.google.protobuf.ByteString.EMPTY;
       cacheId_ = com.google.protobuf.ByteString.EMPTY;
@@ -6067,6 +6146,8 @@ public final class ServerCachingProtos {
       hasProtoBufIndexMaintainer_ = false;
       clientVersion_ = 0;
       usePersistentCache_ = false;
+      relayKeys_ = java.util.Collections.emptyList();
+      relayFanout_ = 0;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -6124,6 +6205,12 @@ public final class ServerCachingProtos {
       if (((bitField0_ & 0x00000080) == 0x00000080)) {
         output.writeBool(8, usePersistentCache_);
       }
+      for (int i = 0; i < relayKeys_.size(); i++) {
+        output.writeBytes(9, relayKeys_.get(i));
+      }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        output.writeInt32(10, relayFanout_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -6165,6 +6252,19 @@ public final class ServerCachingProtos {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(8, usePersistentCache_);
       }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < relayKeys_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeBytesSizeNoTag(relayKeys_.get(i));
+        }
+        size += dataSize;
+        size += 1 * getRelayKeysList().size();
+      }
+      if (((bitField0_ & 0x00000100) == 0x00000100)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(10, relayFanout_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -6228,6 +6328,13 @@ public final class ServerCachingProtos {
         result = result && (getUsePersistentCache()
             == other.getUsePersistentCache());
       }
+      result = result && getRelayKeysList()
+          .equals(other.getRelayKeysList());
+      result = result && (hasRelayFanout() == other.hasRelayFanout());
+      if (hasRelayFanout()) {
+        result = result && (getRelayFanout()
+            == other.getRelayFanout());
+      }
       result = result &&
           getUnknownFields().equals(other.getUnknownFields());
       return result;
@@ -6273,6 +6380,14 @@ public final class ServerCachingProtos {
         hash = (37 * hash) + USEPERSISTENTCACHE_FIELD_NUMBER;
         hash = (53 * hash) + hashBoolean(getUsePersistentCache());
       }
+      if (getRelayKeysCount() > 0) {
+        hash = (37 * hash) + RELAYKEYS_FIELD_NUMBER;
+        hash = (53 * hash) + getRelayKeysList().hashCode();
+      }
+      if (hasRelayFanout()) {
+        hash = (37 * hash) + RELAYFANOUT_FIELD_NUMBER;
+        hash = (53 * hash) + getRelayFanout();
+      }
       hash = (29 * hash) + getUnknownFields().hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -6408,6 +6523,10 @@ public final class ServerCachingProtos {
         bitField0_ = (bitField0_ & ~0x00000040);
         usePersistentCache_ = false;
         bitField0_ = (bitField0_ & ~0x00000080);
+        relayKeys_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000100);
+        relayFanout_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000200);
         return this;
       }
 
@@ -6476,6 +6595,15 @@ public final class ServerCachingProtos {
           to_bitField0_ |= 0x00000080;
         }
         result.usePersistentCache_ = usePersistentCache_;
+        if (((bitField0_ & 0x00000100) == 0x00000100)) {
+          relayKeys_ = java.util.Collections.unmodifiableList(relayKeys_);
+          bitField0_ = (bitField0_ & ~0x00000100);
+        }
+        result.relayKeys_ = relayKeys_;
+        if (((from_bitField0_ & 0x00000200) == 0x00000200)) {
+          to_bitField0_ |= 0x00000100;
+        }
+        result.relayFanout_ = relayFanout_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -6516,6 +6644,19 @@ public final class ServerCachingProtos {
         if (other.hasUsePersistentCache()) {
           setUsePersistentCache(other.getUsePersistentCache());
         }
+        if (!other.relayKeys_.isEmpty()) {
+          if (relayKeys_.isEmpty()) {
+            relayKeys_ = other.relayKeys_;
+            bitField0_ = (bitField0_ & ~0x00000100);
+          } else {
+            ensureRelayKeysIsMutable();
+            relayKeys_.addAll(other.relayKeys_);
+          }
+          onChanged();
+        }
+        if (other.hasRelayFanout()) {
+          setRelayFanout(other.getRelayFanout());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -7004,6 +7145,111 @@ public final class ServerCachingProtos {
         return this;
       }
 
+      // repeated bytes relayKeys = 9;
+      private java.util.List<com.google.protobuf.ByteString> relayKeys_ = java.util.Collections.emptyList();
+      private void ensureRelayKeysIsMutable() {
+        if (!((bitField0_ & 0x00000100) == 0x00000100)) {
+          relayKeys_ = new java.util.ArrayList<com.google.protobuf.ByteString>(relayKeys_);
+          bitField0_ |= 0x00000100;
+         }
+      }
+      /**
+       * <code>repeated bytes relayKeys = 9;</code>
+       */
+      public java.util.List<com.google.protobuf.ByteString>
+          getRelayKeysList() {
+        return java.util.Collections.unmodifiableList(relayKeys_);
+      }
+      /**
+       * <code>repeated bytes relayKeys = 9;</code>
+       */
+      public int getRelayKeysCount() {
+        return relayKeys_.size();
+      }
+      /**
+       * <code>repeated bytes relayKeys = 9;</code>
+       */
+      public com.google.protobuf.ByteString getRelayKeys(int index) {
+        return relayKeys_.get(index);
+      }
+      /**
+       * <code>repeated bytes relayKeys = 9;</code>
+       */
+      public Builder setRelayKeys(
+          int index, com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureRelayKeysIsMutable();
+        relayKeys_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes relayKeys = 9;</code>
+       */
+      public Builder addRelayKeys(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureRelayKeysIsMutable();
+        relayKeys_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes relayKeys = 9;</code>
+       */
+      public Builder addAllRelayKeys(
+          java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
+        ensureRelayKeysIsMutable();
+        super.addAll(values, relayKeys_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes relayKeys = 9;</code>
+       */
+      public Builder clearRelayKeys() {
+        relayKeys_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000100);
+        onChanged();
+        return this;
+      }
+
+      // optional int32 relayFanout = 10;
+      private int relayFanout_ ;
+      /**
+       * <code>optional int32 relayFanout = 10;</code>
+       */
+      public boolean hasRelayFanout() {
+        return ((bitField0_ & 0x00000200) == 0x00000200);
+      }
+      /**
+       * <code>optional int32 relayFanout = 10;</code>
+       */
+      public int getRelayFanout() {
+        return relayFanout_;
+      }
+      /**
+       * <code>optional int32 relayFanout = 10;</code>
+       */
+      public Builder setRelayFanout(int value) {
+        bitField0_ |= 0x00000200;
+        relayFanout_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional int32 relayFanout = 10;</code>
+       */
+      public Builder clearRelayFanout() {
+        bitField0_ = (bitField0_ & ~0x00000200);
+        relayFanout_ = 0;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:AddServerCacheRequest)
     }
 
@@ -8813,13 +9059,14 @@ public final class ServerCachingProtos {
       "\timmutable\030\022 \002(\010\022&\n\021indexedColumnInfo\030\023 " +
       "\003(\0132\013.ColumnInfo\022\026\n\016encodingScheme\030\024 \002(\005" +
       "\022\036\n\026immutableStorageScheme\030\025 \002(\005\022\027\n\017view" +
-      "IndexIdType\030\026 \001(\005\"\370\001\n\025AddServerCacheRequ" +
+      "IndexIdType\030\026 \001(\005\"\240\002\n\025AddServerCacheRequ" +
       "est\022\020\n\010tenantId\030\001 \001(\014\022\017\n\007cacheId\030\002 \002(\014\022)" +
       "\n\010cachePtr\030\003 \002(\0132\027.ImmutableBytesWritabl" +
       "e\022)\n\014cacheFactory\030\004 \002(\0132\023.ServerCacheFac" +
       "tory\022\017\n\007txState\030\005 \001(\014\022\"\n\032hasProtoBufInde" +
       "xMaintainer\030\006 \001(\010\022\025\n\rclientVersion\030\007 \001(\005",
-      "\022\032\n\022usePersistentCache\030\010 \001(\010\"(\n\026AddServe" +
+      "\022\032\n\022usePersistentCache\030\010 \001(\010\022\021\n\trelayKe" +
+      "ys\030\t \003(\014\022\023\n\013relayFanout\030\n \001(\005\"(\n\026AddServe" +
       "rCacheResponse\022\016\n\006return\030\001 \002(\010\"=\n\030Remove" +
       "ServerCacheRequest\022\020\n\010tenantId\030\001 \001(\014\022\017\n\007" +
       "cacheId\030\002 \002(\014\"+\n\031RemoveServerCacheRespon" +
@@ -8865,7 +9112,7 @@ public final class ServerCachingProtos {
           internal_static_AddServerCacheRequest_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_AddServerCacheRequest_descriptor,
-              new java.lang.String[] { "TenantId", "CacheId", "CachePtr", "CacheFactory", "TxState", "HasProtoBufIndexMaintainer", "ClientVersion", "UsePersistentCache", });
+              new java.lang.String[] { "TenantId", "CacheId", "CachePtr", "CacheFactory", "TxState", "HasProtoBufIndexMaintainer", "ClientVersion", "UsePersistentCache", "RelayKeys", "RelayFanout", });
           internal_static_AddServerCacheResponse_descriptor =
             getDescriptor().getMessageTypes().get(5);
           internal_static_AddServerCacheResponse_fieldAccessorTable = new
@@ -206,9 +206,12 @@ public class AggregatePlan extends BaseQueryPlan {
                     services.getProps().getBoolean(
                             QueryServices.CLIENT_ORDERBY_SPOOLING_ENABLED_ATTRIB,
                             QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED);
+            boolean isSpoolFileMapped =
+                    services.getProps().getBoolean(QueryServices.SPOOL_MMAP_ENABLED_ATTRIB,
+                            QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
             return new OrderedResultIterator(scanner,
                     Collections.<OrderByExpression> singletonList(orderByExpression),
-                    spoolingEnabled, threshold);
+                    spoolingEnabled, threshold, null, null, 0, isSpoolFileMapped);
         }
     }
 
@@ -156,6 +156,10 @@ public class ClientAggregatePlan extends ClientProcessingPlan {
                         context.getConnection().getQueryServices().getProps().getBoolean(
                             QueryServices.CLIENT_ORDERBY_SPOOLING_ENABLED_ATTRIB,
                             QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED);
+                boolean isSpoolFileMapped =
+                        context.getConnection().getQueryServices().getProps().getBoolean(
+                            QueryServices.SPOOL_MMAP_ENABLED_ATTRIB,
+                            QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
                 List<OrderByExpression> keyExpressionOrderBy = Lists.newArrayListWithExpectedSize(keyExpressions.size());
                 for (Expression keyExpression : keyExpressions) {
                     /**
@@ -173,7 +177,7 @@ public class ClientAggregatePlan extends ClientProcessingPlan {
                     iterator =
                             new OrderedResultIterator(iterator, keyExpressionOrderBy,
                                     spoolingEnabled, thresholdBytes, null, null,
-                                    projector.getEstimatedRowByteSize());
+                                    projector.getEstimatedRowByteSize(), isSpoolFileMapped);
                     aggResultIterator = new ClientGroupedAggregatingResultIterator(LookAheadResultIterator.wrap(iterator), serverAggregators, keyExpressions);
                 }
             }
@@ -99,10 +99,14 @@ public class ClientScanPlan extends ClientProcessingPlan {
                     context.getConnection().getQueryServices().getProps().getBoolean(
                         QueryServices.CLIENT_ORDERBY_SPOOLING_ENABLED_ATTRIB,
                         QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED);
+            boolean isSpoolFileMapped =
+                    context.getConnection().getQueryServices().getProps().getBoolean(
+                        QueryServices.SPOOL_MMAP_ENABLED_ATTRIB,
+                        QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
             iterator =
                     new OrderedResultIterator(iterator, orderBy.getOrderByExpressions(),
                             spoolingEnabled, thresholdBytes, limit, offset,
-                            projector.getEstimatedRowByteSize());
+                            projector.getEstimatedRowByteSize(), isSpoolFileMapped);
         } else {
             if (offset != null) {
                 iterator = new OffsetResultIterator(iterator, offset);
@@ -57,12 +57,15 @@ import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.InListExpression;
 import org.apache.phoenix.expression.LiteralExpression;
 import org.apache.phoenix.expression.RowValueConstructorExpression;
+import org.apache.phoenix.expression.function.JoinKeyBloomFilterFunction;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.iterate.*;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.job.JobManager.JobCallable;
 import org.apache.phoenix.join.HashCacheClient;
 import org.apache.phoenix.join.HashJoinInfo;
+import org.apache.phoenix.join.JoinKeyBloomFilter;
+import org.apache.phoenix.join.MaxServerCacheSizeExceededException;
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.FilterableStatement;
@@ -80,7 +83,9 @@ import org.apache.phoenix.schema.types.PBoolean;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PVarbinary;
 import org.apache.phoenix.util.CostUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SQLCloseables;
+import org.apache.phoenix.util.TupleUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -100,10 +105,13 @@ public class HashJoinPlan extends DelegateQueryPlan {
     private final Set<TableRef> tableRefs;
     private final int maxServerCacheTimeToLive;
     private final long serverCacheLimit;
+    private final boolean partitionedHashJoinEnabled;
+    private final int partitionCount;
     private final Map<ImmutableBytesPtr,ServerCache> dependencies = Maps.newHashMap();
     private HashCacheClient hashClient;
     private AtomicLong firstJobEndTime;
     private List<Expression> keyRangeExpressions;
+    private List<Expression> bloomFilterExpressions;
     private Long estimatedRows;
     private Long estimatedBytes;
     private Long estimateInfoTs;
@@ -150,6 +158,10 @@ public class HashJoinPlan extends DelegateQueryPlan {
                 QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_TIME_TO_LIVE_MS);
         this.serverCacheLimit = services.getProps().getLong(
                 QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_SIZE);
+        this.partitionedHashJoinEnabled = services.getProps().getBoolean(
+                QueryServices.PARTITIONED_HASH_JOIN_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_PARTITIONED_HASH_JOIN_ENABLED);
+        this.partitionCount = services.getProps().getInt(
+                QueryServices.PARTITIONED_HASH_JOIN_PARTITION_COUNT_ATTRIB, QueryServicesOptions.DEFAULT_PARTITIONED_HASH_JOIN_PARTITION_COUNT);
     }
     
     @Override
@@ -174,6 +186,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
                   : new HashCacheClient(delegate.getContext().getConnection());
             firstJobEndTime = new AtomicLong(0);
             keyRangeExpressions = new CopyOnWriteArrayList<Expression>();
+            bloomFilterExpressions = new CopyOnWriteArrayList<Expression>();
         }
         
         for (int i = 0; i < count; i++) {
@@ -199,6 +212,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
         }
         
         SQLException firstException = null;
+        HashSubPlan partitionedSubPlan = null;
         for (int i = 0; i < count; i++) {
             try {
                 ServerCache result = futures.get(i).get();
@@ -212,6 +226,13 @@ public class HashJoinPlan extends DelegateQueryPlan {
                     firstException = new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION).setRootCause(e).setMessage("Sub plan [" + i + "] execution interrupted.").build().buildException();
                 }
             } catch (ExecutionException e) {
+                if (e.getCause() instanceof MaxServerCacheSizeExceededException && canPartition(subPlans[i])) {
+                    LOGGER.info(addCustomAnnotations("Hash plan [" + i + "] exceeds the max server cache size, "
+                            + "joining in " + partitionCount + " partitions. " + e.getCause().getMessage(),
+                            connection));
+                    partitionedSubPlan = (HashSubPlan) subPlans[i];
+                    continue;
+                }
                 if (firstException == null) {
                     firstException = new SQLException("Encountered exception in sub plan [" + i + "] execution.", 
                             e.getCause());
@@ -225,7 +246,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
 
         Expression postFilter = null;
         boolean hasKeyRangeExpressions = keyRangeExpressions != null && !keyRangeExpressions.isEmpty();
-        if (recompileWhereClause || hasKeyRangeExpressions) {
+        boolean hasBloomFilterExpressions = bloomFilterExpressions != null && !bloomFilterExpressions.isEmpty();
+        if (recompileWhereClause || hasKeyRangeExpressions || hasBloomFilterExpressions) {
             StatementContext context = delegate.getContext();
             // Since we are going to compile the WHERE conditions all over again, we will clear
             // the old filter, otherwise there would be conflicts and would cause PHOENIX-4692.
@@ -236,16 +258,22 @@ public class HashJoinPlan extends DelegateQueryPlan {
             if (recompileWhereClause) {
                 postFilter = WhereCompiler.compile(delegate.getContext(), delegate.getStatement(), viewWhere, null);
             }
-            if (hasKeyRangeExpressions) {
-                WhereCompiler.compile(delegate.getContext(), delegate.getStatement(), viewWhere, keyRangeExpressions, null);
+            if (hasKeyRangeExpressions || hasBloomFilterExpressions) {
+                List<Expression> dynamicFilters = Lists.newArrayList(keyRangeExpressions);
+                dynamicFilters.addAll(bloomFilterExpressions);
+                WhereCompiler.compile(delegate.getContext(), delegate.getStatement(), viewWhere, dynamicFilters, null);
             }
         }
 
-        if (joinInfo != null) {
-            HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo);
+        ResultIterator iterator;
+        if (partitionedSubPlan != null) {
+            iterator = new PartitionedHashJoinIterator(partitionedSubPlan, scanGrouper, scan);
+        } else {
+            if (joinInfo != null) {
+                HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo);
+            }
+            iterator = joinInfo == null ? delegate.iterator(scanGrouper, scan) : ((BaseQueryPlan) delegate).iterator(dependencies, scanGrouper, scan);
         }
-        
-        ResultIterator iterator = joinInfo == null ? delegate.iterator(scanGrouper, scan) : ((BaseQueryPlan) delegate).iterator(dependencies, scanGrouper, scan);
         if (statement.getInnerSelectStatement() != null && postFilter != null) {
             iterator = new FilterResultIterator(iterator, postFilter);
         }
@@ -257,6 +285,128 @@ public class HashJoinPlan extends DelegateQueryPlan {
         }
     }
 
+    /**
+     * Whether a hash sub plan whose build side does not fit in the server cache can instead be
+     * joined one hash partition at a time. Each partition pass only emits the probe side rows
+     * whose join key hashes to that partition, so the passes can simply be concatenated as long
+     * as there is a single hash join and nothing above the scan depends on row order or count.
+     */
+    private boolean canPartition(SubPlan subPlan) {
+        if (!partitionedHashJoinEnabled || partitionCount <= 1 || joinInfo == null
+                || joinInfo.getJoinIds().length != 1 || !(subPlan instanceof HashSubPlan)) {
+            return false;
+        }
+        HashSubPlan hashSubPlan = (HashSubPlan) subPlan;
+        return hashSubPlan.hashExpressions != null
+                && !hashSubPlan.usePersistentCache
+                && joinInfo.earlyEvaluation()[hashSubPlan.index]
+                && joinInfo.getLimit() == null
+                && delegate instanceof ScanPlan
+                && delegate.getOrderBy().getOrderByExpressions().isEmpty()
+                && delegate.getLimit() == null
+                && delegate.getOffset() == null;
+    }
+
+    /**
+     * Explain step of a partitioned hash join, which scans the probe side once per partition.
+     */
+    private String getPartitionedJoinStep() {
+        return "    HASH PARTITIONED JOIN IN " + partitionCount
+                + " PASSES, EACH RE-SCANNING THE FULL PROBE SIDE";
+    }
+
+    /**
+     * Runs the join one hash partition at a time: the build side is re-executed keeping only the
+     * rows of the current partition, sent as its own server cache, and the probe side is scanned
+     * with the partition serialized along with the {@link HashJoinInfo}. A partition's cache is
+     * removed as soon as its pass completes, so only one partition at a time is held on the
+     * region servers.
+     */
+    private class PartitionedHashJoinIterator implements ResultIterator {
+        private final HashSubPlan subPlan;
+        private final ParallelScanGrouper scanGrouper;
+        private final Scan scan;
+        private int partition = -1;
+        private ResultIterator current = ResultIterator.EMPTY_ITERATOR;
+
+        private PartitionedHashJoinIterator(HashSubPlan subPlan, ParallelScanGrouper scanGrouper, Scan scan) {
+            this.subPlan = subPlan;
+            this.scanGrouper = scanGrouper;
+            this.scan = scan;
+        }
+
+        @Override
+        public Tuple next() throws SQLException {
+            while (true) {
+                Tuple next = current.next();
+                if (next != null) {
+                    return next;
+                }
+                if (partition + 1 >= partitionCount) {
+                    return null;
+                }
+                current.close();
+                current = ResultIterator.EMPTY_ITERATOR;
+                current = subPlan.executePartition(HashJoinPlan.this, ++partition, partitionCount, scanGrouper, scan);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                current.close();
+            } finally {
+                SQLCloseables.closeAll(dependencies.values());
+            }
+        }
+
+        @Override
+        public void explain(List<String> planSteps) {
+            planSteps.add(getPartitionedJoinStep());
+        }
+    }
+
+    /**
+     * Filters the build side of a partitioned hash join down to the rows of one partition.
+     */
+    private static class HashPartitionResultIterator extends LookAheadResultIterator {
+        private final ResultIterator delegate;
+        private final List<Expression> hashExpressions;
+        private final int partition;
+        private final int partitionCount;
+
+        private HashPartitionResultIterator(ResultIterator delegate, List<Expression> hashExpressions, int partition, int partitionCount) {
+            this.delegate = delegate;
+            this.hashExpressions = hashExpressions;
+            this.partition = partition;
+            this.partitionCount = partitionCount;
+        }
+
+        @Override
+        protected Tuple advance() throws SQLException {
+            try {
+                Tuple next;
+                do {
+                    next = delegate.next();
+                } while (next != null && HashJoinInfo.getPartition(
+                        TupleUtil.getConcatenatedValue(next, hashExpressions), partitionCount) != partition);
+                return next;
+            } catch (IOException e) {
+                throw ServerUtil.parseServerException(e);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            delegate.close();
+        }
+
+        @Override
+        public void explain(List<String> planSteps) {
+            delegate.explain(planSteps);
+        }
+    }
+
     private ResultIterator peekForPersistentCache(ResultIterator iterator, ParallelScanGrouper scanGrouper, Scan scan) throws SQLException {
         // The persistent subquery is optimistic and assumes caches are present on region
         // servers. We verify that this is the case by peeking at one result. If there is
@@ -505,6 +655,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
         private final boolean usePersistentCache;
         private final Expression keyRangeLhsExpression;
         private final Expression keyRangeRhsExpression;
+        private final List<Expression> bloomFilterLhsExpressions;
         private final MessageDigest digest;
         
         public HashSubPlan(int index, QueryPlan subPlan, 
@@ -513,6 +664,22 @@ public class HashJoinPlan extends DelegateQueryPlan {
                 boolean usePersistentCache,
                 Expression keyRangeLhsExpression, 
                 Expression keyRangeRhsExpression) {
+            this(index, subPlan, hashExpressions, singleValueOnly, usePersistentCache,
+                    keyRangeLhsExpression, keyRangeRhsExpression, null);
+        }
+
+        /**
+         * @param bloomFilterLhsExpressions the LHS join key expressions compiled against the
+         * columns of the LHS table rather than the projected join row, used to filter the LHS
+         * scan with a bloom filter of the hash cache keys, or null if not applicable.
+         */
+        public HashSubPlan(int index, QueryPlan subPlan, 
+                List<Expression> hashExpressions,
+                boolean singleValueOnly,
+                boolean usePersistentCache,
+                Expression keyRangeLhsExpression, 
+                Expression keyRangeRhsExpression,
+                List<Expression> bloomFilterLhsExpressions) {
             this.index = index;
             this.plan = subPlan;
             this.hashExpressions = hashExpressions;
@@ -520,6 +687,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
             this.usePersistentCache = usePersistentCache;
             this.keyRangeLhsExpression = keyRangeLhsExpression;
             this.keyRangeRhsExpression = keyRangeRhsExpression;
+            this.bloomFilterLhsExpressions = bloomFilterLhsExpressions;
             try {
                 this.digest = MessageDigest.getInstance("SHA-256");
             } catch (NoSuchAlgorithmException e) {
@@ -534,6 +702,15 @@ public class HashJoinPlan extends DelegateQueryPlan {
             if (keyRangeRhsExpression != null) {
                 keyRangeRhsValues = Lists.<Expression>newArrayList();
             }
+            JoinKeyBloomFilter.Builder bloomFilterBuilder = null;
+            if (bloomFilterLhsExpressions != null) {
+                ReadOnlyProps props = parent.delegate.getContext().getConnection().getQueryServices().getProps();
+                bloomFilterBuilder = new JoinKeyBloomFilter.Builder(
+                        props.getInt(QueryServices.HASH_JOIN_BLOOM_FILTER_BITS_PER_KEY_ATTRIB,
+                                QueryServicesOptions.DEFAULT_HASH_JOIN_BLOOM_FILTER_BITS_PER_KEY),
+                        props.getLong(QueryServices.HASH_JOIN_BLOOM_FILTER_MAX_BYTES_ATTRIB,
+                                QueryServicesOptions.DEFAULT_HASH_JOIN_BLOOM_FILTER_MAX_BYTES));
+            }
             ServerCache cache = null;
             if (hashExpressions != null) {
                 ResultIterator iterator = plan.iterator();
@@ -560,7 +737,14 @@ public class HashJoinPlan extends DelegateQueryPlan {
                         cache = parent.hashClient.addHashCache(ranges, cacheId, iterator,
                                 plan.getEstimatedSize(), hashExpressions, singleValueOnly, usePersistentCache,
                                 parent.delegate.getTableRef().getTable(), keyRangeRhsExpression,
-                                keyRangeRhsValues);
+                                keyRangeRhsValues, bloomFilterBuilder);
+                        if (bloomFilterBuilder != null) {
+                            JoinKeyBloomFilter bloomFilter = bloomFilterBuilder.build();
+                            if (bloomFilter != null) {
+                                parent.bloomFilterExpressions.add(
+                                        JoinKeyBloomFilterFunction.create(bloomFilterLhsExpressions, bloomFilter));
+                            }
+                        }
                         long endTime = System.currentTimeMillis();
                         boolean isSet = parent.firstJobEndTime.compareAndSet(0, endTime);
                         if (!isSet && (endTime
@@ -594,6 +778,30 @@ public class HashJoinPlan extends DelegateQueryPlan {
             return cache;
         }
 
+        /**
+         * Builds the server cache for one hash partition of the build side and returns the
+         * probe side scan joined against it. The returned iterator removes the cache on close.
+         */
+        private ResultIterator executePartition(HashJoinPlan parent, int partition, int partitionCount,
+                ParallelScanGrouper scanGrouper, Scan scan) throws SQLException {
+            byte[] cacheId = Bytes.toBytes(RANDOM.nextLong());
+            LOGGER.debug("Making RPC to add cache " + Hex.encodeHexString(cacheId)
+                    + " for hash partition " + partition + " of " + partitionCount);
+            ResultIterator iterator = new HashPartitionResultIterator(plan.iterator(), hashExpressions, partition, partitionCount);
+            ServerCache cache = parent.hashClient.addHashCache(parent.delegate.getContext().getScanRanges(), cacheId,
+                    iterator, plan.getEstimatedSize() / partitionCount, hashExpressions, singleValueOnly, false,
+                    parent.delegate.getTableRef().getTable(), null, null, null);
+            try {
+                parent.joinInfo.getJoinIds()[index].set(cache.getId());
+                HashJoinInfo.serializeHashJoinIntoScan(scan, parent.joinInfo, partition, partitionCount);
+                return ((BaseQueryPlan) parent.delegate).iterator(
+                        Collections.singletonMap(new ImmutableBytesPtr(cache.getId()), cache), scanGrouper, scan);
+            } catch (SQLException | RuntimeException e) {
+                cache.close();
+                throw e;
+            }
+        }
+
         @Override
         public void postProcess(ServerCache result, HashJoinPlan parent)
                 throws SQLException {
@@ -623,12 +831,20 @@ public class HashJoinPlan extends DelegateQueryPlan {
 
         @Override
         public List<String> getPostSteps(HashJoinPlan parent) throws SQLException {
-            if (keyRangeLhsExpression == null)
-                return Collections.<String> emptyList();
-            
-            String step = "    DYNAMIC SERVER FILTER BY " + keyRangeLhsExpression.toString() 
-                    + " IN (" + keyRangeRhsExpression.toString() + ")";
-            return Collections.<String> singletonList(step);
+            List<String> steps = Lists.newArrayList();
+            if (keyRangeLhsExpression != null) {
+                steps.add("    DYNAMIC SERVER FILTER BY " + keyRangeLhsExpression.toString() 
+                        + " IN (" + keyRangeRhsExpression.toString() + ")");
+            }
+            if (bloomFilterLhsExpressions != null) {
+                steps.add("    DYNAMIC SERVER FILTER BY " + JoinKeyBloomFilterFunction.NAME
+                        + "(" + bloomFilterLhsExpressions + ")");
+            }
+            if (parent.canPartition(this)) {
+                // Only taken if the build side turns out not to fit in the server cache
+                steps.add(parent.getPartitionedJoinStep() + " IF OVER THE MAX SERVER CACHE SIZE");
+            }
+            return steps;
         }
 
 
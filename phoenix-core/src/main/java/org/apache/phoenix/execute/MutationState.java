@@ -22,6 +22,7 @@ import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MUTATION_
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MUTATION_BATCH_SIZE;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MUTATION_BYTES;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MUTATION_COMMIT_TIME;
+import static org.apache.phoenix.monitoring.TaskExecutionMetricsHolder.NO_OP_INSTANCE;
 import static org.apache.phoenix.query.QueryServices.WILDCARD_QUERY_DYNAMIC_COLS_ATTRIB;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_WILDCARD_QUERY_DYNAMIC_COLS_ATTRIB;
 
@@ -36,7 +37,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
@@ -69,11 +76,13 @@ import org.apache.phoenix.index.PhoenixIndexFailurePolicy.MutateCommand;
 import org.apache.phoenix.index.PhoenixIndexMetaData;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixStatement.Operation;
+import org.apache.phoenix.job.JobManager.JobCallable;
 import org.apache.phoenix.monitoring.GlobalClientMetrics;
 import org.apache.phoenix.monitoring.MutationMetricQueue;
 import org.apache.phoenix.monitoring.MutationMetricQueue.MutationMetric;
 import org.apache.phoenix.monitoring.MutationMetricQueue.NoOpMutationMetricsQueue;
 import org.apache.phoenix.monitoring.ReadMetricQueue;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
@@ -111,6 +120,7 @@ import org.apache.phoenix.util.TransactionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterators;
@@ -998,216 +1008,333 @@ public class MutationState implements SQLCloseable {
 
     private void sendMutations(Iterator<Entry<TableInfo, List<Mutation>>> mutationsIterator, Span span, ImmutableBytesWritable indexMetaDataPtr)
             throws SQLException {
+        int maxInFlightTables = connection.getQueryServices().getProps().getInt(
+                QueryServices.MUTATE_MAX_IN_FLIGHT_TABLES_ATTRIB, QueryServicesOptions.DEFAULT_MUTATE_MAX_IN_FLIGHT_TABLES);
+        if (maxInFlightTables > 1) {
+            List<Entry<TableInfo, List<Mutation>>> entries = Lists.newArrayList(mutationsIterator);
+            if (entries.size() > 1 && canSendInParallel(entries)) {
+                sendMutationsInParallel(entries, span, maxInFlightTables);
+                return;
+            }
+            mutationsIterator = entries.iterator();
+        }
         while (mutationsIterator.hasNext()) {
             Entry<TableInfo, List<Mutation>> pair = mutationsIterator.next();
-            TableInfo tableInfo = pair.getKey();
-            byte[] htableName = tableInfo.getHTableName().getBytes();
-            List<Mutation> mutationList = pair.getValue();
-            List<List<Mutation>> mutationBatchList =
-                    getMutationBatchList(batchSize, batchSizeBytes, mutationList);
-
-            // create a span per target table
-            // TODO maybe we can be smarter about the table name to string here?
-            Span child = Tracing.child(span, "Writing mutation batch for table: " + Bytes.toString(htableName));
-
-            int retryCount = 0;
-            boolean shouldRetry = false;
-            long numMutations = 0;
-            long mutationSizeBytes = 0;
-            long mutationCommitTime = 0;
-            long numFailedMutations = 0;
-
-            long startTime = 0;
-            boolean shouldRetryIndexedMutation = false;
-            IndexWriteException iwe = null;
-            do {
-                TableRef origTableRef = tableInfo.getOrigTableRef();
-                PTable table = origTableRef.getTable();
-                table.getIndexMaintainers(indexMetaDataPtr, connection);
-                final ServerCache cache = tableInfo.isDataTable() ?
-                        IndexMetaDataCacheClient.setMetaDataOnMutations(connection, table,
-                                mutationList, indexMetaDataPtr) : null;
-                // If we haven't retried yet, retry for this case only, as it's possible that
-                // a split will occur after we send the index metadata cache to all known
-                // region servers.
-                shouldRetry = cache != null;
-                SQLException sqlE = null;
-                Table hTable = connection.getQueryServices().getTable(htableName);
-                try {
-                    if (table.isTransactional()) {
-                        // Track tables to which we've sent uncommitted data
-                        if (tableInfo.isDataTable()) {
-                            uncommittedPhysicalNames.add(table.getPhysicalName().getString());
-                            phoenixTransactionContext.markDMLFence(table);
+            sendMutations(pair.getKey(), pair.getValue(), span, indexMetaDataPtr);
+        }
+    }
+
+    /**
+     * Transactional writes go through the transaction context, which is not thread safe, so
+     * they are always sent one table at a time.
+     */
+    private static boolean canSendInParallel(List<Entry<TableInfo, List<Mutation>>> entries) {
+        for (Entry<TableInfo, List<Mutation>> entry : entries) {
+            if (entry.getKey().getOrigTableRef().getTable().isTransactional()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends the mutations of independent physical tables, such as a data table and its indexes
+     * within the same commit phase, concurrently so the commit waits for the slowest table
+     * instead of the sum of all of them. At most maxInFlightTables tables are written at a time,
+     * one of them by the calling thread. Tables are claimed from a shared queue and we only wait
+     * for tasks that claimed one, so the commit can't deadlock when the executor is saturated,
+     * for example when committing from a task that itself runs on the executor.
+     */
+    private void sendMutationsInParallel(List<Entry<TableInfo, List<Mutation>>> entries, final Span span,
+            int maxInFlightTables) throws SQLException {
+        sendInParallel(entries, connection.getQueryServices().getExecutor(), this, maxInFlightTables,
+                new MutationSender<Entry<TableInfo, List<Mutation>>>() {
+                    @Override
+                    public void send(Entry<TableInfo, List<Mutation>> entry) throws SQLException {
+                        sendMutations(entry.getKey(), entry.getValue(), span, new ImmutableBytesWritable());
+                    }
+                });
+    }
+
+    @VisibleForTesting
+    static interface MutationSender<T> {
+        void send(T entry) throws SQLException;
+    }
+
+    /**
+     * Sends the entries with up to maxInFlight senders, the calling thread and tasks submitted
+     * to the executor, and rethrows the first failure once all senders are done.
+     */
+    @VisibleForTesting
+    static <T> void sendInParallel(List<T> entries, ExecutorService executor, final Object jobId,
+            int maxInFlight, final MutationSender<T> sender) throws SQLException {
+        final Queue<T> queue = new ConcurrentLinkedQueue<>(entries);
+        final AtomicReference<SQLException> firstException = new AtomicReference<>();
+        final Phaser phaser = new Phaser(1);
+        int nTasks = Math.min(maxInFlight, entries.size()) - 1;
+        for (int i = 0; i < nTasks; i++) {
+            try {
+                executor.submit(new JobCallable<Void>() {
+                    @Override
+                    public Void call() {
+                        phaser.register();
+                        try {
+                            sendQueued(queue, sender, firstException);
+                        } finally {
+                            phaser.arriveAndDeregister();
                         }
-                        // Only pass true for last argument if the index is being written to on it's own (i.e. initial
-                        // index population), not if it's being written to for normal maintenance due to writes to
-                        // the data table. This case is different because the initial index population does not need
-                        // to be done transactionally since the index is only made active after all writes have
-                        // occurred successfully.
-                        hTable = phoenixTransactionContext.getTransactionalTableWriter(connection, table, hTable, tableInfo.isDataTable() && table.getType() == PTableType.INDEX);
+                        return null;
                     }
-                    numMutations = mutationList.size();
-                    GLOBAL_MUTATION_BATCH_SIZE.update(numMutations);
-                    mutationSizeBytes = calculateMutationSize(mutationList);
-
-                    startTime = System.currentTimeMillis();
-                    child.addTimelineAnnotation("Attempt " + retryCount);
-                    Iterator<List<Mutation>> itrListMutation = mutationBatchList.iterator();
-                    while (itrListMutation.hasNext()) {
-                        final List<Mutation> mutationBatch = itrListMutation.next();
-                        if (shouldRetryIndexedMutation) {
-                            // if there was an index write failure, retry the mutation in a loop
-                            final Table finalHTable = hTable;
-                            final ImmutableBytesWritable finalindexMetaDataPtr =
-                                    indexMetaDataPtr;
-                            final PTable finalPTable = table;
-                            PhoenixIndexFailurePolicy.doBatchWithRetries(new MutateCommand() {
-                                @Override
-                                public void doMutation() throws IOException {
-                                    try {
-                                        finalHTable.batch(mutationBatch, null);
-                                    } catch (InterruptedException e) {
-                                        Thread.currentThread().interrupt();
-                                        throw new IOException(e);
-                                    } catch (IOException e) {
-                                        e = updateTableRegionCacheIfNecessary(e);
-                                        throw e;
-                                    }
-                                }
 
-                                @Override
-                                public List<Mutation> getMutationList() {
-                                    return mutationBatch;
+                    @Override
+                    public Object getJobId() {
+                        return jobId;
+                    }
+
+                    @Override
+                    public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                        return NO_OP_INSTANCE;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The calling thread sends whatever the tasks don't
+                break;
+            }
+        }
+        sendQueued(queue, sender, firstException);
+        phaser.arriveAndAwaitAdvance();
+        if (firstException.get() != null) {
+            throw firstException.get();
+        }
+    }
+
+    private static <T> void sendQueued(Queue<T> queue, MutationSender<T> sender,
+            AtomicReference<SQLException> firstException) {
+        T entry;
+        while (firstException.get() == null && (entry = queue.poll()) != null) {
+            try {
+                sender.send(entry);
+            } catch (SQLException e) {
+                firstException.compareAndSet(null, e);
+            } catch (RuntimeException e) {
+                firstException.compareAndSet(null, ServerUtil.parseServerException(e));
+            }
+        }
+    }
+
+    private void sendMutations(TableInfo tableInfo, List<Mutation> mutationList, Span span, ImmutableBytesWritable indexMetaDataPtr)
+            throws SQLException {
+        byte[] htableName = tableInfo.getHTableName().getBytes();
+        List<List<Mutation>> mutationBatchList =
+                getMutationBatchList(batchSize, batchSizeBytes, mutationList);
+
+        // create a span per target table
+        // TODO maybe we can be smarter about the table name to string here?
+        Span child = Tracing.child(span, "Writing mutation batch for table: " + Bytes.toString(htableName));
+
+        int retryCount = 0;
+        boolean shouldRetry = false;
+        long numMutations = 0;
+        long mutationSizeBytes = 0;
+        long mutationCommitTime = 0;
+        long numFailedMutations = 0;
+
+        long startTime = 0;
+        boolean shouldRetryIndexedMutation = false;
+        IndexWriteException iwe = null;
+        do {
+            TableRef origTableRef = tableInfo.getOrigTableRef();
+            PTable table = origTableRef.getTable();
+            table.getIndexMaintainers(indexMetaDataPtr, connection);
+            final ServerCache cache = tableInfo.isDataTable() ?
+                    IndexMetaDataCacheClient.setMetaDataOnMutations(connection, table,
+                            mutationList, indexMetaDataPtr) : null;
+            // If we haven't retried yet, retry for this case only, as it's possible that
+            // a split will occur after we send the index metadata cache to all known
+            // region servers.
+            shouldRetry = cache != null;
+            SQLException sqlE = null;
+            Table hTable = connection.getQueryServices().getTable(htableName);
+            try {
+                if (table.isTransactional()) {
+                    // Track tables to which we've sent uncommitted data
+                    if (tableInfo.isDataTable()) {
+                        uncommittedPhysicalNames.add(table.getPhysicalName().getString());
+                        phoenixTransactionContext.markDMLFence(table);
+                    }
+                    // Only pass true for last argument if the index is being written to on it's own (i.e. initial
+                    // index population), not if it's being written to for normal maintenance due to writes to
+                    // the data table. This case is different because the initial index population does not need
+                    // to be done transactionally since the index is only made active after all writes have
+                    // occurred successfully.
+                    hTable = phoenixTransactionContext.getTransactionalTableWriter(connection, table, hTable, tableInfo.isDataTable() && table.getType() == PTableType.INDEX);
+                }
+                numMutations = mutationList.size();
+                GLOBAL_MUTATION_BATCH_SIZE.update(numMutations);
+                mutationSizeBytes = calculateMutationSize(mutationList);
+
+                startTime = System.currentTimeMillis();
+                child.addTimelineAnnotation("Attempt " + retryCount);
+                Iterator<List<Mutation>> itrListMutation = mutationBatchList.iterator();
+                while (itrListMutation.hasNext()) {
+                    final List<Mutation> mutationBatch = itrListMutation.next();
+                    if (shouldRetryIndexedMutation) {
+                        // if there was an index write failure, retry the mutation in a loop
+                        final Table finalHTable = hTable;
+                        final ImmutableBytesWritable finalindexMetaDataPtr =
+                                indexMetaDataPtr;
+                        final PTable finalPTable = table;
+                        PhoenixIndexFailurePolicy.doBatchWithRetries(new MutateCommand() {
+                            @Override
+                            public void doMutation() throws IOException {
+                                try {
+                                    finalHTable.batch(mutationBatch, null);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                    throw new IOException(e);
+                                } catch (IOException e) {
+                                    e = updateTableRegionCacheIfNecessary(e);
+                                    throw e;
                                 }
+                            }
 
-                                private IOException
-                                updateTableRegionCacheIfNecessary(IOException ioe) {
-                                    SQLException sqlE =
-                                            ServerUtil.parseLocalOrRemoteServerException(ioe);
-                                    if (sqlE != null
-                                            && sqlE.getErrorCode() == SQLExceptionCode.INDEX_METADATA_NOT_FOUND
-                                            .getErrorCode()) {
-                                        try {
-                                            connection.getQueryServices().clearTableRegionCache(
-                                                    finalHTable.getName());
-                                            IndexMetaDataCacheClient.setMetaDataOnMutations(
-                                                    connection, finalPTable, mutationBatch,
-                                                    finalindexMetaDataPtr);
-                                        } catch (SQLException e) {
-                                            return ServerUtil.createIOException(
-                                                    "Exception during updating index meta data cache",
-                                                    ioe);
-                                        }
+                            @Override
+                            public List<Mutation> getMutationList() {
+                                return mutationBatch;
+                            }
+
+                            private IOException
+                            updateTableRegionCacheIfNecessary(IOException ioe) {
+                                SQLException sqlE =
+                                        ServerUtil.parseLocalOrRemoteServerException(ioe);
+                                if (sqlE != null
+                                        && sqlE.getErrorCode() == SQLExceptionCode.INDEX_METADATA_NOT_FOUND
+                                        .getErrorCode()) {
+                                    try {
+                                        connection.getQueryServices().clearTableRegionCache(
+                                                finalHTable.getName());
+                                        IndexMetaDataCacheClient.setMetaDataOnMutations(
+                                                connection, finalPTable, mutationBatch,
+                                                finalindexMetaDataPtr);
+                                    } catch (SQLException e) {
+                                        return ServerUtil.createIOException(
+                                                "Exception during updating index meta data cache",
+                                                ioe);
                                     }
-                                    return ioe;
                                 }
-                            }, iwe, connection, connection.getQueryServices().getProps());
-                            shouldRetryIndexedMutation = false;
-                        } else {
-                            hTable.batch(mutationBatch, null);
-                        }
-                        // remove each batch from the list once it gets applied
-                        // so when failures happens for any batch we only start
-                        // from that batch only instead of doing duplicate reply of already
-                        // applied batches from entire list, also we can set
-                        // REPLAY_ONLY_INDEX_WRITES for first batch
-                        // only in case of 1121 SQLException
-                        itrListMutation.remove();
-
+                                return ioe;
+                            }
+                        }, iwe, connection, connection.getQueryServices().getProps());
+                        shouldRetryIndexedMutation = false;
+                    } else {
+                        hTable.batch(mutationBatch, null);
+                    }
+                    // remove each batch from the list once it gets applied
+                    // so when failures happens for any batch we only start
+                    // from that batch only instead of doing duplicate reply of already
+                    // applied batches from entire list, also we can set
+                    // REPLAY_ONLY_INDEX_WRITES for first batch
+                    // only in case of 1121 SQLException
+                    itrListMutation.remove();
+
+                    synchronized (this) {
                         batchCount++;
-                        if (LOGGER.isDebugEnabled())
-                            LOGGER.debug("Sent batch of " + mutationBatch.size() + " for "
-                                    + Bytes.toString(htableName));
                     }
-                    child.stop();
-                    child.stop();
-                    shouldRetry = false;
-                    mutationCommitTime = System.currentTimeMillis() - startTime;
-                    GLOBAL_MUTATION_COMMIT_TIME.update(mutationCommitTime);
-                    numFailedMutations = 0;
-
-                    // Remove batches as we process them
+                    if (LOGGER.isDebugEnabled())
+                        LOGGER.debug("Sent batch of " + mutationBatch.size() + " for "
+                                + Bytes.toString(htableName));
+                }
+                child.stop();
+                child.stop();
+                shouldRetry = false;
+                mutationCommitTime = System.currentTimeMillis() - startTime;
+                GLOBAL_MUTATION_COMMIT_TIME.update(mutationCommitTime);
+                numFailedMutations = 0;
+
+                // Remove batches as we process them
+                synchronized (this) {
                     mutations.remove(origTableRef);
                     if (tableInfo.isDataTable()) {
                         numRows -= numMutations;
                         // recalculate the estimated size
                         estimatedSize = PhoenixKeyValueUtil.getEstimatedRowMutationSize(mutations);
                     }
-                } catch (Exception e) {
-                    mutationCommitTime = System.currentTimeMillis() - startTime;
-                    long serverTimestamp = ServerUtil.parseServerTimestamp(e);
-                    SQLException inferredE = ServerUtil.parseServerExceptionOrNull(e);
-                    if (inferredE != null) {
-                        if (shouldRetry
-                                && retryCount == 0
-                                && inferredE.getErrorCode() == SQLExceptionCode.INDEX_METADATA_NOT_FOUND
-                                .getErrorCode()) {
-                            // Swallow this exception once, as it's possible that we split after sending the index
-                            // metadata
-                            // and one of the region servers doesn't have it. This will cause it to have it the next
-                            // go around.
-                            // If it fails again, we don't retry.
-                            String msg = "Swallowing exception and retrying after clearing meta cache on connection. "
-                                    + inferredE;
-                            LOGGER.warn(LogUtil.addCustomAnnotations(msg, connection));
-                            connection.getQueryServices().clearTableRegionCache(TableName.valueOf(htableName));
-
-                            // add a new child span as this one failed
-                            child.addTimelineAnnotation(msg);
-                            child.stop();
-                            child = Tracing.child(span, "Failed batch, attempting retry");
+                }
+            } catch (Exception e) {
+                mutationCommitTime = System.currentTimeMillis() - startTime;
+                long serverTimestamp = ServerUtil.parseServerTimestamp(e);
+                SQLException inferredE = ServerUtil.parseServerExceptionOrNull(e);
+                if (inferredE != null) {
+                    if (shouldRetry
+                            && retryCount == 0
+                            && inferredE.getErrorCode() == SQLExceptionCode.INDEX_METADATA_NOT_FOUND
+                            .getErrorCode()) {
+                        // Swallow this exception once, as it's possible that we split after sending the index
+                        // metadata
+                        // and one of the region servers doesn't have it. This will cause it to have it the next
+                        // go around.
+                        // If it fails again, we don't retry.
+                        String msg = "Swallowing exception and retrying after clearing meta cache on connection. "
+                                + inferredE;
+                        LOGGER.warn(LogUtil.addCustomAnnotations(msg, connection));
+                        connection.getQueryServices().clearTableRegionCache(TableName.valueOf(htableName));
+
+                        // add a new child span as this one failed
+                        child.addTimelineAnnotation(msg);
+                        child.stop();
+                        child = Tracing.child(span, "Failed batch, attempting retry");
 
-                            continue;
-                        } else if (inferredE.getErrorCode() == SQLExceptionCode.INDEX_WRITE_FAILURE.getErrorCode()) {
-                            iwe = PhoenixIndexFailurePolicy.getIndexWriteException(inferredE);
-                            if (iwe != null && !shouldRetryIndexedMutation) {
-                                // For an index write failure, the data table write succeeded,
-                                // so when we retry we need to set REPLAY_WRITES
-                                // for first batch in list only.
-                                for (Mutation m : mutationBatchList.get(0)) {
-                                    if (!PhoenixIndexMetaData.isIndexRebuild(
-                                            m.getAttributesMap())){
-                                        m.setAttribute(BaseScannerRegionObserver.REPLAY_WRITES,
-                                                BaseScannerRegionObserver.REPLAY_ONLY_INDEX_WRITES
-                                        );
-                                    }
-                                    PhoenixKeyValueUtil.setTimestamp(m, serverTimestamp);
+                        continue;
+                    } else if (inferredE.getErrorCode() == SQLExceptionCode.INDEX_WRITE_FAILURE.getErrorCode()) {
+                        iwe = PhoenixIndexFailurePolicy.getIndexWriteException(inferredE);
+                        if (iwe != null && !shouldRetryIndexedMutation) {
+                            // For an index write failure, the data table write succeeded,
+                            // so when we retry we need to set REPLAY_WRITES
+                            // for first batch in list only.
+                            for (Mutation m : mutationBatchList.get(0)) {
+                                if (!PhoenixIndexMetaData.isIndexRebuild(
+                                        m.getAttributesMap())){
+                                    m.setAttribute(BaseScannerRegionObserver.REPLAY_WRITES,
+                                            BaseScannerRegionObserver.REPLAY_ONLY_INDEX_WRITES
+                                    );
                                 }
-                                shouldRetry = true;
-                                shouldRetryIndexedMutation = true;
-                                continue;
+                                PhoenixKeyValueUtil.setTimestamp(m, serverTimestamp);
                             }
+                            shouldRetry = true;
+                            shouldRetryIndexedMutation = true;
+                            continue;
                         }
-                        e = inferredE;
                     }
-                    // Throw to client an exception that indicates the statements that
-                    // were not committed successfully.
-                    int[] uncommittedStatementIndexes = getUncommittedStatementIndexes();
-                    sqlE = new CommitException(e, uncommittedStatementIndexes, serverTimestamp);
-                    numFailedMutations = uncommittedStatementIndexes.length;
-                    GLOBAL_MUTATION_BATCH_FAILED_COUNT.update(numFailedMutations);
-                } finally {
-                    MutationMetric mutationsMetric = new MutationMetric(numMutations, mutationSizeBytes,
-                            mutationCommitTime, numFailedMutations);
+                    e = inferredE;
+                }
+                // Throw to client an exception that indicates the statements that
+                // were not committed successfully.
+                int[] uncommittedStatementIndexes = getUncommittedStatementIndexes();
+                sqlE = new CommitException(e, uncommittedStatementIndexes, serverTimestamp);
+                numFailedMutations = uncommittedStatementIndexes.length;
+                GLOBAL_MUTATION_BATCH_FAILED_COUNT.update(numFailedMutations);
+            } finally {
+                MutationMetric mutationsMetric = new MutationMetric(numMutations, mutationSizeBytes,
+                        mutationCommitTime, numFailedMutations);
+                synchronized (mutationMetricQueue) {
                     mutationMetricQueue.addMetricsForTable(Bytes.toString(htableName), mutationsMetric);
+                }
+                try {
+                    if (cache != null) cache.close();
+                } finally {
                     try {
-                        if (cache != null) cache.close();
-                    } finally {
-                        try {
-                            hTable.close();
-                        } catch (IOException e) {
-                            if (sqlE != null) {
-                                sqlE.setNextException(ServerUtil.parseServerException(e));
-                            } else {
-                                sqlE = ServerUtil.parseServerException(e);
-                            }
+                        hTable.close();
+                    } catch (IOException e) {
+                        if (sqlE != null) {
+                            sqlE.setNextException(ServerUtil.parseServerException(e));
+                        } else {
+                            sqlE = ServerUtil.parseServerException(e);
                         }
-                        if (sqlE != null) { throw sqlE; }
                     }
+                    if (sqlE != null) { throw sqlE; }
                 }
-            } while (shouldRetry && retryCount++ < 1);
-        }
+            }
+        } while (shouldRetry && retryCount++ < 1);
     }
 
     private void filterIndexCheckerMutations(Map<TableInfo, List<Mutation>> mutationMap,
@@ -1340,7 +1467,7 @@ public class MutationState implements SQLCloseable {
         }
     }
 
-    private int[] getUncommittedStatementIndexes() {
+    private synchronized int[] getUncommittedStatementIndexes() {
         for (MultiRowMutationState rowMutationMap : mutations.values()) {
             addUncommittedStatementIndexes(rowMutationMap.values());
         }
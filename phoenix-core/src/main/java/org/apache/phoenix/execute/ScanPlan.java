@@ -70,6 +70,7 @@ import org.apache.phoenix.schema.PTable.IndexType;
 import org.apache.phoenix.schema.SaltingUtil;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.stats.StatisticsUtil;
+import org.apache.phoenix.schema.types.PInteger;
 import org.apache.phoenix.util.CostUtil;
 import org.apache.phoenix.util.ExpressionUtil;
 import org.apache.phoenix.util.QueryUtil;
@@ -260,6 +261,11 @@ public class ScanPlan extends BaseQueryPlan {
         boolean isOrdered = !orderBy.getOrderByExpressions().isEmpty();
         Integer perScanLimit = !allowPageFilter || isOrdered ? null : QueryUtil.getOffsetLimit(limit, offset);
         boolean isOffsetOnServer = isOffsetPossibleOnServer(context, orderBy, offset, isSalted, table.getIndexType());
+        int packedRows = context.getConnection().getQueryServices().getProps().getInt(
+                QueryServices.SCAN_PACKED_ROWS_ATTRIB, QueryServicesOptions.DEFAULT_SCAN_PACKED_ROWS);
+        if (packedRows > 1 && !isOffsetOnServer) {
+            scan.setAttribute(BaseScannerRegionObserver.PACKED_ROWS, PInteger.INSTANCE.toBytes(packedRows));
+        }
         /*
          * For queries that are doing a row key order by and are not possibly querying more than a
          * threshold worth of data, then we only need to initialize scanners corresponding to the
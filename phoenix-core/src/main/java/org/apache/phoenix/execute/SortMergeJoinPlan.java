@@ -96,6 +96,7 @@ public class SortMergeJoinPlan implements QueryPlan {
     private final Set<TableRef> tableRefs;
     private final long thresholdBytes;
     private final boolean spoolingEnabled;
+    private final boolean isSpoolFileMapped;
     private Long estimatedBytes;
     private Long estimatedRows;
     private Long estimateInfoTs;
@@ -142,6 +143,10 @@ public class SortMergeJoinPlan implements QueryPlan {
                 context.getConnection().getQueryServices().getProps().getBoolean(
                     QueryServices.CLIENT_JOIN_SPOOLING_ENABLED_ATTRIB,
                     QueryServicesOptions.DEFAULT_CLIENT_JOIN_SPOOLING_ENABLED);
+        this.isSpoolFileMapped =
+                context.getConnection().getQueryServices().getProps().getBoolean(
+                    QueryServices.SPOOL_MMAP_ENABLED_ATTRIB,
+                    QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
         this.actualOutputOrderBys = convertActualOutputOrderBy(lhsAndRhsOrderByNodes.getFirst(), lhsAndRhsOrderByNodes.getSecond(), context);
     }
 
@@ -337,7 +342,8 @@ public class SortMergeJoinPlan implements QueryPlan {
             int len = lhsBitSet.getEstimatedLength();
             this.emptyProjectedValue = new byte[len];
             lhsBitSet.toBytes(emptyProjectedValue, 0);
-            this.queue = PhoenixQueues.newTupleQueue(spoolingEnabled, thresholdBytes);
+            this.queue = PhoenixQueues.newTupleQueue(spoolingEnabled, thresholdBytes,
+                isSpoolFileMapped);
             this.queueIterator = null;
         }
         
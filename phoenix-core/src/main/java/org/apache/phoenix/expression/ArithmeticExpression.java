@@ -19,7 +19,11 @@ package org.apache.phoenix.expression;
 
 import java.util.List;
 
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDataType.PDataCodec;
 
 public abstract class ArithmeticExpression extends BaseCompoundExpression {
 
@@ -32,6 +36,43 @@ public abstract class ArithmeticExpression extends BaseCompoundExpression {
 
     abstract public ArithmeticExpression clone(List<Expression> children);
     
+    /**
+     * Evaluates a child over a batch and decodes its values as longs, clearing
+     * hasValue for the rows where the child is null.
+     */
+    protected long[] evaluateLongChildBatch(int index, Tuple[] tuples, int count, boolean[] hasValue) {
+        ImmutableBytesWritable[] childPtrs = evaluateChildBatch(index, tuples, count, hasValue);
+        Expression child = children.get(index);
+        PDataCodec codec = child.getDataType().getCodec();
+        SortOrder sortOrder = child.getSortOrder();
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            if (hasValue[i]) {
+                if (childPtrs[i].getLength() == 0) {
+                    hasValue[i] = false;
+                } else {
+                    values[i] = codec.decodeLong(childPtrs[i], sortOrder);
+                }
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * Encodes the long results of a batch into a single buffer shared by its rows.
+     */
+    protected void setLongBatch(long[] results, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+        PDataType dataType = getDataType();
+        int byteSize = dataType.getByteSize();
+        byte[] buffer = new byte[count * byteSize];
+        for (int i = 0, offset = 0; i < count; i++, offset += byteSize) {
+            if (hasValue[i]) {
+                dataType.getCodec().encodeLong(results[i], buffer, offset);
+                ptrs[i].set(buffer, offset, byteSize);
+            }
+        }
+    }
+    
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder("(");
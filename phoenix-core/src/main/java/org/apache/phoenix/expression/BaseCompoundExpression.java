@@ -24,7 +24,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.schema.tuple.Tuple;
 
 import com.google.common.collect.ImmutableList;
 
@@ -36,6 +38,8 @@ public abstract class BaseCompoundExpression extends BaseExpression {
     private Determinism determinism;
     private boolean requiresFinalEvaluation;
     private boolean cloneExpression;
+    // Values of each child while evaluating a batch, allocated on first use
+    private ImmutableBytesWritable[][] childBatchPtrs;
    
     public BaseCompoundExpression() {
         init(Collections.<Expression>emptyList());
@@ -139,6 +143,26 @@ public abstract class BaseCompoundExpression extends BaseExpression {
         }
     }
     
+    /**
+     * Evaluates a child over the rows of a batch for which hasValue is set,
+     * clearing hasValue for the rows the child could not be evaluated for.
+     * @return the values of the child, valid until the child is evaluated again
+     */
+    protected ImmutableBytesWritable[] evaluateChildBatch(int index, Tuple[] tuples, int count, boolean[] hasValue) {
+        if (childBatchPtrs == null) {
+            childBatchPtrs = new ImmutableBytesWritable[children.size()][];
+        }
+        ImmutableBytesWritable[] ptrs = childBatchPtrs[index];
+        if (ptrs == null || ptrs.length < count) {
+            ptrs = childBatchPtrs[index] = new ImmutableBytesWritable[count];
+            for (int i = 0; i < count; i++) {
+                ptrs[i] = new ImmutableBytesWritable();
+            }
+        }
+        children.get(index).evaluateBatch(tuples, count, ptrs, hasValue);
+        return ptrs;
+    }
+    
     @Override
     public String toString() {
         return this.getClass().getName() + " [children=" + children + "]";
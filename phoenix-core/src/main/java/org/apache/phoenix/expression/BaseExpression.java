@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.function.CeilDecimalExpression;
 import org.apache.phoenix.expression.function.CeilTimestampExpression;
 import org.apache.phoenix.expression.function.FloorDateExpression;
@@ -35,6 +36,7 @@ import org.apache.phoenix.expression.function.TimeUnit;
 import org.apache.phoenix.expression.visitor.ExpressionVisitor;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.TypeMismatchException;
+import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PDecimal;
 import org.apache.phoenix.schema.types.PTimestamp;
@@ -222,6 +224,16 @@ public abstract class BaseExpression implements Expression {
     public void reset() {
     }
     
+    @Override
+    public void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+        for (int i = 0; i < count; i++) {
+            if (hasValue[i]) {
+                hasValue[i] = evaluate(tuples[i], ptrs[i]);
+                reset();
+            }
+        }
+    }
+    
     protected final <T> List<T> acceptChildren(ExpressionVisitor<T> visitor, Iterator<Expression> iterator) {
         if (iterator == null) {
             iterator = visitor.defaultIterator(this);
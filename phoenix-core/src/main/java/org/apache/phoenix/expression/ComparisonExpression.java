@@ -352,6 +352,51 @@ public class ComparisonExpression extends BaseCompoundExpression {
         ptr.set(ByteUtil.compare(op, comparisonResult) ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
         return true;
     }
+
+    @Override
+    public void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+        ImmutableBytesWritable[] lhsPtrs = evaluateChildBatch(0, tuples, count, hasValue);
+        // null comparison evals to null, so only evaluate the rhs for non null lhs values
+        boolean[] rhsHasValue = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            rhsHasValue[i] = hasValue[i] && lhsPtrs[i].getLength() != 0;
+        }
+        ImmutableBytesWritable[] rhsPtrs = evaluateChildBatch(1, tuples, count, rhsHasValue);
+        PDataType lhsDataType = children.get(0).getDataType();
+        SortOrder lhsSortOrder = children.get(0).getSortOrder();
+        PDataType rhsDataType = children.get(1).getDataType();
+        SortOrder rhsSortOrder = children.get(1).getSortOrder();
+        for (int i = 0; i < count; i++) {
+            if (!hasValue[i]) {
+                continue;
+            }
+            ImmutableBytesWritable lhs = lhsPtrs[i];
+            if (lhs.getLength() == 0) {
+                ptrs[i].set(ByteUtil.EMPTY_BYTE_ARRAY);
+                continue;
+            }
+            if (!rhsHasValue[i]) {
+                hasValue[i] = false;
+                continue;
+            }
+            ImmutableBytesWritable rhs = rhsPtrs[i];
+            if (rhs.getLength() == 0) {
+                ptrs[i].set(ByteUtil.EMPTY_BYTE_ARRAY);
+                continue;
+            }
+            int lhsLength = lhs.getLength();
+            int rhsLength = rhs.getLength();
+            if (rhsDataType == PChar.INSTANCE) {
+                rhsLength = StringUtil.getUnpaddedCharLength(rhs.get(), rhs.getOffset(), rhsLength, rhsSortOrder);
+            }
+            if (lhsDataType == PChar.INSTANCE) {
+                lhsLength = StringUtil.getUnpaddedCharLength(lhs.get(), lhs.getOffset(), lhsLength, lhsSortOrder);
+            }
+            int comparisonResult = lhsDataType.compareTo(lhs.get(), lhs.getOffset(), lhsLength, lhsSortOrder,
+                    rhs.get(), rhs.getOffset(), rhsLength, rhsSortOrder, rhsDataType);
+            ptrs[i].set(ByteUtil.compare(op, comparisonResult) ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+        }
+    }
     
     @Override
     public void readFields(DataInput input) throws IOException {
@@ -75,6 +75,11 @@ public class DelegateExpression implements Expression {
         return delegate.evaluate(tuple, ptr);
     }
 
+    @Override
+    public void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+        delegate.evaluateBatch(tuples, count, ptrs, hasValue);
+    }
+
     @Override
     public <T> T accept(ExpressionVisitor<T> visitor) {
         return delegate.accept(visitor);
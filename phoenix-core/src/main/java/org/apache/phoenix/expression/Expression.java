@@ -45,6 +45,21 @@ public interface Expression extends PDatum, Writable {
      */
     boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr);
     
+    /**
+     * Evaluate the expression over a batch of complete rows. Expressions over
+     * primitive types may override this to evaluate each child over the whole
+     * batch and combine the decoded values in a tight loop, while the default
+     * evaluates one row at a time, resetting the expression after each row.
+     * The bytes pointed to must stay valid until the batch has been consumed,
+     * so values may not be written to a buffer that is reused across rows.
+     * @param tuples the rows of the batch
+     * @param count the number of rows in the batch
+     * @param ptrs pointers set to the value of each row
+     * @param hasValue on input, whether each row should be evaluated, and on
+     * output, whether it could be evaluated (i.e. its ptr was set)
+     */
+    void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue);
+    
     /**
      * Means of traversing expression tree through visitor.
      * @param visitor
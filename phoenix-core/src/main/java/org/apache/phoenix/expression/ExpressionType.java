@@ -191,6 +191,7 @@ public enum ExpressionType {
     SinFunction(SinFunction.class),
     CosFunction(CosFunction.class),
     TanFunction(TanFunction.class),
+    JoinKeyBloomFilterFunction(JoinKeyBloomFilterFunction.class),
     ;
 
     ExpressionType(Class<? extends Expression> clazz) {
@@ -331,6 +331,15 @@ public class LiteralExpression extends BaseTerminalExpression {
         return true;
     }
 
+    @Override
+    public void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+        for (int i = 0; i < count; i++) {
+            if (hasValue[i]) {
+                ptrs[i].set(byteValue);
+            }
+        }
+    }
+
     @Override
     public PDataType getDataType() {
         return type;
@@ -52,6 +52,18 @@ public class LongAddExpression extends AddExpression {
         return true;
     }
 
+    @Override
+    public void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+        long[] results = new long[count];
+        for (int i = 0; i < children.size(); i++) {
+            long[] values = evaluateLongChildBatch(i, tuples, count, hasValue);
+            for (int row = 0; row < count; row++) {
+                results[row] += values[row];
+            }
+        }
+        setLongBatch(results, count, ptrs, hasValue);
+    }
+
     @Override
     public final PDataType getDataType() {
         return PLong.INSTANCE;
@@ -55,6 +55,18 @@ public class LongMultiplyExpression extends MultiplyExpression {
         return true;
     }
 
+    @Override
+    public void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+        long[] results = evaluateLongChildBatch(0, tuples, count, hasValue);
+        for (int i = 1; i < children.size(); i++) {
+            long[] values = evaluateLongChildBatch(i, tuples, count, hasValue);
+            for (int row = 0; row < count; row++) {
+                results[row] *= values[row];
+            }
+        }
+        setLongBatch(results, count, ptrs, hasValue);
+    }
+
     @Override
     public final PDataType getDataType() {
         return PLong.INSTANCE;
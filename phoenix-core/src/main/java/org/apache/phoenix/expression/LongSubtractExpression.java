@@ -74,6 +74,23 @@ public class LongSubtractExpression extends SubtractExpression {
 		return true;
 	}
 
+	@Override
+	public void evaluateBatch(Tuple[] tuples, int count, ImmutableBytesWritable[] ptrs, boolean[] hasValue) {
+		long[] results = evaluateLongChildBatch(0, tuples, count, hasValue);
+		for (int i = 1; i < children.size(); i++) {
+			long[] values = evaluateLongChildBatch(i, tuples, count, hasValue);
+			boolean isDate = children.get(i).getDataType().isCoercibleTo(PDate.INSTANCE);
+			for (int row = 0; row < count; row++) {
+				results[row] -= values[row];
+				// Special case for date subtraction, as in evaluate
+				if (isDate) {
+					results[row] /= QueryConstants.MILLIS_IN_DAY;
+				}
+			}
+		}
+		setLongBatch(results, count, ptrs, hasValue);
+	}
+
 	@Override
 	public final PDataType getDataType() {
 		return PLong.INSTANCE;
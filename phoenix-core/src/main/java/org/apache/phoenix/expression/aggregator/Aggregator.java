@@ -38,6 +38,14 @@ public interface Aggregator extends Expression {
      */
     public void aggregate(Tuple tuple, ImmutableBytesWritable ptr);
     
+    /**
+     * Incrementally aggregate the non null values of a batch of rows
+     * @param tuples the results containing all the key values of each row
+     * @param ptrs the bytes pointers to the value of each row
+     * @param count the number of rows in the batch
+     */
+    public void aggregate(Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count);
+    
     /**
      * Get the size in bytes
      */
@@ -22,6 +22,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.BaseTerminalExpression;
 import org.apache.phoenix.expression.visitor.ExpressionVisitor;
 import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.SizedUtil;
 
 import com.google.common.base.Preconditions;
@@ -51,6 +52,13 @@ public abstract class BaseAggregator extends BaseTerminalExpression implements A
         return SizedUtil.OBJECT_SIZE;
     }
     
+    @Override
+    public void aggregate(Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count) {
+        for (int i = 0; i < count; i++) {
+            aggregate(tuples[i], ptrs[i]);
+        }
+    }
+    
     ImmutableBytesWritable evalClientAggs(Aggregator clientAgg) {
         CountAggregator ca = (CountAggregator)clientAgg;
         ImmutableBytesWritable ptr = new ImmutableBytesWritable();
@@ -50,6 +50,11 @@ public class CountAggregator extends BaseAggregator {
         count++;
     }
 
+    @Override
+    public void aggregate(Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count) {
+        this.count += count;
+    }
+
     @Override
     public boolean isNullable() {
         return false;
@@ -22,6 +22,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.schema.types.PDouble;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDataType.PDataCodec;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.SizedUtil;
 
@@ -55,6 +56,20 @@ public class DoubleSumAggregator extends BaseAggregator {
         }
     }
 
+    @Override
+    public void aggregate(Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count) {
+        if (count == 0) {
+            return;
+        }
+        PDataCodec codec = getInputDataType().getCodec();
+        for (int i = 0; i < count; i++) {
+            sum += codec.decodeDouble(ptrs[i], sortOrder);
+        }
+        if (buffer == null) {
+            initBuffer();
+        }
+    }
+
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
         if (buffer == null) {
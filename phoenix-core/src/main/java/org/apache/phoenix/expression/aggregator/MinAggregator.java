@@ -79,6 +79,21 @@ abstract public class MinAggregator extends BaseAggregator {
             }
         }
     }
+
+    @Override
+    public void aggregate(Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count) {
+        if (count == 0) {
+            return;
+        }
+        // Find the value to keep within the batch before comparing it to the current one
+        int keep = 0;
+        for (int i = 1; i < count; i++) {
+            if (!keepFirst(ptrs[keep], ptrs[i])) {
+                keep = i;
+            }
+        }
+        aggregate(tuples[keep], ptrs[keep]);
+    }
     
     @Override
     public String toString() {
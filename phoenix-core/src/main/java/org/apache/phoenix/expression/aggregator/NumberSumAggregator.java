@@ -22,6 +22,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDataType.PDataCodec;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.SizedUtil;
 
@@ -74,6 +75,22 @@ abstract public class NumberSumAggregator extends BaseAggregator {
         }
     }
 
+    @Override
+    public void aggregate(Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count) {
+        if (count == 0) {
+            return;
+        }
+        PDataCodec codec = getInputDataType().getCodec();
+        long batchSum = 0;
+        for (int i = 0; i < count; i++) {
+            batchSum += codec.decodeLong(ptrs[i], sortOrder);
+        }
+        sum += batchSum;
+        if (buffer == null) {
+            initBuffer();
+        }
+    }
+
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
         if (buffer == null) {
@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
@@ -43,6 +44,10 @@ import org.apache.phoenix.schema.tuple.Tuple;
  */
 public abstract class ServerAggregators extends Aggregators {
     protected final Expression[] expressions;
+    // Values of the current batch, allocated on first use
+    private ImmutableBytesWritable[] batchPtrs;
+    private boolean[] batchHasValue;
+    private Tuple[] batchTuples;
     
     protected ServerAggregators(SingleAggregateFunction[] functions, Aggregator[] aggregators, Expression[] expressions, int minNullableIndex) {
         super(functions, aggregators, minNullableIndex);
@@ -56,6 +61,47 @@ public abstract class ServerAggregators extends Aggregators {
     @Override
     public abstract void aggregate(Aggregator[] aggregators, Tuple result);
     
+    /**
+     * Aggregate a batch of complete rows one aggregator at a time: the expression
+     * of an aggregator is evaluated over the whole batch before the aggregator
+     * consumes the non null values.
+     * @param aggregators the aggregators to aggregate into
+     * @param tuples the rows of the batch
+     * @param count the number of rows in the batch
+     */
+    public void aggregate(Aggregator[] aggregators, Tuple[] tuples, int count) {
+        if (batchPtrs == null || batchPtrs.length < count) {
+            batchPtrs = new ImmutableBytesWritable[count];
+            for (int i = 0; i < count; i++) {
+                batchPtrs[i] = new ImmutableBytesWritable();
+            }
+            batchHasValue = new boolean[count];
+            batchTuples = new Tuple[count];
+        }
+        for (int i = 0; i < expressions.length; i++) {
+            Arrays.fill(batchHasValue, 0, count, true);
+            expressions[i].evaluateBatch(tuples, count, batchPtrs, batchHasValue);
+            expressions[i].reset();
+            // Move the non null values to the front of the batch
+            int nValues = 0;
+            for (int row = 0; row < count; row++) {
+                if (batchHasValue[row] && batchPtrs[row].getLength() != 0) {
+                    if (nValues != row) {
+                        ImmutableBytesWritable value = batchPtrs[row];
+                        batchPtrs[row] = batchPtrs[nValues];
+                        batchPtrs[nValues] = value;
+                    }
+                    batchTuples[nValues++] = tuples[row];
+                }
+            }
+            aggregate(aggregators[i], batchTuples, batchPtrs, nValues);
+        }
+    }
+    
+    protected void aggregate(Aggregator aggregator, Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count) {
+        aggregator.aggregate(tuples, ptrs, count);
+    }
+    
     /**
      * Serialize an Aggregator into a byte array
      * @param aggFuncs list of aggregator to serialize
@@ -17,6 +17,7 @@
  */
 package org.apache.phoenix.expression.aggregator;
 
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.function.SingleAggregateFunction;
 import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
@@ -55,5 +56,21 @@ public class SizeTrackingServerAggregators extends ServerAggregators {
         }
         memoryUsed = dsize;
     }
+
+    @Override
+    public void aggregate(Aggregator[] aggregators, Tuple[] tuples, int count) {
+        super.aggregate(aggregators, tuples, count);
+        while(memoryUsed > chunk.getSize()) {
+            LOGGER.info("Request: {}, resizing {} by 1024*1024", memoryUsed, chunk.getSize());
+            chunk.resize(chunk.getSize() + sizeIncrease);
+        }
+    }
+
+    @Override
+    protected void aggregate(Aggregator aggregator, Tuple[] tuples, ImmutableBytesWritable[] ptrs, int count) {
+        memoryUsed -= aggregator.getSize();
+        aggregator.aggregate(tuples, ptrs, count);
+        memoryUsed += aggregator.getSize();
+    }
     
 }
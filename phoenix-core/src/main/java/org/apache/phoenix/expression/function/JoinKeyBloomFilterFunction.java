@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.function;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.join.JoinKeyBloomFilter;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PVarbinary;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.TupleUtil;
+
+import com.google.common.collect.Lists;
+
+/**
+ *
+ * Internal function, not callable from SQL, added by a hash join as a dynamic filter on the
+ * probe side scan. It evaluates the join key from the columns of the scanned row, concatenated
+ * the same way as the hash cache keys, and returns whether the key may be present in the
+ * {@link JoinKeyBloomFilter} of the build side. The serialized bloom filter is carried as the
+ * last child so that it is serialized along with the other children.
+ *
+ */
+public class JoinKeyBloomFilterFunction extends ScalarFunction {
+    public static final String NAME = "JOIN_KEY_BLOOM_FILTER";
+
+    private List<Expression> keyExpressions;
+    private JoinKeyBloomFilter bloomFilter;
+
+    public JoinKeyBloomFilterFunction() {
+    }
+
+    public JoinKeyBloomFilterFunction(List<Expression> children) {
+        super(children);
+        init();
+    }
+
+    public static JoinKeyBloomFilterFunction create(List<Expression> keyExpressions, JoinKeyBloomFilter bloomFilter) throws SQLException {
+        List<Expression> children = Lists.newArrayListWithExpectedSize(keyExpressions.size() + 1);
+        children.addAll(keyExpressions);
+        children.add(LiteralExpression.newConstant(bloomFilter.toBytes(), PVarbinary.INSTANCE));
+        return new JoinKeyBloomFilterFunction(children);
+    }
+
+    private void init() {
+        keyExpressions = children.subList(0, children.size() - 1);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        children.get(children.size() - 1).evaluate(null, ptr);
+        bloomFilter = JoinKeyBloomFilter.fromBytes(ptr.get(), ptr.getOffset(), ptr.getLength());
+    }
+
+    @Override
+    public void readFields(DataInput input) throws IOException {
+        super.readFields(input);
+        init();
+    }
+
+    @Override
+    public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        // Wait for all key columns unless we've seen the entire row, in which case
+        // missing columns are null just as when the hash cache key was built.
+        ImmutableBytesWritable key = ptr;
+        if (keyExpressions.size() == 1) {
+            if (!keyExpressions.get(0).evaluate(tuple, ptr)) {
+                if (!tuple.isImmutable()) {
+                    return false;
+                }
+                ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+            }
+        } else {
+            for (Expression expression : keyExpressions) {
+                if (!expression.evaluate(tuple, ptr) && !tuple.isImmutable()) {
+                    return false;
+                }
+            }
+            try {
+                key = TupleUtil.getConcatenatedValue(tuple, keyExpressions);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        ptr.set(bloomFilter.mightContain(key) ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+        return true;
+    }
+
+    @Override
+    public PDataType getDataType() {
+        return PBoolean.INSTANCE;
+    }
+
+    @Override
+    public boolean requiresFinalEvaluation() {
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(" + keyExpressions + ", " + bloomFilter.getBitCount() + " BITS)";
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.util.ScanUtil.BytesComparator;
+
+import com.google.common.hash.Hasher;
+
+/**
+ * 
+ * Read only list of the single key ranges of a {@link SkipScanFilter} slot, holding the keys
+ * in a single byte array instead of a {@link KeyRange} object and byte array per key. Used for
+ * slots with many keys, such as large IN lists, in which case the keys are serialized prefix
+ * compressed against the previous key. The filter navigation compares, copies and hashes the
+ * keys in place through the methods taking a key index, so that no {@link KeyRange} is created
+ * for a key as the current position of the slot moves forward. Key ranges are only created when
+ * accessed through the {@link List} interface.
+ *
+ */
+public class CompactKeyRangeList extends AbstractList<KeyRange> implements RandomAccess {
+    private final byte[] keys;
+    // Offset of each key in keys, followed by the end of the last key
+    private final int[] offsets;
+    private final int maxKeyLength;
+    // Key range last accessed
+    private volatile IndexedKeyRange last;
+
+    private static class IndexedKeyRange {
+        private final int index;
+        private final KeyRange keyRange;
+
+        private IndexedKeyRange(int index, KeyRange keyRange) {
+            this.index = index;
+            this.keyRange = keyRange;
+        }
+    }
+
+    private CompactKeyRangeList(byte[] keys, int[] offsets) {
+        this.keys = keys;
+        this.offsets = offsets;
+        int maxKeyLength = 0;
+        for (int i = 0; i < offsets.length - 1; i++) {
+            maxKeyLength = Math.max(maxKeyLength, offsets[i + 1] - offsets[i]);
+        }
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * @return true if the key ranges may be held by a compact list, which is the case if
+     * they are all single keys
+     */
+    public static boolean isCompactable(List<KeyRange> keyRanges) {
+        if (keyRanges instanceof CompactKeyRangeList) {
+            return true;
+        }
+        for (KeyRange keyRange : keyRanges) {
+            if (!keyRange.isSingleKey()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Serialize single key ranges, each key being written as the length of its prefix in common
+     * with the previous key followed by the rest of the key
+     */
+    public static void write(List<KeyRange> keyRanges, DataOutput out) throws IOException {
+        if (keyRanges instanceof CompactKeyRangeList) {
+            ((CompactKeyRangeList)keyRanges).write(out);
+            return;
+        }
+        WritableUtils.writeVInt(out, keyRanges.size());
+        byte[] prevKey = null;
+        for (KeyRange keyRange : keyRanges) {
+            byte[] key = keyRange.getLowerRange();
+            int prefixLength = 0;
+            if (prevKey != null) {
+                int maxPrefixLength = Math.min(prevKey.length, key.length);
+                while (prefixLength < maxPrefixLength && prevKey[prefixLength] == key[prefixLength]) {
+                    prefixLength++;
+                }
+            }
+            WritableUtils.writeVInt(out, prefixLength);
+            WritableUtils.writeVInt(out, key.length - prefixLength);
+            out.write(key, prefixLength, key.length - prefixLength);
+            prevKey = key;
+        }
+    }
+
+    private void write(DataOutput out) throws IOException {
+        int size = size();
+        WritableUtils.writeVInt(out, size);
+        for (int i = 0; i < size; i++) {
+            int offset = offsets[i];
+            int length = offsets[i + 1] - offset;
+            int prefixLength = 0;
+            if (i > 0) {
+                int prevOffset = offsets[i - 1];
+                int maxPrefixLength = Math.min(offset - prevOffset, length);
+                while (prefixLength < maxPrefixLength && keys[prevOffset + prefixLength] == keys[offset + prefixLength]) {
+                    prefixLength++;
+                }
+            }
+            WritableUtils.writeVInt(out, prefixLength);
+            WritableUtils.writeVInt(out, length - prefixLength);
+            out.write(keys, offset + prefixLength, length - prefixLength);
+        }
+    }
+
+    public static CompactKeyRangeList read(DataInput in) throws IOException {
+        int size = WritableUtils.readVInt(in);
+        int[] offsets = new int[size + 1];
+        byte[] keys = new byte[Math.max(16, size * 4)];
+        int length = 0;
+        int prevOffset = 0;
+        for (int i = 0; i < size; i++) {
+            int prefixLength = WritableUtils.readVInt(in);
+            int suffixLength = WritableUtils.readVInt(in);
+            if (length + prefixLength + suffixLength > keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(keys.length * 2, length + prefixLength + suffixLength));
+            }
+            System.arraycopy(keys, prevOffset, keys, length, prefixLength);
+            in.readFully(keys, length + prefixLength, suffixLength);
+            offsets[i] = prevOffset = length;
+            length += prefixLength + suffixLength;
+        }
+        offsets[size] = length;
+        return new CompactKeyRangeList(Arrays.copyOf(keys, length), offsets);
+    }
+
+    @Override
+    public KeyRange get(int index) {
+        IndexedKeyRange last = this.last;
+        if (last != null && last.index == index) {
+            return last.keyRange;
+        }
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        KeyRange keyRange = KeyRange.getKeyRange(Arrays.copyOfRange(keys, offsets[index], offsets[index + 1]));
+        this.last = new IndexedKeyRange(index, keyRange);
+        return keyRange;
+    }
+
+    @Override
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return a compact list of the keys from fromIndex inclusive to toIndex exclusive, sharing
+     * the key bytes of this list
+     */
+    @Override
+    public List<KeyRange> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size());
+        }
+        return new CompactKeyRangeList(keys, Arrays.copyOfRange(offsets, fromIndex, toIndex + 1));
+    }
+
+    /**
+     * @return the length of the key at the given index
+     */
+    public int getKeyLength(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * Copies the key at the given index into the target array
+     * @return the length of the key
+     */
+    public int copyKey(int index, byte[] target, int targetOffset) {
+        int length = offsets[index + 1] - offsets[index];
+        System.arraycopy(keys, offsets[index], target, targetOffset, length);
+        return length;
+    }
+
+    /**
+     * Adds the key at the given index to the hasher, as both the lower and the upper range of
+     * its single key range
+     */
+    public void putKey(int index, Hasher hasher) {
+        int length = offsets[index + 1] - offsets[index];
+        hasher.putBytes(keys, offsets[index], length);
+        hasher.putBytes(keys, offsets[index], length);
+    }
+
+    /**
+     * Same as {@link KeyRange#compareLowerToUpperBound(ImmutableBytesWritable, BytesComparator)}
+     * for the single key range at the given index.
+     */
+    public int compareLowerToUpperBound(int index, ImmutableBytesWritable ptr, BytesComparator comparator) {
+        return compareLowerToUpperBound(index, ptr.get(), ptr.getOffset(), ptr.getLength(), true, comparator);
+    }
+
+    /**
+     * Same as {@link KeyRange#compareLowerToUpperBound(byte[], int, int, boolean, BytesComparator)}
+     * for the single key range at the given index.
+     */
+    public int compareLowerToUpperBound(int index, byte[] b, int o, int l, boolean isInclusive, BytesComparator comparator) {
+        if (b == KeyRange.UNBOUND) {
+            return -1;
+        }
+        int cmp = comparator.compare(keys, offsets[index], offsets[index + 1] - offsets[index], b, o, l);
+        if (cmp > 0) {
+            return 1;
+        }
+        if (cmp < 0) {
+            return -1;
+        }
+        return isInclusive ? 0 : 1;
+    }
+
+    /**
+     * Same as {@link KeyRange#compareUpperToLowerBound(ImmutableBytesWritable, boolean, BytesComparator)}
+     * for the single key range at the given index.
+     */
+    public int compareUpperToLowerBound(int index, ImmutableBytesWritable ptr, boolean isInclusive, BytesComparator comparator) {
+        if (ptr.get() == KeyRange.UNBOUND) {
+            return 1;
+        }
+        int cmp = comparator.compare(keys, offsets[index], offsets[index + 1] - offsets[index], ptr.get(), ptr.getOffset(), ptr.getLength());
+        if (cmp > 0) {
+            return 1;
+        }
+        if (cmp < 0) {
+            return -1;
+        }
+        return isInclusive ? 0 : -1;
+    }
+
+    /**
+     * @return the length of the longest key
+     */
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+}
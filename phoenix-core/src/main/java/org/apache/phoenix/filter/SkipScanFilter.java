@@ -64,6 +64,8 @@ public class SkipScanFilter extends FilterBase implements Writable {
     private enum Terminate {AT, AFTER};
     // Conjunctive normal form of or-ed ranges or point lookups
     private List<List<KeyRange>> slots;
+    // Compact list of each slot held as one, or null, to navigate them without creating key ranges
+    private CompactKeyRangeList[] compactSlots;
     // How far each slot spans minus one. We only handle a single column span currently
     private int[] slotSpan;
     // schema of the row key
@@ -79,6 +81,8 @@ public class SkipScanFilter extends FilterBase implements Writable {
     private int endKeyLength;
     private boolean isDone;
     private int offset;
+    // Min number of single keys of a slot for it to be serialized compactly, 0 to never do so
+    private int compactSlotThreshold;
     private Map<ImmutableBytesWritable, Cell> nextCellHintMap =
             new HashMap<ImmutableBytesWritable, Cell>();
 
@@ -93,6 +97,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
 
     public SkipScanFilter(SkipScanFilter filter, boolean includeMultipleVersions) {
         this(filter.slots, filter.slotSpan, filter.schema, includeMultipleVersions);
+        this.compactSlotThreshold = filter.compactSlotThreshold;
     }
 
     public SkipScanFilter(List<List<KeyRange>> slots, RowKeySchema schema) {
@@ -111,6 +116,15 @@ public class SkipScanFilter extends FilterBase implements Writable {
         this.offset = offset;
     }
 
+    /**
+     * Sets the min number of keys of a slot of single keys for it to be serialized as a
+     * {@link CompactKeyRangeList}, which region servers before this format cannot read.
+     * @param compactSlotThreshold the min number of keys, or 0 to never do so
+     */
+    public void setCompactSlotThreshold(int compactSlotThreshold) {
+        this.compactSlotThreshold = compactSlotThreshold;
+    }
+
     private void init(List<List<KeyRange>> slots, int[] slotSpan, RowKeySchema schema, boolean includeMultipleVersions) {
         for (List<KeyRange> ranges : slots) {
             if (ranges.isEmpty()) {
@@ -118,6 +132,12 @@ public class SkipScanFilter extends FilterBase implements Writable {
             }
         }
         this.slots = slots;
+        this.compactSlots = new CompactKeyRangeList[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            if (slots.get(i) instanceof CompactKeyRangeList) {
+                compactSlots[i] = (CompactKeyRangeList)slots.get(i);
+            }
+        }
         this.slotSpan = slotSpan;
         this.schema = schema;
         this.maxKeyLength = SchemaUtil.getMaxKeyLength(schema, slots);
@@ -189,19 +209,39 @@ public class SkipScanFilter extends FilterBase implements Writable {
     public SkipScanFilter intersect(byte[] lowerInclusiveKey, byte[] upperExclusiveKey) {
         List<List<KeyRange>> newSlots = Lists.newArrayListWithCapacity(slots.size());
         if (intersect(lowerInclusiveKey, upperExclusiveKey, newSlots)) {
-            return new SkipScanFilter(newSlots, slotSpan, schema);
+            SkipScanFilter filter = new SkipScanFilter(newSlots, slotSpan, schema);
+            filter.setCompactSlotThreshold(compactSlotThreshold);
+            return filter;
         }
         return null;
     }
     
     private boolean areSlotsSingleKey(int startPosInclusive, int endPosExclusive) {
         for (int i = startPosInclusive; i < endPosExclusive; i++) {
-            if (!slots.get(i).get(position[i]).isSingleKey()) {
+            if (!isSingleKey(i, position[i])) {
                 return false;
             }
         }
         return true;
     }
+
+    private boolean isSingleKey(int i, int pos) {
+        return compactSlots[i] != null || slots.get(i).get(pos).isSingleKey();
+    }
+
+    private int compareUpperToLowerBound(int i, int pos, ImmutableBytesWritable ptr, BytesComparator comparator) {
+        if (compactSlots[i] != null) {
+            return compactSlots[i].compareUpperToLowerBound(pos, ptr, true, comparator);
+        }
+        return slots.get(i).get(pos).compareUpperToLowerBound(ptr, comparator);
+    }
+
+    private int compareLowerToUpperBound(int i, int pos, byte[] b, int o, int l, BytesComparator comparator) {
+        if (compactSlots[i] != null) {
+            return compactSlots[i].compareLowerToUpperBound(pos, b, o, l, true, comparator);
+        }
+        return slots.get(i).get(pos).compareLowerToUpperBound(b, o, l, comparator);
+    }
     
     private void resetState() {
         isDone = false;
@@ -237,7 +277,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
             if (endPos >= slots.get(0).size()) {
                 upperUnbound = true;
                 endPos = slots.get(0).size()-1;
-            } else if (slots.get(0).get(endPos).compareLowerToUpperBound(upperExclusiveKey, ScanUtil.getComparator(schema.getField(0))) >= 0) {
+            } else if (compareLowerToUpperBound(0, endPos, upperExclusiveKey, 0, upperExclusiveKey.length, ScanUtil.getComparator(schema.getField(0))) >= 0) {
                 // We know that the endPos range is higher than the previous range, but we need
                 // to test if it ends before the next range starts.
                 endPos--;
@@ -322,7 +362,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
             }
             // 2) we're at a slot containing a range and the values differ between the lower and upper range,
             //    since less-significant slots may be lower after traversal than where they started.
-            if (!slots.get(i).get(position[i]).isSingleKey()) {
+            if (!isSingleKey(i, position[i])) {
                 int rowKeyPos = ScanUtil.getRowKeyPosition(slotSpan, i);
                 // Position lowerPtr/upperPtr within lowerInclusiveKey/upperExclusiveKey at value for slot i
                 // The reposition method will do this incrementally, where we we're initially have prevRowKeyPos = -1. 
@@ -369,7 +409,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
 
             // If key range of last slot is a single key, we can increment our position
             // since we know we'll be past the current row after including it.
-            if (slots.get(nSlots-1).get(position[nSlots-1]).isSingleKey()) {
+            if (isSingleKey(nSlots-1, position[nSlots-1])) {
                 if (nextPosition(nSlots-1) < 0) {
                     // Current row will be included, but we have no more
                     isDone = true;
@@ -382,7 +422,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
                 // less significant slots.
                 int earliestRangeIndex = nSlots-1;
                 for (int i = 0; i < nSlots; i++) {
-                    if (!slots.get(i).get(position[i]).isSingleKey()) {
+                    if (!isSingleKey(i, position[i])) {
                         earliestRangeIndex = i;
                         break;
                     }
@@ -407,7 +447,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
             // Comparator depends on field in schema
             BytesComparator comparator = ScanUtil.getComparator(schema.getField(ScanUtil.getRowKeyPosition(slotSpan, i)));
             // Increment to the next range while the upper bound of our current slot is less than our current key
-            while (position[i] < slots.get(i).size() && slots.get(i).get(position[i]).compareUpperToLowerBound(ptr, comparator) < 0) {
+            while (position[i] < slots.get(i).size() && compareUpperToLowerBound(i, position[i], ptr, comparator) < 0) {
                 position[i]++;
             }
             Arrays.fill(position, i+1, position.length, 0);
@@ -430,7 +470,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
                 // If we're positioned at a single key, no need to copy the current key and get the next key .
                 // Instead, just increment to the next key and continue.
                 boolean incremented = false;
-                while (j >= 0 && slots.get(j).get(position[j]).isSingleKey() && (incremented=true) && (position[j] = (position[j] + 1) % slots.get(j).size()) == 0) {
+                while (j >= 0 && isSingleKey(j, position[j]) && (incremented=true) && (position[j] = (position[j] + 1) % slots.get(j).size()) == 0) {
                     j--;
                     incremented = false;
                 }
@@ -470,13 +510,13 @@ public class SkipScanFilter extends FilterBase implements Writable {
                     ByteUtil.nextKey(startKey, currentLength);
                 }
                 i = j;
-            } else if (slots.get(i).get(position[i]).compareLowerToUpperBound(ptr, comparator) > 0) {
+            } else if (compareLowerToUpperBound(i, position[i], ptr.get(), ptr.getOffset(), ptr.getLength(), comparator) > 0) {
                 // Our current key is less than the lower range of the current position in the current slot.
                 // Seek to the lower range, since it's bigger than the current key
                 setStartKey(ptr, minOffset, i, nSlots, false);
                 return ReturnCode.SEEK_NEXT_USING_HINT;
             } else { // We're in range, check the next slot
-                if (!slots.get(i).get(position[i]).isSingleKey() && i < earliestRangeIndex) {
+                if (!isSingleKey(i, position[i]) && i < earliestRangeIndex) {
                     earliestRangeIndex = i;
                 }
                 // If we're past the last slot or we know we're seeking to the next (in
@@ -520,6 +560,12 @@ public class SkipScanFilter extends FilterBase implements Writable {
             if (keyRanges.size() != 1) {
                 return false;
             }
+            if (compactSlots[i] != null) {
+                if (compactSlots[i].getKeyLength(0) != 0) {
+                    return false;
+                }
+                continue;
+            }
             KeyRange keyRange = keyRanges.get(0);
             if (!keyRange.isSingleKey()) {
                 return false;
@@ -532,7 +578,7 @@ public class SkipScanFilter extends FilterBase implements Writable {
     }
     
     private int nextPosition(int i) {
-        while (i >= 0 && slots.get(i).get(position[i]).isSingleKey() && (position[i] = (position[i] + 1) % slots.get(i).size()) == 0) {
+        while (i >= 0 && isSingleKey(i, position[i]) && (position[i] = (position[i] + 1) % slots.get(i).size()) == 0) {
             i--;
         }
         return i;
@@ -606,6 +652,11 @@ public class SkipScanFilter extends FilterBase implements Writable {
                 slotSpan[i] = orLenWithSlotSpan >>> KEY_RANGE_LENGTH_BITS;
                 orLen = (orLenWithSlotSpan << SLOT_SPAN_BITS) >>> SLOT_SPAN_BITS;            
             }
+            // Slots are never empty, so no key ranges mark a compact list of single keys
+            if (orLen == 0) {
+                slots.add(CompactKeyRangeList.read(in));
+                continue;
+            }
             List<KeyRange> orClause = Lists.newArrayListWithExpectedSize(orLen);
             slots.add(orClause);
             for (int j=0; j<orLen; j++) {
@@ -625,10 +676,16 @@ public class SkipScanFilter extends FilterBase implements Writable {
         for (int i = 0; i < nSlots; i++) {
             List<KeyRange> orLen = slots.get(i);
             int span = slotSpan[i];
-            int orLenWithSlotSpan = -( ( (span << KEY_RANGE_LENGTH_BITS) | orLen.size() ) + 1);
+            boolean compact = compactSlotThreshold > 0 && orLen.size() >= compactSlotThreshold
+                    && CompactKeyRangeList.isCompactable(orLen);
+            int orLenWithSlotSpan = -( ( (span << KEY_RANGE_LENGTH_BITS) | (compact ? 0 : orLen.size()) ) + 1);
             out.writeInt(orLenWithSlotSpan);
-            for (KeyRange range : orLen) {
-                range.write(out);
+            if (compact) {
+                CompactKeyRangeList.write(orLen, out);
+            } else {
+                for (KeyRange range : orLen) {
+                    range.write(out);
+                }
             }
         }
     }
@@ -654,6 +711,10 @@ public class SkipScanFilter extends FilterBase implements Writable {
         for (int i=0; i<slots.size(); i++) {
             h.putInt(slots.get(i).size());
             for (int j=0; j<slots.size(); j++) {
+                if (compactSlots[i] != null) {
+                    compactSlots[i].putKey(j, h);
+                    continue;
+                }
                 h.putBytes(slots.get(i).get(j).getLowerRange());
                 h.putBytes(slots.get(i).get(j).getUpperRange());
             }
@@ -245,10 +245,9 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
         
         this.rowLockWaitDuration = env.getConfiguration().getInt("hbase.rowlock.wait.duration",
                 DEFAULT_ROWLOCK_WAIT_DURATION);
-        this.lockManager = new LockManager();
-
         // Metrics impl for the Indexer -- avoiding unnecessary indirection for hadoop-1/2 compat
         this.metricSource = MetricsIndexerSourceFactory.getInstance().getIndexerSource();
+        this.lockManager = new LockManager(metricSource);
         setSlowThresholds(e.getConfiguration());
 
       } catch (NoSuchMethodError ex) {
@@ -394,9 +393,8 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
   }
 
   private void lockRows(BatchMutateContext context) throws IOException {
-      for (ImmutableBytesPtr rowKey : context.rowsToLock) {
-          context.rowLocks.add(lockManager.lockRow(rowKey, rowLockWaitDuration));
-      }
+      // Lock the rows in row key order to avoid deadlocks with concurrent batches
+      context.rowLocks.addAll(lockManager.lockRows(context.rowsToLock, rowLockWaitDuration));
   }
 
   private void populatePendingRows(BatchMutateContext context) {
@@ -662,10 +660,11 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
       if (!context.rebuild) {
           List<IndexMaintainer> maintainers = indexMetaData.getIndexMaintainers();
           // Acquire the locks again before letting the region proceed with data table updates
-          List<RowLock> rowLocks = Lists.newArrayListWithExpectedSize(context.rowLocks.size());
+          List<ImmutableBytesPtr> rowKeys = Lists.newArrayListWithExpectedSize(context.rowLocks.size());
           for (RowLock rowLock : context.rowLocks) {
-              rowLocks.add(lockManager.lockRow(rowLock.getRowKey(), rowLockWaitDuration));
+              rowKeys.add(rowLock.getRowKey());
           }
+          List<RowLock> rowLocks = lockManager.lockRows(rowKeys, rowLockWaitDuration);
           context.dataWriteStartTime = EnvironmentEdgeManager.currentTimeMillis();
           context.rowLocks.clear();
           context.rowLocks = rowLocks;
@@ -19,34 +19,71 @@ package org.apache.phoenix.hbase.index;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
 import org.apache.htrace.Trace;
 import org.apache.htrace.TraceScope;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 /**
  * 
- * Class, copied for the most part from HRegion.getRowLockInternal implementation
+ * Class, originally copied from HRegion.getRowLockInternal implementation
  * that manages reentrant row locks based on the row key. Phoenix needs to manage
  * it's own locking due to secondary indexes needing a consistent snapshot from
  * the time the mvcc is acquired until the time it is advanced (PHOENIX-4053).
+ * 
+ * Locked rows are tracked in a fixed table of stripes, each guarded by its own
+ * lock, so that unrelated rows rarely contend with each other. Threads waiting
+ * for a row wait on a condition of that row only, and the context of a row is
+ * recycled once the row is unlocked. Locking a batch of rows through
+ * {@link #lockRows(Collection, int)} acquires the locks in row key order, so that
+ * concurrent batches sharing rows cannot deadlock.
  *
  */
 public class LockManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(LockManager.class);
+    private static final int DEFAULT_NUM_STRIPES = 256;
+    private static final int MAX_FREE_CONTEXTS_PER_STRIPE = 16;
 
-    private final ConcurrentHashMap<ImmutableBytesPtr, RowLockContext> lockedRows =
-            new ConcurrentHashMap<ImmutableBytesPtr, RowLockContext>();
+    private final LockStripe[] stripes;
+    private final MetricsIndexerSource metricSource;
 
     public LockManager () {
+        this(DEFAULT_NUM_STRIPES, null);
+    }
+
+    public LockManager(MetricsIndexerSource metricSource) {
+        this(DEFAULT_NUM_STRIPES, metricSource);
+    }
+
+    public LockManager(int numStripes, MetricsIndexerSource metricSource) {
+        // Use a power of two so that a stripe may be chosen by masking the hash of the row key
+        int size = 1;
+        while (size < numStripes) {
+            size <<= 1;
+        }
+        this.stripes = new LockStripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new LockStripe();
+        }
+        this.metricSource = metricSource;
+    }
+
+    private LockStripe getStripe(ImmutableBytesPtr rowKey) {
+        int hash = rowKey.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
     }
 
     /**
@@ -58,8 +95,6 @@ public class LockManager {
      * waiting to acquire lock.
      */
     public RowLock lockRow(ImmutableBytesPtr rowKey, int waitDuration) throws IOException {
-        RowLockContext rowLockContext = null;
-        RowLockImpl result = null;
         TraceScope traceScope = null;
 
         // If we're tracing start a span to show how long this took.
@@ -68,45 +103,40 @@ public class LockManager {
             traceScope.getSpan().addTimelineAnnotation("Getting a lock");
         }
 
-        boolean success = false;
+        LockStripe stripe = getStripe(rowKey);
+        Thread currentThread = Thread.currentThread();
+        long waitStartTime = 0;
+        stripe.lock.lock();
         try {
-            // Keep trying until we have a lock or error out.
-            // TODO: do we need to add a time component here?
-            while (result == null) {
-
-                // Try adding a RowLockContext to the lockedRows.
-                // If we can add it then there's no other transactions currently running.
-                rowLockContext = new RowLockContext(rowKey);
-                RowLockContext existingContext = lockedRows.putIfAbsent(rowKey, rowLockContext);
-
-                // if there was a running transaction then there's already a context.
-                if (existingContext != null) {
-                    rowLockContext = existingContext;
-                }
-
-                result = rowLockContext.newRowLock();
-            }
-            if (!result.getLock().tryLock(waitDuration, TimeUnit.MILLISECONDS)) {
-                if (traceScope != null) {
-                    traceScope.getSpan().addTimelineAnnotation("Failed to get row lock");
+            RowLockContext rowLockContext = stripe.lockedRows.get(rowKey);
+            if (rowLockContext == null) {
+                rowLockContext = stripe.newContext(rowKey);
+                stripe.lockedRows.put(rowKey, rowLockContext);
+            } else if (rowLockContext.owner != null && rowLockContext.owner != currentThread) {
+                waitStartTime = System.nanoTime();
+                if (!rowLockContext.await(TimeUnit.MILLISECONDS.toNanos(waitDuration), rowKey)) {
+                    if (traceScope != null) {
+                        traceScope.getSpan().addTimelineAnnotation("Failed to get row lock");
+                    }
+                    throw new TimeoutIOException("Timed out waiting for lock for row: " + rowKey);
                 }
-                throw new TimeoutIOException("Timed out waiting for lock for row: " + rowKey);
             }
-            rowLockContext.setThreadName(Thread.currentThread().getName());
-            success = true;
-            return result;
-        } catch (InterruptedException ie) {
-            LOGGER.warn("Thread interrupted waiting for lock on row: " + rowKey);
-            InterruptedIOException iie = new InterruptedIOException();
-            iie.initCause(ie);
+            rowLockContext.owner = currentThread;
+            rowLockContext.holdCount++;
+            rowLockContext.threadName = currentThread.getName();
+            return new RowLockImpl(rowLockContext, rowKey);
+        } catch (InterruptedIOException iie) {
             if (traceScope != null) {
                 traceScope.getSpan().addTimelineAnnotation("Interrupted exception getting row lock");
             }
-            Thread.currentThread().interrupt();
             throw iie;
         } finally {
-            // On failure, clean up the counts just in case this was the thing keeping the context alive.
-            if (!success && rowLockContext != null) rowLockContext.cleanUp();
+            stripe.lock.unlock();
+            if (waitStartTime != 0 && metricSource != null) {
+                metricSource.incrementContendedRowLocks();
+                metricSource.updateRowLockWaitTime(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStartTime));
+            }
             if (traceScope != null) {
                 traceScope.close();
             }
@@ -119,6 +149,36 @@ public class LockManager {
         return lockRow(rowKey, waitDuration);
     }
 
+    /**
+     * Lock a batch of rows in row key order, releasing the locks already acquired
+     * if any of the rows cannot be locked
+     * @param rowKeys the row keys
+     * @param waitDuration the maximum time in milliseconds to wait for each row
+     * @return the RowLocks, one per row key, in row key order
+     * @throws TimeoutIOException if a lock could not be acquired within the
+     * allowed rowLockWaitDuration and InterruptedIOException if interrupted while
+     * waiting to acquire a lock.
+     */
+    public List<RowLock> lockRows(Collection<ImmutableBytesPtr> rowKeys, int waitDuration) throws IOException {
+        ImmutableBytesPtr[] sortedRowKeys = rowKeys.toArray(new ImmutableBytesPtr[rowKeys.size()]);
+        Arrays.sort(sortedRowKeys);
+        List<RowLock> rowLocks = Lists.newArrayListWithExpectedSize(sortedRowKeys.length);
+        boolean success = false;
+        try {
+            for (ImmutableBytesPtr rowKey : sortedRowKeys) {
+                rowLocks.add(lockRow(rowKey, waitDuration));
+            }
+            success = true;
+            return rowLocks;
+        } finally {
+            if (!success) {
+                for (RowLock rowLock : rowLocks) {
+                    rowLock.release();
+                }
+            }
+        }
+    }
+
     /**
      * Unlock the row. We need this stateless way of unlocking because
      * we have no means of passing the RowLock instances between
@@ -130,71 +190,137 @@ public class LockManager {
      */
     public void unlockRow(byte[] row) throws IOException {
         ImmutableBytesPtr rowKey = new ImmutableBytesPtr(row);
-        RowLockContext lockContext = lockedRows.get(rowKey);
-        if (lockContext != null) {
-            lockContext.releaseRowLock();
+        LockStripe stripe = getStripe(rowKey);
+        stripe.lock.lock();
+        try {
+            RowLockContext lockContext = stripe.lockedRows.get(rowKey);
+            if (lockContext != null) {
+                lockContext.release(rowKey);
+            }
+        } finally {
+            stripe.lock.unlock();
         }
     }
 
-    class RowLockContext {
-        private final ImmutableBytesPtr rowKey;
-        // TODO: consider making this non atomic. It's only saving one
-        // synchronization in the case of cleanup() when more than one
-        // thread is holding on to the lock.
-        private final AtomicInteger count = new AtomicInteger(0);
-        private final ReentrantLock reentrantLock = new ReentrantLock(true);
-        // TODO: remove once we can pass List<RowLock> as needed through
-        // coprocessor calls.
-        private volatile RowLockImpl rowLock = RowLockImpl.UNINITIALIZED;
-        private String threadName;
+    /**
+     * A stripe of the lock table, holding the contexts of its locked rows
+     * and a few unused contexts for reuse
+     */
+    private static class LockStripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final HashMap<ImmutableBytesPtr, RowLockContext> lockedRows =
+                new HashMap<ImmutableBytesPtr, RowLockContext>();
+        private RowLockContext freeContexts;
+        private int numFreeContexts;
 
-        RowLockContext(ImmutableBytesPtr rowKey) {
-            this.rowKey = rowKey;
+        RowLockContext newContext(ImmutableBytesPtr rowKey) {
+            RowLockContext context = freeContexts;
+            if (context == null) {
+                context = new RowLockContext(this);
+            } else {
+                freeContexts = context.nextFree;
+                context.nextFree = null;
+                numFreeContexts--;
+            }
+            context.rowKey = rowKey;
+            return context;
         }
 
-        RowLockImpl newRowLock() {
-            count.incrementAndGet();
-            synchronized (this) {
-                if (rowLock != null) {
-                    rowLock = new RowLockImpl(this, reentrantLock);
-                    return rowLock;
-                } else {
-                    return null;
-                }
+        void recycle(RowLockContext context) {
+            RowLockContext removed = lockedRows.remove(context.rowKey);
+            assert removed == context: "we should never remove a different context";
+            context.rowKey = null;
+            if (numFreeContexts < MAX_FREE_CONTEXTS_PER_STRIPE) {
+                context.nextFree = freeContexts;
+                freeContexts = context;
+                numFreeContexts++;
             }
         }
+    }
 
-        void releaseRowLock() {
-            synchronized (this) {
-                if (rowLock != null) {
-                    rowLock.release();
-                }
-            }
+    /**
+     * State of a locked row. All fields are guarded by the lock of the stripe.
+     */
+    static class RowLockContext {
+        private final LockStripe stripe;
+        private ImmutableBytesPtr rowKey;
+        private Thread owner;
+        private int holdCount;
+        private int waiterCount;
+        // Wait queue of the row, created once the row is contended
+        private Condition released;
+        private RowLockContext nextFree;
+        private String threadName;
+
+        RowLockContext(LockStripe stripe) {
+            this.stripe = stripe;
         }
-        
-        void cleanUp() {
-            long c = count.decrementAndGet();
-            if (c <= 0) {
-                synchronized (this) {
-                    if (count.get() <= 0 && rowLock != null){
-                        rowLock = null;
-                        RowLockContext removed = lockedRows.remove(rowKey);
-                        assert removed == this: "we should never remove a different context";
+
+        /**
+         * Wait until the row is no longer owned by another thread
+         * @return false if the row is still owned after waiting for the given time
+         */
+        boolean await(long nanos, ImmutableBytesPtr rowKey) throws InterruptedIOException {
+            if (released == null) {
+                released = stripe.lock.newCondition();
+            }
+            waiterCount++;
+            boolean success = false;
+            try {
+                while (owner != null) {
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    nanos = released.awaitNanos(nanos);
+                }
+                success = true;
+                return true;
+            } catch (InterruptedException ie) {
+                LOGGER.warn("Thread interrupted waiting for lock on row: " + rowKey);
+                InterruptedIOException iie = new InterruptedIOException();
+                iie.initCause(ie);
+                Thread.currentThread().interrupt();
+                throw iie;
+            } finally {
+                waiterCount--;
+                if (!success && owner == null) {
+                    // Pass on the wake up we may have consumed, or clean up if nobody is left
+                    if (waiterCount > 0) {
+                        released.signal();
+                    } else {
+                        stripe.recycle(this);
                     }
                 }
             }
         }
 
-        void setThreadName(String threadName) {
-            this.threadName = threadName;
+        void release(ImmutableBytesPtr rowKey) {
+            stripe.lock.lock();
+            try {
+                if (owner != Thread.currentThread() || !rowKey.equals(this.rowKey)) {
+                    throw new IllegalMonitorStateException("Lock on row " + rowKey + " not held by "
+                            + Thread.currentThread().getName());
+                }
+                if (--holdCount == 0) {
+                    owner = null;
+                    threadName = null;
+                    if (waiterCount > 0) {
+                        released.signal();
+                    } else {
+                        stripe.recycle(this);
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
         }
 
         @Override
         public String toString() {
             return "RowLockContext{" +
                     "row=" + rowKey +
-                    ", readWriteLock=" + reentrantLock +
-                    ", count=" + count +
+                    ", holdCount=" + holdCount +
+                    ", waiterCount=" + waiterCount +
                     ", threadName=" + threadName +
                     '}';
         }
@@ -204,40 +330,29 @@ public class LockManager {
      * Class used to represent a lock on a row.
      */
     public static class RowLockImpl implements RowLock {
-        static final RowLockImpl UNINITIALIZED = new RowLockImpl();
         private final RowLockContext context;
-        private final Lock lock;
+        private final ImmutableBytesPtr rowKey;
 
-        private RowLockImpl() {
-            context = null;
-            lock = null;
-        }
-        
-        RowLockImpl(RowLockContext context, Lock lock) {
+        RowLockImpl(RowLockContext context, ImmutableBytesPtr rowKey) {
             this.context = context;
-            this.lock = lock;
-        }
-
-        Lock getLock() {
-            return lock;
+            this.rowKey = rowKey;
         }
 
         @Override
         public void release() {
-            lock.unlock();
-            context.cleanUp();
+            context.release(rowKey);
         }
 
         @Override
         public ImmutableBytesPtr getRowKey() {
-            return context.rowKey;
+            return rowKey;
         }
 
         @Override
         public String toString() {
             return "RowLockImpl{" +
-                    "context=" + context +
-                    ", lock=" + lock +
+                    "row=" + rowKey +
+                    ", context=" + context +
                     '}';
         }
     }
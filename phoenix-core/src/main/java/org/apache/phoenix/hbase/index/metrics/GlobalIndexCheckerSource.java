@@ -41,6 +41,15 @@ public interface GlobalIndexCheckerSource extends BaseSource {
     String INDEX_REPAIR_FAILURE_TIME = "indexRepairFailureTime";
     String INDEX_REPAIR_FAILURE_TIME_DESC = "Histogram for the time in milliseconds for index row repair failures";
 
+    String INDEX_REPAIR_BATCH = "indexRepairBatches";
+    String INDEX_REPAIR_BATCH_DESC = "The number of batched index row repairs";
+
+    String INDEX_REPAIR_BATCH_SIZE = "indexRepairBatchSize";
+    String INDEX_REPAIR_BATCH_SIZE_DESC = "Histogram for the number of unverified index rows repaired per batch";
+
+    String INDEX_REPAIR_BATCH_TIME = "indexRepairBatchTime";
+    String INDEX_REPAIR_BATCH_TIME_DESC = "Histogram for the time in milliseconds for batched index row repairs";
+
     /**
      * Increments the number of index repairs
      */
@@ -64,4 +73,23 @@ public interface GlobalIndexCheckerSource extends BaseSource {
      * @param t time taken in milliseconds
      */
     void updateIndexRepairFailureTime(long t);
+
+    /**
+     * Increments the number of batched index repairs
+     */
+    void incrementIndexRepairBatches();
+
+    /**
+     * Updates the index repair batch size histogram
+     *
+     * @param n number of unverified index rows in the batch
+     */
+    void updateIndexRepairBatchSize(long n);
+
+    /**
+     * Updates the batched index repair time histogram
+     *
+     * @param t time taken in milliseconds
+     */
+    void updateIndexRepairBatchTime(long t);
 }
\ No newline at end of file
@@ -27,9 +27,12 @@ public class GlobalIndexCheckerSourceImpl extends BaseSourceImpl implements Glob
 
     private final MutableFastCounter indexRepairs;
     private final MutableFastCounter indexRepairFailures;
+    private final MutableFastCounter indexRepairBatches;
 
     private final MetricHistogram indexRepairTimeHisto;
     private final MetricHistogram indexRepairFailureTimeHisto;
+    private final MetricHistogram indexRepairBatchSizeHisto;
+    private final MetricHistogram indexRepairBatchTimeHisto;
 
     public GlobalIndexCheckerSourceImpl() {
         this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
@@ -43,9 +46,12 @@ public class GlobalIndexCheckerSourceImpl extends BaseSourceImpl implements Glob
 
         indexRepairs = getMetricsRegistry().newCounter(INDEX_REPAIR, INDEX_REPAIR_DESC, 0L);
         indexRepairFailures = getMetricsRegistry().newCounter(INDEX_REPAIR_FAILURE, INDEX_REPAIR_FAILURE_DESC, 0L);
+        indexRepairBatches = getMetricsRegistry().newCounter(INDEX_REPAIR_BATCH, INDEX_REPAIR_BATCH_DESC, 0L);
 
         indexRepairTimeHisto = getMetricsRegistry().newHistogram(INDEX_REPAIR_TIME, INDEX_REPAIR_TIME_DESC);
         indexRepairFailureTimeHisto = getMetricsRegistry().newHistogram(INDEX_REPAIR_FAILURE_TIME, INDEX_REPAIR_FAILURE_TIME_DESC);
+        indexRepairBatchSizeHisto = getMetricsRegistry().newHistogram(INDEX_REPAIR_BATCH_SIZE, INDEX_REPAIR_BATCH_SIZE_DESC);
+        indexRepairBatchTimeHisto = getMetricsRegistry().newHistogram(INDEX_REPAIR_BATCH_TIME, INDEX_REPAIR_BATCH_TIME_DESC);
     }
 
     /**
@@ -79,4 +85,29 @@ public class GlobalIndexCheckerSourceImpl extends BaseSourceImpl implements Glob
     public void updateIndexRepairFailureTime(long t) {
         indexRepairFailureTimeHisto.add(t);
     }
+
+    /**
+     * Increments the number of batched index repairs
+     */
+    public void incrementIndexRepairBatches() {
+        indexRepairBatches.incr();
+    }
+
+    /**
+     * Updates the index repair batch size histogram
+     *
+     * @param n number of unverified index rows in the batch
+     */
+    public void updateIndexRepairBatchSize(long n) {
+        indexRepairBatchSizeHisto.add(n);
+    }
+
+    /**
+     * Updates the batched index repair time histogram
+     *
+     * @param t time taken in milliseconds
+     */
+    public void updateIndexRepairBatchTime(long t) {
+        indexRepairBatchTimeHisto.add(t);
+    }
 }
\ No newline at end of file
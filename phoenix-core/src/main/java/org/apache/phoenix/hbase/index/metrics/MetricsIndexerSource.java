@@ -79,6 +79,11 @@ public interface MetricsIndexerSource extends BaseSource {
   String POST_INDEX_UPDATE_FAILURE = "postIndexUpdateFailure";
   String POST_INDEX_UPDATE_FAILURE_DESC = "The number of failures of index updates post data updates";
 
+  String ROW_LOCK_WAIT_TIME = "rowLockWaitTime";
+  String ROW_LOCK_WAIT_TIME_DESC = "Histogram for the time in milliseconds spent waiting for contended row locks";
+  String CONTENDED_ROW_LOCKS = "contendedRowLocks";
+  String CONTENDED_ROW_LOCKS_DESC = "The number of row lock acquisitions that had to wait for another thread";
+
   /**
    * Updates the index preparation time histogram (preBatchMutate).
    *
@@ -201,4 +206,16 @@ public interface MetricsIndexerSource extends BaseSource {
    * Increments the number of post index update failures.
    */
   void incrementPostIndexUpdateFailures();
+
+  /**
+   * Updates the row lock wait time histogram.
+   *
+   * @param t time spent waiting in milliseconds
+   */
+  void updateRowLockWaitTime(long t);
+
+  /**
+   * Increments the number of row lock acquisitions that had to wait.
+   */
+  void incrementContendedRowLocks();
 }
@@ -46,6 +46,8 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
     private final MetricHistogram postIndexUpdateFailureTimeHisto;
     private final MutableFastCounter preIndexUpdateFailures;
     private final MutableFastCounter postIndexUpdateFailures;
+    private final MetricHistogram rowLockWaitTimeHisto;
+    private final MutableFastCounter contendedRowLocks;
 
     public MetricsIndexerSourceImpl() {
         this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
@@ -82,6 +84,10 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
                 POST_INDEX_UPDATE_FAILURE, POST_INDEX_UPDATE_FAILURE_DESC, 0L);
         preIndexUpdateFailures = getMetricsRegistry().newCounter(
                 PRE_INDEX_UPDATE_FAILURE, PRE_INDEX_UPDATE_FAILURE_DESC, 0L);
+        rowLockWaitTimeHisto = getMetricsRegistry().newHistogram(
+                ROW_LOCK_WAIT_TIME, ROW_LOCK_WAIT_TIME_DESC);
+        contendedRowLocks = getMetricsRegistry().newCounter(
+                CONTENDED_ROW_LOCKS, CONTENDED_ROW_LOCKS_DESC, 0L);
     }
 
     @Override
@@ -183,4 +189,14 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
     public void incrementPostIndexUpdateFailures() {
         postIndexUpdateFailures.incr();
     }
+
+    @Override
+    public void updateRowLockWaitTime(long t) {
+        rowLockWaitTimeHisto.add(t);
+    }
+
+    @Override
+    public void incrementContendedRowLocks() {
+        contendedRowLocks.incr();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import static org.apache.phoenix.util.ServerUtil.wrapInDoNotRetryIOException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.hadoop.hbase.Stoppable;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.phoenix.coprocessor.MetaDataProtocol;
+import org.apache.phoenix.hbase.index.exception.MultiIndexWriteFailureException;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
+import org.apache.phoenix.index.PhoenixIndexFailurePolicy;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.IndexUtil;
+import org.apache.phoenix.util.ServerUtil.ConnectionFactory;
+import org.apache.phoenix.util.ServerUtil.ConnectionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Multimap;
+
+/**
+ * Writes the index updates through the asynchronous HBase client. The batches for all index tables
+ * are submitted at once from the calling thread and then waited upon, so that no thread of a pool is
+ * tied up per index table while the index RPCs are in flight.
+ * <p>
+ * Like the {@link TrackingParallelWriterIndexCommitter}, all writes are attempted before returning and
+ * a {@link MultiIndexWriteFailureException} with the index tables that failed is thrown, which is what
+ * the {@link PhoenixIndexFailurePolicy} acts upon. Enabled by setting
+ * {@link IndexWriter#INDEX_COMMITTER_CONF_KEY} to this class.
+ */
+public class AsyncIndexCommitter implements IndexCommitter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncIndexCommitter.class);
+
+    private AsyncConnection retryingConnection;
+    private AsyncConnection noRetriesConnection;
+    private Stoppable stopped;
+    private RegionCoprocessorEnvironment env;
+    private KeyValueBuilder kvBuilder;
+    protected boolean disableIndexOnFailure = false;
+
+    // for testing
+    public AsyncIndexCommitter(String hbaseVersion) {
+        kvBuilder = KeyValueBuilder.get(hbaseVersion);
+    }
+
+    public AsyncIndexCommitter() {
+    }
+
+    @Override
+    public void setup(IndexWriter parent, RegionCoprocessorEnvironment env, String name, boolean disableIndexOnFailure) {
+        this.disableIndexOnFailure = disableIndexOnFailure;
+        setup(ConnectionFactory.getAsyncConnection(ConnectionType.INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS, env),
+                ConnectionFactory.getAsyncConnection(ConnectionType.INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS_NO_RETRIES, env),
+                parent, env);
+        this.kvBuilder = KeyValueBuilder.get(env.getHBaseVersion());
+    }
+
+    /**
+     * Setup <tt>this</tt>.
+     * <p>
+     * Exposed for TESTING
+     */
+    void setup(AsyncConnection retryingConnection, AsyncConnection noRetriesConnection, Stoppable stop,
+            RegionCoprocessorEnvironment env) {
+        this.retryingConnection = retryingConnection;
+        this.noRetriesConnection = noRetriesConnection;
+        this.stopped = stop;
+        this.env = env;
+    }
+
+    @Override
+    public void write(Multimap<HTableInterfaceReference, Mutation> toWrite, boolean allowLocalUpdates, int clientVersion) throws IOException {
+        Set<Entry<HTableInterfaceReference, Collection<Mutation>>> entries = toWrite.asMap().entrySet();
+        List<HTableInterfaceReference> tables = new ArrayList<HTableInterfaceReference>(entries.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(entries.size());
+        // if the client can retry index writes, then we don't need to retry here
+        AsyncConnection connection = disableIndexOnFailure && clientVersion >= MetaDataProtocol.MIN_CLIENT_RETRY_INDEX_WRITES
+                ? noRetriesConnection : retryingConnection;
+        String dataTableName = env == null ? null
+                : env.getRegion().getTableDescriptor().getTableName().getNameAsString();
+        boolean done = isDone();
+        for (Entry<HTableInterfaceReference, Collection<Mutation>> entry : entries) {
+            // get the mutations for each table. We leak the implementation here a little bit to save
+            // doing a complete copy over of all the index update for each table.
+            List<Mutation> mutations = kvBuilder.cloneIfNecessary((List<Mutation>)entry.getValue());
+            HTableInterfaceReference tableReference = entry.getKey();
+            boolean isLocal = tableReference.getTableName().equals(dataTableName);
+            if (isLocal && !allowLocalUpdates) {
+                continue;
+            }
+            tables.add(tableReference);
+            if (done) {
+                // we were stopped or aborted, so do not even attempt the write
+                futures.add(null);
+                continue;
+            }
+            if (isLocal) {
+                try {
+                    IndexUtil.writeLocalUpdates(env.getRegion(), mutations, true);
+                    futures.add(CompletableFuture.<Void>completedFuture(null));
+                    continue;
+                } catch (IOException ignored) {
+                    // when it's failed we fall back to the standard & slow way
+                    if (LOGGER.isTraceEnabled()) {
+                        LOGGER.trace("indexRegion.batchMutate failed and fall " +
+                                "back to AsyncTable.batch(). Got error=" + ignored);
+                    }
+                }
+            }
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace("Writing index update:" + mutations + " to table: " + tableReference);
+            }
+            List<CompletableFuture<Object>> results = connection.getTable(
+                    TableName.valueOf(tableReference.get().copyBytesIfNecessary())).batch(mutations);
+            futures.add(CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()])));
+        }
+
+        // wait for all writes to complete, and track the failures
+        LOGGER.debug("Waiting on index updates to complete...");
+        List<HTableInterfaceReference> failures = new ArrayList<HTableInterfaceReference>();
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<Void> future = futures.get(i);
+            Throwable failure = future == null
+                    ? new IOException("Index committer stopped, not attempting to write to the index!")
+                    : getFailure(future);
+            if (failure != null) {
+                LOGGER.warn("Failed to write index updates to table " + tables.get(i), failure);
+                failures.add(tables.get(i));
+            }
+        }
+
+        // if any of the writes failed, then we need to propagate the failure
+        if (failures.size() > 0) {
+            // make the list unmodifiable to avoid any more synchronization concerns
+            MultiIndexWriteFailureException exception = new MultiIndexWriteFailureException(Collections.unmodifiableList(failures),
+                    disableIndexOnFailure && PhoenixIndexFailurePolicy.getDisableIndexOnFailure(env));
+            if (disableIndexOnFailure)
+                throw exception;
+            else {
+                throw wrapInDoNotRetryIOException("At least one index write failed after retries", exception,
+                        EnvironmentEdgeManager.currentTimeMillis());
+            }
+        }
+    }
+
+    private boolean isDone() {
+        return stopped.isStopped()
+                || (env != null && (env.getConnection() == null || env.getConnection().isClosed()
+                || env.getConnection().isAborted()))
+                || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Wait for the future without giving up on interrupts, restoring the interrupt status afterwards
+     * @return the cause of the failure or null if the future completed successfully
+     */
+    private static Throwable getFailure(CompletableFuture<Void> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return null;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    return e.getCause();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void stop(String why) {
+        // The async connections are shared across the server, so they are not closed here
+        LOGGER.info("Shutting down " + this.getClass().getSimpleName());
+    }
+
+    @Override
+    public boolean isStopped() {
+        return this.stopped.isStopped();
+    }
+}
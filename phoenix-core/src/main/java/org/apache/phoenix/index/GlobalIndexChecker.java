@@ -25,10 +25,17 @@ import static org.apache.phoenix.hbase.index.IndexRegionObserver.VERIFIED_BYTES;
 import static org.apache.phoenix.index.IndexMaintainer.getIndexMaintainer;
 import static org.apache.phoenix.schema.types.PDataType.TRUE_BYTES;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -49,13 +56,17 @@ import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.RegionObserver;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.regionserver.ScannerContext;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.metrics.GlobalIndexCheckerSource;
 import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
 import org.apache.phoenix.query.QueryServices;
@@ -88,6 +99,12 @@ import org.apache.phoenix.util.ServerUtil;
  * row updates) fail. There could be back to back such events so we need to scan older versions to retrieve
  * the verified version that is masked by the unverified version(s).
  *
+ * If the repair batch size is greater than one, the scanner reads ahead of an unverified row to collect up to that
+ * many unverified rows and rebuilds all of them with a single request to the data table. Unverified rows that were
+ * not rebuilt are skipped as in (1) and (4), the verified rows read ahead are returned as is, and if any index row
+ * has been rebuilt, the scanner is reopened as in (3) so that the rebuilt rows are returned in row key order. A
+ * rebuilt row that is still unverified is handled as in (5).
+ *
  */
 public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
     private static final Log LOG = LogFactory.getLog(GlobalIndexChecker.class);
@@ -113,6 +130,9 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
      * and used to verify individual rows and rebuild them if they are not valid
      */
     private class GlobalIndexScanner implements RegionScanner {
+        // Max number of rows read ahead per unverified row of a repair batch, to bound the rows
+        // buffered when unverified rows are sparse
+        private static final int REPAIR_READ_AHEAD_FACTOR = 4;
         RegionScanner scanner;
         private long ageThreshold;
         private Scan scan;
@@ -129,6 +149,12 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
         private long minTimestamp;
         private long maxTimestamp;
         private GlobalIndexCheckerSource metricsSource;
+        private int repairBatchSize;
+        // Verified rows read ahead by the last batch repair, to be returned before scanning further
+        private final Deque<List<Cell>> pendingRows = new ArrayDeque<>();
+        // Unverified rows of the last batch repair that were rebuilt, or that were skipped as invalid
+        private final Set<ImmutableBytesPtr> rebuiltRowKeys = new HashSet<>();
+        private final Set<ImmutableBytesPtr> invalidRowKeys = new HashSet<>();
 
         public GlobalIndexScanner(RegionCoprocessorEnvironment env,
                                   Scan scan,
@@ -145,6 +171,9 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             ageThreshold = env.getConfiguration().getLong(
                     QueryServices.GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS_ATTRIB,
                     QueryServicesOptions.DEFAULT_GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS);
+            repairBatchSize = env.getConfiguration().getInt(
+                    QueryServices.GLOBAL_INDEX_REPAIR_BATCH_SIZE_ATTRIB,
+                    QueryServicesOptions.DEFAULT_GLOBAL_INDEX_REPAIR_BATCH_SIZE);
             minTimestamp = scan.getTimeRange().getMin();
             maxTimestamp = scan.getTimeRange().getMax();
         }
@@ -161,19 +190,31 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
 
         @Override
         public boolean next(List<Cell> result) throws IOException {
+            return next(result, false);
+        }
+
+        private boolean next(List<Cell> result, boolean raw) throws IOException {
             try {
                 boolean hasMore;
                 do {
-                    hasMore = scanner.next(result);
+                    List<Cell> pendingRow = pendingRows.poll();
+                    if (pendingRow != null) {
+                        // A verified row read ahead by a batch repair
+                        result.addAll(pendingRow);
+                        return true;
+                    }
+                    hasMore = raw ? scanner.nextRaw(result) : scanner.next(result);
                     if (result.isEmpty()) {
                         break;
                     }
-                    if (verifyRowAndRepairIfNecessary(result)) {
+                    if (verifyRowAndRepairIfNecessary(result, raw)) {
                         break;
                     }
                     // skip this row as it is invalid
                     // if there is no more row, then result will be an empty list
-                } while (hasMore);
+                    // A batch repair may have buffered rows or reopened the scanner after the scanner
+                    // was exhausted, so in that case we continue until no row is returned
+                } while (hasMore || repairBatchSize > 1);
                 return hasMore;
             } catch (Throwable t) {
                 ServerUtil.throwIOException(region.getRegionInfo().getRegionNameAsString(), t);
@@ -221,24 +262,7 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
 
         @Override
         public boolean nextRaw(List<Cell> result) throws IOException {
-            try {
-                boolean hasMore;
-                do {
-                    hasMore = scanner.nextRaw(result);
-                    if (result.isEmpty()) {
-                        break;
-                    }
-                    if (verifyRowAndRepairIfNecessary(result)) {
-                        break;
-                    }
-                    // skip this row as it is invalid
-                    // if there is no more row, then result will be an empty list
-                } while (hasMore);
-                return hasMore;
-            } catch (Throwable t) {
-                ServerUtil.throwIOException(region.getRegionInfo().getRegionNameAsString(), t);
-                return false; // impossible
-            }
+            return next(result, true);
         }
 
         private void deleteRowIfAgedEnough(byte[] indexRowKey, List<Cell> row, long ts, boolean specific) throws IOException {
@@ -255,8 +279,7 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             }
         }
 
-        private void repairIndexRows(byte[] indexRowKey, long ts, List<Cell> row) throws IOException {
-            // Build the data table row key from the index table row key
+        private void initRepair() throws IOException {
             if (buildIndexScan == null) {
                 buildIndexScan = new Scan();
                 indexScan = new Scan(scan);
@@ -290,6 +313,10 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
                 }
                 buildIndexScan.addColumn(indexMaintainer.getDataEmptyKeyValueCF(), indexMaintainer.getEmptyKeyValueQualifier());
             }
+        }
+
+        private void repairIndexRows(byte[] indexRowKey, long ts, List<Cell> row) throws IOException {
+            initRepair();
             // Rebuild the index row from the corresponding the row in the the data table
             // Get the data row key from the index row key
             byte[] dataRowKey = indexMaintainer.buildDataRowKey(new ImmutableBytesWritable(indexRowKey), viewConstants);
@@ -308,6 +335,14 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             // A single cell will be returned. We decode that here
             byte[] value = result.value();
             long code = PLong.INSTANCE.getCodec().decodeLong(new ImmutableBytesWritable(value), SortOrder.getDefault());
+            repairIndexRow(indexRowKey, ts, row, code);
+        }
+
+        /**
+         * Handles an unverified index row after its data row has been used to rebuild it
+         * @param code the {@link RebuildReturnCode} value of the rebuild
+         */
+        private void repairIndexRow(byte[] indexRowKey, long ts, List<Cell> row, long code) throws IOException {
             if (code == RebuildReturnCode.NO_DATA_ROW.getValue()) {
                 // This means there does not exist a data table row for the data row key derived from
                 // this unverified index row. So, no index row has been built
@@ -467,12 +502,102 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             return maxTs;
         }
 
+        /**
+         * Repairs the given unverified row together with the unverified rows that follow it, up to the repair batch
+         * size, using a single rebuild request over the data row keys of all of them. The rows read ahead are
+         * buffered: verified rows are returned next, and unverified rows for which no index row has been built are
+         * deleted if they are old enough and skipped. If any index row has been built, the scanner is reopened at the
+         * given row instead, so that the rebuilt rows are returned in row key order.
+         * @param row is an output parameter and will be an empty list as the given row is never returned directly
+         * @return the number of unverified rows in the batch
+         */
+        private int repairIndexRowsInBatch(byte[] indexRowKey, long ts, List<Cell> row, boolean raw) throws IOException {
+            initRepair();
+            rebuiltRowKeys.clear();
+            invalidRowKeys.clear();
+            List<byte[]> unverifiedRowKeys = new ArrayList<>(repairBatchSize);
+            List<Long> unverifiedRowTimestamps = new ArrayList<>(repairBatchSize);
+            List<List<Cell>> verifiedRows = new ArrayList<>();
+            unverifiedRowKeys.add(indexRowKey);
+            unverifiedRowTimestamps.add(ts);
+            int maxReadAheadRows = repairBatchSize * REPAIR_READ_AHEAD_FACTOR;
+            boolean hasMore = true;
+            for (int i = 0; hasMore && i < maxReadAheadRows && unverifiedRowKeys.size() < repairBatchSize; i++) {
+                List<Cell> nextRow = new ArrayList<>();
+                hasMore = raw ? scanner.nextRaw(nextRow) : scanner.next(nextRow);
+                if (nextRow.isEmpty()) {
+                    break;
+                }
+                byte[] nextRowKey = CellUtil.cloneRow(nextRow.get(0));
+                long nextTs = getMaxTimestamp(nextRow);
+                if (verifyRowAndRemoveEmptyColumn(nextRow)) {
+                    verifiedRows.add(nextRow);
+                } else {
+                    unverifiedRowKeys.add(nextRowKey);
+                    unverifiedRowTimestamps.add(nextTs);
+                }
+            }
+            // Rebuild the index rows from the corresponding data table rows with a single scan over their row keys
+            List<RowRange> ranges = new ArrayList<>(unverifiedRowKeys.size());
+            for (byte[] unverifiedRowKey : unverifiedRowKeys) {
+                byte[] dataRowKey = indexMaintainer.buildDataRowKey(new ImmutableBytesWritable(unverifiedRowKey), viewConstants);
+                ranges.add(new RowRange(dataRowKey, true, dataRowKey, true));
+            }
+            MultiRowRangeFilter filter = new MultiRowRangeFilter(ranges);
+            List<RowRange> sortedRanges = filter.getRowRanges();
+            Scan batchBuildIndexScan = new Scan(buildIndexScan);
+            batchBuildIndexScan.withStartRow(sortedRanges.get(0).getStartRow(), true);
+            batchBuildIndexScan.withStopRow(sortedRanges.get(sortedRanges.size() - 1).getStopRow(), true);
+            batchBuildIndexScan.setTimeRange(0, maxTimestamp);
+            batchBuildIndexScan.setFilter(filter);
+            batchBuildIndexScan.setAttribute(BaseScannerRegionObserver.INDEX_ROW_KEY, null);
+            // Ask the partial index builder for the row keys of the index rows it has built
+            batchBuildIndexScan.setAttribute(BaseScannerRegionObserver.RETURN_INDEX_ROW_KEYS, TRUE_BYTES);
+            Set<ImmutableBytesPtr> builtRowKeys = new HashSet<>();
+            try (ResultScanner resultScanner = dataHTable.getScanner(batchBuildIndexScan)) {
+                // A single cell will be returned for each data table region. We decode that here
+                for (Result result = resultScanner.next(); result != null; result = resultScanner.next()) {
+                    DataInputStream input = new DataInputStream(new ByteArrayInputStream(result.value()));
+                    while (input.available() > 0) {
+                        byte[] builtRowKey = new byte[WritableUtils.readVInt(input)];
+                        input.readFully(builtRowKey);
+                        builtRowKeys.add(new ImmutableBytesPtr(builtRowKey));
+                    }
+                }
+            } catch (Throwable t) {
+                ServerUtil.throwIOException(dataHTable.getName().toString(), t);
+            }
+            for (int i = 0; i < unverifiedRowKeys.size(); i++) {
+                ImmutableBytesPtr unverifiedRowKey = new ImmutableBytesPtr(unverifiedRowKeys.get(i));
+                if (builtRowKeys.contains(unverifiedRowKey)) {
+                    rebuiltRowKeys.add(unverifiedRowKey);
+                } else {
+                    // There is no data table row for this unverified row, or the data table row does not point back
+                    // to it. Delete the unverified row from index if it is old enough
+                    deleteRowIfAgedEnough(unverifiedRowKeys.get(i), row, unverifiedRowTimestamps.get(i), false);
+                    invalidRowKeys.add(unverifiedRowKey);
+                }
+            }
+            row.clear();
+            if (builtRowKeys.isEmpty()) {
+                pendingRows.addAll(verifiedRows);
+            } else {
+                // Index rows have been built. Close the current scanner as the newly built rows will not be
+                // visible to it, and open a new one starting from the current row, or the row after it if the
+                // current row was invalid. Rows read ahead will be scanned again.
+                scanner.close();
+                indexScan.withStartRow(indexRowKey, rebuiltRowKeys.contains(new ImmutableBytesPtr(indexRowKey)));
+                scanner = region.getScanner(indexScan);
+            }
+            return unverifiedRowKeys.size();
+        }
+
         /**
          * @param cellList is an input and output parameter and will either include a valid row or be an empty list
          * @return true if there exists more rows, otherwise false
          * @throws IOException
          */
-        private boolean verifyRowAndRepairIfNecessary(List<Cell> cellList) throws IOException {
+        private boolean verifyRowAndRepairIfNecessary(List<Cell> cellList, boolean raw) throws IOException {
             Cell cell = cellList.get(0);
             if (verifyRowAndRemoveEmptyColumn(cellList)) {
                 return true;
@@ -483,8 +608,35 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
                 long ts = getMaxTimestamp(cellList);
                 cellList.clear();
 
+                if (repairBatchSize > 1) {
+                    ImmutableBytesPtr rowKeyPtr = new ImmutableBytesPtr(rowKey);
+                    if (invalidRowKeys.contains(rowKeyPtr)) {
+                        // Already skipped by the last batch repair, which has read ahead of this row
+                        return false;
+                    }
+                    if (!rebuiltRowKeys.remove(rowKeyPtr)) {
+                        try {
+                            int batchSize = repairIndexRowsInBatch(rowKey, ts, cellList, raw);
+                            metricsSource.incrementIndexRepairBatches();
+                            metricsSource.updateIndexRepairBatchSize(batchSize);
+                            metricsSource.updateIndexRepairBatchTime(EnvironmentEdgeManager.currentTimeMillis() - repairStart);
+                        } catch (IOException e) {
+                            metricsSource.incrementIndexRepairFailures();
+                            metricsSource.updateIndexRepairFailureTime(EnvironmentEdgeManager.currentTimeMillis() - repairStart);
+                            throw e;
+                        }
+                        return false;
+                    }
+                    // The row has been rebuilt by the last batch repair but is still unverified. The index row built
+                    // from the data table row must be masked by this unverified row
+                }
+
                 try {
-                    repairIndexRows(rowKey, ts, cellList);
+                    if (repairBatchSize > 1) {
+                        repairIndexRow(rowKey, ts, cellList, RebuildReturnCode.INDEX_ROW_EXISTS.getValue());
+                    } else {
+                        repairIndexRows(rowKey, ts, cellList);
+                    }
                     metricsSource.incrementIndexRepairs();
                     metricsSource.updateIndexRepairTime(EnvironmentEdgeManager.currentTimeMillis() - repairStart);
                 } catch (IOException e) {
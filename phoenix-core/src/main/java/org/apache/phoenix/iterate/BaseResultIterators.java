@@ -80,6 +80,11 @@ import org.apache.phoenix.coprocessor.UngroupedAggregateRegionObserver;
 import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.MutationState;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
 import org.apache.phoenix.filter.BooleanExpressionFilter;
 import org.apache.phoenix.filter.ColumnProjectionFilter;
 import org.apache.phoenix.filter.DistinctPrefixFilter;
@@ -106,6 +111,7 @@ import org.apache.phoenix.schema.PTable.QualifierEncodingScheme;
 import org.apache.phoenix.schema.PTable.ViewType;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.RowKeySchema;
+import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.StaleRegionBoundaryCacheException;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.ValueSchema.Field;
@@ -269,13 +275,16 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
                 !plan.getStatement().getHint().hasHint(HintNode.Hint.RANGE_SCAN) &&
                 cols < plan.getTableRef().getTable().getRowKeySchema().getFieldCount() &&
                 groupBy.isOrderPreserving() &&
-                (context.getAggregationManager().isEmpty() || groupBy.isUngroupedAggregate())) {
+                (context.getAggregationManager().isEmpty() || groupBy.isUngroupedAggregate()
+                        || isFirstRowPerGroupAggregation(context, scan, cols))) {
 
                     ScanUtil.andFilterAtEnd(scan,
                             new DistinctPrefixFilter(plan.getTableRef().getTable().getRowKeySchema(),cols));
-                    if (!groupBy.isUngroupedAggregate() && plan.getLimit() != null) {
+                    if (!groupBy.isUngroupedAggregate() && context.getAggregationManager().isEmpty()
+                            && plan.getLimit() != null) {
                         // We can push the limit to the server,but for UngroupedAggregate
-                        // we can not push the limit.
+                        // we can not push the limit, nor for aggregations since the limit
+                        // must be applied after the HAVING clause.
                         ScanUtil.andFilterAtEnd(scan, new PageFilter(plan.getLimit()));
                     }
             }
@@ -294,6 +303,53 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         }
     }
     
+    /**
+     * Determines whether all aggregate functions may be calculated from the first row
+     * the scan encounters for each distinct row key prefix, in which case the scan may
+     * seek from one prefix to the next instead of visiting every row of a group. This is
+     * the case for MIN over the row key column following the prefix when the scan visits
+     * it in ascending order and for MAX when the scan visits it in descending order (i.e.
+     * for a DESC column or a reverse scan), as well as for MIN and MAX over the prefix
+     * columns themselves.
+     */
+    private static boolean isFirstRowPerGroupAggregation(StatementContext context, Scan scan, int prefixLength) {
+        Iterator<Filter> filterIterator = ScanUtil.getFilterIterator(scan);
+        while (filterIterator.hasNext()) {
+            // The first row of a prefix must not be filtered out after the prefix was seen
+            if (filterIterator.next() instanceof BooleanExpressionFilter) {
+                return false;
+            }
+        }
+        boolean isReverse = ScanUtil.isReversed(scan);
+        for (SingleAggregateFunction function : context.getAggregationManager().getAggregators().getFunctions()) {
+            boolean isMin;
+            if (function instanceof MaxAggregateFunction) {
+                isMin = false;
+            } else if (function instanceof MinAggregateFunction) {
+                isMin = true;
+            } else {
+                return false;
+            }
+            Expression expression = function.getAggregatorExpression();
+            if (!(expression instanceof RowKeyColumnExpression)) {
+                return false;
+            }
+            RowKeyColumnExpression column = (RowKeyColumnExpression)expression;
+            if (column.getPosition() < prefixLength) {
+                continue;
+            }
+            // A null value would sort before the smallest value of the group
+            if (column.getPosition() > prefixLength || column.isNullable()) {
+                return false;
+            }
+            boolean isFirstRowMin = (column.getSortOrder() == SortOrder.ASC) != isReverse;
+            if (isMin != isFirstRowMin) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static void setQualifierRanges(boolean keyOnlyFilter, PTable table, Scan scan,
             StatementContext context) throws SQLException {
         if (EncodedColumnsUtil.useEncodedQualifierListOptimization(table, scan)) {
@@ -17,14 +17,9 @@
  */
 package org.apache.phoenix.iterate;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.AbstractQueue;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -32,18 +27,26 @@ import java.util.List;
 import java.util.Queue;
 import java.util.UUID;
 
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
 import com.google.common.collect.Lists;
 import com.google.common.collect.MinMaxPriorityQueue;
 
 public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeAwareQueue<T> {
     private final long thresholdBytes;
+    private final boolean isSpoolFileMapped;
     private List<BufferedSegmentQueue<T>> queues;
     private int currentIndex;
     private BufferedSegmentQueue<T> currentQueue;
     private MinMaxPriorityQueue<BufferedSegmentQueue<T>> mergedQueue;
 
-    public BufferedQueue(long thresholdBytes) {
+    /**
+     * @param isSpoolFileMapped whether segments that are flushed to disk are compressed and
+     * read back through memory mappings
+     */
+    public BufferedQueue(long thresholdBytes, boolean isSpoolFileMapped) {
         this.thresholdBytes = thresholdBytes;
+        this.isSpoolFileMapped = isSpoolFileMapped;
         this.queues = Lists.<BufferedSegmentQueue<T>> newArrayList();
         this.currentIndex = -1;
         this.currentQueue = null;
@@ -54,6 +57,10 @@ public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeA
     
     abstract protected Comparator<BufferedSegmentQueue<T>> getSegmentQueueComparator();
     
+    protected final boolean isSpoolFileMapped() {
+        return isSpoolFileMapped;
+    }
+
     protected final List<BufferedSegmentQueue<T>> getSegmentQueues() {
         return queues.subList(0, currentIndex + 1);
     }
@@ -148,14 +155,13 @@ public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeA
     }
 
     public abstract static class BufferedSegmentQueue<T> extends AbstractQueue<T> {
-        protected static final int EOF = -1;
-        
         private final int index;
         private final long thresholdBytes;
         private final boolean hasMaxQueueSize;
+        private final boolean isSpoolFileMapped;
         private long totalResultSize = 0;
         private long maxResultSize = 0;
-        private File file;
+        private SpoolFile file;
         private boolean isClosed = false;
         private boolean flushBuffer = false;
         private int flushedCount = 0;
@@ -164,17 +170,23 @@ public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeA
         // iterators to close on close()
         private List<SegmentQueueFileIterator> iterators;
 
-        public BufferedSegmentQueue(int index, long thresholdBytes, boolean hasMaxQueueSize) {
+        public BufferedSegmentQueue(int index, long thresholdBytes, boolean hasMaxQueueSize,
+                boolean isSpoolFileMapped) {
             this.index = index;
             this.thresholdBytes = thresholdBytes;
             this.hasMaxQueueSize = hasMaxQueueSize;
+            this.isSpoolFileMapped = isSpoolFileMapped;
             this.iterators = Lists.<SegmentQueueFileIterator> newArrayList();
         }
         
         abstract protected Queue<T> getInMemoryQueue();
         abstract protected long sizeOf(T e);
         abstract protected void writeToStream(DataOutputStream out, T e) throws IOException;
-        abstract protected T readFromStream(DataInputStream in) throws IOException;
+        /**
+         * Reads the entry at the start of the given buffer, advancing the buffer past it.
+         * The entry may point into the buffer, which is not reused.
+         */
+        abstract protected T readFromBuffer(ImmutableBytesWritable ptr) throws IOException;
         
         public int index() {
             return this.index;
@@ -265,7 +277,7 @@ public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeA
             }
             iterators.clear();
             if (this.file != null) {
-                file.delete();
+                file.close();
                 file = null;
             }
         }
@@ -301,26 +313,26 @@ public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeA
             maxResultSize = Math.max(maxResultSize, resultSize);
             totalResultSize = hasMaxQueueSize ? maxResultSize * inMemQueue.size() : (totalResultSize + resultSize);
             if (totalResultSize >= thresholdBytes) {
-                this.file = File.createTempFile(UUID.randomUUID().toString(), null);
-                try (DataOutputStream out = new DataOutputStream(
-                        new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
-                    int resSize = inMemQueue.size();
-                    for (int i = 0; i < resSize; i++) {
-                        T e = inMemQueue.poll();
-                        writeToStream(out, e);
-                    }
-                    out.writeInt(EOF); // end
-                    flushedCount = resSize;
-                    inMemQueue.clear();
-                    flushBuffer = true;
+                this.file = new SpoolFile(UUID.randomUUID().toString(), null, null, isSpoolFileMapped);
+                DataOutputStream out = file.getRecordOutput();
+                int resSize = inMemQueue.size();
+                for (int i = 0; i < resSize; i++) {
+                    T e = inMemQueue.poll();
+                    writeToStream(out, e);
+                    file.endRecord();
                 }
+                file.finish();
+                flushedCount = resSize;
+                inMemQueue.clear();
+                flushBuffer = true;
             }
         }
         
         private class SegmentQueueFileIterator implements Iterator<T>, Closeable {
             private boolean isEnd;
             private long readIndex;
-            private DataInputStream in;
+            private SpoolFile.Reader in;
+            private final ImmutableBytesWritable block = new ImmutableBytesWritable();
             private T next;
             
             public SegmentQueueFileIterator() {
@@ -340,8 +352,7 @@ public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeA
                 this.readIndex = readIndex;
                 this.next = null;
                 try {
-                    this.in = new DataInputStream(
-                            new BufferedInputStream(Files.newInputStream(file.toPath())));
+                    this.in = file.newReader();
                 } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
@@ -372,7 +383,9 @@ public abstract class BufferedQueue<T> extends AbstractQueue<T> implements SizeA
 
                 T e = null;
                 try {
-                    e = readFromStream(in);
+                    if (block.getLength() > 0 || in.nextBlock(block)) {
+                        e = readFromBuffer(block);
+                    }
                 } catch (IOException ex) {
                   throw new RuntimeException(ex);
                 }
@@ -17,7 +17,6 @@
  */
 package org.apache.phoenix.iterate;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -42,8 +41,8 @@ public class BufferedSortedQueue extends BufferedQueue<ResultEntry> {
     private final int limit;
 
     public BufferedSortedQueue(Comparator<ResultEntry> comparator,
-            Integer limit, long thresholdBytes) throws IOException {
-        super(thresholdBytes);
+            Integer limit, long thresholdBytes, boolean isSpoolFileMapped) throws IOException {
+        super(thresholdBytes, isSpoolFileMapped);
         this.comparator = comparator;
         this.limit = limit == null ? -1 : limit;
     }
@@ -51,7 +50,8 @@ public class BufferedSortedQueue extends BufferedQueue<ResultEntry> {
     @Override
     protected BufferedSegmentQueue<ResultEntry> createSegmentQueue(
             int index, long thresholdBytes) {
-        return new BufferedResultEntryPriorityQueue(index, thresholdBytes, limit, comparator);
+        return new BufferedResultEntryPriorityQueue(index, thresholdBytes, limit, comparator,
+                isSpoolFileMapped());
     }
 
     @Override
@@ -68,8 +68,9 @@ public class BufferedSortedQueue extends BufferedQueue<ResultEntry> {
         private MinMaxPriorityQueue<ResultEntry> results = null;
         
         public BufferedResultEntryPriorityQueue(int index,
-                long thresholdBytes, int limit, Comparator<ResultEntry> comparator) {
-            super(index, thresholdBytes, limit >= 0);
+                long thresholdBytes, int limit, Comparator<ResultEntry> comparator,
+                boolean isSpoolFileMapped) {
+            super(index, thresholdBytes, limit >= 0, isSpoolFileMapped);
             this.results = limit < 0 ? 
                     MinMaxPriorityQueue.<ResultEntry> orderedBy(comparator).create()
                   : MinMaxPriorityQueue.<ResultEntry> orderedBy(comparator).maximumSize(limit).create();
@@ -112,27 +113,28 @@ public class BufferedSortedQueue extends BufferedQueue<ResultEntry> {
         }
 
         @Override
-        protected ResultEntry readFromStream(DataInputStream is) throws IOException {
-            int length = is.readInt();
-            if (length < 0)
-                return null;
-
-            byte[] rb = new byte[length];
-            is.readFully(rb);
-            Result result = ResultUtil.toResult(new ImmutableBytesWritable(rb));
+        protected ResultEntry readFromBuffer(ImmutableBytesWritable ptr) throws IOException {
+            byte[] b = ptr.get();
+            int offset = ptr.getOffset();
+            int length = Bytes.toInt(b, offset);
+            offset += Bytes.SIZEOF_INT;
+            Result result = ResultUtil.toResult(new ImmutableBytesWritable(b, offset, length));
+            offset += length;
             ResultTuple rt = new ResultTuple(result);
-            int sortKeySize = is.readInt();
+            int sortKeySize = Bytes.toInt(b, offset);
+            offset += Bytes.SIZEOF_INT;
             ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[sortKeySize];
             for (int i = 0; i < sortKeySize; i++) {
-                int contentLength = is.readInt();
+                int contentLength = Bytes.toInt(b, offset);
+                offset += Bytes.SIZEOF_INT;
                 if (contentLength > 0) {
-                    byte[] sortKeyContent = new byte[contentLength];
-                    is.readFully(sortKeyContent);
-                    sortKeys[i] = new ImmutableBytesWritable(sortKeyContent);
+                    sortKeys[i] = new ImmutableBytesWritable(b, offset, contentLength);
+                    offset += contentLength;
                 } else {
                     sortKeys[i] = null;
                 }
             }
+            ptr.set(b, offset, ptr.getOffset() + ptr.getLength() - offset);
 
             return new ResultEntry(sortKeys, rt);
         }
@@ -17,7 +17,6 @@
  */
 package org.apache.phoenix.iterate;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Comparator;
@@ -38,13 +37,13 @@ import com.google.common.collect.Lists;
 
 public class BufferedTupleQueue extends BufferedQueue<Tuple> {
 
-    public BufferedTupleQueue(long thresholdBytes) {
-        super(thresholdBytes);
+    public BufferedTupleQueue(long thresholdBytes, boolean isSpoolFileMapped) {
+        super(thresholdBytes, isSpoolFileMapped);
     }
 
     @Override
     protected BufferedSegmentQueue<Tuple> createSegmentQueue(int index, long thresholdBytes) {
-        return new BufferedTupleSegmentQueue(index, thresholdBytes, false);
+        return new BufferedTupleSegmentQueue(index, thresholdBytes, false, isSpoolFileMapped());
     }
 
     @Override
@@ -95,8 +94,9 @@ public class BufferedTupleQueue extends BufferedQueue<Tuple> {
     private static class BufferedTupleSegmentQueue extends BufferedSegmentQueue<Tuple> {
         private LinkedList<Tuple> results;
 
-        public BufferedTupleSegmentQueue(int index, long thresholdBytes, boolean hasMaxQueueSize) {
-            super(index, thresholdBytes, hasMaxQueueSize);
+        public BufferedTupleSegmentQueue(int index, long thresholdBytes, boolean hasMaxQueueSize,
+                boolean isSpoolFileMapped) {
+            super(index, thresholdBytes, hasMaxQueueSize, isSpoolFileMapped);
             this.results = Lists.newLinkedList();
         }
 
@@ -120,13 +120,11 @@ public class BufferedTupleQueue extends BufferedQueue<Tuple> {
         }
 
         @Override
-        protected Tuple readFromStream(DataInputStream in) throws IOException {
-            int length = in.readInt();
-            if (length < 0) return null;
-
-            byte[] b = new byte[length];
-            in.readFully(b);
-            Result result = ResultUtil.toResult(new ImmutableBytesWritable(b));
+        protected Tuple readFromBuffer(ImmutableBytesWritable ptr) throws IOException {
+            int length = Bytes.toInt(ptr.get(), ptr.getOffset());
+            int offset = ptr.getOffset() + Bytes.SIZEOF_INT;
+            Result result = ResultUtil.toResult(new ImmutableBytesWritable(ptr.get(), offset, length));
+            ptr.set(ptr.get(), offset + length, ptr.getLength() - Bytes.SIZEOF_INT - length);
             return new ResultTuple(result);
         }
 
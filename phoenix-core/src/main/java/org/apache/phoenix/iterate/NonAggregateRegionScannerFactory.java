@@ -173,18 +173,33 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
     long thresholdBytes =
             env.getConfiguration().getLong(QueryServices.SERVER_SPOOL_THRESHOLD_BYTES_ATTRIB,
                 QueryServicesOptions.DEFAULT_SERVER_SPOOL_THRESHOLD_BYTES);
+    boolean isSpoolFileMapped =
+            env.getConfiguration().getBoolean(QueryServices.SPOOL_MMAP_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
     final OrderedResultIterator iterator =
-            deserializeFromScan(scan, innerScanner, spoolingEnabled, thresholdBytes);
-    if (iterator == null) {
-      return innerScanner;
+            deserializeFromScan(scan, innerScanner, spoolingEnabled, thresholdBytes,
+                isSpoolFileMapped);
+    if (iterator != null) {
+      // TODO:the above wrapped scanner should be used here also
+      innerScanner = getTopNScanner(env, innerScanner, iterator, tenantId);
     }
-    // TODO:the above wrapped scanner should be used here also
-    return getTopNScanner(env, innerScanner, iterator, tenantId);
+    byte[] packedRowsBytes = scan.getAttribute(BaseScannerRegionObserver.PACKED_ROWS);
+    if (packedRowsBytes != null && scanOffset == null) {
+      innerScanner = new PackedRowsRegionScanner(innerScanner,
+          (Integer)PInteger.INSTANCE.toObject(packedRowsBytes));
+    }
+    return innerScanner;
   }
 
     @VisibleForTesting
     static OrderedResultIterator deserializeFromScan(Scan scan, RegionScanner s,
             boolean spoolingEnabled, long thresholdBytes) {
+        return deserializeFromScan(scan, s, spoolingEnabled, thresholdBytes,
+            QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
+    }
+
+    static OrderedResultIterator deserializeFromScan(Scan scan, RegionScanner s,
+            boolean spoolingEnabled, long thresholdBytes, boolean isSpoolFileMapped) {
     byte[] topN = scan.getAttribute(BaseScannerRegionObserver.TOPN);
     if (topN == null) {
       return null;
@@ -219,7 +234,7 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
       PTable.QualifierEncodingScheme encodingScheme = EncodedColumnsUtil.getQualifierEncodingScheme(scan);
       ResultIterator inner = new RegionScannerResultIterator(s, EncodedColumnsUtil.getMinMaxQualifiersFromScan(scan), encodingScheme);
       return new OrderedResultIterator(inner, orderByExpressions, spoolingEnabled,
-              thresholdBytes, limit >= 0 ? limit : null, null, estimatedRowSize);
+              thresholdBytes, limit >= 0 ? limit : null, null, estimatedRowSize, isSpoolFileMapped);
     } catch (IOException e) {
       throw new RuntimeException(e);
     } finally {
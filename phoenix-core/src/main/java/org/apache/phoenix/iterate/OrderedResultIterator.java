@@ -35,6 +35,7 @@ import org.apache.phoenix.execute.DescVarLengthFastByteComparisons;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.OrderByExpression;
 import org.apache.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
@@ -137,6 +138,7 @@ public class OrderedResultIterator implements PeekingResultIterator {
 
     private final boolean spoolingEnabled;
     private final long thresholdBytes;
+    private final boolean isSpoolFileMapped;
     private final Integer limit;
     private final Integer offset;
     private final ResultIterator delegate;
@@ -163,11 +165,20 @@ public class OrderedResultIterator implements PeekingResultIterator {
     public OrderedResultIterator(ResultIterator delegate,
             List<OrderByExpression> orderByExpressions, boolean spoolingEnabled,
             long thresholdBytes, Integer limit, Integer offset, int estimatedRowSize) {
+        this(delegate, orderByExpressions, spoolingEnabled, thresholdBytes, limit, offset,
+                estimatedRowSize, QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED);
+    }
+
+    public OrderedResultIterator(ResultIterator delegate,
+            List<OrderByExpression> orderByExpressions, boolean spoolingEnabled,
+            long thresholdBytes, Integer limit, Integer offset, int estimatedRowSize,
+            boolean isSpoolFileMapped) {
         checkArgument(!orderByExpressions.isEmpty());
         this.delegate = delegate;
         this.orderByExpressions = orderByExpressions;
         this.spoolingEnabled = spoolingEnabled;
         this.thresholdBytes = thresholdBytes;
+        this.isSpoolFileMapped = isSpoolFileMapped;
         this.offset = offset == null ? 0 : offset;
         if (limit != null) {
             this.limit = limit + this.offset;
@@ -257,7 +268,7 @@ public class OrderedResultIterator implements PeekingResultIterator {
         try{
             final SizeAwareQueue<ResultEntry> queueEntries =
                     PhoenixQueues.newResultEntrySortedQueue(comparator, limit, spoolingEnabled,
-                        thresholdBytes);
+                        thresholdBytes, isSpoolFileMapped);
             resultIterator = new RecordPeekingResultIterator(queueEntries);
             for (Tuple result = delegate.next(); result != null; result = delegate.next()) {
                 int pos = 0;
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.Cell.Type;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.coprocessor.BaseRegionScanner;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+
+/**
+ * 
+ * Region scanner that packs many rows of a non aggregate scan into a single block cell, so
+ * that the RPC carries one cell per block instead of one Result per row. The block cell has
+ * the row key of the last row packed into it, so that the HBase client restarts an interrupted
+ * scan after the rows it already received. Each row of the block is encoded as the row key and
+ * the number of cells, followed by the family, qualifier, timestamp, type and value of each
+ * cell, all length prefixed.
+ *
+ */
+public class PackedRowsRegionScanner extends BaseRegionScanner {
+    // Stop filling a block once it reaches this size, whatever the number of rows
+    private static final int MAX_BLOCK_BYTES = 1024 * 1024;
+
+    private final int maxRows;
+    private final List<Cell> rowCells = new ArrayList<Cell>();
+    private final TrustedByteArrayOutputStream block = new TrustedByteArrayOutputStream(4096);
+    private final DataOutputStream output = new DataOutputStream(block);
+
+    public PackedRowsRegionScanner(RegionScanner delegate, int maxRows) {
+        super(delegate);
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public boolean next(List<Cell> results) throws IOException {
+        return nextBlock(results, false);
+    }
+
+    @Override
+    public boolean nextRaw(List<Cell> results) throws IOException {
+        return nextBlock(results, true);
+    }
+
+    private boolean nextBlock(List<Cell> results, boolean raw) throws IOException {
+        block.reset();
+        Cell lastCell = null;
+        int nRows = 0;
+        boolean hasMore = true;
+        while (hasMore && nRows < maxRows && block.size() < MAX_BLOCK_BYTES) {
+            rowCells.clear();
+            hasMore = raw ? delegate.nextRaw(rowCells) : delegate.next(rowCells);
+            if (rowCells.isEmpty()) {
+                continue;
+            }
+            Cell first = rowCells.get(0);
+            WritableUtils.writeVInt(output, first.getRowLength());
+            output.write(first.getRowArray(), first.getRowOffset(), first.getRowLength());
+            WritableUtils.writeVInt(output, rowCells.size());
+            for (Cell cell : rowCells) {
+                WritableUtils.writeVInt(output, cell.getFamilyLength());
+                output.write(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+                WritableUtils.writeVInt(output, cell.getQualifierLength());
+                output.write(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+                WritableUtils.writeVLong(output, cell.getTimestamp());
+                output.writeByte(cell.getType().getCode());
+                WritableUtils.writeVInt(output, cell.getValueLength());
+                output.write(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+            }
+            lastCell = first;
+            nRows++;
+        }
+        if (lastCell != null) {
+            results.add(PhoenixKeyValueUtil.newKeyValue(lastCell.getRowArray(), lastCell.getRowOffset(),
+                    lastCell.getRowLength(), QueryConstants.PACKED_ROWS_FAMILY, QueryConstants.PACKED_ROWS_COLUMN,
+                    lastCell.getTimestamp(), block.getBuffer(), 0, block.size()));
+        }
+        return hasMore;
+    }
+
+    /**
+     * @return true if the result is a block of packed rows rather than a single row
+     */
+    public static boolean isPackedRows(Result result) {
+        if (result.size() != 1) {
+            return false;
+        }
+        Cell cell = result.rawCells()[0];
+        return CellUtil.matchingFamily(cell, QueryConstants.PACKED_ROWS_FAMILY)
+                && CellUtil.matchingQualifier(cell, QueryConstants.PACKED_ROWS_COLUMN);
+    }
+
+    /**
+     * 
+     * Decodes the rows of a block one at a time, as the client consumes them.
+     *
+     */
+    public static class RowDecoder {
+        private final ImmutableBytesWritable ptr;
+        private final int end;
+
+        public RowDecoder(Result result) {
+            Cell cell = result.rawCells()[0];
+            this.ptr = new ImmutableBytesWritable(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+            this.end = cell.getValueOffset() + cell.getValueLength();
+        }
+
+        public boolean hasNext() {
+            return ptr.getOffset() < end;
+        }
+
+        public Tuple next() {
+            byte[] buffer = ptr.get();
+            int rowLength = ByteUtil.vintFromBytes(ptr);
+            int rowOffset = ptr.getOffset();
+            skip(rowLength);
+            int nCells = ByteUtil.vintFromBytes(ptr);
+            Cell[] cells = new Cell[nCells];
+            for (int i = 0; i < nCells; i++) {
+                int familyLength = ByteUtil.vintFromBytes(ptr);
+                int familyOffset = ptr.getOffset();
+                skip(familyLength);
+                int qualifierLength = ByteUtil.vintFromBytes(ptr);
+                int qualifierOffset = ptr.getOffset();
+                skip(qualifierLength);
+                long timestamp = ByteUtil.vlongFromBytes(ptr);
+                Type type = toType(buffer[ptr.getOffset()]);
+                skip(Bytes.SIZEOF_BYTE);
+                int valueLength = ByteUtil.vintFromBytes(ptr);
+                int valueOffset = ptr.getOffset();
+                skip(valueLength);
+                cells[i] = PhoenixKeyValueUtil.newKeyValue(buffer, rowOffset, rowLength,
+                        buffer, familyOffset, familyLength, buffer, qualifierOffset, qualifierLength,
+                        timestamp, buffer, valueOffset, valueLength, type);
+            }
+            return new ResultTuple(Result.create(cells));
+        }
+
+        private void skip(int length) {
+            ptr.set(ptr.get(), ptr.getOffset() + length, ptr.getLength());
+        }
+
+        private static Type toType(byte code) {
+            for (Type type : Type.values()) {
+                if (type.getCode() == code) {
+                    return type;
+                }
+            }
+            throw new IllegalStateException("Unknown cell type " + code);
+        }
+    }
+}
@@ -26,18 +26,29 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
-import org.apache.phoenix.job.JobManager.JobCallable;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.job.JobManager.JobClass;
+import org.apache.phoenix.job.JobManager.SchedulableJobCallable;
+import org.apache.phoenix.join.HashJoinInfo;
 import org.apache.phoenix.monitoring.ReadMetricQueue;
 import org.apache.phoenix.monitoring.ScanMetricsHolder;
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.apache.phoenix.parse.HintNode;
+import org.apache.phoenix.parse.HintNode.Hint;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.trace.util.Tracing;
 import org.apache.phoenix.util.LogUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.ScanUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +67,10 @@ public class ParallelIterators extends BaseResultIterators {
 	private static final String NAME = "PARALLEL";
     private final ParallelIteratorFactory iteratorFactory;
     private final boolean initFirstScanOnly;
+    // Scheduling attributes of the scans, set when the work is submitted
+    private Object tenantId;
+    private JobClass jobClass = JobClass.NORMAL;
+    private int maxParallelism;
     
     public ParallelIterators(QueryPlan plan, Integer perScanLimit, ParallelIteratorFactory iteratorFactory, ParallelScanGrouper scanGrouper, Scan scan, boolean initFirstScanOnly, Map<ImmutableBytesPtr,ServerCache> caches, QueryPlan dataPlan)
             throws SQLException {
@@ -85,7 +100,7 @@ public class ParallelIterators extends BaseResultIterators {
         // we get better utilization of the cluster since our thread executor
         // will spray the scans across machines as opposed to targeting a
         // single one since the scans are in row key order.
-        ExecutorService executor = context.getConnection().getQueryServices().getExecutor();
+        final ThreadPoolExecutor executor = context.getConnection().getQueryServices().getExecutor();
         List<ScanLocator> scanLocations = Lists.newArrayListWithExpectedSize(estFlattenedSize);
         for (int i = 0; i < nestedScans.size(); i++) {
             List<Scan> scans = nestedScans.get(i);
@@ -101,23 +116,107 @@ public class ParallelIterators extends BaseResultIterators {
         // Shuffle so that we start execution across many machines
         // before we fill up the thread pool
         Collections.shuffle(scanLocations);
-        ReadMetricQueue readMetrics = context.getReadMetricsQueue();
         final String physicalTableName = tableRef.getTable().getPhysicalName().getString();
         int numScans = scanLocations.size();
         context.getOverallQueryMetrics().updateNumParallelScans(numScans);
         GLOBAL_NUM_PARALLEL_SCANS.update(numScans);
         final long renewLeaseThreshold = context.getConnection().getQueryServices().getRenewLeaseThresholdMilliSeconds();
+        final ReadOnlyProps props = context.getConnection().getQueryServices().getProps();
+        PhoenixConnection connection = context.getConnection();
+        tenantId = connection.getTenantId() == null ? null : connection.getTenantId().getString();
+        jobClass = numScans <= props.getInt(QueryServices.LOW_LATENCY_MAX_SCANS_ATTRIB,
+                QueryServicesOptions.DEFAULT_LOW_LATENCY_MAX_SCANS) ? JobClass.LOW_LATENCY : JobClass.NORMAL;
+        maxParallelism = getMaxParallelism(props);
+        final long resplitThresholdMs = props.getLong(QueryServices.PARALLEL_SCAN_RESPLIT_THRESHOLD_MS_ATTRIB,
+                QueryServicesOptions.DEFAULT_PARALLEL_SCAN_RESPLIT_THRESHOLD_MS);
+        final long resplitThresholdRows = props.getLong(QueryServices.PARALLEL_SCAN_RESPLIT_THRESHOLD_ROWS_ATTRIB,
+                QueryServicesOptions.DEFAULT_PARALLEL_SCAN_RESPLIT_THRESHOLD_ROWS);
+        final int resplitPieces = props.getInt(QueryServices.PARALLEL_SCAN_RESPLIT_PIECES_ATTRIB,
+                QueryServicesOptions.DEFAULT_PARALLEL_SCAN_RESPLIT_PIECES);
+        // Pieces of a split scan are spooled by the thread running them, so that the
+        // scanning happens in parallel with the scan that was split
+        final ParallelIteratorFactory pieceFactory = new SpoolingResultIterator.SpoolingResultIteratorFactory(
+                context.getConnection().getQueryServices());
+        final ResplittingResultIterator.PieceSubmitter pieceSubmitter = new ResplittingResultIterator.PieceSubmitter() {
+            @Override
+            public Future<PeekingResultIterator> submit(Scan scan) throws SQLException {
+                return submitScan(executor, scan, physicalTableName, renewLeaseThreshold, scanGrouper, pieceFactory, null, null, false);
+            }
+        };
         for (final ScanLocator scanLocation : scanLocations) {
             final Scan scan = scanLocation.getScan();
-            final ScanMetricsHolder scanMetricsHolder = ScanMetricsHolder.getInstance(readMetrics, physicalTableName,
-                scan, context.getConnection().getLogLevel());
-            final TaskExecutionMetricsHolder taskMetrics = new TaskExecutionMetricsHolder(readMetrics, physicalTableName);
-            final TableResultIterator tableResultItr =
-                    context.getConnection().getTableResultIteratorFactory().newIterator(
-                        mutationState, tableRef, scan, scanMetricsHolder, renewLeaseThreshold, plan,
-                        scanGrouper, caches);
-            context.getConnection().addIteratorForLeaseRenewal(tableResultItr);
-            Future<PeekingResultIterator> future = executor.submit(Tracing.wrap(new JobCallable<PeekingResultIterator>() {
+            Future<PeekingResultIterator> future;
+            if ((resplitThresholdMs > 0 || resplitThresholdRows > 0) && canResplit(scan)) {
+                future = submitScan(executor, scan, physicalTableName, renewLeaseThreshold, scanGrouper, new ParallelIteratorFactory() {
+                    @Override
+                    public PeekingResultIterator newIterator(StatementContext context, ResultIterator scanner, Scan scan,
+                            String physicalTableName, QueryPlan plan) throws SQLException {
+                        ResultIterator resplittingScanner = new ResplittingResultIterator(scanner, scan, pieceSubmitter,
+                                executor, resplitThresholdMs, resplitThresholdRows, resplitPieces);
+                        return iteratorFactory.newIterator(context, resplittingScanner, scan, physicalTableName, plan);
+                    }
+                }, scanLocation, allIterators, isReverse);
+            } else {
+                future = submitScan(executor, scan, physicalTableName, renewLeaseThreshold, scanGrouper, iteratorFactory,
+                        scanLocation, allIterators, isReverse);
+            }
+            // Add our future in the right place so that we can concatenate the
+            // results of the inner futures versus merge sorting across all of them.
+            nestedFutures.get(scanLocation.getOuterListIndex()).set(scanLocation.getInnerListIndex(), new Pair<Scan,Future<PeekingResultIterator>>(scan,future));
+        }
+    }
+
+    /**
+     * The MAX_PARALLELISM hint of the statement overrides the max parallelism of the connection
+     */
+    private int getMaxParallelism(ReadOnlyProps props) {
+        String hintValue = plan.getStatement().getHint().getHint(Hint.MAX_PARALLELISM);
+        if (hintValue != null && hintValue.startsWith(HintNode.PREFIX) && hintValue.endsWith(HintNode.SUFFIX)) {
+            try {
+                return Integer.parseInt(hintValue.substring(HintNode.PREFIX.length(),
+                        hintValue.length() - HintNode.SUFFIX.length()).trim());
+            } catch (NumberFormatException e) { // Ignore invalid hints
+            }
+        }
+        return props.getInt(QueryServices.MAX_PARALLELISM_ATTRIB, QueryServicesOptions.DEFAULT_MAX_PARALLELISM);
+    }
+
+    /**
+     * Only forward, non aggregate scans that return their rows in row key order with at
+     * most one row per row key can be split at the current row.
+     */
+    private static boolean canResplit(Scan scan) {
+        return !scan.isReversed()
+                && !ScanUtil.isLocalIndex(scan)
+                && scan.getAttribute(BaseScannerRegionObserver.NON_AGGREGATE_QUERY) != null
+                && scan.getAttribute(BaseScannerRegionObserver.TOPN) == null
+                && scan.getAttribute(BaseScannerRegionObserver.SCAN_OFFSET) == null
+                && !HashJoinInfo.isHashJoin(scan)
+                && scan.getBatch() <= 0
+                && !scan.getAllowPartialResults();
+    }
+
+    /**
+     * Submit the scan to the executor
+     * @param scanLocation location of the scan within the parallel scans, or null for
+     * the piece of a split scan
+     * @param allIterators collects the iterators to close on failure, or null for the
+     * piece of a split scan, which is closed by the iterator of the split scan
+     */
+    private Future<PeekingResultIterator> submitScan(ExecutorService executor, final Scan scan,
+            final String physicalTableName, long renewLeaseThreshold, ParallelScanGrouper scanGrouper,
+            final ParallelIteratorFactory iteratorFactory, final ScanLocator scanLocation,
+            final Queue<PeekingResultIterator> allIterators, final boolean isReverse) throws SQLException {
+        ReadMetricQueue readMetrics = context.getReadMetricsQueue();
+        final ScanMetricsHolder scanMetricsHolder = ScanMetricsHolder.getInstance(readMetrics, physicalTableName,
+            scan, context.getConnection().getLogLevel());
+        final TaskExecutionMetricsHolder taskMetrics = new TaskExecutionMetricsHolder(readMetrics, physicalTableName);
+        final TableResultIterator tableResultItr =
+                context.getConnection().getTableResultIteratorFactory().newIterator(
+                    mutationState, tableRef, scan, scanMetricsHolder, renewLeaseThreshold, plan,
+                    scanGrouper, caches);
+        context.getConnection().addIteratorForLeaseRenewal(tableResultItr);
+        return executor.submit(Tracing.wrap(new SchedulableJobCallable<PeekingResultIterator>() {
                 
                 @Override
                 public PeekingResultIterator call() throws Exception {
@@ -126,7 +225,7 @@ public class ParallelIterators extends BaseResultIterators {
                         LOGGER.debug(LogUtil.addCustomAnnotations("Id: " + scanId + ", Time: " + (System.currentTimeMillis() - startTime) + "ms, Scan: " + scan, ScanUtil.getCustomAnnotations(scan)));
                     }
                     PeekingResultIterator iterator = iteratorFactory.newIterator(context, tableResultItr, scan, physicalTableName, ParallelIterators.this.plan);
-                    if (initFirstScanOnly) {
+                    if (initFirstScanOnly && scanLocation != null) {
                         if ((!isReverse && scanLocation.isFirstScan()) || (isReverse && scanLocation.isLastScan())) {
                             // Fill the scanner's cache. This helps reduce latency since we are parallelizing the I/O needed.
                             iterator.peek();
@@ -134,7 +233,9 @@ public class ParallelIterators extends BaseResultIterators {
                     } else {
                         iterator.peek();
                     }
-                    allIterators.add(iterator);
+                    if (allIterators != null) {
+                        allIterators.add(iterator);
+                    }
                     return iterator;
                 }
 
@@ -152,11 +253,22 @@ public class ParallelIterators extends BaseResultIterators {
                 public TaskExecutionMetricsHolder getTaskExecutionMetric() {
                     return taskMetrics;
                 }
+
+                @Override
+                public Object getTenantId() {
+                    return tenantId;
+                }
+
+                @Override
+                public JobClass getJobClass() {
+                    return jobClass;
+                }
+
+                @Override
+                public int getMaxParallelism() {
+                    return maxParallelism;
+                }
             }, "Parallel scanner for table: " + tableRef.getTable().getPhysicalName().getString()));
-            // Add our future in the right place so that we can concatenate the
-            // results of the inner futures versus merge sorting across all of them.
-            nestedFutures.get(scanLocation.getOuterListIndex()).set(scanLocation.getInnerListIndex(), new Pair<Scan,Future<PeekingResultIterator>>(scan,future));
-        }
     }
 
     @Override
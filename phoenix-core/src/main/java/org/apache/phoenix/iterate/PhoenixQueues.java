@@ -36,13 +36,14 @@ public class PhoenixQueues {
     }
 
     public static SizeAwareQueue<ResultEntry> newBufferedResultEntrySortedQueue(
-            Comparator<ResultEntry> comparator, Integer limit, long thresholdBytes)
-            throws IOException {
-        return new BufferedSortedQueue(comparator, limit, thresholdBytes);
+            Comparator<ResultEntry> comparator, Integer limit, long thresholdBytes,
+            boolean isSpoolFileMapped) throws IOException {
+        return new BufferedSortedQueue(comparator, limit, thresholdBytes, isSpoolFileMapped);
     }
 
-    public static SizeAwareQueue<Tuple> newBufferedTupleQueue(long thresholdBytes) {
-        return new BufferedTupleQueue(thresholdBytes);
+    public static SizeAwareQueue<Tuple> newBufferedTupleQueue(long thresholdBytes,
+            boolean isSpoolFileMapped) {
+        return new BufferedTupleQueue(thresholdBytes, isSpoolFileMapped);
     }
 
     public static SizeAwareQueue<ResultEntry> newSizeBoundResultEntrySortedQueue(
@@ -76,18 +77,19 @@ public class PhoenixQueues {
 
     public static SizeAwareQueue<ResultEntry> newResultEntrySortedQueue(
             Comparator<ResultEntry> comparator, Integer limit, boolean spoolingEnabled,
-            long thresholdBytes) throws IOException {
+            long thresholdBytes, boolean isSpoolFileMapped) throws IOException {
         if (spoolingEnabled) {
-            return newBufferedResultEntrySortedQueue(comparator, limit, thresholdBytes);
+            return newBufferedResultEntrySortedQueue(comparator, limit, thresholdBytes,
+                isSpoolFileMapped);
         } else {
             return newSizeBoundResultEntrySortedQueue(comparator, limit, thresholdBytes);
         }
     }
 
     public static SizeAwareQueue<Tuple> newTupleQueue(boolean spoolingEnabled,
-            long thresholdBytes) {
+            long thresholdBytes, boolean isSpoolFileMapped) {
         if (spoolingEnabled) {
-            return newBufferedTupleQueue(thresholdBytes);
+            return newBufferedTupleQueue(thresholdBytes, isSpoolFileMapped);
         } else {
             return newSizeBoundTupleQueue(thresholdBytes);
         }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+import com.google.common.base.Throwables;
+
+/**
+ * {@link ResultScanner} over an {@link AsyncTable} scan that buffers results ahead of
+ * the caller. RPCs are issued by the HBase async client as soon as the scan starts
+ * and while the caller is processing earlier results. The scan is suspended once the
+ * buffer holds maxBufferBytes of cells and resumed when the caller has drained half
+ * of it, so at most about maxBufferBytes plus one batch is held per scan.
+ */
+public class ReadAheadResultScanner implements ResultScanner, AdvancedScanResultConsumer {
+    private final long maxBufferBytes;
+    private final Queue<Result> buffer = new ArrayDeque<Result>();
+    private long bufferBytes;
+    private ScanResumer resumer;
+    private ScanMetrics scanMetrics;
+    private Throwable error;
+    private boolean finished;
+    private boolean closed;
+
+    public ReadAheadResultScanner(AsyncTable<AdvancedScanResultConsumer> table, Scan scan, long maxBufferBytes) {
+        this.maxBufferBytes = maxBufferBytes;
+        table.scan(scan, this);
+    }
+
+    @Override
+    public synchronized void onNext(Result[] results, ScanController controller) {
+        if (closed) {
+            controller.terminate();
+            return;
+        }
+        for (Result result : results) {
+            buffer.add(result);
+            bufferBytes += Result.getTotalSizeOfCells(result);
+        }
+        notifyAll();
+        if (bufferBytes >= maxBufferBytes) {
+            resumer = controller.suspend();
+        }
+    }
+
+    @Override
+    public synchronized void onHeartbeat(ScanController controller) {
+        if (closed) {
+            controller.terminate();
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable error) {
+        this.error = error;
+        finished = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        finished = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onScanMetricsCreated(ScanMetrics scanMetrics) {
+        this.scanMetrics = scanMetrics;
+    }
+
+    @Override
+    public synchronized Result next() throws IOException {
+        while (buffer.isEmpty()) {
+            if (closed) {
+                return null;
+            }
+            if (finished) {
+                if (error == null) {
+                    return null;
+                }
+                Throwables.propagateIfInstanceOf(error, IOException.class);
+                throw new IOException(error);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for scan results");
+            }
+        }
+        Result result = buffer.poll();
+        bufferBytes -= Result.getTotalSizeOfCells(result);
+        if (resumer != null && bufferBytes <= maxBufferBytes / 2) {
+            resume();
+        }
+        return result;
+    }
+
+    private void resume() {
+        ScanResumer resumer = this.resumer;
+        this.resumer = null;
+        resumer.resume();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.clear();
+        bufferBytes = 0;
+        // A suspended scan is terminated from onNext once resumed
+        if (resumer != null) {
+            resume();
+        }
+        notifyAll();
+    }
+
+    @Override
+    public boolean renewLease() {
+        // The async client renews the lease of a suspended scan itself
+        return false;
+    }
+
+    @Override
+    public synchronized ScanMetrics getScanMetrics() {
+        return scanMetrics;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadAheadResultScanner [maxBufferBytes=" + maxBufferBytes + "]";
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.coprocessor.BaseScannerRegionObserver.SCAN_ACTUAL_START_ROW;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ScanUtil;
+import org.apache.phoenix.util.ServerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+
+/**
+ * Iterates over the rows of a forward scan and, once it has run past a time or row
+ * threshold while threads of the executor are idle, stops the scan at the current
+ * row and hands the rest of its key range to the executor as several smaller scans.
+ * Rows are still returned in row key order: the rows scanned so far followed by the
+ * rows of each piece in turn. A piece no thread has picked up by the time its rows
+ * are needed is run on the calling thread.
+ * 
+ * Only usable for scans that return at most one row per row key, in row key order.
+ */
+public class ResplittingResultIterator implements ResultIterator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResplittingResultIterator.class);
+    // Number of rows between checks of the elapsed time
+    private static final int TIME_CHECK_INTERVAL = 64;
+    // Number of rows between checks of the executor for idle threads, as getting its active
+    // count takes its main lock
+    @VisibleForTesting
+    static final int IDLE_THREADS_CHECK_INTERVAL = 64;
+
+    /**
+     * Submits the scan of a piece of the remaining key range to the executor
+     */
+    public interface PieceSubmitter {
+        Future<PeekingResultIterator> submit(Scan scan) throws SQLException;
+    }
+
+    private final ResultIterator delegate;
+    private final Scan scan;
+    private final PieceSubmitter submitter;
+    private final ThreadPoolExecutor executor;
+    private final long thresholdMs;
+    private final long thresholdRows;
+    private final int pieceCount;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    private long startTime = -1;
+    private long rowCount;
+    private long nextIdleThreadsCheck;
+    private boolean splittable = true;
+    private List<Future<PeekingResultIterator>> pieces;
+    private int pieceIndex;
+    private PeekingResultIterator currentPiece;
+
+    /**
+     * @param delegate iterator over the results of the scan
+     * @param scan the scan
+     * @param submitter used to submit the pieces of the remaining key range
+     * @param executor the executor the pieces run on, checked for idle threads
+     * @param thresholdMs split once the scan has run this long, 0 to not split on time
+     * @param thresholdRows split once the scan has returned this many rows, 0 to not split on rows
+     * @param pieceCount number of pieces to split the remaining key range into
+     */
+    public ResplittingResultIterator(ResultIterator delegate, Scan scan, PieceSubmitter submitter,
+            ThreadPoolExecutor executor, long thresholdMs, long thresholdRows, int pieceCount) {
+        this.delegate = delegate;
+        this.scan = scan;
+        this.submitter = submitter;
+        this.executor = executor;
+        this.thresholdMs = thresholdMs;
+        this.thresholdRows = thresholdRows;
+        this.pieceCount = pieceCount;
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        if (pieces != null) {
+            return nextFromPieces();
+        }
+        if (startTime < 0) {
+            startTime = EnvironmentEdgeManager.currentTimeMillis();
+        }
+        Tuple tuple = delegate.next();
+        if (tuple != null && splittable && isOverThreshold(++rowCount) && rowCount >= nextIdleThreadsCheck) {
+            nextIdleThreadsCheck = rowCount + IDLE_THREADS_CHECK_INTERVAL;
+            if (hasIdleThreads()) {
+                tuple.getKey(ptr);
+                split(ptr.copyBytes());
+            }
+        }
+        return tuple;
+    }
+
+    private boolean isOverThreshold(long rowCount) {
+        if (thresholdRows > 0 && rowCount >= thresholdRows) {
+            return true;
+        }
+        return thresholdMs > 0 && rowCount % TIME_CHECK_INTERVAL == 0
+                && EnvironmentEdgeManager.currentTimeMillis() - startTime >= thresholdMs;
+    }
+
+    private boolean hasIdleThreads() {
+        return executor.getActiveCount() < executor.getMaximumPoolSize() && executor.getQueue().isEmpty();
+    }
+
+    private void split(byte[] lastKey) throws SQLException {
+        // Only one split per scan, the pieces themselves are not split again
+        splittable = false;
+        // Smallest row key after the last row returned
+        byte[] startKey = Arrays.copyOf(lastKey, lastKey.length + 1);
+        byte[][] splitKeys = splitRange(startKey, scan.getStopRow(), pieceCount);
+        if (splitKeys == null) {
+            return;
+        }
+        List<Future<PeekingResultIterator>> pieces = Lists.newArrayListWithExpectedSize(splitKeys.length - 1);
+        for (int i = 0; i < splitKeys.length - 1; i++) {
+            Scan pieceScan = ScanUtil.newScan(scan);
+            pieceScan.setStartRow(splitKeys[i]);
+            pieceScan.setStopRow(splitKeys[i + 1]);
+            pieceScan.setAttribute(SCAN_ACTUAL_START_ROW, splitKeys[i]);
+            pieces.add(submitter.submit(pieceScan));
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Split remaining range of " + scan + " after " + rowCount + " rows into " + pieces.size() + " scans");
+        }
+        this.pieces = pieces;
+        delegate.close();
+    }
+
+    /**
+     * Divide the key range from startKey (inclusive) to stopKey (exclusive, empty for
+     * no upper bound) into count ranges of about the same width.
+     * @return the count + 1 boundaries of the ranges, starting with startKey and ending
+     * with stopKey, or null if the range is too narrow to split.
+     */
+    @VisibleForTesting
+    static byte[][] splitRange(byte[] startKey, byte[] stopKey, int count) {
+        if (count < 2) {
+            return null;
+        }
+        byte[] upperKey = stopKey;
+        if (upperKey.length == 0) {
+            upperKey = new byte[startKey.length + 1];
+            Arrays.fill(upperKey, (byte)0xFF);
+        }
+        if (Bytes.compareTo(startKey, upperKey) >= 0) {
+            return null;
+        }
+        byte[][] keys = Bytes.split(startKey, upperKey, count - 1);
+        if (keys == null) {
+            return null;
+        }
+        keys[0] = startKey;
+        keys[keys.length - 1] = stopKey;
+        // Drop boundaries that don't increase, which happens when the range is narrow
+        List<byte[]> boundaries = Lists.newArrayListWithExpectedSize(keys.length);
+        boundaries.add(startKey);
+        for (int i = 1; i < keys.length - 1; i++) {
+            if (Bytes.compareTo(keys[i], boundaries.get(boundaries.size() - 1)) > 0
+                    && Bytes.compareTo(keys[i], upperKey) < 0) {
+                boundaries.add(keys[i]);
+            }
+        }
+        if (boundaries.size() < 2) {
+            return null;
+        }
+        boundaries.add(stopKey);
+        return boundaries.toArray(new byte[boundaries.size()][]);
+    }
+
+    private Tuple nextFromPieces() throws SQLException {
+        while (true) {
+            if (currentPiece == null) {
+                if (pieceIndex == pieces.size()) {
+                    return null;
+                }
+                currentPiece = getPiece(pieces.get(pieceIndex++));
+            }
+            Tuple tuple = currentPiece.next();
+            if (tuple != null) {
+                return tuple;
+            }
+            currentPiece.close();
+            currentPiece = null;
+        }
+    }
+
+    private static PeekingResultIterator getPiece(Future<PeekingResultIterator> future) throws SQLException {
+        if (future instanceof RunnableFuture) {
+            // Runs the piece here if no thread has started it yet, a no-op otherwise
+            ((RunnableFuture<PeekingResultIterator>)future).run();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION).setRootCause(e).build().buildException();
+        } catch (ExecutionException e) {
+            throw ServerUtil.parseServerException(e);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        SQLException toThrow = null;
+        try {
+            delegate.close();
+            if (currentPiece != null) {
+                currentPiece.close();
+                currentPiece = null;
+            }
+        } catch (SQLException e) {
+            toThrow = e;
+        } finally {
+            if (pieces != null) {
+                // Cancel pieces not started yet and close the others
+                for (; pieceIndex < pieces.size(); pieceIndex++) {
+                    Future<PeekingResultIterator> future = pieces.get(pieceIndex);
+                    if (!future.cancel(false)) {
+                        try {
+                            future.get().close();
+                        } catch (Exception e) {
+                            LOGGER.info("Failed to close piece of scan " + scan, e);
+                        }
+                    }
+                }
+            }
+        }
+        if (toThrow != null) {
+            throw toThrow;
+        }
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        delegate.explain(planSteps);
+    }
+
+    @Override
+    public String toString() {
+        return "ResplittingResultIterator [scan=" + scan + ", pieces=" + (pieces == null ? 0 : pieces.size()) + "]";
+    }
+}
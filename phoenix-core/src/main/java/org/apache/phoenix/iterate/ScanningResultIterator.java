@@ -62,6 +62,8 @@ public class ScanningResultIterator implements ResultIterator {
     private final ScanMetricsHolder scanMetricsHolder;
     boolean scanMetricsUpdated;
     boolean scanMetricsEnabled;
+    // Rows left in the last block of packed rows returned by the scanner
+    private PackedRowsRegionScanner.RowDecoder packedRows;
 
     public ScanningResultIterator(ResultScanner scanner, Scan scan, ScanMetricsHolder scanMetricsHolder) {
         this.scanner = scanner;
@@ -93,6 +95,9 @@ public class ScanningResultIterator implements ResultIterator {
 
         if (scanMetricsEnabled && !scanMetricsUpdated) {
             ScanMetrics scanMetrics = scanner.getScanMetrics();
+            if (scanMetrics == null) {
+                return;
+            }
             Map<String, Long> scanMetricsMap = scanMetrics.getMetricsMap();
             scanMetricsHolder.setScanMetricMap(scanMetricsMap);
 
@@ -152,11 +157,21 @@ public class ScanningResultIterator implements ResultIterator {
     @Override
     public Tuple next() throws SQLException {
         try {
+            if (packedRows != null) {
+                if (packedRows.hasNext()) {
+                    return packedRows.next();
+                }
+                packedRows = null;
+            }
             Result result = scanner.next();
             if (result == null) {
                 close(); // Free up resources early
                 return null;
             }
+            if (PackedRowsRegionScanner.isPackedRows(result)) {
+                packedRows = new PackedRowsRegionScanner.RowDecoder(result);
+                return packedRows.next();
+            }
             // TODO: use ResultTuple.setResult(result)?
             // Need to create a new one if holding on to it (i.e. OrderedResultIterator)
             return new ResultTuple(result);
@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.util.Closeables;
+import org.apache.phoenix.util.MappedByteBufferUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+import org.iq80.snappy.Snappy;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Temporary file that records are spooled to when they don't fit in memory. Records are
+ * buffered into blocks, and a record never spans blocks, so a block is a sequence of whole
+ * records whose framing is up to the caller. Readers read one block at a time into a buffer
+ * of its own, so that the records of the block can be handed out as pointers into it without
+ * a copy or allocation per record. A file may be read by any number of readers, each with
+ * its own position, once it has been written.
+ * <p>
+ * By default blocks are written as is and read back through a buffered stream. If the file
+ * is mapped, as enabled by {@link org.apache.phoenix.query.QueryServices#SPOOL_MMAP_ENABLED_ATTRIB},
+ * blocks are Snappy compressed as they are written out, so that less is written to and read
+ * back from disk, and readers map the file into memory and decompress from the mapping.
+ */
+public class SpoolFile implements Closeable {
+    static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    // Uncompressed and stored length of a block
+    private static final int BLOCK_HEADER_SIZE = 2 * Bytes.SIZEOF_INT;
+    // Maximum size of a single mapping of the file
+    private static final long MAX_MAPPED_BYTES = 1L << 30;
+
+    private final File file;
+    private final int blockSize;
+    private final boolean isMapped;
+    private final TrustedByteArrayOutputStream block;
+    private final DataOutputStream blockOut;
+    private DataOutputStream fileOut;
+    private byte[] compressed = new byte[0];
+    private long length;
+    private boolean isFinished;
+    private final List<Reader> readers = Lists.newArrayList();
+
+    public SpoolFile(String prefix, String suffix, File directory, boolean isMapped) throws IOException {
+        this(prefix, suffix, directory, DEFAULT_BLOCK_SIZE, isMapped);
+    }
+
+    public SpoolFile(String prefix, String suffix, File directory, int blockSize, boolean isMapped)
+            throws IOException {
+        this.file = File.createTempFile(prefix, suffix, directory);
+        this.blockSize = blockSize;
+        this.isMapped = isMapped;
+        this.block = new TrustedByteArrayOutputStream(blockSize + blockSize / 4);
+        this.blockOut = new DataOutputStream(block);
+        try {
+            this.fileOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return true if blocks are compressed and read through a memory mapping of the file
+     */
+    public boolean isMapped() {
+        return isMapped;
+    }
+
+    /**
+     * @return the number of bytes written to the file, which is only final once
+     * {@link #finish()} has been called.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return the output the current record is written to. {@link #endRecord()} must be
+     * called once the record has been written.
+     */
+    public DataOutputStream getRecordOutput() {
+        return blockOut;
+    }
+
+    /**
+     * Marks the end of the record written to {@link #getRecordOutput()}, writing out the
+     * current block if it is full.
+     */
+    public void endRecord() throws IOException {
+        if (block.size() >= blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes a whole record.
+     */
+    public void append(byte[] b, int offset, int length) throws IOException {
+        blockOut.write(b, offset, length);
+        endRecord();
+    }
+
+    private void writeBlock() throws IOException {
+        int uncompressedLength = block.size();
+        if (uncompressedLength == 0) {
+            return;
+        }
+        if (!isMapped) {
+            fileOut.writeInt(uncompressedLength);
+            fileOut.writeInt(uncompressedLength);
+            fileOut.write(block.getBuffer(), 0, uncompressedLength);
+            length += BLOCK_HEADER_SIZE + uncompressedLength;
+            block.reset();
+            return;
+        }
+        int maxCompressedLength = Snappy.maxCompressedLength(uncompressedLength);
+        if (compressed.length < maxCompressedLength) {
+            compressed = new byte[maxCompressedLength];
+        }
+        int compressedLength = Snappy.compress(block.getBuffer(), 0, uncompressedLength, compressed, 0);
+        fileOut.writeInt(uncompressedLength);
+        fileOut.writeInt(compressedLength);
+        fileOut.write(compressed, 0, compressedLength);
+        length += BLOCK_HEADER_SIZE + compressedLength;
+        block.reset();
+    }
+
+    /**
+     * Writes out the last block and closes the file for writing. No more records may be
+     * written once the file is finished.
+     */
+    public void finish() throws IOException {
+        if (!isFinished) {
+            writeBlock();
+            fileOut.close();
+            fileOut = null;
+            compressed = null;
+            isFinished = true;
+        }
+    }
+
+    /**
+     * @return a new reader positioned at the start of the file, which must be finished.
+     */
+    public Reader newReader() throws IOException {
+        if (!isFinished) {
+            throw new IllegalStateException("Spool file " + file + " has not been finished");
+        }
+        Reader reader = isMapped ? new MappedReader() : new StreamReader();
+        readers.add(reader);
+        return reader;
+    }
+
+    /**
+     * Closes all readers and deletes the file.
+     */
+    @Override
+    public void close() {
+        for (Reader reader : readers) {
+            Closeables.closeQuietly(reader);
+        }
+        readers.clear();
+        if (fileOut != null) {
+            Closeables.closeQuietly(fileOut);
+            fileOut = null;
+        }
+        file.delete();
+    }
+
+    /**
+     * Reads the blocks of a spool file in the order they were written.
+     */
+    public abstract class Reader implements Closeable {
+
+        private Reader() {
+        }
+
+        /**
+         * Reads the next block into a new buffer.
+         * @param ptr set to the uncompressed records of the block
+         * @return false if the end of the file has been reached and true otherwise
+         */
+        public abstract boolean nextBlock(ImmutableBytesWritable ptr) throws IOException;
+    }
+
+    /**
+     * Reads the blocks of an unmapped spool file through a buffered stream.
+     */
+    private class StreamReader extends Reader {
+        private final DataInputStream in;
+        private long position;
+
+        private StreamReader() throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+        }
+
+        @Override
+        public boolean nextBlock(ImmutableBytesWritable ptr) throws IOException {
+            if (position >= SpoolFile.this.length) {
+                return false;
+            }
+            in.readInt();
+            int length = in.readInt();
+            byte[] b = new byte[length];
+            in.readFully(b);
+            position += BLOCK_HEADER_SIZE + length;
+            ptr.set(b);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the compressed blocks of a mapped spool file through a read only mapping of it.
+     */
+    private class MappedReader extends Reader {
+        private final RandomAccessFile rndFile;
+        private final FileChannel channel;
+        private MappedByteBuffer mapped;
+        private long mappedStart;
+        private long position;
+        private byte[] compressed = new byte[0];
+
+        private MappedReader() throws IOException {
+            this.rndFile = new RandomAccessFile(file, "r");
+            this.channel = rndFile.getChannel();
+        }
+
+        /**
+         * @return the file mapped at the given position for at least the given number of
+         * bytes, remapping the file if it falls outside of the current mapping. Buffers
+         * returned by earlier calls may not be used once the file is remapped.
+         */
+        private ByteBuffer map(long position, int length) throws IOException {
+            if (mapped == null || position < mappedStart
+                    || position + length > mappedStart + mapped.capacity()) {
+                MappedByteBufferUtil.unmap(mapped);
+                mapped = null;
+                mappedStart = position;
+                mapped = channel.map(MapMode.READ_ONLY, position,
+                        Math.min(SpoolFile.this.length - position, Math.max(length, MAX_MAPPED_BYTES)));
+            }
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int)(position - mappedStart));
+            return buffer;
+        }
+
+        @Override
+        public boolean nextBlock(ImmutableBytesWritable ptr) throws IOException {
+            if (position >= SpoolFile.this.length) {
+                return false;
+            }
+            ByteBuffer buffer = map(position, BLOCK_HEADER_SIZE);
+            int uncompressedLength = buffer.getInt();
+            int compressedLength = buffer.getInt();
+            buffer = map(position + BLOCK_HEADER_SIZE, compressedLength);
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            buffer.get(compressed, 0, compressedLength);
+            byte[] uncompressed = new byte[uncompressedLength];
+            Snappy.uncompress(compressed, 0, compressedLength, uncompressed, 0);
+            position += BLOCK_HEADER_SIZE + compressedLength;
+            ptr.set(uncompressed);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Release the mapping now rather than when it's garbage collected, since the
+            // file is usually deleted right after its readers are closed
+            MappedByteBufferUtil.unmap(mapped);
+            mapped = null;
+            compressed = null;
+            Closeables.closeQuietly(channel);
+            rndFile.close();
+        }
+    }
+}
@@ -22,17 +22,13 @@ import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MEMORY_WA
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SPOOL_FILE_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SPOOL_FILE_SIZE;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.List;
 
-import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.io.WritableUtils;
@@ -50,6 +46,7 @@ import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ResultUtil;
 import org.apache.phoenix.util.ServerUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
 import org.apache.phoenix.util.TupleUtil;
 
 /**
@@ -98,7 +95,8 @@ public class SpoolingResultIterator implements PeekingResultIterator {
                 services.getProps().getLong(QueryServices.CLIENT_SPOOL_THRESHOLD_BYTES_ATTRIB,
                     QueryServicesOptions.DEFAULT_CLIENT_SPOOL_THRESHOLD_BYTES),
                 services.getProps().getLong(QueryServices.MAX_SPOOL_TO_DISK_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES),
-                services.getProps().get(QueryServices.SPOOL_DIRECTORY, QueryServicesOptions.DEFAULT_SPOOL_DIRECTORY));
+                services.getProps().get(QueryServices.SPOOL_DIRECTORY, QueryServicesOptions.DEFAULT_SPOOL_DIRECTORY),
+                services.getProps().getBoolean(QueryServices.SPOOL_MMAP_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_SPOOL_MMAP_ENABLED));
     }
 
     /**
@@ -108,9 +106,10 @@ public class SpoolingResultIterator implements PeekingResultIterator {
     * @param mm memory manager tracking memory usage across threads.
     * @param thresholdBytes the requested threshold.  Will be dialed down if memory usage (as determined by
     *  the memory manager) is exceeded.
+    * @param isSpoolFileMapped whether the spool file is compressed and read through a memory mapping
     * @throws SQLException
     */
-    SpoolingResultIterator(SpoolingMetricsHolder sMetrics, MemoryMetricsHolder mMetrics, ResultIterator scanner, MemoryManager mm, final long thresholdBytes, final long maxSpoolToDisk, final String spoolDirectory) throws SQLException {
+    SpoolingResultIterator(SpoolingMetricsHolder sMetrics, MemoryMetricsHolder mMetrics, ResultIterator scanner, MemoryManager mm, final long thresholdBytes, final long maxSpoolToDisk, final String spoolDirectory, boolean isSpoolFileMapped) throws SQLException {
         this.spoolMetrics = sMetrics;
         this.memoryMetrics = mMetrics;
         boolean success = false;
@@ -119,21 +118,12 @@ public class SpoolingResultIterator implements PeekingResultIterator {
         long waitTime = System.currentTimeMillis() - startTime;
         GLOBAL_MEMORY_WAIT_TIME.update(waitTime);
         memoryMetrics.getMemoryWaitTimeMetric().change(waitTime);
-        DeferredFileOutputStream spoolTo = null;
+        SpoolFile spoolFile = null;
         try {
             // Can't be bigger than int, since it's the max of the above allocation
             int size = (int)chunk.getSize();
-            spoolTo = new DeferredFileOutputStream(size, "ResultSpooler",".bin", new File(spoolDirectory)) {
-                @Override
-                protected void thresholdReached() throws IOException {
-                    try {
-                        super.thresholdReached();
-                    } finally {
-                        chunk.close();
-                    }
-                }
-            };
-            DataOutputStream out = new DataOutputStream(spoolTo);
+            TrustedByteArrayOutputStream memoryOut = new TrustedByteArrayOutputStream(Math.min(size, 64 * 1024));
+            DataOutputStream out = new DataOutputStream(memoryOut);
             final long maxBytesAllowed = maxSpoolToDisk == -1 ?
             		Long.MAX_VALUE : thresholdBytes + maxSpoolToDisk;
             long bytesWritten = 0L;
@@ -143,23 +133,32 @@ public class SpoolingResultIterator implements PeekingResultIterator {
                 if(bytesWritten > maxBytesAllowed){
                 		throw new SpoolTooBigToDiskException("result too big, max allowed(bytes): " + maxBytesAllowed);
                 }
+                if (spoolFile != null) {
+                    spoolFile.endRecord();
+                } else if (memoryOut.size() > size) {
+                    // Move what was buffered so far to the spool file and write the rest there
+                    spoolFile = new SpoolFile("ResultSpooler", ".bin", new File(spoolDirectory), isSpoolFileMapped);
+                    spoolRecords(memoryOut.getBuffer(), memoryOut.size(), spoolFile);
+                    memoryOut = null;
+                    out = spoolFile.getRecordOutput();
+                    chunk.close();
+                }
             }
-            if (spoolTo.isInMemory()) {
-                byte[] data = spoolTo.getData();
+            if (spoolFile == null) {
+                byte[] data = memoryOut.toByteArray();
                 chunk.resize(data.length);
                 spoolFrom = new InMemoryResultIterator(data, chunk);
                 GLOBAL_MEMORY_CHUNK_BYTES.update(data.length);
                 memoryMetrics.getMemoryChunkSizeMetric().change(data.length);
             } else {
-                long sizeOfSpoolFile = spoolTo.getFile().length();
+                spoolFile.finish();
+                long sizeOfSpoolFile = spoolFile.getLength();
                 GLOBAL_SPOOL_FILE_SIZE.update(sizeOfSpoolFile);
                 GLOBAL_SPOOL_FILE_COUNTER.increment();
                 spoolMetrics.getNumSpoolFileMetric().increment();
                 spoolMetrics.getSpoolFileSizeMetric().change(sizeOfSpoolFile);
-                spoolFrom = new OnDiskResultIterator(spoolTo.getFile());
-                if (spoolTo.getFile() != null) {
-                    spoolTo.getFile().deleteOnExit();
-                }
+                spoolFrom = new OnDiskResultIterator(spoolFile);
+                spoolFile.getFile().deleteOnExit();
             }
             success = true;
         } catch (IOException e) {
@@ -169,14 +168,9 @@ public class SpoolingResultIterator implements PeekingResultIterator {
                 scanner.close();
             } finally {
                 try {
-                    if (spoolTo != null) {
-                        if(!success && spoolTo.getFile() != null){
-                            spoolTo.getFile().delete();
-                        }
-                        spoolTo.close();
+                    if (!success && spoolFile != null) {
+                        spoolFile.close();
                     }
-                } catch (IOException ignored) {
-                  // ignore close error
                 } finally {
                     if (!success) {
                         chunk.close();
@@ -186,6 +180,33 @@ public class SpoolingResultIterator implements PeekingResultIterator {
         }
     }
 
+    /**
+     * Writes the records serialized by {@link TupleUtil#write(Tuple, DataOutput)} to the spool
+     * file one at a time, so that none of them span blocks.
+     */
+    private static void spoolRecords(byte[] bytes, int length, SpoolFile spoolFile) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int resultSize = ByteUtil.vintFromBytes(bytes, offset);
+            int recordSize = WritableUtils.getVIntSize(resultSize) + resultSize;
+            spoolFile.append(bytes, offset, recordSize);
+            offset += recordSize;
+        }
+    }
+
+    /**
+     * Parses the record at the given offset as a tuple that points into the given bytes.
+     * @param ptr set to the bytes following the record up to the given end offset
+     */
+    private static Tuple nextRecord(byte[] bytes, int offset, int end, ImmutableBytesWritable ptr) {
+        int resultSize = ByteUtil.vintFromBytes(bytes, offset);
+        offset += WritableUtils.getVIntSize(resultSize);
+        ImmutableBytesWritable value = new ImmutableBytesWritable(bytes,offset,resultSize);
+        offset += resultSize;
+        ptr.set(bytes, offset, end - offset);
+        return new ResultTuple(ResultUtil.toResult(value));
+    }
+
     @Override
     public Tuple peek() throws SQLException {
         return spoolFrom.peek();
@@ -211,6 +232,7 @@ public class SpoolingResultIterator implements PeekingResultIterator {
     private static class InMemoryResultIterator implements PeekingResultIterator {
         private final MemoryChunk memoryChunk;
         private final byte[] bytes;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
         private Tuple next;
         private int offset;
 
@@ -224,12 +246,9 @@ public class SpoolingResultIterator implements PeekingResultIterator {
             if (offset >= bytes.length) {
                 return next = null;
             }
-            int resultSize = ByteUtil.vintFromBytes(bytes, offset);
-            offset += WritableUtils.getVIntSize(resultSize);
-            ImmutableBytesWritable value = new ImmutableBytesWritable(bytes,offset,resultSize);
-            offset += resultSize;
-            Tuple result = new ResultTuple(ResultUtil.toResult(value));
-            return next = result;
+            next = nextRecord(bytes, offset, bytes.length, ptr);
+            offset = ptr.getOffset();
+            return next;
         }
 
         @Override
@@ -256,64 +275,45 @@ public class SpoolingResultIterator implements PeekingResultIterator {
 
     /**
      *
-     * Backing result iterator if results were spooled to disk
+     * Backing result iterator if results were spooled to disk. Blocks of the spool file
+     * are decompressed one at a time and the tuples point into the current block.
      *
      *
      * @since 0.1
      */
     private static class OnDiskResultIterator implements PeekingResultIterator {
-        private final File file;
-        private DataInputStream spoolFrom;
+        private final SpoolFile spoolFile;
+        private final ImmutableBytesWritable block = new ImmutableBytesWritable();
+        private SpoolFile.Reader spoolFrom;
         private Tuple next;
         private boolean isClosed;
 
-        private OnDiskResultIterator (File file) {
-            this.file = file;
+        private OnDiskResultIterator (SpoolFile spoolFile) {
+            this.spoolFile = spoolFile;
         }
 
         private synchronized void init() throws IOException {
             if (spoolFrom == null) {
-                spoolFrom = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+                spoolFrom = spoolFile.newReader();
                 advance();
             }
         }
 
-        private synchronized void reachedEnd() throws IOException {
+        private synchronized void reachedEnd() {
             next = null;
             isClosed = true;
-            try {
-                if (spoolFrom != null) {
-                    spoolFrom.close();
-                }
-            } finally {
-                file.delete();
-            }
+            spoolFile.close();
         }
 
         private synchronized Tuple advance() throws IOException {
             if (isClosed) {
                 return next;
             }
-            int length;
-            try {
-                length = WritableUtils.readVInt(spoolFrom);
-            } catch (EOFException e) {
+            if (block.getLength() == 0 && !spoolFrom.nextBlock(block)) {
                 reachedEnd();
                 return next;
             }
-            int totalBytesRead = 0;
-            int offset = 0;
-            byte[] buffer = new byte[length];
-            while(totalBytesRead < length) {
-                int bytesRead = spoolFrom.read(buffer, offset, length);
-                if (bytesRead == -1) {
-                    reachedEnd();
-                    return next;
-                }
-                offset += bytesRead;
-                totalBytesRead += bytesRead;
-            }
-            next = new ResultTuple(ResultUtil.toResult(new ImmutableBytesWritable(buffer,0,length)));
+            next = nextRecord(block.get(), block.getOffset(), block.getOffset() + block.getLength(), block);
             return next;
         }
 
@@ -341,12 +341,8 @@ public class SpoolingResultIterator implements PeekingResultIterator {
 
         @Override
         public synchronized void close() throws SQLException {
-            try {
-                if (!isClosed) {
-                    reachedEnd();
-                }
-            } catch (IOException e) {
-                throw ServerUtil.parseServerException(e);
+            if (!isClosed) {
+                reachedEnd();
             }
         }
 
@@ -37,6 +37,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.concurrent.GuardedBy;
 
 import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -50,6 +51,8 @@ import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.join.HashCacheClient;
 import org.apache.phoenix.monitoring.ScanMetricsHolder;
 import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.ByteUtil;
@@ -78,6 +81,8 @@ public class TableResultIterator implements ResultIterator {
     private final ScanMetricsHolder scanMetricsHolder;
     private static final ResultIterator UNINITIALIZED_SCANNER = ResultIterator.EMPTY_ITERATOR;
     private final long renewLeaseThreshold;
+    // Read ahead through the async client when > 0
+    private final long readAheadMaxBytes;
     private final QueryPlan plan;
     private final ParallelScanGrouper scanGrouper;
     private static final Logger LOGGER = LoggerFactory.getLogger(TableResultIterator.class);
@@ -102,6 +107,7 @@ public class TableResultIterator implements ResultIterator {
     TableResultIterator() {
         this.scanMetricsHolder = null;
         this.renewLeaseThreshold = 0;
+        this.readAheadMaxBytes = 0;
         this.htable = null;
         this.scan = null;
         this.plan = null;
@@ -133,6 +139,9 @@ public class TableResultIterator implements ResultIterator {
         this.caches = caches;
         this.retry=plan.getContext().getConnection().getQueryServices().getProps()
                 .getInt(QueryConstants.HASH_JOIN_CACHE_RETRIES, QueryConstants.DEFAULT_HASH_JOIN_CACHE_RETRIES);
+        // Transactional tables must be read through the transaction aware table
+        this.readAheadMaxBytes = table.isTransactional() ? 0 : plan.getContext().getConnection().getQueryServices().getProps()
+                .getLong(QueryServices.SCAN_READ_AHEAD_MAX_BYTES_ATTRIB, QueryServicesOptions.DEFAULT_SCAN_READ_AHEAD_MAX_BYTES);
         IndexUtil.setScanAttributesForIndexReadRepair(scan, table, plan.getContext().getConnection());
     }
 
@@ -229,8 +238,11 @@ public class TableResultIterator implements ResultIterator {
             ResultIterator delegate = this.scanIterator;
             if (delegate == UNINITIALIZED_SCANNER) {
                 try {
-                    this.scanIterator =
-                            new ScanningResultIterator(htable.getScanner(scan), scan, scanMetricsHolder);
+                    ResultScanner scanner = readAheadMaxBytes > 0
+                            ? new ReadAheadResultScanner(plan.getContext().getConnection().getQueryServices()
+                                    .getAsyncTable(htable.getName().getName()), scan, readAheadMaxBytes)
+                            : htable.getScanner(scan);
+                    this.scanIterator = new ScanningResultIterator(scanner, scan, scanMetricsHolder);
                 } catch (IOException e) {
                     Closeables.closeQuietly(htable);
                     throw ServerUtil.parseServerException(e);
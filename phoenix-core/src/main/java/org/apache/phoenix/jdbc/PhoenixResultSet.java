@@ -81,14 +81,9 @@ import org.apache.phoenix.schema.types.PBoolean;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PDate;
 import org.apache.phoenix.schema.types.PDecimal;
-import org.apache.phoenix.schema.types.PDouble;
-import org.apache.phoenix.schema.types.PFloat;
 import org.apache.phoenix.schema.types.PInteger;
-import org.apache.phoenix.schema.types.PLong;
-import org.apache.phoenix.schema.types.PSmallint;
 import org.apache.phoenix.schema.types.PTime;
 import org.apache.phoenix.schema.types.PTimestamp;
-import org.apache.phoenix.schema.types.PTinyint;
 import org.apache.phoenix.schema.types.PVarbinary;
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.util.SQLCloseable;
@@ -381,12 +376,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     public byte getByte(int columnIndex) throws SQLException {
 //        throw new SQLFeatureNotSupportedException();
         checkCursorState();
-        Byte value = (Byte)getRowProjector().getColumnProjector(columnIndex-1).getValue(currentRow,
-            PTinyint.INSTANCE, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        byte value = getRowProjector().getColumnProjector(columnIndex-1).getByte(currentRow, ptr);
+        wasNull = ptr.getLength() == 0;
         return value;
     }
 
@@ -463,12 +454,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public double getDouble(int columnIndex) throws SQLException {
         checkCursorState();
-        Double value = (Double)getRowProjector().getColumnProjector(columnIndex-1)
-                .getValue(currentRow, PDouble.INSTANCE, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        double value = getRowProjector().getColumnProjector(columnIndex-1).getDouble(currentRow, ptr);
+        wasNull = ptr.getLength() == 0;
         return value;
     }
 
@@ -490,12 +477,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public float getFloat(int columnIndex) throws SQLException {
         checkCursorState();
-        Float value = (Float)getRowProjector().getColumnProjector(columnIndex-1)
-                .getValue(currentRow, PFloat.INSTANCE, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        float value = getRowProjector().getColumnProjector(columnIndex-1).getFloat(currentRow, ptr);
+        wasNull = ptr.getLength() == 0;
         return value;
     }
 
@@ -512,12 +495,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public int getInt(int columnIndex) throws SQLException {
         checkCursorState();
-        Integer value = (Integer)getRowProjector().getColumnProjector(columnIndex-1)
-                .getValue(currentRow, PInteger.INSTANCE, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        int value = getRowProjector().getColumnProjector(columnIndex-1).getInt(currentRow, ptr);
+        wasNull = ptr.getLength() == 0;
         return value;
     }
 
@@ -529,12 +508,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public long getLong(int columnIndex) throws SQLException {
         checkCursorState();
-        Long value = (Long)getRowProjector().getColumnProjector(columnIndex-1).getValue(currentRow,
-            PLong.INSTANCE, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        long value = getRowProjector().getColumnProjector(columnIndex-1).getLong(currentRow, ptr);
+        wasNull = ptr.getLength() == 0;
         return value;
     }
 
@@ -641,12 +616,8 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     @Override
     public short getShort(int columnIndex) throws SQLException {
         checkCursorState();
-        Short value = (Short)getRowProjector().getColumnProjector(columnIndex-1)
-                .getValue(currentRow, PSmallint.INSTANCE, ptr);
-        wasNull = (value == null);
-        if (value == null) {
-            return 0;
-        }
+        short value = getRowProjector().getColumnProjector(columnIndex-1).getShort(currentRow, ptr);
+        wasNull = ptr.getLength() == 0;
         return value;
     }
 
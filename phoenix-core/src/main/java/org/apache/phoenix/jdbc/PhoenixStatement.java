@@ -140,6 +140,7 @@ import org.apache.phoenix.parse.OrderByNode;
 import org.apache.phoenix.parse.PFunction;
 import org.apache.phoenix.parse.ParseNode;
 import org.apache.phoenix.parse.ParseNodeFactory;
+import org.apache.phoenix.parse.ParsedStatementCache;
 import org.apache.phoenix.parse.PrimaryKeyConstraint;
 import org.apache.phoenix.parse.SQLParser;
 import org.apache.phoenix.parse.SelectStatement;
@@ -1731,13 +1732,19 @@ public class PhoenixStatement implements Statement, SQLCloseable {
     }
     
     protected CompilableStatement parseStatement(String sql) throws SQLException {
+        ParsedStatementCache cache = connection.getQueryServices().getParsedStatementCache();
+        CompilableStatement statement = (CompilableStatement) cache.get(sql);
+        if (statement != null) {
+            return statement;
+        }
         PhoenixStatementParser parser = null;
         try {
             parser = new PhoenixStatementParser(sql, new ExecutableNodeFactory());
         } catch (IOException e) {
             throw ServerUtil.parseServerException(e);
         }
-        CompilableStatement statement = parser.parseStatement();
+        statement = parser.parseStatement();
+        cache.put(sql, statement);
         return statement;
     }
     
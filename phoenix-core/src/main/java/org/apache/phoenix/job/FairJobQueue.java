@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.job.JobManager.JobClass;
+import org.apache.phoenix.job.JobManager.JobFutureTask;
+
+/**
+ *
+ * A bounded blocking queue of the tasks of a thread pool that schedules them by weighted fair
+ * queuing: tenants get an equal share of the threads, and the jobs of a tenant share the
+ * threads of the tenant by weight. Each tenant and job has a virtual time advanced by the
+ * inverse of the weight of the job for every task taken, and the next task is taken from the
+ * job with the smallest virtual time within the tenant with the smallest virtual time. A
+ * tenant or job that becomes active again starts at the current virtual time, so being idle
+ * does not earn it credit.
+ *
+ * A task is only taken if its job runs less than its max parallelism tasks and, for jobs
+ * other than {@link JobClass#LOW_LATENCY} jobs, if the threads not reserved for low latency
+ * jobs are not all busy. The pool must call {@link #taskCompleted(Runnable)} once it ran a
+ * task taken from the queue.
+ *
+ */
+public class FairJobQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final Object lock = new Object();
+    private final Map<Object,Tenant> tenants = new LinkedHashMap<Object,Tenant>();
+    private final Map<Object,Job> jobs = new HashMap<Object,Job>();
+    private final int maxSize;
+    private final int maxNormalRunning;
+    private final int lowLatencyWeight;
+    private int size;
+    private int normalRunning;
+    private double virtualTime;
+
+    /**
+     * @param maxSize max number of queued tasks
+     * @param threadCount number of threads of the pool
+     * @param reservedThreads number of threads only running tasks of low latency jobs
+     * @param lowLatencyWeight weight of low latency jobs, other jobs having a weight of 1
+     */
+    public FairJobQueue(int maxSize, int threadCount, int reservedThreads, int lowLatencyWeight) {
+        this.maxSize = maxSize;
+        this.maxNormalRunning = Math.max(1, threadCount - Math.max(0, reservedThreads));
+        this.lowLatencyWeight = Math.max(1, lowLatencyWeight);
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        synchronized (lock) {
+            if (size >= maxSize) {
+                return false;
+            }
+            Object jobId = getJobId(task);
+            Job job = jobs.get(jobId);
+            if (job == null) {
+                Object tenantId = null;
+                JobClass jobClass = JobClass.NORMAL;
+                int maxParallelism = 0;
+                if (task instanceof JobFutureTask) {
+                    JobFutureTask<?> jobTask = (JobFutureTask<?>)task;
+                    tenantId = jobTask.getTenantId();
+                    jobClass = jobTask.getJobClass();
+                    maxParallelism = jobTask.getMaxParallelism();
+                }
+                Tenant tenant = tenants.get(tenantId);
+                if (tenant == null) {
+                    tenant = new Tenant(tenantId);
+                    tenants.put(tenantId, tenant);
+                }
+                job = new Job(jobId, tenant, jobClass == JobClass.LOW_LATENCY ? lowLatencyWeight : 1,
+                        jobClass == JobClass.LOW_LATENCY, maxParallelism);
+                tenant.jobs.put(jobId, job);
+                jobs.put(jobId, job);
+            }
+            Tenant tenant = job.tenant;
+            if (tenant.queued == 0) {
+                tenant.virtualTime = Math.max(tenant.virtualTime, virtualTime);
+            }
+            if (job.tasks.isEmpty()) {
+                job.virtualTime = Math.max(job.virtualTime, tenant.jobVirtualTime);
+            }
+            job.tasks.add(task);
+            tenant.queued++;
+            size++;
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        long endAt = System.currentTimeMillis() + unit.toMillis(timeout);
+        synchronized (lock) {
+            boolean taken;
+            long waitTime = endAt - System.currentTimeMillis();
+            while (!(taken = offer(task)) && waitTime > 0) {
+                lock.wait(waitTime);
+                waitTime = endAt - System.currentTimeMillis();
+            }
+            return taken;
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        synchronized (lock) {
+            while (!offer(task)) {
+                lock.wait();
+            }
+        }
+    }
+
+    /**
+     * Takes the next task that may run, or returns null if no queued task may run.
+     */
+    @Override
+    public Runnable poll() {
+        synchronized (lock) {
+            Job job = nextJob();
+            if (job == null) {
+                return null;
+            }
+            Runnable task = job.tasks.removeFirst();
+            Tenant tenant = job.tenant;
+            tenant.queued--;
+            size--;
+            virtualTime = Math.max(virtualTime, tenant.virtualTime);
+            tenant.jobVirtualTime = Math.max(tenant.jobVirtualTime, job.virtualTime);
+            double cost = 1.0 / job.weight;
+            tenant.virtualTime += cost;
+            job.virtualTime += cost;
+            job.running++;
+            if (!job.isLowLatency) {
+                normalRunning++;
+            }
+            lock.notifyAll();
+            return task;
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        synchronized (lock) {
+            Runnable task;
+            while ((task = poll()) == null) {
+                lock.wait();
+            }
+            return task;
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long endAt = System.currentTimeMillis() + unit.toMillis(timeout);
+        synchronized (lock) {
+            Runnable task;
+            long waitTime = endAt - System.currentTimeMillis();
+            while ((task = poll()) == null && waitTime > 0) {
+                lock.wait(waitTime);
+                waitTime = endAt - System.currentTimeMillis();
+            }
+            return task;
+        }
+    }
+
+    /**
+     * Accounts for the completion of a task taken from the queue, which may let other tasks
+     * of its job or class run.
+     */
+    public void taskCompleted(Runnable task) {
+        synchronized (lock) {
+            Job job = jobs.get(getJobId(task));
+            if (job == null || job.running == 0) {
+                return;
+            }
+            job.running--;
+            if (!job.isLowLatency) {
+                normalRunning--;
+            }
+            removeIfIdle(job);
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        synchronized (lock) {
+            Job job = nextJob();
+            return job == null ? null : job.tasks.getFirst();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Runnable)) {
+            return false;
+        }
+        synchronized (lock) {
+            Job job = jobs.get(getJobId((Runnable)o));
+            if (job == null || !job.tasks.remove(o)) {
+                return false;
+            }
+            job.tenant.queued--;
+            size--;
+            removeIfIdle(job);
+            lock.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Iterates over a snapshot of the queued tasks. Removing a task through the iterator
+     * removes it from the queue, as {@link java.util.concurrent.ThreadPoolExecutor#purge()}
+     * does for cancelled tasks.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> allTasks;
+        synchronized (lock) {
+            allTasks = new ArrayList<Runnable>(size);
+            for (Tenant tenant : tenants.values()) {
+                for (Job job : tenant.jobs.values()) {
+                    allTasks.addAll(job.tasks);
+                }
+            }
+        }
+        return new Iterator<Runnable>() {
+            private final Iterator<Runnable> delegate = allTasks.iterator();
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = delegate.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                FairJobQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Drains the queued tasks whether they may run or not, as when the pool is shut down.
+     */
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        synchronized (lock) {
+            int drained = 0;
+            for (Job job : new ArrayList<Job>(jobs.values())) {
+                while (drained < maxElements && !job.tasks.isEmpty()) {
+                    c.add(job.tasks.removeFirst());
+                    job.tenant.queued--;
+                    size--;
+                    drained++;
+                }
+                removeIfIdle(job);
+            }
+            lock.notifyAll();
+            return drained;
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        synchronized (lock) {
+            return maxSize - size;
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    private Job nextJob() {
+        Job next = null;
+        for (Tenant tenant : tenants.values()) {
+            if (tenant.queued == 0 || (next != null && tenant.virtualTime >= next.tenant.virtualTime)) {
+                continue;
+            }
+            Job tenantNext = null;
+            for (Job job : tenant.jobs.values()) {
+                if (!job.tasks.isEmpty() && mayRun(job)
+                        && (tenantNext == null || job.virtualTime < tenantNext.virtualTime)) {
+                    tenantNext = job;
+                }
+            }
+            if (tenantNext != null) {
+                next = tenantNext;
+            }
+        }
+        return next;
+    }
+
+    private boolean mayRun(Job job) {
+        if (job.maxParallelism > 0 && job.running >= job.maxParallelism) {
+            return false;
+        }
+        return job.isLowLatency || normalRunning < maxNormalRunning;
+    }
+
+    private void removeIfIdle(Job job) {
+        if (job.tasks.isEmpty() && job.running == 0) {
+            jobs.remove(job.id);
+            Tenant tenant = job.tenant;
+            tenant.jobs.remove(job.id);
+            if (tenant.jobs.isEmpty()) {
+                tenants.remove(tenant.id);
+            }
+        }
+    }
+
+    private static Object getJobId(Runnable task) {
+        return task instanceof JobFutureTask ? ((JobFutureTask<?>)task).getJobId() : task;
+    }
+
+    private static class Tenant {
+        private final Object id;
+        // Jobs with queued or running tasks
+        private final Map<Object,Job> jobs = new LinkedHashMap<Object,Job>();
+        private double virtualTime;
+        private double jobVirtualTime;
+        private int queued;
+
+        private Tenant(Object id) {
+            this.id = id;
+        }
+    }
+
+    private static class Job {
+        private final Object id;
+        private final Tenant tenant;
+        private final int weight;
+        private final boolean isLowLatency;
+        private final int maxParallelism;
+        private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+        private double virtualTime;
+        private int running;
+
+        private Job(Object id, Tenant tenant, int weight, boolean isLowLatency, int maxParallelism) {
+            this.id = id;
+            this.tenant = tenant;
+            this.weight = weight;
+            this.isLowLatency = isLowLatency;
+            this.maxParallelism = maxParallelism;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_REJECTED_
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_END_TO_END_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXECUTED_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXECUTION_TIME;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_LOW_LATENCY_QUEUE_WAIT_TIME;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_NORMAL_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_QUEUE_WAIT_TIME;
 
 import java.util.concurrent.BlockingQueue;
@@ -70,6 +72,36 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         public TaskExecutionMetricsHolder getTaskExecutionMetric();
     }
 
+    /**
+     * Scheduling class of a job. With fair scheduling, some threads only run the tasks of
+     * low latency jobs so that these are not queued behind the tasks of large queries.
+     */
+    public static enum JobClass {
+        LOW_LATENCY,
+        NORMAL
+    }
+
+    /**
+     * Scheduling attributes of a job, used by the thread pool created through
+     * {@link JobManager#createFairThreadPoolExec(int, int, int, int, int)}
+     */
+    public static interface SchedulableJob {
+        /**
+         * @return the tenant owning the job, or null for the global tenant. Tenants get
+         * an equal share of the threads, which their jobs share by weight.
+         */
+        public Object getTenantId();
+        public JobClass getJobClass();
+        /**
+         * @return the max number of tasks of the job running at the same time, or 0 for
+         * no limit
+         */
+        public int getMaxParallelism();
+    }
+
+    public static interface SchedulableJobCallable<T> extends JobCallable<T>, SchedulableJob {
+    }
+
     public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize, boolean useInstrumentedThreadPool) {
         BlockingQueue<Runnable> queue;
         if (queueSize == 0) {
@@ -117,6 +149,33 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         return exec;
     }
 
+    /**
+     * Creates a thread pool that schedules the tasks of jobs by weighted fair queuing across
+     * tenants and across the jobs of a tenant instead of round robin across jobs, see
+     * {@link FairJobQueue}. The pool is always instrumented, to report the queue wait time
+     * of each {@link JobClass}.
+     * @param reservedThreads number of threads only running tasks of low latency jobs
+     * @param lowLatencyWeight weight of low latency jobs relative to other jobs
+     */
+    public static ThreadPoolExecutor createFairThreadPoolExec(int keepAliveMs, int size, int queueSize,
+            int reservedThreads, int lowLatencyWeight) {
+        if (queueSize <= 0) {
+            // Nothing is ever queued, so there is nothing to schedule
+            return createThreadPoolExec(keepAliveMs, size, queueSize, true);
+        }
+        FairJobQueue queue = new FairJobQueue(queueSize, size, reservedThreads, lowLatencyWeight);
+        String name = "phoenix-" + PHOENIX_POOL_INDEX.getAndIncrement();
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(name + "-thread-%s")
+                .setDaemon(true)
+                .setThreadFactory(
+                        new ContextClassLoaderThreadFactory(JobManager.class.getClassLoader()))
+                .build();
+        ThreadPoolExecutor exec = new FairThreadPoolExecutor(name, size, keepAliveMs, TimeUnit.MILLISECONDS, queue, threadFactory);
+        exec.allowCoreThreadTimeOut(true);
+        return exec;
+    }
+
     /**
      * Subclasses FutureTask for the sole purpose of providing {@link #getCallable()}, which is used to extract the producer in the {@link JobBasedRoundRobinQueue}
      */
@@ -124,6 +183,10 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         private final Object jobId;
         @Nullable
         private final TaskExecutionMetricsHolder taskMetric;
+        @Nullable
+        private final Object tenantId;
+        private final JobClass jobClass;
+        private final int maxParallelism;
         
         public JobFutureTask(Runnable r, T t) {
             super(r, t);
@@ -134,6 +197,15 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
             	this.jobId = this;
             	this.taskMetric = null;
             }
+            if (r instanceof SchedulableJob) {
+                this.tenantId = ((SchedulableJob)r).getTenantId();
+                this.jobClass = ((SchedulableJob)r).getJobClass();
+                this.maxParallelism = ((SchedulableJob)r).getMaxParallelism();
+            } else {
+                this.tenantId = null;
+                this.jobClass = JobClass.NORMAL;
+                this.maxParallelism = 0;
+            }
         }
         
         public JobFutureTask(Callable<T> c) {
@@ -146,11 +218,32 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
                 this.jobId = this;
                 this.taskMetric = null;
             }
+            if (c instanceof SchedulableJob) {
+                this.tenantId = ((SchedulableJob)c).getTenantId();
+                this.jobClass = ((SchedulableJob)c).getJobClass();
+                this.maxParallelism = ((SchedulableJob)c).getMaxParallelism();
+            } else {
+                this.tenantId = null;
+                this.jobClass = JobClass.NORMAL;
+                this.maxParallelism = 0;
+            }
         }
         
         public Object getJobId() {
             return jobId;
         }
+
+        public Object getTenantId() {
+            return tenantId;
+        }
+
+        public JobClass getJobClass() {
+            return jobClass;
+        }
+
+        public int getMaxParallelism() {
+            return maxParallelism;
+        }
     }
     
     /**
@@ -253,28 +346,52 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
 
         @Override
         public void execute(Runnable task) {
+            countTask(task);
+            super.execute(task);
+        }
+
+        protected static void countTask(Runnable task) {
             TaskExecutionMetricsHolder metrics = getRequestMetric(task);
             if (metrics != null) {
                 metrics.getNumTasks().increment();
             }
             GLOBAL_TASK_EXECUTED_COUNTER.increment();
-            super.execute(task);
         }
 
         @Override
         protected void beforeExecute(Thread worker, Runnable task) {
+            if (!(task instanceof InstrumentedJobFutureTask)) {
+                // Not submitted through submit(), so there is nothing to measure
+                super.beforeExecute(worker, task);
+                return;
+            }
             InstrumentedJobFutureTask instrumentedTask = (InstrumentedJobFutureTask)task;
             long queueWaitTime = System.currentTimeMillis() - instrumentedTask.getTaskSubmissionTime();
+            boolean isLowLatency = instrumentedTask.getJobClass() == JobClass.LOW_LATENCY;
             GLOBAL_TASK_QUEUE_WAIT_TIME.update(queueWaitTime);
+            if (isLowLatency) {
+                GLOBAL_TASK_LOW_LATENCY_QUEUE_WAIT_TIME.update(queueWaitTime);
+            } else {
+                GLOBAL_TASK_NORMAL_QUEUE_WAIT_TIME.update(queueWaitTime);
+            }
             TaskExecutionMetricsHolder metrics = getRequestMetric(task);
             if (metrics != null) {
                 metrics.getTaskQueueWaitTime().change(queueWaitTime);
+                if (isLowLatency) {
+                    metrics.getLowLatencyTaskQueueWaitTime().change(queueWaitTime);
+                } else {
+                    metrics.getNormalTaskQueueWaitTime().change(queueWaitTime);
+                }
             }
             super.beforeExecute(worker, instrumentedTask);
         }
 
         @Override
         protected void afterExecute(Runnable task, Throwable t) {
+            if (!(task instanceof InstrumentedJobFutureTask)) {
+                super.afterExecute(task, t);
+                return;
+            }
             InstrumentedJobFutureTask instrumentedTask = (InstrumentedJobFutureTask)task;
             try {
                 super.afterExecute(instrumentedTask, t);
@@ -292,8 +409,78 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         }
 
         private static TaskExecutionMetricsHolder getRequestMetric(Runnable task) {
-            return ((JobFutureTask)task).taskMetric;
+            return task instanceof JobFutureTask ? ((JobFutureTask)task).taskMetric : null;
         }
     }
-}
 
+    /**
+     * Instrumented thread pool executor that queues every task in a {@link FairJobQueue}.
+     * Unlike {@link ThreadPoolExecutor#execute(Runnable)}, tasks are not handed directly to
+     * new threads while the pool has less than its core number of threads, since the queue
+     * must decide which task runs next.
+     */
+    private static class FairThreadPoolExecutor extends InstrumentedThreadPoolExecutor {
+        private final FairJobQueue queue;
+
+        public FairThreadPoolExecutor(String threadPoolName, int size, long keepAliveTime, TimeUnit unit,
+                FairJobQueue workQueue, ThreadFactory threadFactory) {
+            super(threadPoolName, size, size, keepAliveTime, unit, workQueue, threadFactory);
+            this.queue = workQueue;
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
+            return new InstrumentedJobFutureTask<T>(call);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new InstrumentedJobFutureTask<T>(runnable, value);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (task == null) {
+                throw new NullPointerException();
+            }
+            countTask(task);
+            if (isShutdown() || !queue.offer(task)) {
+                getRejectedExecutionHandler().rejectedExecution(task, this);
+                return;
+            }
+            if (isShutdown() && queue.remove(task)) {
+                getRejectedExecutionHandler().rejectedExecution(task, this);
+                return;
+            }
+            // Starts a thread taking tasks from the queue unless all threads are started
+            prestartCoreThread();
+        }
+
+        /**
+         * The pool skips {@link #afterExecute(Runnable, Throwable)} when this throws, so the
+         * completion of the task is accounted for here in that case, or the slot of its job
+         * would never be released.
+         */
+        @Override
+        protected void beforeExecute(Thread worker, Runnable task) {
+            boolean success = false;
+            try {
+                super.beforeExecute(worker, task);
+                success = true;
+            } finally {
+                if (!success) {
+                    queue.taskCompleted(task);
+                }
+            }
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable t) {
+            try {
+                super.afterExecute(task, t);
+            } finally {
+                queue.taskCompleted(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.jcip.annotations.Immutable;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.cache.HashCache;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.join.HashCacheFactory.HashCacheHeader;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ResultUtil;
+import org.apache.phoenix.util.ServerUtil;
+import org.apache.phoenix.util.SizedUtil;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+import org.apache.phoenix.util.TupleUtil;
+
+/**
+ * {@link HashCache} that keeps the uncompressed cache bytes in the single array they were
+ * decompressed into and indexes them with a flat, open-addressing table of primitive arrays.
+ * Rows are not deserialized up front: a probe hit wraps the matching row bytes in a
+ * {@link ResultTuple} whose cells point directly into the cache buffer. Compared to a
+ * {@code HashMap<ImmutableBytesPtr,List<Tuple>>}, this avoids a handful of objects per row, so
+ * the {@link MemoryChunk} is sized to the actual footprint instead of an estimate.
+ */
+@Immutable
+class CompactHashCache implements HashCache {
+    private static final int EMPTY = -1;
+    // Number of int arrays sized by the row count
+    private static final int INT_ARRAYS_PER_ROW = 8;
+
+    private final byte[] buffer;
+    private final MemoryChunk memoryChunk;
+    private final boolean singleValueOnly;
+    private final int clientVersion;
+    private final int nRows;
+    // Location of each serialized row in buffer
+    private final int[] rowOffsets;
+    private final int[] rowLengths;
+    // Index of the next row with the same key, or EMPTY
+    private final int[] nextRows;
+    // Concatenated distinct join keys along with per key location, hash and row chain
+    private final byte[] keys;
+    private final int[] keyOffsets;
+    private final int[] keyLengths;
+    private final int[] keyHashes;
+    private final int[] firstRows;
+    private final int[] rowCounts;
+    private final int nKeys;
+    // Open-addressing table of key index by key hash, EMPTY for unused slots
+    private final int[] slots;
+    private final int mask;
+
+    CompactHashCache(byte[] hashCacheBytes, MemoryChunk memoryChunk, int clientVersion) {
+        try {
+            this.buffer = hashCacheBytes;
+            this.memoryChunk = memoryChunk;
+            this.clientVersion = clientVersion;
+            HashCacheHeader header = new HashCacheHeader(hashCacheBytes);
+            List<Expression> onExpressions = header.onExpressions;
+            this.singleValueOnly = header.singleValueOnly;
+            int nRows = this.nRows = header.nRows;
+            int capacity = getCapacity(nRows);
+            this.mask = capacity - 1;
+            // Account for everything but the keys before allocating, so we fail fast if the
+            // cache would not fit.
+            this.memoryChunk.resize(getSize(hashCacheBytes.length, nRows, capacity, 0));
+            this.rowOffsets = new int[nRows];
+            this.rowLengths = new int[nRows];
+            this.nextRows = new int[nRows];
+            this.keyOffsets = new int[nRows];
+            this.keyLengths = new int[nRows];
+            this.keyHashes = new int[nRows];
+            this.firstRows = new int[nRows];
+            this.rowCounts = new int[nRows];
+            this.slots = new int[capacity];
+            Arrays.fill(slots, EMPTY);
+            Arrays.fill(nextRows, EMPTY);
+            // Only needed while chaining rows in their original order
+            int[] lastRows = new int[nRows];
+            TrustedByteArrayOutputStream keyOut = new TrustedByteArrayOutputStream(Math.max(nRows, 1));
+            int nKeys = 0;
+            int offset = header.rowsOffset;
+            for (int i = 0; i < nRows; i++) {
+                int resultSize = (int)Bytes.readVLong(hashCacheBytes, offset);
+                offset += WritableUtils.decodeVIntSize(hashCacheBytes[offset]);
+                rowOffsets[i] = offset;
+                rowLengths[i] = resultSize;
+                Tuple result = newTuple(i);
+                ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(result, onExpressions);
+                int hash = key.hashCode();
+                int slot = findSlot(keyOut.getBuffer(), key.get(), key.getOffset(), key.getLength(), hash);
+                int keyIndex = slots[slot];
+                if (keyIndex == EMPTY) {
+                    keyIndex = nKeys++;
+                    keyOffsets[keyIndex] = keyOut.size();
+                    keyLengths[keyIndex] = key.getLength();
+                    keyHashes[keyIndex] = hash;
+                    keyOut.write(key.get(), key.getOffset(), key.getLength());
+                    firstRows[keyIndex] = i;
+                    slots[slot] = keyIndex;
+                } else {
+                    nextRows[lastRows[keyIndex]] = i;
+                }
+                lastRows[keyIndex] = i;
+                rowCounts[keyIndex]++;
+                offset += resultSize;
+            }
+            this.nKeys = nKeys;
+            this.keys = keyOut.getBuffer();
+            this.memoryChunk.resize(getSize(hashCacheBytes.length, nRows, capacity, keys.length));
+        } catch (IOException e) { // Not possible with ByteArrayInputStream
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Size of the slot table: the next power of two that keeps the load factor at or below 0.5.
+     */
+    private static int getCapacity(int nRows) {
+        return Integer.highestOneBit(Math.max(2, nRows * 2 - 1)) << 1;
+    }
+
+    private static long getSize(int bufferLength, int nRows, int capacity, int keysLength) {
+        return bufferLength + keysLength
+                + (long)SizedUtil.INT_SIZE * (INT_ARRAYS_PER_ROW * (long)nRows + capacity)
+                + (INT_ARRAYS_PER_ROW + 3) * SizedUtil.ARRAY_SIZE;
+    }
+
+    /**
+     * Returns the slot holding the given key or, if absent, the empty slot where it belongs.
+     */
+    private int findSlot(byte[] keyBuffer, byte[] b, int o, int l, int hash) {
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (true) {
+            int keyIndex = slots[slot];
+            if (keyIndex == EMPTY
+                    || (keyHashes[keyIndex] == hash
+                        && Bytes.equals(keyBuffer, keyOffsets[keyIndex], keyLengths[keyIndex], b, o, l))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private Tuple newTuple(int row) {
+        return new ResultTuple(ResultUtil.toResult(new ImmutableBytesWritable(buffer, rowOffsets[row], rowLengths[row])));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nKeys; i++) {
+            List<Tuple> tuples = new ArrayList<Tuple>(rowCounts[i]);
+            for (int row = firstRows[i]; row != EMPTY; row = nextRows[row]) {
+                tuples.add(newTuple(row));
+            }
+            sb.append("key: " + Bytes.toStringBinary(keys, keyOffsets[i], keyLengths[i]) + " value: " + tuples);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        memoryChunk.close();
+    }
+
+    @Override
+    public List<Tuple> get(ImmutableBytesPtr hashKey) throws IOException {
+        int keyIndex = slots[findSlot(keys, hashKey.get(), hashKey.getOffset(), hashKey.getLength(), hashKey.hashCode())];
+        if (keyIndex == EMPTY) {
+            return null;
+        }
+        if (singleValueOnly && rowCounts[keyIndex] > 1) {
+            SQLException ex = new SQLExceptionInfo.Builder(SQLExceptionCode.SINGLE_ROW_SUBQUERY_RETURNS_MULTIPLE_ROWS).build().buildException();
+            ServerUtil.throwIOException(ex.getMessage(), ex);
+        }
+        List<Tuple> tuples = new ArrayList<Tuple>(rowCounts[keyIndex]);
+        for (int row = firstRows[keyIndex]; row != EMPTY; row = nextRows[row]) {
+            tuples.add(newTuple(row));
+        }
+        return tuples;
+    }
+
+    @Override
+    public int getClientVersion() {
+        return clientVersion;
+    }
+
+    int getRowCount() {
+        return nRows;
+    }
+
+    int getKeyCount() {
+        return nKeys;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import org.apache.phoenix.cache.HashCache;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+
+/**
+ * {@link HashCacheFactory} that builds a {@link CompactHashCache} on the region server instead
+ * of a map of deserialized rows. The wire format is identical to the one produced for
+ * {@link HashCacheFactory}, so the client only has to send a different factory class name.
+ */
+public class CompactHashCacheFactory extends HashCacheFactory {
+
+    public CompactHashCacheFactory() {
+    }
+
+    @Override
+    protected HashCache newHashCache(byte[] uncompressed, MemoryChunk chunk, int clientVersion) {
+        return new CompactHashCache(uncompressed, chunk, clientVersion);
+    }
+}
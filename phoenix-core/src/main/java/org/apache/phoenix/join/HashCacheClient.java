@@ -94,13 +94,13 @@ public class HashCacheClient  {
     public ServerCache addHashCache(
             ScanRanges keyRanges, byte[] cacheId, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions,
             boolean singleValueOnly, boolean usePersistentCache, PTable cacheUsingTable, Expression keyRangeRhsExpression,
-            List<Expression> keyRangeRhsValues) throws SQLException {
+            List<Expression> keyRangeRhsValues, JoinKeyBloomFilter.Builder bloomFilterBuilder) throws SQLException {
         /**
          * Serialize and compress hashCacheTable
          */
         ImmutableBytesWritable ptr = new ImmutableBytesWritable();
-        serialize(ptr, iterator, estimatedSize, onExpressions, singleValueOnly, keyRangeRhsExpression, keyRangeRhsValues);
-        ServerCache cache = serverCache.addServerCache(keyRanges, cacheId, ptr, ByteUtil.EMPTY_BYTE_ARRAY, new HashCacheFactory(), cacheUsingTable, usePersistentCache, true);
+        serialize(ptr, iterator, estimatedSize, onExpressions, singleValueOnly, keyRangeRhsExpression, keyRangeRhsValues, bloomFilterBuilder);
+        ServerCache cache = serverCache.addServerCache(keyRanges, cacheId, ptr, ByteUtil.EMPTY_BYTE_ARRAY, newHashCacheFactory(), cacheUsingTable, usePersistentCache, true);
         return cache;
     }
     
@@ -115,10 +115,17 @@ public class HashCacheClient  {
      */
     public boolean addHashCacheToServer(byte[] startkeyOfRegion, ServerCache cache, PTable pTable) throws Exception{
         if (cache == null) { return false; }
-        return serverCache.addServerCache(startkeyOfRegion, cache, new HashCacheFactory(), ByteUtil.EMPTY_BYTE_ARRAY, pTable);
+        return serverCache.addServerCache(startkeyOfRegion, cache, newHashCacheFactory(), ByteUtil.EMPTY_BYTE_ARRAY, pTable);
     }
     
-    private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions, boolean singleValueOnly, Expression keyRangeRhsExpression, List<Expression> keyRangeRhsValues) throws SQLException {
+    private HashCacheFactory newHashCacheFactory() {
+        boolean compact = serverCache.getConnection().getQueryServices().getProps().getBoolean(
+                QueryServices.COMPACT_HASH_CACHE_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_COMPACT_HASH_CACHE_ENABLED);
+        return compact ? new CompactHashCacheFactory() : new HashCacheFactory();
+    }
+
+    private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions, boolean singleValueOnly, Expression keyRangeRhsExpression, List<Expression> keyRangeRhsValues, JoinKeyBloomFilter.Builder bloomFilterBuilder) throws SQLException {
         long maxSize = serverCache.getConnection().getQueryServices().getProps().getLong(QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_SIZE);
         estimatedSize = Math.min(estimatedSize, maxSize);
         if (estimatedSize > Integer.MAX_VALUE) {
@@ -147,6 +154,10 @@ public class HashCacheClient  {
                 if (keyRangeRhsExpression != null) {
                     keyRangeRhsValues.add(evaluateKeyExpression(keyRangeRhsExpression, result, tempPtr));
                 }
+                // Collect hash keys for the probe side bloom filter.
+                if (bloomFilterBuilder != null) {
+                    bloomFilterBuilder.add(TupleUtil.getConcatenatedValue(result, onExpressions));
+                }
                 nRows++;
             }
             TrustedByteArrayOutputStream sizeOut = new TrustedByteArrayOutputStream(Bytes.SIZEOF_INT);
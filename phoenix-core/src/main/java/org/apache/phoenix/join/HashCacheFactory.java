@@ -75,12 +75,55 @@ public class HashCacheFactory implements ServerCacheFactory {
             byte[] uncompressed = new byte[uncompressedLen];
             Snappy.uncompress(cachePtr.get(), cachePtr.getOffset(), cachePtr.getLength(),
                 uncompressed, 0);
-            return new HashCacheImpl(uncompressed, chunk, clientVersion);
+            return newHashCache(uncompressed, chunk, clientVersion);
         } catch (CorruptionException e) {
             throw ServerUtil.parseServerException(e);
         }
     }
 
+    /**
+     * Build the server-side {@link HashCache} over the uncompressed cache bytes.
+     * Subclasses may override to provide an alternate in-memory representation.
+     */
+    protected HashCache newHashCache(byte[] uncompressed, MemoryChunk chunk, int clientVersion) {
+        return new HashCacheImpl(uncompressed, chunk, clientVersion);
+    }
+
+    /**
+     * Reads the header written by {@link HashCacheClient} that precedes the serialized rows:
+     * the join key expressions, whether only a single value per key is allowed, and the row count.
+     */
+    static class HashCacheHeader {
+        final List<Expression> onExpressions;
+        final boolean singleValueOnly;
+        final int nRows;
+        // Offset of the first serialized row
+        final int rowsOffset;
+
+        HashCacheHeader(byte[] hashCacheBytes) throws IOException {
+            ByteArrayInputStream input = new ByteArrayInputStream(hashCacheBytes, 0, hashCacheBytes.length);
+            DataInputStream dataInput = new DataInputStream(input);
+            int nExprs = dataInput.readInt();
+            List<Expression> onExpressions = new ArrayList<Expression>(nExprs);
+            for (int i = 0; i < nExprs; i++) {
+                int expressionOrdinal = WritableUtils.readVInt(dataInput);
+                Expression expression = ExpressionType.values()[expressionOrdinal].newInstance();
+                expression.readFields(dataInput);
+                onExpressions.add(expression);
+            }
+            this.onExpressions = onExpressions;
+            int exprSize = dataInput.readInt();
+            boolean singleValueOnly = false;
+            if (exprSize < 0) {
+                exprSize *= -1;
+                singleValueOnly = true;
+            }
+            this.singleValueOnly = singleValueOnly;
+            this.nRows = dataInput.readInt();
+            this.rowsOffset = exprSize + Bytes.SIZEOF_INT;
+        }
+    }
+
     @Immutable
     private class HashCacheImpl implements HashCache {
         private final Map<ImmutableBytesPtr,List<Tuple>> hashCache;
@@ -93,31 +136,14 @@ public class HashCacheFactory implements ServerCacheFactory {
                 this.memoryChunk = memoryChunk;
                 this.clientVersion = clientVersion;
                 byte[] hashCacheByteArray = hashCacheBytes;
-                int offset = 0;
-                ByteArrayInputStream input = new ByteArrayInputStream(hashCacheByteArray, offset, hashCacheBytes.length);
-                DataInputStream dataInput = new DataInputStream(input);
-                int nExprs = dataInput.readInt();
-                List<Expression> onExpressions = new ArrayList<Expression>(nExprs);
-                for (int i = 0; i < nExprs; i++) {
-                    int expressionOrdinal = WritableUtils.readVInt(dataInput);
-                    Expression expression = ExpressionType.values()[expressionOrdinal].newInstance();
-                    expression.readFields(dataInput);
-                    onExpressions.add(expression);                        
-                }
-                boolean singleValueOnly = false;
-                int exprSizeAndSingleValueOnly = dataInput.readInt();
-                int exprSize = exprSizeAndSingleValueOnly;
-                if (exprSize < 0) {
-                    exprSize *= -1;
-                    singleValueOnly = true;
-                }
-                this.singleValueOnly = singleValueOnly;
-                offset += exprSize;
-                int nRows = dataInput.readInt();
+                HashCacheHeader header = new HashCacheHeader(hashCacheBytes);
+                List<Expression> onExpressions = header.onExpressions;
+                this.singleValueOnly = header.singleValueOnly;
+                int nRows = header.nRows;
+                int offset = header.rowsOffset;
                 long estimatedSize = SizedUtil.sizeOfMap(nRows, SizedUtil.IMMUTABLE_BYTES_WRITABLE_SIZE, SizedUtil.RESULT_SIZE) + hashCacheBytes.length;
                 this.memoryChunk.resize(estimatedSize);
                 HashMap<ImmutableBytesPtr,List<Tuple>> hashCacheMap = new HashMap<ImmutableBytesPtr,List<Tuple>>(nRows * 5 / 4);
-                offset += Bytes.SIZEOF_INT;
                 // Build Map with evaluated hash key as key and row as value
                 for (int i = 0; i < nRows; i++) {
                     int resultSize = (int)Bytes.readVLong(hashCacheByteArray, offset);
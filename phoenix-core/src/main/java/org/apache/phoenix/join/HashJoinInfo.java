@@ -51,6 +51,10 @@ public class HashJoinInfo {
     private Expression postJoinFilterExpression;
     private Integer limit;
     private boolean forceProjection; // always true now, but for backward compatibility.
+    // Used by partitioned hash joins, where the server only probes LHS rows whose join
+    // key falls into the hash partition the current cache was built from.
+    private int partitionIndex;
+    private int partitionCount = 1;
     
     public HashJoinInfo(PTable joinedTable, ImmutableBytesPtr[] joinIds, List<Expression>[] joinExpressions, JoinType[] joinTypes, boolean[] earlyEvaluation, PTable[] tables, int[] fieldPositions, Expression postJoinFilterExpression, Integer limit) {
     	this(buildSchema(joinedTable), joinIds, joinExpressions, joinTypes, earlyEvaluation, buildSchemas(tables), fieldPositions, postJoinFilterExpression, limit, true);
@@ -128,8 +132,41 @@ public class HashJoinInfo {
     public boolean forceProjection() {
         return forceProjection;
     }
+
+    public int getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public void setPartition(int partitionIndex, int partitionCount) {
+        this.partitionIndex = partitionIndex;
+        this.partitionCount = partitionCount;
+    }
+
+    public boolean isPartitioned() {
+        return partitionCount > 1;
+    }
+
+    /**
+     * Returns the hash partition of a join key. Must be evaluated identically on the client,
+     * when splitting the build side, and on the server, when filtering the probe side.
+     */
+    public static int getPartition(ImmutableBytesPtr joinKey, int partitionCount) {
+        return (joinKey.hashCode() & Integer.MAX_VALUE) % partitionCount;
+    }
  
     public static void serializeHashJoinIntoScan(Scan scan, HashJoinInfo joinInfo) {
+        serializeHashJoinIntoScan(scan, joinInfo, joinInfo.partitionIndex, joinInfo.partitionCount);
+    }
+
+    /**
+     * Serializes the join info for one pass of a partitioned hash join, without changing the
+     * partition of the join info itself so that later scans of the same plan are not partitioned.
+     */
+    public static void serializeHashJoinIntoScan(Scan scan, HashJoinInfo joinInfo, int partitionIndex, int partitionCount) {
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         try {
             DataOutputStream output = new DataOutputStream(stream);
@@ -156,6 +193,8 @@ public class HashJoinInfo {
             }
             WritableUtils.writeVInt(output, joinInfo.limit == null ? -1 : joinInfo.limit);
             output.writeBoolean(joinInfo.forceProjection);
+            WritableUtils.writeVInt(output, partitionCount);
+            WritableUtils.writeVInt(output, partitionIndex);
             scan.setAttribute(HASH_JOIN, stream.toByteArray());
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -169,6 +208,10 @@ public class HashJoinInfo {
 
     }
 
+    public static boolean isHashJoin(Scan scan) {
+        return scan.getAttribute(HASH_JOIN) != null;
+    }
+
     @SuppressWarnings("unchecked")
     public static HashJoinInfo deserializeHashJoinFromScan(Scan scan) {
         byte[] join = scan.getAttribute(HASH_JOIN);
@@ -222,7 +265,17 @@ public class HashJoinInfo {
                 forceProjection = input.readBoolean();
             } catch (EOFException ignore) {
             }
-            return new HashJoinInfo(joinedSchema, joinIds, joinExpressions, joinTypes, earlyEvaluation, schemas, fieldPositions, postJoinFilterExpression, limit >= 0 ? limit : null,  forceProjection);
+            int partitionCount = 1;
+            int partitionIndex = 0;
+            // Not present from clients that predate partitioned hash joins
+            try {
+                partitionCount = WritableUtils.readVInt(input);
+                partitionIndex = WritableUtils.readVInt(input);
+            } catch (EOFException ignore) {
+            }
+            HashJoinInfo joinInfo = new HashJoinInfo(joinedSchema, joinIds, joinExpressions, joinTypes, earlyEvaluation, schemas, fieldPositions, postJoinFilterExpression, limit >= 0 ? limit : null,  forceProjection);
+            joinInfo.setPartition(partitionIndex, partitionCount);
+            return joinInfo;
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Bloom filter over the join keys of the build side of a hash join. It is built on the client
+ * while the hash cache is serialized and evaluated on the region servers against the join keys
+ * of the probe side scan, so that rows that cannot match are dropped by the scan filter.
+ * The serialized form is the number of hash functions followed by the bit set as longs.
+ */
+public class JoinKeyBloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int numHashFunctions;
+
+    private JoinKeyBloomFilter(long[] bits, int numHashFunctions) {
+        this.bits = bits;
+        this.bitCount = (long)bits.length * Long.SIZE;
+        this.numHashFunctions = numHashFunctions;
+    }
+
+    public static JoinKeyBloomFilter fromBytes(byte[] b, int offset, int length) {
+        int numHashFunctions = Bytes.toInt(b, offset);
+        long[] bits = new long[(length - Bytes.SIZEOF_INT) / Bytes.SIZEOF_LONG];
+        for (int i = 0, pos = offset + Bytes.SIZEOF_INT; i < bits.length; i++, pos += Bytes.SIZEOF_LONG) {
+            bits[i] = Bytes.toLong(b, pos);
+        }
+        return new JoinKeyBloomFilter(bits, numHashFunctions);
+    }
+
+    public byte[] toBytes() {
+        byte[] b = new byte[Bytes.SIZEOF_INT + bits.length * Bytes.SIZEOF_LONG];
+        int pos = Bytes.putInt(b, 0, numHashFunctions);
+        for (long word : bits) {
+            pos = Bytes.putLong(b, pos, word);
+        }
+        return b;
+    }
+
+    public boolean mightContain(ImmutableBytesWritable key) {
+        return mightContain(hash(key.get(), key.getOffset(), key.getLength()));
+    }
+
+    private boolean mightContain(long hash) {
+        int hash1 = (int)hash;
+        int hash2 = (int)(hash >>> 32);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            long bit = getBit(hash1, hash2, i);
+            if ((bits[(int)(bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(long hash) {
+        int hash1 = (int)hash;
+        int hash2 = (int)(hash >>> 32);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            long bit = getBit(hash1, hash2, i);
+            bits[(int)(bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private long getBit(int hash1, int hash2, int i) {
+        int combinedHash = hash1 + i * hash2;
+        if (combinedHash < 0) {
+            combinedHash = ~combinedHash;
+        }
+        return combinedHash % bitCount;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key with a final avalanche step. Must stay stable across
+     * versions since client and server evaluate it independently.
+     */
+    static long hash(byte[] b, int offset, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            h ^= b[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Collects the hashes of the join keys as the build side is iterated, since the number of
+     * keys, and hence the size of the filter, is only known at the end.
+     */
+    public static class Builder {
+        private final int bitsPerKey;
+        private final long maxBytes;
+        private long[] hashes = new long[64];
+        private int size;
+
+        public Builder(int bitsPerKey, long maxBytes) {
+            this.bitsPerKey = bitsPerKey;
+            this.maxBytes = maxBytes;
+        }
+
+        public void add(ImmutableBytesWritable key) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            hashes[size++] = hash(key.get(), key.getOffset(), key.getLength());
+        }
+
+        /**
+         * @return the bloom filter or null if one sized for the number of keys would
+         * exceed the maximum size, in which case it would filter too little to be worth sending.
+         */
+        public JoinKeyBloomFilter build() {
+            long nBits = Math.max(Long.SIZE, (long)size * bitsPerKey);
+            int nWords = (int)Math.min(Integer.MAX_VALUE, (nBits + Long.SIZE - 1) / Long.SIZE);
+            if ((long)nWords * Bytes.SIZEOF_LONG > maxBytes) {
+                return null;
+            }
+            int numHashFunctions = Math.max(1, (int)Math.round(bitsPerKey * Math.log(2)));
+            JoinKeyBloomFilter filter = new JoinKeyBloomFilter(new long[nWords], numHashFunctions);
+            for (int i = 0; i < size; i++) {
+                filter.put(hashes[i]);
+            }
+            return filter;
+        }
+    }
+}
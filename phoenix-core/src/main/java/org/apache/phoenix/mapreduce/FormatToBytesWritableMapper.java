@@ -54,6 +54,7 @@ import org.apache.phoenix.util.EncodedColumnsUtil;
 import org.apache.phoenix.util.PhoenixRuntime;
 import org.apache.phoenix.util.QueryUtil;
 import org.apache.phoenix.util.SchemaUtil;
+import org.apache.phoenix.util.TableRowEncoder;
 import org.apache.phoenix.util.UpsertExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,6 +96,12 @@ public abstract class FormatToBytesWritableMapper<RECORD> extends Mapper<LongWri
     /** Configuration key for the table logical names */
     public static final String LOGICAL_NAMES_CONFKEY = "phoenix.mapreduce.import.logicalnames";
 
+    /**
+     * Configuration key for the flag to encode records directly into cells instead of executing
+     * an UPSERT statement per record. Tables that need the UPSERT compilation always use it.
+     */
+    public static final String DIRECT_ENCODING_CONFKEY = "phoenix.mapreduce.import.directencoding";
+
     /**
      * Parses a single input line, returning a {@code T}.
      */
@@ -104,6 +111,7 @@ public abstract class FormatToBytesWritableMapper<RECORD> extends Mapper<LongWri
 
     protected PhoenixConnection conn;
     protected UpsertExecutor<RECORD, ?> upsertExecutor;
+    protected TableRowEncoder rowEncoder;
     protected ImportPreUpsertKeyValueProcessor preUpdateProcessor;
     protected List<String> tableNames;
     protected List<String> logicalNames;
@@ -147,6 +155,15 @@ public abstract class FormatToBytesWritableMapper<RECORD> extends Mapper<LongWri
         upsertListener = new MapperUpsertListener<RECORD>(
                 context, conf.getBoolean(IGNORE_INVALID_ROW_CONFKEY, true));
         upsertExecutor = buildUpsertExecutor(conf);
+        if (conf.getBoolean(DIRECT_ENCODING_CONFKEY, false)) {
+            try {
+                rowEncoder = TableRowEncoder.newEncoder(conn, conf.get(TABLE_NAME_CONFKEY),
+                        buildColumnInfoList(conf));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            upsertExecutor.setRowEncoder(rowEncoder);
+        }
         preUpdateProcessor = PhoenixConfigurationUtil.loadPreUpsertProcessor(conf);
     }
 
@@ -171,8 +188,9 @@ public abstract class FormatToBytesWritableMapper<RECORD> extends Mapper<LongWri
             }
             upsertExecutor.execute(ImmutableList.<RECORD>of(record));
             Map<Integer, List<Cell>> map = new HashMap<>();
-            Iterator<Pair<byte[], List<Cell>>> uncommittedDataIterator
-                    = PhoenixRuntime.getUncommittedDataIterator(conn, true);
+            Iterator<Pair<byte[], List<Cell>>> uncommittedDataIterator = rowEncoder != null
+                    ? rowEncoder.getEncodedCells()
+                    : PhoenixRuntime.getUncommittedDataIterator(conn, true);
             while (uncommittedDataIterator.hasNext()) {
                 Pair<byte[], List<Cell>> kvPair = uncommittedDataIterator.next();
                 List<Cell> keyValueList = kvPair.getSecond();
@@ -198,7 +216,11 @@ public abstract class FormatToBytesWritableMapper<RECORD> extends Mapper<LongWri
                 // All KV values combines to a single byte array
                 writeAggregatedRow(context, tableNames.get(tableIndex), lkv);
             }
-            conn.rollback();
+            if (rowEncoder != null) {
+                rowEncoder.clear();
+            } else {
+                conn.rollback();
+            }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -27,6 +27,8 @@ import static org.apache.phoenix.monitoring.MetricType.MUTATION_COMMIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.MUTATION_SQL_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.NUM_PARALLEL_SCANS;
 import static org.apache.phoenix.monitoring.MetricType.OPEN_PHOENIX_CONNECTIONS_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.PARSED_STATEMENT_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.PARSED_STATEMENT_CACHE_MISS_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_FAILED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_SERVICES_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_TIME;
@@ -38,6 +40,8 @@ import static org.apache.phoenix.monitoring.MetricType.SPOOL_FILE_SIZE;
 import static org.apache.phoenix.monitoring.MetricType.TASK_END_TO_END_TIME;
 import static org.apache.phoenix.monitoring.MetricType.TASK_EXECUTED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.TASK_EXECUTION_TIME;
+import static org.apache.phoenix.monitoring.MetricType.TASK_LOW_LATENCY_QUEUE_WAIT_TIME;
+import static org.apache.phoenix.monitoring.MetricType.TASK_NORMAL_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.TASK_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.PHOENIX_CONNECTIONS_THROTTLED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER;
@@ -87,6 +91,8 @@ public enum GlobalClientMetrics {
     GLOBAL_MEMORY_CHUNK_BYTES(MEMORY_CHUNK_BYTES),
     GLOBAL_MEMORY_WAIT_TIME(MEMORY_WAIT_TIME),
     GLOBAL_TASK_QUEUE_WAIT_TIME(TASK_QUEUE_WAIT_TIME),
+    GLOBAL_TASK_LOW_LATENCY_QUEUE_WAIT_TIME(TASK_LOW_LATENCY_QUEUE_WAIT_TIME),
+    GLOBAL_TASK_NORMAL_QUEUE_WAIT_TIME(TASK_NORMAL_QUEUE_WAIT_TIME),
     GLOBAL_TASK_END_TO_END_TIME(TASK_END_TO_END_TIME),
     GLOBAL_TASK_EXECUTION_TIME(TASK_EXECUTION_TIME),
     GLOBAL_MUTATION_SQL_COUNTER(MUTATION_SQL_COUNTER),
@@ -101,6 +107,8 @@ public enum GlobalClientMetrics {
     GLOBAL_HCONNECTIONS_COUNTER(HCONNECTIONS_COUNTER),
     GLOBAL_PHOENIX_CONNECTIONS_THROTTLED_COUNTER(PHOENIX_CONNECTIONS_THROTTLED_COUNTER),
     GLOBAL_PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER(PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER),
+    GLOBAL_PARSED_STATEMENT_CACHE_HIT_COUNTER(PARSED_STATEMENT_CACHE_HIT_COUNTER),
+    GLOBAL_PARSED_STATEMENT_CACHE_MISS_COUNTER(PARSED_STATEMENT_CACHE_MISS_COUNTER),
 
     GLOBAL_HBASE_COUNT_RPC_CALLS(COUNT_RPC_CALLS),
     GLOBAL_HBASE_COUNT_REMOTE_RPC_CALLS(COUNT_REMOTE_RPC_CALLS),
@@ -43,6 +43,8 @@ public enum MetricType {
     SELECT_SQL_COUNTER("sc", "Counter for number of sql queries",LogLevel.OFF, PLong.INSTANCE),
     // task metrics
     TASK_QUEUE_WAIT_TIME("tw", "Time in milliseconds tasks had to wait in the queue of the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
+    TASK_LOW_LATENCY_QUEUE_WAIT_TIME("tlw", "Time in milliseconds tasks of low latency queries had to wait in the queue of the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
+    TASK_NORMAL_QUEUE_WAIT_TIME("tnw", "Time in milliseconds tasks of queries other than low latency queries had to wait in the queue of the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
     TASK_END_TO_END_TIME("tee", "Time in milliseconds spent by tasks from creation to completion",LogLevel.DEBUG, PLong.INSTANCE),
     TASK_EXECUTION_TIME("tx", "Time in milliseconds tasks took to execute",LogLevel.DEBUG, PLong.INSTANCE),
     TASK_EXECUTED_COUNTER("te", "Counter for number of tasks submitted to the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
@@ -62,6 +64,8 @@ public enum MetricType {
     PHOENIX_CONNECTIONS_THROTTLED_COUNTER("ct", "Number of client Phoenix connections prevented from opening " +
                                               "because there are already too many to that target cluster.",LogLevel.OFF, PLong.INSTANCE),
     PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER("ca","Number of requests for Phoenix connections, whether successful or not.",LogLevel.OFF, PLong.INSTANCE),
+    PARSED_STATEMENT_CACHE_HIT_COUNTER("pch", "Number of statements whose parse tree was found in the parsed statement cache",LogLevel.OFF, PLong.INSTANCE),
+    PARSED_STATEMENT_CACHE_MISS_COUNTER("pcm", "Number of statements that were parsed because they were not in the parsed statement cache",LogLevel.OFF, PLong.INSTANCE),
     // hbase metrics
     COUNT_RPC_CALLS("rp", "Number of RPC calls",LogLevel.DEBUG, PLong.INSTANCE),
     COUNT_REMOTE_RPC_CALLS("rr", "Number of remote RPC calls",LogLevel.DEBUG, PLong.INSTANCE),
@@ -20,6 +20,8 @@ package org.apache.phoenix.monitoring;
 import static org.apache.phoenix.monitoring.MetricType.TASK_END_TO_END_TIME;
 import static org.apache.phoenix.monitoring.MetricType.TASK_EXECUTED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.TASK_EXECUTION_TIME;
+import static org.apache.phoenix.monitoring.MetricType.TASK_LOW_LATENCY_QUEUE_WAIT_TIME;
+import static org.apache.phoenix.monitoring.MetricType.TASK_NORMAL_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.TASK_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.TASK_REJECTED_COUNTER;
 
@@ -33,6 +35,8 @@ import org.apache.phoenix.log.LogLevel;
 public class TaskExecutionMetricsHolder {
 
     private final CombinableMetric taskQueueWaitTime;
+    private final CombinableMetric lowLatencyTaskQueueWaitTime;
+    private final CombinableMetric normalTaskQueueWaitTime;
     private final CombinableMetric taskEndToEndTime;
     private final CombinableMetric taskExecutionTime;
     private final CombinableMetric numTasks;
@@ -41,6 +45,8 @@ public class TaskExecutionMetricsHolder {
     
     public TaskExecutionMetricsHolder(ReadMetricQueue readMetrics, String tableName) {
         taskQueueWaitTime = readMetrics.allotMetric(TASK_QUEUE_WAIT_TIME, tableName);
+        lowLatencyTaskQueueWaitTime = readMetrics.allotMetric(TASK_LOW_LATENCY_QUEUE_WAIT_TIME, tableName);
+        normalTaskQueueWaitTime = readMetrics.allotMetric(TASK_NORMAL_QUEUE_WAIT_TIME, tableName);
         taskEndToEndTime = readMetrics.allotMetric(TASK_END_TO_END_TIME, tableName);
         taskExecutionTime = readMetrics.allotMetric(TASK_EXECUTION_TIME, tableName);
         numTasks = readMetrics.allotMetric(TASK_EXECUTED_COUNTER, tableName);
@@ -51,6 +57,14 @@ public class TaskExecutionMetricsHolder {
         return taskQueueWaitTime;
     }
 
+    public CombinableMetric getLowLatencyTaskQueueWaitTime() {
+        return lowLatencyTaskQueueWaitTime;
+    }
+
+    public CombinableMetric getNormalTaskQueueWaitTime() {
+        return normalTaskQueueWaitTime;
+    }
+
     public CombinableMetric getTaskEndToEndTime() {
         return taskEndToEndTime;
     }
@@ -117,6 +117,11 @@ public class HintNode {
          * Issue https://issues.apache.org/jira/browse/PHOENIX-4751.
          */
         HASH_AGGREGATE,
+        /**
+         * Hint of the form MAX_PARALLELISM(<n>) that limits the number of parallel scans
+         * of the query running at the same time, when fair scheduling is enabled.
+         */
+        MAX_PARALLELISM,
     };
 
     private final Map<Hint,String> hints;
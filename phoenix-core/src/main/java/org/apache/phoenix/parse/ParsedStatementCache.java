@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.parse;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PARSED_STATEMENT_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PARSED_STATEMENT_CACHE_MISS_COUNTER;
+
+import java.util.Map;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of parsed statements by their SQL text, so that executing the same SQL again,
+ * typically through a new prepared statement, doesn't parse it again. Parse trees don't depend
+ * on metadata, the tenant or bind values, so they can be shared across connections and don't
+ * need to be invalidated. Only SELECT, UPSERT and DELETE statements without user defined
+ * functions are cached, as those are the statements executed repeatedly.
+ */
+public class ParsedStatementCache {
+    private final Cache<String, BindableStatement> cache;
+
+    /**
+     * @param maxSize the max number of statements kept, 0 to disable the cache
+     */
+    public ParsedStatementCache(int maxSize) {
+        this.cache = maxSize <= 0 ? null : CacheBuilder.newBuilder().maximumSize(maxSize).<String, BindableStatement>build();
+    }
+
+    /**
+     * @return the parsed statement for the given SQL or null if it isn't cached
+     */
+    public BindableStatement get(String sql) {
+        if (cache == null) {
+            return null;
+        }
+        BindableStatement statement = cache.getIfPresent(sql);
+        if (statement == null) {
+            GLOBAL_PARSED_STATEMENT_CACHE_MISS_COUNTER.increment();
+        } else {
+            GLOBAL_PARSED_STATEMENT_CACHE_HIT_COUNTER.increment();
+        }
+        return statement;
+    }
+
+    /**
+     * Caches the parsed statement for the given SQL if it is a statement that is cached
+     */
+    public void put(String sql, BindableStatement statement) {
+        if (cache != null && isCacheable(statement)) {
+            cache.put(sql, statement);
+        }
+    }
+
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    private static boolean isCacheable(BindableStatement statement) {
+        Map<String, UDFParseNode> udfParseNodes;
+        if (statement instanceof SelectStatement) {
+            udfParseNodes = ((SelectStatement)statement).getUdfParseNodes();
+        } else if (statement instanceof DMLStatement) {
+            udfParseNodes = ((DMLStatement)statement).getUdfParseNodes();
+        } else {
+            return false;
+        }
+        return udfParseNodes == null || udfParseNodes.isEmpty();
+    }
+}
@@ -27,6 +27,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.AsyncTable;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.TableDescriptor;
@@ -73,6 +75,15 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
      */
     public Table getTable(byte[] tableName) throws SQLException;
 
+    /**
+     * Get a table for asynchronous scans by the given name. The underlying
+     * HBase AsyncConnection is created on first use and shared.
+     * @param tableName the name of the HTable
+     * @return the AsyncTable
+     * @throws SQLException 
+     */
+    public AsyncTable<AdvancedScanResultConsumer> getAsyncTable(byte[] tableName) throws SQLException;
+
     public TableDescriptor getTableDescriptor(byte[] tableName) throws SQLException;
 
     public HRegionLocation getTableRegionLocation(byte[] tableName, byte[] row) throws SQLException;
@@ -120,11 +120,15 @@ import org.apache.hadoop.hbase.NamespaceNotFoundException;
 import org.apache.hadoop.hbase.TableExistsException;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
 import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
 import org.apache.hadoop.hbase.client.ClusterConnection;
 import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
 import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Increment;
 import org.apache.hadoop.hbase.client.Mutation;
@@ -326,6 +330,9 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     private final boolean returnSequenceValues ;
 
     private Connection connection;
+    // Created on first use by getAsyncTable, writes guarded by "asyncConnectionLock"
+    private volatile AsyncConnection asyncConnection;
+    private final Object asyncConnectionLock = new Object();
     private ZKClientService txZKClientService;
     private volatile boolean initialized;
     private volatile int nSequenceSaltBuckets;
@@ -479,6 +486,30 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         }
     }
 
+    @Override
+    public AsyncTable<AdvancedScanResultConsumer> getAsyncTable(byte[] tableName) throws SQLException {
+        AsyncConnection asyncConnection = this.asyncConnection;
+        if (asyncConnection == null) {
+            synchronized (asyncConnectionLock) {
+                checkClosed();
+                asyncConnection = this.asyncConnection;
+                if (asyncConnection == null) {
+                    try {
+                        asyncConnection = ConnectionFactory.createAsyncConnection(config).get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                                .setRootCause(e).build().buildException();
+                    } catch (ExecutionException e) {
+                        throw ServerUtil.parseServerException(e.getCause());
+                    }
+                    this.asyncConnection = asyncConnection;
+                }
+            }
+        }
+        return asyncConnection.getTable(TableName.valueOf(tableName));
+    }
+
     @Override
     public TableDescriptor getTableDescriptor(byte[] tableName) throws SQLException {
         Table htable = getTable(tableName);
@@ -542,6 +573,12 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                     }
                     try {
                         // close the HBase connection
+                        synchronized (asyncConnectionLock) {
+                            if (asyncConnection != null) {
+                                asyncConnection.close();
+                                asyncConnection = null;
+                            }
+                        }
                         if (connection != null) connection.close();
                         GLOBAL_HCONNECTIONS_COUNTER.decrement();
                     } finally {
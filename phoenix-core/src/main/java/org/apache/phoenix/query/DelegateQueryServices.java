@@ -22,6 +22,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.phoenix.memory.MemoryManager;
 import org.apache.phoenix.optimize.QueryOptimizer;
+import org.apache.phoenix.parse.ParsedStatementCache;
 import org.apache.phoenix.util.ReadOnlyProps;
 
 
@@ -69,4 +70,9 @@ public class DelegateQueryServices implements QueryServices {
     public QueryOptimizer getOptimizer() {
         return parent.getOptimizer();
     }
+
+    @Override
+    public ParsedStatementCache getParsedStatementCache() {
+        return parent.getParsedStatementCache();
+    }
 }
@@ -345,6 +345,8 @@ public interface QueryConstants {
     
     public static final byte[] OFFSET_FAMILY = "f_offset".getBytes();
     public static final byte[] OFFSET_COLUMN = "c_offset".getBytes();
+    public static final byte[] PACKED_ROWS_FAMILY = "f_packed".getBytes();
+    public static final byte[] PACKED_ROWS_COLUMN = "c_packed".getBytes();
     public static final String LAST_SCAN = "LAST_SCAN";
     public static final byte[] UPGRADE_MUTEX = "UPGRADE_MUTEX".getBytes();
     public static final String HASH_JOIN_CACHE_RETRIES = "hashjoin.client.retries.number";
@@ -24,6 +24,7 @@ import net.jcip.annotations.Immutable;
 import org.apache.phoenix.iterate.SpoolTooBigToDiskException;
 import org.apache.phoenix.memory.MemoryManager;
 import org.apache.phoenix.optimize.QueryOptimizer;
+import org.apache.phoenix.parse.ParsedStatementCache;
 import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SQLCloseable;
 
@@ -57,6 +58,8 @@ public interface QueryServices extends SQLCloseable {
     public static final String HBASE_CLIENT_KEYTAB = "hbase.myclient.keytab";
     public static final String HBASE_CLIENT_PRINCIPAL = "hbase.myclient.principal";
     public static final String SPOOL_DIRECTORY = "phoenix.spool.directory";
+    // Whether spool and spill files are compressed and accessed through memory mappings
+    public static final String SPOOL_MMAP_ENABLED_ATTRIB = "phoenix.spool.mmap.enabled";
     public static final String AUTO_COMMIT_ATTRIB = "phoenix.connection.autoCommit";
     // consistency configuration setting
     public static final String CONSISTENCY_ATTRIB = "phoenix.connection.consistency";
@@ -354,6 +357,86 @@ public interface QueryServices extends SQLCloseable {
     public static final String LONG_VIEW_INDEX_ENABLED_ATTRIB = "phoenix.index.longViewIndex.enabled";
     // The number of index rows to be rebuild in one RPC call
     public static final String INDEX_REBUILD_PAGE_SIZE_IN_ROWS = "phoenix.index.rebuild_page_size_in_rows";
+    // Build hash join caches on the region server as a flat open-addressing index over the
+    // serialized rows instead of a map of deserialized tuples
+    public static final String COMPACT_HASH_CACHE_ENABLED_ATTRIB = "phoenix.query.compactHashCache.enabled";
+    // When the build side of a hash join exceeds the max server cache size, join it in
+    // hash partitions, one server cache and probe-side scan per partition
+    public static final String PARTITIONED_HASH_JOIN_ENABLED_ATTRIB = "phoenix.query.partitionedHashJoin.enabled";
+    public static final String PARTITIONED_HASH_JOIN_PARTITION_COUNT_ATTRIB = "phoenix.query.partitionedHashJoin.partitionCount";
+    // Filter the probe side scan of an inner or semi hash join by a bloom filter of the build
+    // side join keys, sized by bits per key and skipped if it would exceed the max bytes
+    public static final String HASH_JOIN_BLOOM_FILTER_ENABLED_ATTRIB = "phoenix.query.hashJoin.bloomFilter.enabled";
+    public static final String HASH_JOIN_BLOOM_FILTER_BITS_PER_KEY_ATTRIB = "phoenix.query.hashJoin.bloomFilter.bitsPerKey";
+    public static final String HASH_JOIN_BLOOM_FILTER_MAX_BYTES_ATTRIB = "phoenix.query.hashJoin.bloomFilter.maxBytes";
+    // Max number of physical tables, such as a data table and its indexes, written concurrently
+    // within each phase of a commit. 1 sends one table at a time.
+    public static final String MUTATE_MAX_IN_FLIGHT_TABLES_ATTRIB = "phoenix.mutate.maxInFlightTables";
+    // Max number of unverified global index rows repaired with a single rebuild request to the
+    // data table. 1 repairs each row on its own.
+    public static final String GLOBAL_INDEX_REPAIR_BATCH_SIZE_ATTRIB = "phoenix.global.index.repair.batch.size";
+    // Number of rows an ungrouped aggregate scan that only aggregates evaluates together, one
+    // aggregator at a time. 1 aggregates each row on its own.
+    public static final String UNGROUPED_AGGREGATE_BATCH_SIZE_ATTRIB = "phoenix.ungrouped.aggregate.batch.size";
+    // Aggregate unordered GROUP BY scans over fixed width keys of at most 8 bytes, with only
+    // COUNT and SUM aggregates, in a table of primitive arrays instead of the group by cache.
+    // Groups that no longer fit in memory are only spilled if phoenix.groupby.spillable is set.
+    public static final String GROUPBY_PRIMITIVE_CACHE_ENABLED_ATTRIB = "phoenix.groupby.primitiveCache.enabled";
+    // Max number of parsed SELECT, UPSERT and DELETE statements kept by SQL text so that
+    // executing the same SQL again skips parsing. 0 disables the cache.
+    public static final String PARSED_STATEMENT_CACHE_SIZE_ATTRIB = "phoenix.query.parsedStatementCache.size";
+    // Max bytes of results fetched ahead of the client per table scan through the HBase
+    // async client, so that the next batch is in flight while the previous one is
+    // processed. 0 disables read ahead and scans use the synchronous client.
+    public static final String SCAN_READ_AHEAD_MAX_BYTES_ATTRIB = "phoenix.query.scanReadAhead.maxBytes";
+    // A parallel scan still running after this many milliseconds, or after returning this
+    // many rows, is split at its current row and the rest of its key range is scanned as
+    // several pieces by idle threads. 0 disables the respective threshold.
+    public static final String PARALLEL_SCAN_RESPLIT_THRESHOLD_MS_ATTRIB = "phoenix.query.resplit.thresholdMs";
+    public static final String PARALLEL_SCAN_RESPLIT_THRESHOLD_ROWS_ATTRIB = "phoenix.query.resplit.thresholdRows";
+    // Number of pieces the rest of the key range of a split scan is divided into
+    public static final String PARALLEL_SCAN_RESPLIT_PIECES_ATTRIB = "phoenix.query.resplit.pieces";
+    // Schedule the tasks of the client thread pool by weighted fair queuing across tenants
+    // and queries instead of round robin across queries
+    public static final String FAIR_SCHEDULING_ENABLED_ATTRIB = "phoenix.query.fairScheduling.enabled";
+    // Number of threads of the client thread pool that only run the tasks of low latency
+    // queries when fair scheduling is enabled
+    public static final String LOW_LATENCY_RESERVED_THREADS_ATTRIB = "phoenix.query.lowLatency.reservedThreads";
+    // Share of the threads given to a low latency query relative to other queries
+    public static final String LOW_LATENCY_WEIGHT_ATTRIB = "phoenix.query.lowLatency.weight";
+    // Queries executing at most this many parallel scans are low latency queries
+    public static final String LOW_LATENCY_MAX_SCANS_ATTRIB = "phoenix.query.lowLatency.maxScans";
+    // Max number of parallel scans of a query running at the same time when fair scheduling
+    // is enabled, overridden by the MAX_PARALLELISM hint. 0 means no limit.
+    public static final String MAX_PARALLELISM_ATTRIB = "phoenix.query.maxParallelism";
+
+    // Max bytes of the region server cache of aggregate scan results. 0 disables the cache.
+    public static final String AGGREGATE_RESULT_CACHE_MAX_BYTES_ATTRIB = "phoenix.coprocessor.aggregateResultCache.maxBytes";
+    // Max bytes of the cached results of a single aggregate scan over a region
+    public static final String AGGREGATE_RESULT_CACHE_MAX_ENTRY_BYTES_ATTRIB = "phoenix.coprocessor.aggregateResultCache.maxEntryBytes";
+
+    // Number of region servers the client sends a server cache to, each of which relays it to
+    // the other region servers in a tree of the same fanout. 0 sends to all region servers directly.
+    public static final String SERVER_CACHE_FANOUT_ATTRIB = "phoenix.query.serverCache.fanout";
+    // Number of threads of a region server relaying server caches to other region servers
+    public static final String SERVER_CACHE_RELAY_THREADS_ATTRIB = "phoenix.coprocessor.serverCache.relay.threads";
+    // Max time a region server waits for the region servers it relays a server cache to
+    public static final String SERVER_CACHE_RELAY_TIMEOUT_MS_ATTRIB = "phoenix.coprocessor.serverCache.relay.timeoutMs";
+    // RPC priority and number of handlers of the server cache relay calls between region servers
+    public static final String SERVER_CACHE_RELAY_PRIORITY_ATTRIB = "phoenix.serverCache.relay.rpc.priority";
+    public static final String SERVER_CACHE_RELAY_HANDLER_COUNT_ATTRIB = "phoenix.rpc.serverCache.relay.handler.count";
+
+    // Min number of keys of a skip scan slot of single keys, such as a large IN list, for it to be
+    // sent to region servers prefix compressed. 0 disables it, as older region servers cannot read it.
+    public static final String SKIP_SCAN_COMPACT_SLOT_THRESHOLD_ATTRIB = "phoenix.query.skipScan.compactSlotThreshold";
+    // Whether server side UPSERT SELECT, DELETE and local index builds commit a batch of mutations
+    // on another thread while the scan fills the next batch
+    public static final String UNGROUPED_AGGREGATE_PIPELINED_WRITES_ATTRIB = "phoenix.ungrouped.aggregate.pipelinedWrites";
+    // Number of threads of a region server committing the batches of scans with pipelined writes
+    public static final String UNGROUPED_AGGREGATE_COMMIT_THREADS_ATTRIB = "phoenix.ungrouped.aggregate.commit.threads";
+    // Number of rows the region servers pack into a single cell of the response to a non aggregate
+    // scan. Rows are returned one per result if less than 2.
+    public static final String SCAN_PACKED_ROWS_ATTRIB = "phoenix.query.scan.packedRows";
 
 
     // Before 4.15 when we created a view we included the parent table column metadata in the view
@@ -400,4 +483,9 @@ public interface QueryServices extends SQLCloseable {
      * Get query optimizer used to choose the best query plan
      */
     public QueryOptimizer getOptimizer();
+
+    /**
+     * Get the cache of parsed statements by SQL text
+     */
+    public ParsedStatementCache getParsedStatementCache();
 }
@@ -141,6 +141,7 @@ public class QueryServicesOptions {
 	public static final boolean DEFAULT_CLIENT_JOIN_SPOOLING_ENABLED = true;
 	public static final boolean DEFAULT_SERVER_ORDERBY_SPOOLING_ENABLED = true;
     public static final String DEFAULT_SPOOL_DIRECTORY = System.getProperty("java.io.tmpdir");
+    public static final boolean DEFAULT_SPOOL_MMAP_ENABLED = false;
 	public static final int DEFAULT_MAX_MEMORY_PERC = 15; // 15% of heap
 	public static final int DEFAULT_MAX_TENANT_MEMORY_PERC = 100;
 	public static final long DEFAULT_MAX_SERVER_CACHE_SIZE = 1024*1024*100;  // 100 Mb
@@ -395,6 +396,40 @@ public class QueryServicesOptions {
     public static final String DEFAULT_GUIDE_POSTS_CACHE_FACTORY_CLASS = "org.apache.phoenix.query.DefaultGuidePostsCacheFactory";
 
     public static final boolean DEFAULT_LONG_VIEW_INDEX_ENABLED = false;
+    public static final boolean DEFAULT_COMPACT_HASH_CACHE_ENABLED = false;
+    public static final boolean DEFAULT_PARTITIONED_HASH_JOIN_ENABLED = false;
+    public static final int DEFAULT_PARTITIONED_HASH_JOIN_PARTITION_COUNT = 8;
+    public static final boolean DEFAULT_HASH_JOIN_BLOOM_FILTER_ENABLED = false;
+    public static final int DEFAULT_HASH_JOIN_BLOOM_FILTER_BITS_PER_KEY = 10;
+    public static final long DEFAULT_HASH_JOIN_BLOOM_FILTER_MAX_BYTES = 1024 * 1024; // 1 Mb
+    public static final int DEFAULT_MUTATE_MAX_IN_FLIGHT_TABLES = 1;
+    public static final int DEFAULT_GLOBAL_INDEX_REPAIR_BATCH_SIZE = 1;
+    public static final int DEFAULT_UNGROUPED_AGGREGATE_BATCH_SIZE = 1;
+    public static final boolean DEFAULT_GROUPBY_PRIMITIVE_CACHE_ENABLED = false;
+    public static final int DEFAULT_PARSED_STATEMENT_CACHE_SIZE = 0;
+    public static final long DEFAULT_SCAN_READ_AHEAD_MAX_BYTES = 0;
+    public static final long DEFAULT_PARALLEL_SCAN_RESPLIT_THRESHOLD_MS = 0;
+    public static final long DEFAULT_PARALLEL_SCAN_RESPLIT_THRESHOLD_ROWS = 0;
+    public static final int DEFAULT_PARALLEL_SCAN_RESPLIT_PIECES = 4;
+    public static final boolean DEFAULT_FAIR_SCHEDULING_ENABLED = false;
+    public static final int DEFAULT_LOW_LATENCY_RESERVED_THREADS = 8;
+    public static final int DEFAULT_LOW_LATENCY_WEIGHT = 4;
+    public static final int DEFAULT_LOW_LATENCY_MAX_SCANS = 1;
+    public static final int DEFAULT_MAX_PARALLELISM = 0;
+
+    public static final long DEFAULT_AGGREGATE_RESULT_CACHE_MAX_BYTES = 0; // disabled
+    public static final long DEFAULT_AGGREGATE_RESULT_CACHE_MAX_ENTRY_BYTES = 1024 * 1024; // 1 Mb
+
+    public static final int DEFAULT_SERVER_CACHE_FANOUT = 0; // send to all region servers directly
+    public static final int DEFAULT_SERVER_CACHE_RELAY_THREADS = 10;
+    public static final int DEFAULT_SERVER_CACHE_RELAY_TIMEOUT_MS = 10000;
+    public static final int DEFAULT_SERVER_CACHE_RELAY_PRIORITY = 3000;
+    public static final int DEFAULT_SERVER_CACHE_RELAY_HANDLER_COUNT = 10;
+
+    public static final int DEFAULT_SKIP_SCAN_COMPACT_SLOT_THRESHOLD = 0; // disabled
+    public static final boolean DEFAULT_UNGROUPED_AGGREGATE_PIPELINED_WRITES = false;
+    public static final int DEFAULT_UNGROUPED_AGGREGATE_COMMIT_THREADS = 10;
+    public static final int DEFAULT_SCAN_PACKED_ROWS = 0; // disabled
     private final Configuration config;
 
     private QueryServicesOptions(Configuration config) {
@@ -638,6 +673,18 @@ public class QueryServicesOptions {
         return config.getInt(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE);
     }
 
+    public boolean isFairSchedulingEnabled() {
+        return config.getBoolean(QueryServices.FAIR_SCHEDULING_ENABLED_ATTRIB, DEFAULT_FAIR_SCHEDULING_ENABLED);
+    }
+
+    public int getLowLatencyReservedThreads() {
+        return config.getInt(QueryServices.LOW_LATENCY_RESERVED_THREADS_ATTRIB, DEFAULT_LOW_LATENCY_RESERVED_THREADS);
+    }
+
+    public int getLowLatencyWeight() {
+        return config.getInt(QueryServices.LOW_LATENCY_WEIGHT_ATTRIB, DEFAULT_LOW_LATENCY_WEIGHT);
+    }
+
     public int getMaxMemoryPerc() {
         return config.getInt(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC);
     }
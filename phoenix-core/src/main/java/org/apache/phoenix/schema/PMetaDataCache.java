@@ -19,16 +19,21 @@ package org.apache.phoenix.schema;
 
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Map;
 
 import org.apache.phoenix.parse.PFunction;
 import org.apache.phoenix.parse.PSchema;
+import org.apache.phoenix.util.PersistentHashMap;
 import org.apache.phoenix.util.TimeKeeper;
 
-import com.google.common.collect.Maps;
 import com.google.common.collect.MinMaxPriorityQueue;
 import com.google.common.primitives.Longs;
 
+/**
+ * Tables, functions and schemas held in persistent maps. Cloning shares the maps
+ * with the clone, so it is constant time, and an update only copies the path to
+ * the entry being changed. A clone never sees updates made to the cache it was
+ * cloned from and vice versa.
+ */
 class PMetaDataCache implements Cloneable {
     private static final int MIN_REMOVAL_SIZE = 3;
     private static final Comparator<PTableRef> COMPARATOR = new Comparator<PTableRef>() {
@@ -41,81 +46,30 @@ class PMetaDataCache implements Cloneable {
     
     private long currentByteSize;
     private final long maxByteSize;
-    private final int expectedCapacity;
     private final TimeKeeper timeKeeper;
-    private final PTableRefFactory tableRefFactory;
 
-    private final Map<PTableKey,PTableRef> tables;
-    final Map<PTableKey,PFunction> functions;
-    final Map<PTableKey,PSchema> schemas;
+    // Table refs are shared between clones, so the last access time used for
+    // eviction reflects accesses through any of them.
+    private PersistentHashMap<PTableKey,PTableRef> tables;
+    private PersistentHashMap<PTableKey,PFunction> functions;
+    private PersistentHashMap<PTableKey,PSchema> schemas;
     
-    private static Map<PTableKey,PTableRef> newMap(int expectedCapacity) {
-        // Use regular HashMap, as we cannot use a LinkedHashMap that orders by access time
-        // safely across multiple threads (as the underlying collection is not thread safe).
-        // Instead, we track access time and prune it based on the copy we've made.
-        return Maps.newHashMapWithExpectedSize(expectedCapacity);
-    }
-
-    private static Map<PTableKey,PFunction> newFunctionMap(int expectedCapacity) {
-        // Use regular HashMap, as we cannot use a LinkedHashMap that orders by access time
-        // safely across multiple threads (as the underlying collection is not thread safe).
-        // Instead, we track access time and prune it based on the copy we've made.
-        return Maps.newHashMapWithExpectedSize(expectedCapacity);
-    }
-
-    private static Map<PTableKey,PSchema> newSchemaMap(int expectedCapacity) {
-        // Use regular HashMap, as we cannot use a LinkedHashMap that orders by access time
-        // safely across multiple threads (as the underlying collection is not thread safe).
-        // Instead, we track access time and prune it based on the copy we've made.
-        return Maps.newHashMapWithExpectedSize(expectedCapacity);
-    }
-
-    private Map<PTableKey,PTableRef> cloneMap(Map<PTableKey,PTableRef> tables, int expectedCapacity) {
-        Map<PTableKey,PTableRef> newTables = newMap(Math.max(tables.size(),expectedCapacity));
-        // Copy value so that access time isn't changing anymore
-        for (PTableRef tableAccess : tables.values()) {
-            newTables.put(tableAccess.getTable().getKey(), tableRefFactory.makePTableRef(tableAccess));
-        }
-        return newTables;
-    }
-
-    private static Map<PTableKey, PSchema> cloneSchemaMap(Map<PTableKey, PSchema> schemas, int expectedCapacity) {
-        Map<PTableKey, PSchema> newSchemas = newSchemaMap(Math.max(schemas.size(), expectedCapacity));
-        // Copy value so that access time isn't changing anymore
-        for (PSchema schema : schemas.values()) {
-            newSchemas.put(schema.getSchemaKey(), new PSchema(schema));
-        }
-        return newSchemas;
-    }
-
-    private static Map<PTableKey,PFunction> cloneFunctionsMap(Map<PTableKey,PFunction> functions, int expectedCapacity) {
-        Map<PTableKey,PFunction> newFunctions = newFunctionMap(Math.max(functions.size(),expectedCapacity));
-        for (PFunction functionAccess : functions.values()) {
-            newFunctions.put(functionAccess.getKey(), new PFunction(functionAccess));
-        }
-        return newFunctions;
-    }
-
     PMetaDataCache(PMetaDataCache toClone) {
-        this.tableRefFactory = toClone.tableRefFactory;
         this.timeKeeper = toClone.timeKeeper;
         this.maxByteSize = toClone.maxByteSize;
         this.currentByteSize = toClone.currentByteSize;
-        this.expectedCapacity = toClone.expectedCapacity;
-        this.tables = cloneMap(toClone.tables, expectedCapacity);
-        this.functions = cloneFunctionsMap(toClone.functions, expectedCapacity);
-        this.schemas = cloneSchemaMap(toClone.schemas, expectedCapacity);
+        this.tables = toClone.tables;
+        this.functions = toClone.functions;
+        this.schemas = toClone.schemas;
     }
     
-    public PMetaDataCache(int initialCapacity, long maxByteSize, TimeKeeper timeKeeper, PTableRefFactory tableRefFactory) {
+    public PMetaDataCache(long maxByteSize, TimeKeeper timeKeeper) {
         this.currentByteSize = 0;
         this.maxByteSize = maxByteSize;
-        this.expectedCapacity = initialCapacity;
-        this.tables = newMap(this.expectedCapacity);
-        this.functions = newFunctionMap(this.expectedCapacity);
         this.timeKeeper = timeKeeper;
-        this.schemas = newSchemaMap(this.expectedCapacity);
-        this.tableRefFactory = tableRefFactory;
+        this.tables = PersistentHashMap.empty();
+        this.functions = PersistentHashMap.empty();
+        this.schemas = PersistentHashMap.empty();
     }
     
     public PTableRef get(PTableKey key) {
@@ -133,21 +87,18 @@ class PMetaDataCache implements Cloneable {
     }
     
     /**
-     * Used when the cache is growing past its max size to clone in a single pass.
-     * Removes least recently used tables to get size of cache below its max size by
-     * the overage amount.
+     * Used when the cache is growing past its max size. Removes least recently used
+     * tables to get size of cache below its max size by the overage amount. Only the
+     * removed entries are touched, the rest of the cache is not copied.
      */
-    public PMetaDataCache cloneMinusOverage(long overage) {
+    public void removeOverage(long overage) {
         assert(overage > 0);
         int nToRemove = Math.max(MIN_REMOVAL_SIZE, (int)Math.ceil((currentByteSize-maxByteSize) / ((double)currentByteSize / size())) + 1);
         MinMaxPriorityQueue<PTableRef> toRemove = BUILDER.expectedSize(nToRemove).create();
-        PMetaDataCache newCache = new PMetaDataCache(this.size(), this.maxByteSize, this.timeKeeper, this.tableRefFactory);
         
         long toRemoveBytes = 0;
-        // Add to new cache, but track references to remove when done
-        // to bring cache at least overage amount below it's max size.
+        // Track references to remove to bring cache at least overage amount below it's max size.
         for (PTableRef tableRef : this.tables.values()) {
-            newCache.put(tableRef.getTable().getKey(), tableRefFactory.makePTableRef(tableRef));
             toRemove.add(tableRef);
             toRemoveBytes += tableRef.getEstimatedSize();
             while (toRemoveBytes - toRemove.peekLast().getEstimatedSize() >= overage) {
@@ -156,14 +107,14 @@ class PMetaDataCache implements Cloneable {
             }
         }
         for (PTableRef toRemoveRef : toRemove) {
-            newCache.remove(toRemoveRef.getTable().getKey());
+            remove(toRemoveRef.getTable().getKey());
         }
-        return newCache;
     }
 
     PTable put(PTableKey key, PTableRef ref) {
         currentByteSize += ref.getEstimatedSize();
-        PTableRef oldTableAccess = this.tables.put(key, ref);
+        PTableRef oldTableAccess = this.tables.get(key);
+        this.tables = this.tables.put(key, ref);
         PTable oldTable = null;
         if (oldTableAccess != null) {
             currentByteSize -= oldTableAccess.getEstimatedSize();
@@ -177,10 +128,11 @@ class PMetaDataCache implements Cloneable {
     }
     
     public PTable remove(PTableKey key) {
-        PTableRef value = this.tables.remove(key);
+        PTableRef value = this.tables.get(key);
         if (value == null) {
             return null;
         }
+        this.tables = this.tables.remove(key);
         currentByteSize -= value.getEstimatedSize();
         return value.getTable();
     }
@@ -218,4 +170,32 @@ class PMetaDataCache implements Cloneable {
     public long getMaxSize() {
         return this.maxByteSize;
     }
-}
\ No newline at end of file
+
+    PFunction getFunction(PTableKey key) {
+        return this.functions.get(key);
+    }
+
+    Iterable<PFunction> getFunctions() {
+        return this.functions.values();
+    }
+
+    void putFunction(PFunction function) {
+        this.functions = this.functions.put(function.getKey(), function);
+    }
+
+    void removeFunction(PTableKey key) {
+        this.functions = this.functions.remove(key);
+    }
+
+    PSchema getSchema(PTableKey key) {
+        return this.schemas.get(key);
+    }
+
+    void putSchema(PSchema schema) {
+        this.schemas = this.schemas.put(schema.getSchemaKey(), schema);
+    }
+
+    void removeSchema(PTableKey key) {
+        this.schemas = this.schemas.remove(key);
+    }
+}
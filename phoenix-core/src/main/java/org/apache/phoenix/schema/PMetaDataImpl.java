@@ -35,8 +35,9 @@ import org.apache.phoenix.util.TimeKeeper;
 import com.google.common.collect.Lists;
 
 /**
- * Client-side cache of MetaData, not thread safe. Internally uses a LinkedHashMap that evicts the
- * oldest entries when size grows beyond the maxSize specified at create time.
+ * Client-side cache of MetaData, not thread safe. Internally uses persistent maps, so that
+ * {@link #clone()} is constant time, and evicts the least recently used entries when size grows
+ * beyond the maxSize specified at create time.
  */
 public class PMetaDataImpl implements PMetaData {
     
@@ -49,10 +50,10 @@ public class PMetaDataImpl implements PMetaData {
     }
 
     public PMetaDataImpl(int initialCapacity, TimeKeeper timeKeeper, ReadOnlyProps props) {
-        this(new PMetaDataCache(initialCapacity, props.getLong(
+        this(new PMetaDataCache(props.getLong(
             QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB,
-            QueryServicesOptions.DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE), timeKeeper,
-                PTableRefFactory.getFactory(props)), timeKeeper, PTableRefFactory.getFactory(props));
+            QueryServicesOptions.DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE), timeKeeper),
+                timeKeeper, PTableRefFactory.getFactory(props));
     }
 
     private PMetaDataImpl(PMetaDataCache metaData, TimeKeeper timeKeeper, PTableRefFactory tableRefFactory) {
@@ -63,7 +64,7 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public PMetaDataImpl clone() {
-        return new PMetaDataImpl(new PMetaDataCache(this.metaData), this.timeKeeper, this.tableRefFactory);
+        return new PMetaDataImpl(this.metaData.clone(), this.timeKeeper, this.tableRefFactory);
     }
     
     @Override
@@ -77,7 +78,7 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public PFunction getFunction(PTableKey key) throws FunctionNotFoundException {
-        PFunction function = metaData.functions.get(key);
+        PFunction function = metaData.getFunction(key);
         if (function == null) {
             throw new FunctionNotFoundException(key.getName());
         }
@@ -136,7 +137,9 @@ public class PMetaDataImpl implements PMetaData {
             netGain += tableRef.getEstimatedSize();
         }
         long overage = metaData.getCurrentSize() + netGain - metaData.getMaxSize();
-        metaData = overage <= 0 ? metaData : metaData.cloneMinusOverage(overage);
+        if (overage > 0) {
+            metaData.removeOverage(overage);
+        }
         
         if (newParentTable != null) { // Upsert new index table into parent data table list
             metaData.put(newParentTable.getKey(), newParentTableRef);
@@ -258,26 +261,26 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public void addFunction(PFunction function) throws SQLException {
-        this.metaData.functions.put(function.getKey(), function);
+        this.metaData.putFunction(function);
     }
 
     @Override
     public void removeFunction(PName tenantId, String function, long functionTimeStamp)
             throws SQLException {
-        this.metaData.functions.remove(new PTableKey(tenantId, function));
+        this.metaData.removeFunction(new PTableKey(tenantId, function));
     }
 
     @Override
     public void pruneFunctions(Pruner pruner) {
         List<PTableKey> keysToPrune = Lists.newArrayListWithExpectedSize(this.size());
-        for (PFunction function : this.metaData.functions.values()) {
+        for (PFunction function : this.metaData.getFunctions()) {
             if (pruner.prune(function)) {
                 keysToPrune.add(function.getKey());
             }
         }
         if (!keysToPrune.isEmpty()) {
             for (PTableKey key : keysToPrune) {
-                metaData.functions.remove(key);
+                metaData.removeFunction(key);
             }
         }
     }
@@ -289,19 +292,19 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public void addSchema(PSchema schema) throws SQLException {
-        this.metaData.schemas.put(schema.getSchemaKey(), schema);
+        this.metaData.putSchema(schema);
     }
 
     @Override
     public PSchema getSchema(PTableKey key) throws SchemaNotFoundException {
-        PSchema schema = metaData.schemas.get(key);
+        PSchema schema = metaData.getSchema(key);
         if (schema == null) { throw new SchemaNotFoundException(key.getName()); }
         return schema;
     }
 
     @Override
     public void removeSchema(PSchema schema, long schemaTimeStamp) {
-        this.metaData.schemas.remove(schema.getSchemaKey());
+        this.metaData.removeSchema(schema.getSchemaKey());
     }
 
 }
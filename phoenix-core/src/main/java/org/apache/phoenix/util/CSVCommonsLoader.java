@@ -18,24 +18,41 @@
 package org.apache.phoenix.util;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Reader;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.util.csv.CsvUpsertExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /***
  * Upserts CSV data using Phoenix JDBC connection
@@ -71,6 +88,10 @@ public class CSVCommonsLoader {
 
 
     private final String arrayElementSeparator;
+    private final int upsertThreads;
+
+    // Number of record batches that may be queued for each upsert thread
+    private static final int QUEUED_BATCHES_PER_THREAD = 4;
 
     public enum PhoenixHeaderSource {
         FROM_TABLE,
@@ -86,6 +107,18 @@ public class CSVCommonsLoader {
     public CSVCommonsLoader(PhoenixConnection conn, String tableName,
             List<String> columns, boolean isStrict, char fieldDelimiter, char quoteCharacter,
             Character escapeCharacter, String arrayElementSeparator) {
+        this(conn, tableName, columns, isStrict, fieldDelimiter, quoteCharacter, escapeCharacter,
+                arrayElementSeparator, 1);
+    }
+
+    /**
+     * @param upsertThreads number of connections that upsert in parallel. If more than one,
+     *            records are parsed on the calling thread and routed to the upsert threads by
+     *            the region of their row key.
+     */
+    public CSVCommonsLoader(PhoenixConnection conn, String tableName,
+            List<String> columns, boolean isStrict, char fieldDelimiter, char quoteCharacter,
+            Character escapeCharacter, String arrayElementSeparator, int upsertThreads) {
         this.conn = conn;
         this.tableName = tableName;
         this.columns = columns;
@@ -103,6 +136,7 @@ public class CSVCommonsLoader {
         }
 
         this.arrayElementSeparator = arrayElementSeparator;
+        this.upsertThreads = Math.max(1, upsertThreads);
         this.format = buildFormat();
     }
 
@@ -200,6 +234,19 @@ public class CSVCommonsLoader {
      */
     public void upsert(CSVParser csvParser) throws Exception {
         List<ColumnInfo> columnInfoList = buildColumnInfoList(csvParser);
+        if (upsertThreads > 1) {
+            try {
+                long start = System.currentTimeMillis();
+                long totalUpserts = upsertInParallel(csvParser, columnInfoList);
+                double elapsedDuration = ((System.currentTimeMillis() - start) / 1000.0);
+                System.out.println("CSV Upsert complete. " + totalUpserts + " rows upserted by "
+                        + upsertThreads + " threads");
+                System.out.println("Time: " + elapsedDuration + " sec(s)\n");
+            } finally {
+                csvParser.close();
+            }
+            return;
+        }
 
         boolean wasAutoCommit = conn.getAutoCommit();
         try {
@@ -232,6 +279,207 @@ public class CSVCommonsLoader {
         }
     }
 
+    /**
+     * Parse the records on this thread and upsert them on {@code upsertThreads} connections.
+     * Records are routed in batches through bounded queues, so parsing blocks while the upsert
+     * threads are behind. Each upsert thread commits every mutate batch size rows.
+     *
+     * @return total number of rows upserted
+     */
+    private long upsertInParallel(CSVParser csvParser, final List<ColumnInfo> columnInfoList)
+            throws Exception {
+        final int batchSize = conn.getMutateBatchSize();
+        final List<BlockingQueue<List<CSVRecord>>> queues =
+                Lists.newArrayListWithExpectedSize(upsertThreads);
+        List<Future<Long>> futures = Lists.newArrayListWithExpectedSize(upsertThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(upsertThreads,
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("csv-upsert-" + tableName + "-%d").build());
+        try {
+            for (int i = 0; i < upsertThreads; i++) {
+                final BlockingQueue<List<CSVRecord>> queue =
+                        new ArrayBlockingQueue<>(QUEUED_BATCHES_PER_THREAD);
+                queues.add(queue);
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return upsertFromQueue(queue, columnInfoList, batchSize);
+                    }
+                }));
+            }
+            List<List<CSVRecord>> batches = Lists.newArrayListWithExpectedSize(upsertThreads);
+            for (int i = 0; i < upsertThreads; i++) {
+                batches.add(new ArrayList<CSVRecord>(batchSize));
+            }
+            RegionRouter router = new RegionRouter(columnInfoList);
+            try {
+                long recordCount = 0;
+                for (CSVRecord record : csvParser) {
+                    int thread = router.getThread(record, recordCount++ / batchSize);
+                    List<CSVRecord> batch = batches.get(thread);
+                    batch.add(record);
+                    if (batch.size() == batchSize) {
+                        enqueue(queues.get(thread), batch, futures);
+                        batches.set(thread, new ArrayList<CSVRecord>(batchSize));
+                    }
+                }
+            } finally {
+                router.close();
+            }
+            for (int i = 0; i < upsertThreads; i++) {
+                if (!batches.get(i).isEmpty()) {
+                    enqueue(queues.get(i), batches.get(i), futures);
+                }
+                // An empty batch marks the end of the input
+                enqueue(queues.get(i), Collections.<CSVRecord>emptyList(), futures);
+            }
+            long totalUpserts = 0;
+            for (Future<Long> future : futures) {
+                totalUpserts += getUpsertCount(future);
+            }
+            return totalUpserts;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @VisibleForTesting
+    static void enqueue(BlockingQueue<List<CSVRecord>> queue, List<CSVRecord> batch,
+            List<Future<Long>> futures) throws Exception {
+        while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+            // Stop parsing if an upsert thread failed instead of waiting for it forever
+            for (Future<Long> future : futures) {
+                if (future.isDone()) {
+                    getUpsertCount(future);
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static long getUpsertCount(Future<Long> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private long upsertFromQueue(BlockingQueue<List<CSVRecord>> queue,
+            List<ColumnInfo> columnInfoList, int batchSize) throws Exception {
+        try (PhoenixConnection upsertConn = DriverManager.getConnection(conn.getURL(),
+                conn.getClientInfo()).unwrap(PhoenixConnection.class)) {
+            upsertConn.setAutoCommit(false);
+            CsvUpsertListener upsertListener = new CsvUpsertListener(upsertConn, batchSize, isStrict);
+            CsvUpsertExecutor csvUpsertExecutor = new CsvUpsertExecutor(upsertConn,
+                    SchemaUtil.getEscapedFullTableName(tableName),
+                    columnInfoList, upsertListener, arrayElementSeparator);
+            try {
+                for (List<CSVRecord> batch = queue.take(); !batch.isEmpty(); batch = queue.take()) {
+                    csvUpsertExecutor.execute(batch);
+                }
+            } finally {
+                csvUpsertExecutor.close();
+            }
+            upsertConn.commit();
+            return upsertListener.getTotalUpsertCount();
+        }
+    }
+
+    /**
+     * Routes records to upsert threads by the region their row key falls into, so that each
+     * thread commits to a contiguous range of regions, or to one of the threads of the region by
+     * the hash of the row key if there are fewer regions than threads. Records with the same row
+     * key go to the same thread and so are upserted in file order, the last one winning as when
+     * loading on a single thread.
+     * <p>
+     * Records are routed round robin by batch if the row key cannot be computed without compiling
+     * an UPSERT statement, in which case records with the same row key may be upserted in any
+     * order.
+     */
+    private class RegionRouter {
+        private final TableRowEncoder keyEncoder;
+        private final CsvUpsertExecutor converter;
+        private final byte[][] regionStartKeys;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+        RegionRouter(List<ColumnInfo> columnInfoList) throws SQLException {
+            keyEncoder = TableRowEncoder.newEncoder(conn, tableName, columnInfoList);
+            if (keyEncoder == null) {
+                converter = null;
+                regionStartKeys = null;
+                return;
+            }
+            // Only used for its conversion functions, never executed
+            converter = new CsvUpsertExecutor(conn, SchemaUtil.getEscapedFullTableName(tableName),
+                    columnInfoList, null, arrayElementSeparator);
+            List<HRegionLocation> regions = conn.getQueryServices().getAllTableRegions(
+                    keyEncoder.getTable().getPhysicalName().getBytes());
+            regionStartKeys = new byte[regions.size()][];
+            for (int i = 0; i < regionStartKeys.length; i++) {
+                regionStartKeys[i] = regions.get(i).getRegion().getStartKey();
+            }
+        }
+
+        int getThread(CSVRecord record, long batchIndex) {
+            if (keyEncoder == null || regionStartKeys.length == 0) {
+                return (int) (batchIndex % upsertThreads);
+            }
+            try {
+                for (int i = 0; i < converter.conversionFunctions.size(); i++) {
+                    if (keyEncoder.isPrimaryKeyColumn(i)) {
+                        keyEncoder.setValue(i, converter.conversionFunctions.get(i).apply(record.get(i)));
+                    }
+                }
+                keyEncoder.encodeRowKey(ptr);
+            } catch (Exception e) {
+                // The upsert thread reports the invalid record
+                return 0;
+            }
+            // Find the last region starting at or before the row key
+            int low = 0;
+            int high = regionStartKeys.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (Bytes.compareTo(regionStartKeys[mid], 0, regionStartKeys[mid].length,
+                        ptr.get(), ptr.getOffset(), ptr.getLength()) <= 0) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return getThread(low, regionStartKeys.length, upsertThreads,
+                    Bytes.hashCode(ptr.get(), ptr.getOffset(), ptr.getLength()));
+        }
+
+        void close() throws IOException {
+            if (converter != null) {
+                converter.close();
+            }
+        }
+    }
+
+    /**
+     * Maps a region to the upsert threads, splitting the regions into contiguous ranges, one per
+     * thread, or, if there are fewer regions than threads, splitting the threads into contiguous
+     * ranges, one per region, the row key hash picking the thread within the range of its region
+     * @param region index of the region of the row key
+     * @param regionCount number of regions
+     * @param threadCount number of upsert threads
+     * @param keyHash hash of the row key
+     * @return index of the upsert thread
+     */
+    @VisibleForTesting
+    static int getThread(int region, int regionCount, int threadCount, int keyHash) {
+        if (regionCount >= threadCount) {
+            return (int) ((long) region * threadCount / regionCount);
+        }
+        int firstThread = (int) ((long) region * threadCount / regionCount);
+        int endThread = (int) ((long) (region + 1) * threadCount / regionCount);
+        return firstThread + (keyHash & Integer.MAX_VALUE) % (endThread - firstThread);
+    }
+
     private List<ColumnInfo> buildColumnInfoList(CSVParser parser) throws SQLException {
         List<String> columns = this.columns;
         switch (headerSource) {
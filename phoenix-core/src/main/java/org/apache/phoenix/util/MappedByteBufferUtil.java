@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utilities for releasing memory mapped files. The mapping of a {@link MappedByteBuffer} is
+ * otherwise only released once the buffer is garbage collected, which can hold on to address
+ * space and keep deleted files on disk long after they are closed. As in the HBase and Netty
+ * cleaner utilities, the buffer's cleaner is invoked through reflection, using
+ * sun.misc.Unsafe#invokeCleaner on Java 9 and later and the buffer's own cleaner before that.
+ */
+public class MappedByteBufferUtil {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedByteBufferUtil.class);
+
+    // Unsafe instance and its invokeCleaner method on Java 9 and later
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    // DirectByteBuffer#cleaner and Cleaner#clean before Java 9
+    private static final Method CLEANER;
+    private static final Method CLEAN;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Throwable t) {
+            unsafe = null;
+            invokeCleaner = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1);
+                cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                clean = cleaner.getReturnType().getMethod("clean");
+                clean.setAccessible(true);
+                clean.invoke(cleaner.invoke(buffer));
+            } catch (Throwable t2) {
+                LOGGER.debug("Mapped buffers will be released by garbage collection", t2);
+                cleaner = null;
+                clean = null;
+            }
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    /** Not constructed */
+    private MappedByteBufferUtil() { }
+
+    /**
+     * Releases the mapping of the given buffer, which must not be accessed afterwards, nor
+     * may any duplicate or slice of it. Does nothing if the buffer is null or if the mapping
+     * can't be released explicitly on this JVM, in which case it is released once the buffer
+     * is garbage collected.
+     */
+    public static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else if (CLEANER != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) {
+                    CLEAN.invoke(cleaner);
+                }
+            }
+        } catch (Throwable t) {
+            LOGGER.warn("Unable to unmap buffer, leaving it to garbage collection", t);
+        }
+    }
+}
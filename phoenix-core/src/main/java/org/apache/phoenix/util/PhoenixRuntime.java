@@ -306,7 +306,8 @@ public class PhoenixRuntime {
                         }
                         CSVCommonsLoader csvLoader = new CSVCommonsLoader(conn, tableName, execCmd.getColumns(),
                                 execCmd.isStrict(), execCmd.getFieldDelimiter(), execCmd.getQuoteCharacter(),
-                                execCmd.getEscapeCharacter(), execCmd.getArrayElementSeparator());
+                                execCmd.getEscapeCharacter(), execCmd.getArrayElementSeparator(),
+                                execCmd.getUpsertThreads());
                         csvLoader.upsert(inputFile);
                     }
                 }
@@ -641,6 +642,7 @@ public class PhoenixRuntime {
         private String srcTable;
         private boolean localIndexUpgrade;
         private String binaryEncoding;
+        private int upsertThreads = 1;
 
         /**
          * Factory method to build up an {@code ExecutionCommand} based on supplied parameters.
@@ -667,6 +669,9 @@ public class PhoenixRuntime {
                             "character");
             Option arrayValueSeparatorOption = new Option("a", "array-separator", true,
                     "Define the array element separator, defaults to ':'");
+            Option upsertThreadsOption = new Option("n", "upsert-threads", true,
+                    "Number of connections upserting CSV data in parallel, with rows routed " +
+                    "to them by region. Defaults to 1");
             Option upgradeOption = new Option("u", "upgrade", false, "Upgrades tables specified as arguments " +
                     "by rewriting them with the correct row key for descending columns. If no arguments are " +
                     "specified, then tables that need to be upgraded will be displayed without being upgraded. " +
@@ -695,6 +700,7 @@ public class PhoenixRuntime {
             options.addOption(quoteCharacterOption);
             options.addOption(escapeCharacterOption);
             options.addOption(arrayValueSeparatorOption);
+            options.addOption(upsertThreadsOption);
             options.addOption(upgradeOption);
             options.addOption(bypassUpgradeOption);
             options.addOption(mapNamespaceOption);
@@ -747,6 +753,15 @@ public class PhoenixRuntime {
             execCmd.arrayElementSeparator = cmdLine.getOptionValue(
                     arrayValueSeparatorOption.getOpt(),
                     CSVCommonsLoader.DEFAULT_ARRAY_ELEMENT_SEPARATOR);
+
+            if (cmdLine.hasOption(upsertThreadsOption.getOpt())) {
+                try {
+                    execCmd.upsertThreads = Integer.parseInt(
+                            cmdLine.getOptionValue(upsertThreadsOption.getOpt()));
+                } catch (NumberFormatException e) {
+                    usageError("Invalid number of upsert threads", options);
+                }
+            }
             
             if (cmdLine.hasOption(upgradeOption.getOpt())) {
                 execCmd.isUpgrade = true;
@@ -858,6 +873,10 @@ public class PhoenixRuntime {
             return arrayElementSeparator;
         }
 
+        public int getUpsertThreads() {
+            return upsertThreads;
+        }
+
         public List<String> getInputFiles() {
             return inputFiles;
         }
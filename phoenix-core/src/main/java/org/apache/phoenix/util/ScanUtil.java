@@ -55,6 +55,7 @@ import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.DescVarLengthFastByteComparisons;
 import org.apache.phoenix.filter.BooleanExpressionFilter;
+import org.apache.phoenix.filter.CompactKeyRangeList;
 import org.apache.phoenix.filter.DistinctPrefixFilter;
 import org.apache.phoenix.filter.MultiEncodedCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.SkipScanFilter;
@@ -394,7 +395,11 @@ public class ScanUtil {
         for (i = slotStartIndex; i < slotEndIndex; i++) {
             // Build up the key by appending the bound of each key range
             // from the current position of each slot. 
-            KeyRange range = slots.get(i).get(position[i]);
+            // The key of a compact slot is a single key copied from its key bytes, without
+            // creating a key range for it
+            List<KeyRange> slot = slots.get(i);
+            CompactKeyRangeList compactSlot = slot instanceof CompactKeyRangeList ? (CompactKeyRangeList)slot : null;
+            KeyRange range = compactSlot == null ? slot.get(position[i]) : null;
             // Use last slot in a multi-span column to determine if fixed width
             field = schema.getField(fieldIndex + slotSpan[i]);
             boolean isFixedWidth = field.getDataType().isFixedWidth();
@@ -410,23 +415,32 @@ public class ScanUtil {
              *    information to the key after that.
              */
             lastUnboundUpper = false;
-            if (  range.isUnbound(bound) &&
+            if (  range != null && range.isUnbound(bound) &&
                 ( bound == Bound.UPPER || isFixedWidth || range == KeyRange.EVERYTHING_RANGE) ){
                 lastUnboundUpper = (bound == Bound.UPPER);
                 break;
             }
-            byte[] bytes = range.getRange(bound);
-            System.arraycopy(bytes, 0, key, offset, bytes.length);
-            offset += bytes.length;
+            int length;
+            if (compactSlot != null) {
+                length = compactSlot.copyKey(position[i], key, offset);
+            } else {
+                byte[] bytes = range.getRange(bound);
+                System.arraycopy(bytes, 0, key, offset, bytes.length);
+                length = bytes.length;
+            }
+            offset += length;
+            boolean isSingleKey = compactSlot != null || range.isSingleKey();
+            boolean isLowerInclusive = compactSlot != null || range.isLowerInclusive();
+            boolean isUpperInclusive = compactSlot != null || range.isUpperInclusive();
             
             /*
              * We must add a terminator to a variable length key even for the last PK column if
              * the lower key is non inclusive or the upper key is inclusive. Otherwise, we'd be
              * incrementing the key value itself, and thus bumping it up too much.
              */
-            boolean inclusiveUpper = range.isUpperInclusive() && bound == Bound.UPPER;
-            boolean exclusiveLower = !range.isLowerInclusive() && bound == Bound.LOWER && range != KeyRange.EVERYTHING_RANGE;
-            boolean exclusiveUpper = !range.isUpperInclusive() && bound == Bound.UPPER;
+            boolean inclusiveUpper = isUpperInclusive && bound == Bound.UPPER;
+            boolean exclusiveLower = !isLowerInclusive && bound == Bound.LOWER && range != KeyRange.EVERYTHING_RANGE;
+            boolean exclusiveUpper = !isUpperInclusive && bound == Bound.UPPER;
             // If we are setting the upper bound of using inclusive single key, we remember 
             // to increment the key if we exit the loop after this iteration.
             // 
@@ -437,10 +451,10 @@ public class ScanUtil {
             // by the range-exclusive key. In that case, we do not need to increment the end at the
             // end. But if we combine the two flag, the single inclusive key in the middle of the
             // key slots would cause the flag to become true.
-            lastInclusiveUpperSingleKey = range.isSingleKey() && inclusiveUpper;
-            anyInclusiveUpperRangeKey |= !range.isSingleKey() && inclusiveUpper;
+            lastInclusiveUpperSingleKey = isSingleKey && inclusiveUpper;
+            anyInclusiveUpperRangeKey |= !isSingleKey && inclusiveUpper;
             // A null or empty byte array is always represented as a zero byte
-            byte sepByte = SchemaUtil.getSeparatorByte(schema.rowKeyOrderOptimizable(), bytes.length == 0, field);
+            byte sepByte = SchemaUtil.getSeparatorByte(schema.rowKeyOrderOptimizable(), length == 0, field);
             
             if ( !isFixedWidth && ( sepByte == QueryConstants.DESC_SEPARATOR_BYTE 
                                     || ( !exclusiveUpper 
@@ -479,7 +493,7 @@ public class ScanUtil {
                 // terminator, since DESC keys ignore the last byte as it's expected to be 
                 // the terminator. Without this, we'd ignore the separator byte that was
                 // just added and incremented.
-                if (!isFixedWidth && bytes.length == 0 
+                if (!isFixedWidth && length == 0 
                     && SchemaUtil.getSeparatorByte(schema.rowKeyOrderOptimizable(), false, field) == QueryConstants.DESC_SEPARATOR_BYTE) {
                     key[offset++] = QueryConstants.DESC_SEPARATOR_BYTE;
                 }
@@ -551,7 +565,7 @@ public class ScanUtil {
         BytesComparator comparator = ScanUtil.getComparator(field.getDataType().isFixedWidth(), field.getSortOrder());
         while (lower <= upper) {
             mid = (lower + upper) / 2;
-            int cmp = slots.get(mid).compareUpperToLowerBound(ptr, true, comparator);
+            int cmp = compareUpperToLowerBound(slots, mid, ptr, comparator);
             if (cmp < 0) {
                 lower = mid + 1;
             } else if (cmp > 0) {
@@ -561,12 +575,20 @@ public class ScanUtil {
             }
         }
         mid = (lower + upper) / 2;
-        if (mid == 0 && slots.get(mid).compareUpperToLowerBound(ptr, true, comparator) > 0) {
+        if (mid == 0 && compareUpperToLowerBound(slots, mid, ptr, comparator) > 0) {
             return mid;
         } else {
             return ++mid;
         }
     }
+
+    private static int compareUpperToLowerBound(List<KeyRange> slots, int index, ImmutableBytesWritable ptr, BytesComparator comparator) {
+        // Compare the keys of a compact slot in place rather than creating a key range per probe
+        if (slots instanceof CompactKeyRangeList) {
+            return ((CompactKeyRangeList)slots).compareUpperToLowerBound(index, ptr, true, comparator);
+        }
+        return slots.get(index).compareUpperToLowerBound(ptr, true, comparator);
+    }
     
     public static ScanRanges newScanRanges(List<? extends Mutation> mutations) throws SQLException {
         List<KeyRange> keys = Lists.newArrayListWithExpectedSize(mutations.size());
@@ -60,6 +60,7 @@ import org.apache.phoenix.exception.DataExceedsCapacityException;
 import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.filter.CompactKeyRangeList;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
@@ -788,6 +789,10 @@ public class SchemaUtil {
     public static int getMaxKeyLength(RowKeySchema schema, List<List<KeyRange>> slots) {
         int maxKeyLength = getTerminatorCount(schema) * 2;
         for (List<KeyRange> slot : slots) {
+            if (slot instanceof CompactKeyRangeList) {
+                maxKeyLength += ((CompactKeyRangeList)slot).getMaxKeyLength();
+                continue;
+            }
             int maxSlotLength = 0;
             for (KeyRange range : slot) {
                 int maxRangeLength = Math.max(range.getLowerRange().length, range.getUpperRange().length);
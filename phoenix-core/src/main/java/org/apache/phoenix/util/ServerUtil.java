@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -37,11 +38,13 @@ import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.ipc.RpcControllerFactory;
+import org.apache.hadoop.hbase.ipc.controller.InterRegionServerCacheRelayRpcControllerFactory;
 import org.apache.hadoop.hbase.ipc.controller.InterRegionServerIndexRpcControllerFactory;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.Region.RowLock;
@@ -297,6 +300,7 @@ public class ServerUtil {
         INDEX_WRITER_CONNECTION,
         INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS,
         INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS_NO_RETRIES,
+        SERVER_CACHE_RELAY_CONNECTION,
         DEFAULT_SERVER_CONNECTION;
     }
 
@@ -304,6 +308,8 @@ public class ServerUtil {
         
         private static Map<ConnectionType, Connection> connections =
                 new ConcurrentHashMap<ConnectionType, Connection>();
+        private static Map<ConnectionType, AsyncConnection> asyncConnections =
+                new ConcurrentHashMap<ConnectionType, AsyncConnection>();
 
         public static Connection getConnection(final ConnectionType connectionType, final RegionCoprocessorEnvironment env) {
             return connections.computeIfAbsent(connectionType, new Function<ConnectionType, Connection>() {
@@ -318,6 +324,23 @@ public class ServerUtil {
             });
         }
 
+        public static AsyncConnection getAsyncConnection(final ConnectionType connectionType, final RegionCoprocessorEnvironment env) {
+            return asyncConnections.computeIfAbsent(connectionType, new Function<ConnectionType, AsyncConnection>() {
+                @Override
+                    public AsyncConnection apply(ConnectionType t) {
+                    try {
+                        return org.apache.hadoop.hbase.client.ConnectionFactory.createAsyncConnection(
+                                getTypeSpecificConfiguration(connectionType, env.getConfiguration())).get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    } catch (ExecutionException e) {
+                        throw new RuntimeException(e.getCause());
+                    }
+                }
+            });
+        }
+
         public static Configuration getTypeSpecificConfiguration(ConnectionType connectionType, Configuration conf) {
             switch (connectionType) {
             case COMPACTION_CONNECTION:
@@ -330,6 +353,8 @@ public class ServerUtil {
                 return getIndexWriterConfigurationWithCustomThreads(conf);
             case INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS_NO_RETRIES:
                 return getNoRetriesIndexWriterConfigurationWithCustomThreads(conf);
+            case SERVER_CACHE_RELAY_CONNECTION:
+                return getServerCacheRelayConfiguration(conf);
             default:
                 return conf;
             }
@@ -345,6 +370,14 @@ public class ServerUtil {
                     }
                 }
                 connections.clear();
+                for (AsyncConnection connection : asyncConnections.values()) {
+                    try {
+                        connection.close();
+                    } catch (IOException e) {
+                        LOGGER.warn("Unable to close coprocessor async connection", e);
+                    }
+                }
+                asyncConnections.clear();
             }
         }
 
@@ -406,4 +439,19 @@ public class ServerUtil {
         return clonedConf;
 
     }    
+
+    public static Configuration getServerCacheRelayConfiguration(Configuration conf) {
+        Configuration clonedConfig = PropertiesUtil.cloneConfig(conf);
+        /*
+         * Set the rpc controller factory so that relayed server caches are handled by their own
+         * handlers on the remote region servers.
+         */
+        clonedConfig.setClass(RpcControllerFactory.CUSTOM_CONTROLLER_CONF_KEY,
+                InterRegionServerCacheRelayRpcControllerFactory.class, RpcControllerFactory.class);
+        // don't let a relay outlive the wait of the region server relaying the cache
+        clonedConfig.setInt(HConstants.HBASE_CLIENT_OPERATION_TIMEOUT,
+            conf.getInt(QueryServices.SERVER_CACHE_RELAY_TIMEOUT_MS_ATTRIB,
+                QueryServicesOptions.DEFAULT_SERVER_CACHE_RELAY_TIMEOUT_MS));
+        return clonedConfig;
+    }
 }
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.execute.MutationState;
+import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
+import org.apache.phoenix.index.IndexMaintainer;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.AmbiguousColumnException;
+import org.apache.phoenix.schema.ColumnNotFoundException;
+import org.apache.phoenix.schema.PColumn;
+import org.apache.phoenix.schema.PRow;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableType;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.TypeMismatchException;
+import org.apache.phoenix.schema.types.PDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Encodes rows of a table directly into the cells that an UPSERT VALUES of the same columns
+ * would produce, without compiling and executing a statement per row. The table and its
+ * maintained indexes are resolved once when the encoder is created; each row is then built
+ * through {@link PTable#newKey(ImmutableBytesWritable, byte[][])} and {@link PRow}, so the
+ * salt byte, row key separators, encoded column qualifiers and storage scheme are the same as
+ * on the JDBC path. Index rows are generated with {@link IndexUtil#generateIndexData}.
+ * <p/>
+ * Only plain tables are supported: use {@link #newEncoder(PhoenixConnection, String, List)},
+ * which returns null for tables that need the full UPSERT compilation (views, transactional
+ * tables, ROW_TIMESTAMP or DEFAULT columns and tenant-specific connections).
+ */
+public class TableRowEncoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableRowEncoder.class);
+
+    private final PhoenixConnection conn;
+    private final PTable table;
+    private final List<PTable> indexes;
+    private final PColumn[] columns;
+    private final int[] pkSlots;
+    private final KeyValueBuilder kvBuilder;
+    private final long timestamp;
+    private final byte[][] pkValues;
+    private final byte[][] columnValues;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    private final List<Mutation> mutations = Lists.newArrayList();
+
+    private TableRowEncoder(PhoenixConnection conn, PTable table, PColumn[] columns) {
+        this.conn = conn;
+        this.table = table;
+        this.indexes = Lists.newArrayList(IndexMaintainer.maintainedIndexes(table.getIndexes().iterator()));
+        this.columns = columns;
+        this.pkSlots = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            pkSlots[i] = SchemaUtil.getPKPosition(table, columns[i]);
+        }
+        this.kvBuilder = conn.getKeyValueBuilder();
+        this.timestamp = MutationState.getMutationTimestamp(conn.getSCN());
+        this.pkValues = new byte[table.getPKColumns().size()][];
+        this.columnValues = new byte[columns.length][];
+    }
+
+    /**
+     * Create an encoder for the given columns of a table.
+     *
+     * @param conn connection used to resolve the table and its indexes
+     * @param tableName full name of the table
+     * @param columnInfos columns that values are set for, in the order of their field index
+     * @return the encoder, or null if rows of the table must be written through UPSERT
+     * @throws SQLException if the table cannot be resolved
+     */
+    public static TableRowEncoder newEncoder(PhoenixConnection conn, String tableName,
+            List<ColumnInfo> columnInfos) throws SQLException {
+        PTable table = PhoenixRuntime.getTable(conn, tableName);
+        if (table.getType() != PTableType.TABLE || table.isTransactional()
+                || table.getRowTimestampColPos() != -1 || conn.getTenantId() != null) {
+            LOGGER.info("Table {} requires UPSERT statements to be encoded", tableName);
+            return null;
+        }
+        Map<String, PColumn> columnsByName = Maps.newHashMapWithExpectedSize(table.getColumns().size());
+        for (PColumn column : table.getColumns()) {
+            if (column.getExpressionStr() != null) {
+                LOGGER.info("Column {} of table {} has a default value", column, tableName);
+                return null;
+            }
+            columnsByName.put(SchemaUtil.getEscapedFullColumnName(column.toString()), column);
+        }
+        PColumn[] columns = new PColumn[columnInfos.size()];
+        for (int i = 0; i < columns.length; i++) {
+            ColumnInfo columnInfo = columnInfos.get(i);
+            if (columnInfo == null) {
+                return null;
+            }
+            PColumn column = columnsByName.get(columnInfo.getColumnName());
+            if (column == null) {
+                try {
+                    column = table.getColumnForColumnName(
+                            SchemaUtil.getUnEscapedFullColumnName(columnInfo.getColumnName()));
+                } catch (ColumnNotFoundException | AmbiguousColumnException e) {
+                    LOGGER.info("Column {} cannot be resolved in table {}", columnInfo, tableName);
+                    return null;
+                }
+            }
+            columns[i] = column;
+        }
+        return new TableRowEncoder(conn, table, columns);
+    }
+
+    public PTable getTable() {
+        return table;
+    }
+
+    /**
+     * Set the value of a column of the current row. A null value leaves the column null.
+     *
+     * @param fieldIndex index of the column in the list the encoder was created with
+     * @param value value of the column, as it would be bound to an UPSERT statement
+     */
+    public void setValue(int fieldIndex, Object value) throws SQLException {
+        PColumn column = columns[fieldIndex];
+        if (value == null) {
+            columnValues[fieldIndex] = ByteUtil.EMPTY_BYTE_ARRAY;
+            return;
+        }
+        PDataType type = column.getDataType();
+        PDataType actualType = type;
+        if (!type.getJavaClass().isInstance(value)) {
+            actualType = PDataType.fromLiteral(value);
+            if (actualType == null || !actualType.isCoercibleTo(type, value)) {
+                throw TypeMismatchException.newException(actualType, type, "value: " + value
+                        + " in column " + column);
+            }
+            value = type.toObject(value, actualType);
+        }
+        ptr.set(type.toBytes(value));
+        if (!type.isSizeCompatible(ptr, value, type, SortOrder.getDefault(), null, null,
+                column.getMaxLength(), column.getScale())) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.DATA_EXCEEDS_MAX_CAPACITY)
+                    .setColumnName(column.getName().getString())
+                    .setMessage("value=" + value).build().buildException();
+        }
+        type.coerceBytes(ptr, value, type, null, null, SortOrder.getDefault(),
+                column.getMaxLength(), column.getScale(), column.getSortOrder(),
+                table.rowKeyOrderOptimizable());
+        columnValues[fieldIndex] = ByteUtil.copyKeyBytesIfNecessary(ptr);
+    }
+
+    /**
+     * Whether the column at the given field index is part of the primary key.
+     */
+    public boolean isPrimaryKeyColumn(int fieldIndex) {
+        return pkSlots[fieldIndex] >= 0;
+    }
+
+    /**
+     * Encode only the row key, including the salt byte, from the primary key values set since
+     * the previous row, and reset the values. No cells are encoded.
+     *
+     * @param ptr set to the row key
+     */
+    public void encodeRowKey(ImmutableBytesWritable ptr) throws SQLException {
+        try {
+            if (table.getBucketNum() != null) {
+                pkValues[0] = QueryConstants.SEPARATOR_BYTE_ARRAY;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (pkSlots[i] >= 0) {
+                    pkValues[pkSlots[i]] = columnValues[i];
+                }
+            }
+            table.newKey(ptr, pkValues);
+        } finally {
+            Arrays.fill(pkValues, null);
+            Arrays.fill(columnValues, null);
+        }
+    }
+
+    /**
+     * Encode the row from the values set since the previous row, and reset the values.
+     */
+    public void encodeRow() throws SQLException {
+        try {
+            if (table.getBucketNum() != null) {
+                // Place holder for the salt byte, which is filled in by the row
+                pkValues[0] = QueryConstants.SEPARATOR_BYTE_ARRAY;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (pkSlots[i] >= 0) {
+                    pkValues[pkSlots[i]] = columnValues[i];
+                }
+            }
+            table.newKey(ptr, pkValues);
+            PRow row = table.newRow(kvBuilder, timestamp, ptr, false);
+            for (int i = 0; i < columns.length; i++) {
+                if (pkSlots[i] < 0 && columnValues[i] != null) {
+                    row.setValue(columns[i], columnValues[i]);
+                }
+            }
+            mutations.addAll(row.toRowMutations());
+        } finally {
+            Arrays.fill(pkValues, null);
+            Arrays.fill(columnValues, null);
+        }
+    }
+
+    /**
+     * Get the cells of the rows encoded since the last call to {@link #clear()}, grouped by
+     * the physical table they belong to, with the cells of the data table first. The cells
+     * of each table are sorted, like the ones returned by
+     * {@link PhoenixRuntime#getUncommittedDataIterator(java.sql.Connection, boolean)}.
+     */
+    public Iterator<Pair<byte[], List<Cell>>> getEncodedCells() throws SQLException {
+        if (mutations.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        List<Pair<byte[], List<Cell>>> cells = Lists.newArrayListWithExpectedSize(indexes.size() + 1);
+        cells.add(new Pair<byte[], List<Cell>>(table.getPhysicalName().getBytes(), toCells(mutations)));
+        for (PTable index : indexes) {
+            List<Mutation> indexMutations =
+                    IndexUtil.generateIndexData(table, index, null, mutations, kvBuilder, conn);
+            cells.add(new Pair<byte[], List<Cell>>(index.getPhysicalName().getBytes(),
+                    toCells(indexMutations)));
+        }
+        return cells.iterator();
+    }
+
+    private List<Cell> toCells(List<Mutation> mutations) {
+        List<Cell> cells = Lists.newArrayList();
+        for (Mutation mutation : mutations) {
+            for (List<Cell> familyCells : mutation.getFamilyCellMap().values()) {
+                cells.addAll(familyCells);
+            }
+        }
+        Collections.sort(cells, kvBuilder.getKeyValueComparator());
+        return cells;
+    }
+
+    /**
+     * Discard the rows encoded so far.
+     */
+    public void clear() {
+        mutations.clear();
+    }
+}
@@ -71,6 +71,7 @@ public abstract class UpsertExecutor<RECORD, FIELD> implements Closeable {
     protected final UpsertListener<RECORD> upsertListener;
     protected long upsertCount = 0L;
     protected boolean initFinished = false; // allow subclasses to finish initialization
+    protected TableRowEncoder rowEncoder;
 
     private static PreparedStatement createStatement(Connection conn, String tableName,
             List<ColumnInfo> columnInfoList) {
@@ -134,6 +135,42 @@ public abstract class UpsertExecutor<RECORD, FIELD> implements Closeable {
         }
     }
 
+    /**
+     * Encode the rows of subsequent records directly with the given encoder instead of
+     * executing the UPSERT statement. The cells of the encoded rows are available from the
+     * encoder rather than from the uncommitted state of the connection.
+     *
+     * @param rowEncoder encoder for the columns of this executor, or null to execute
+     *            the UPSERT statement
+     */
+    public void setRowEncoder(TableRowEncoder rowEncoder) {
+        this.rowEncoder = rowEncoder;
+    }
+
+    /**
+     * Bind the value of a field of the current record.
+     */
+    protected void setValue(int fieldIndex, Object sqlValue) throws SQLException {
+        if (rowEncoder != null) {
+            rowEncoder.setValue(fieldIndex, sqlValue);
+        } else if (sqlValue != null) {
+            preparedStatement.setObject(fieldIndex + 1, sqlValue);
+        } else {
+            preparedStatement.setNull(fieldIndex + 1, dataTypes.get(fieldIndex).getSqlType());
+        }
+    }
+
+    /**
+     * Upsert the current record once all its fields are bound.
+     */
+    protected void executeUpsert() throws SQLException {
+        if (rowEncoder != null) {
+            rowEncoder.encodeRow();
+        } else {
+            preparedStatement.execute();
+        }
+    }
+
     /**
      * Upsert a single record.
      *
@@ -86,13 +86,9 @@ public class CsvUpsertExecutor extends UpsertExecutor<CSVRecord, String> {
             }
             for (int fieldIndex = 0; fieldIndex < conversionFunctions.size(); fieldIndex++) {
                 Object sqlValue = conversionFunctions.get(fieldIndex).apply(csvRecord.get(fieldIndex));
-                if (sqlValue != null) {
-                    preparedStatement.setObject(fieldIndex + 1, sqlValue);
-                } else {
-                    preparedStatement.setNull(fieldIndex + 1, dataTypes.get(fieldIndex).getSqlType());
-                }
+                setValue(fieldIndex, sqlValue);
             }
-            preparedStatement.execute();
+            executeUpsert();
             upsertListener.upsertDone(++upsertCount);
         } catch (Exception e) {
             if (LOGGER.isDebugEnabled()) {
@@ -87,6 +87,26 @@ public class PhoenixIndexRpcSchedulerTest {
         executor.stop();
     }
 
+    @Test
+    public void testServerCacheRelayPriorityWritesToRelayHandler() throws Exception {
+        RpcScheduler mock = Mockito.mock(RpcScheduler.class);
+        PriorityFunction qosFunction = Mockito.mock(PriorityFunction.class);
+        Abortable abortable = new AbortServer();
+        PhoenixRpcScheduler scheduler = new PhoenixRpcScheduler(conf, mock, 200, 250, 300, qosFunction,abortable);
+        BalancedQueueRpcExecutor executor = new BalancedQueueRpcExecutor("test-queue", 1, 1,qosFunction,conf,abortable);
+        scheduler.setServerCacheRelayExecutorForTesting(executor);
+        dispatchCallWithPriority(scheduler, 300);
+        List<BlockingQueue<CallRunner>> queues = executor.getQueues();
+        assertEquals(1, queues.size());
+        BlockingQueue<CallRunner> queue = queues.get(0);
+        queue.poll(20, TimeUnit.SECONDS);
+
+        Mockito.verify(mock).init(Mockito.any(Context.class));
+        Mockito.verify(mock, Mockito.never()).dispatch(Mockito.any(CallRunner.class));
+        scheduler.stop();
+        executor.stop();
+    }
+
     /**
      * Test that we delegate to the passed {@link RpcScheduler} when the call priority is outside
      * the index range
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.AggregateResultCache.CachedRow;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.junit.Test;
+
+public class AggregateResultCacheTest {
+    private static final List<CachedRow> ROWS = Collections.singletonList(new CachedRow(new KeyValue[] {
+            new KeyValue(Bytes.toBytes("row"), Bytes.toBytes("f"), Bytes.toBytes("q"), Bytes.toBytes("v")) }, false));
+
+    private static ImmutableBytesPtr key(String key) {
+        return new ImmutableBytesPtr(Bytes.toBytes(key));
+    }
+
+    @Test
+    public void testGetReturnsResultsOfSameVersion() {
+        AggregateResultCacheSource source = mock(AggregateResultCacheSource.class);
+        AggregateResultCache cache = new AggregateResultCache(new GlobalMemoryManager(10000), 10000, 1000, source);
+        assertNull(cache.get(key("a"), "1"));
+        assertTrue(cache.put(key("a"), "1", ROWS, 100));
+        assertSame(ROWS, cache.get(key("a"), "1"));
+        verify(source, times(1)).incrementCacheHits();
+        verify(source, times(1)).incrementCacheMisses();
+    }
+
+    @Test
+    public void testChangedVersionInvalidatesResults() {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(10000);
+        AggregateResultCache cache = new AggregateResultCache(memoryManager, 10000, 1000,
+                mock(AggregateResultCacheSource.class));
+        assertTrue(cache.put(key("a"), "1", ROWS, 100));
+        assertTrue(memoryManager.getAvailableMemory() < 10000);
+        assertNull(cache.get(key("a"), "2"));
+        // Results of the older version are dropped
+        assertNull(cache.get(key("a"), "1"));
+        assertEquals(0, cache.getSize());
+        assertEquals(10000, memoryManager.getAvailableMemory());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        AggregateResultCacheSource source = mock(AggregateResultCacheSource.class);
+        AggregateResultCache cache = new AggregateResultCache(new GlobalMemoryManager(10000), 1000, 1000, source);
+        assertTrue(cache.put(key("a"), "1", ROWS, 300));
+        assertTrue(cache.put(key("b"), "1", ROWS, 300));
+        assertNotNull(cache.get(key("a"), "1"));
+        assertTrue(cache.put(key("c"), "1", ROWS, 300));
+        verify(source, times(1)).incrementCacheEvictions();
+        assertNotNull(cache.get(key("a"), "1"));
+        assertNull(cache.get(key("b"), "1"));
+        assertNotNull(cache.get(key("c"), "1"));
+        assertTrue(cache.getSize() <= 1000);
+    }
+
+    @Test
+    public void testEvictsWhenOutOfMemory() {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(1000);
+        AggregateResultCache cache = new AggregateResultCache(memoryManager, 10000, 1000,
+                mock(AggregateResultCacheSource.class));
+        assertTrue(cache.put(key("a"), "1", ROWS, 500));
+        assertTrue(cache.put(key("b"), "1", ROWS, 500));
+        assertNull(cache.get(key("a"), "1"));
+        assertNotNull(cache.get(key("b"), "1"));
+    }
+
+    @Test
+    public void testDoesNotCacheLargeResults() {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(10000);
+        AggregateResultCache cache = new AggregateResultCache(memoryManager, 10000, 1000,
+                mock(AggregateResultCacheSource.class));
+        assertTrue(cache.put(key("a"), "1", ROWS, 100));
+        assertFalse(cache.put(key("b"), "1", ROWS, 1000));
+        assertNull(cache.get(key("b"), "1"));
+        assertNotNull(cache.get(key("a"), "1"));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ServerCacheClientTest {
+
+    @Test
+    public void testRelayGroups() {
+        List<Integer> keys = Arrays.asList(1, 2, 3, 4, 5, 6, 7);
+        List<List<Integer>> groups = ServerCacheClient.getRelayGroups(keys, 3);
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5, 6, 7)), groups);
+    }
+
+    @Test
+    public void testRelayGroupsWithLargeFanout() {
+        List<Integer> keys = Arrays.asList(1, 2, 3);
+        List<List<Integer>> groups = ServerCacheClient.getRelayGroups(keys, 5);
+        assertEquals(Arrays.asList(Arrays.asList(1), Arrays.asList(2), Arrays.asList(3)), groups);
+    }
+
+    @Test
+    public void testRelayGroupsCoverAllKeys() {
+        for (int nKeys = 0; nKeys < 50; nKeys++) {
+            Integer[] keys = new Integer[nKeys];
+            for (int i = 0; i < nKeys; i++) {
+                keys[i] = i;
+            }
+            for (int fanout = 1; fanout < 10; fanout++) {
+                List<List<Integer>> groups = ServerCacheClient.getRelayGroups(Arrays.asList(keys), fanout);
+                assertEquals(Math.min(fanout, nKeys), groups.size());
+                int next = 0;
+                for (List<Integer> group : groups) {
+                    assertEquals(nKeys / groups.size(), group.size(), 1);
+                    for (Integer key : group) {
+                        assertEquals(next++, key.intValue());
+                    }
+                }
+                assertEquals(nKeys, next);
+            }
+        }
+    }
+
+    @Test
+    public void testRelayGroupsOfNoKeys() {
+        assertEquals(0, ServerCacheClient.getRelayGroups(Collections.emptyList(), 3).size());
+    }
+}
@@ -54,6 +54,20 @@ public class TenantCacheTest {
         assertEquals(maxBytes, memoryManager.getAvailableMemory());
     }
 
+    @Test
+    public void testAddTwiceKeepsOneMemoryChunk() throws SQLException {
+        int maxServerCacheTimeToLive = 10000;
+        int maxServerCachePersistenceTimeToLive = 10;
+        long maxBytes = 1000;
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(maxBytes);
+        TenantCacheImpl newTenantCache = new TenantCacheImpl(memoryManager, maxServerCacheTimeToLive, maxServerCachePersistenceTimeToLive);
+        ImmutableBytesPtr cacheId = new ImmutableBytesPtr(Bytes.toBytes(1L));
+        ImmutableBytesWritable cachePtr = new ImmutableBytesWritable(Bytes.toBytes("a"));
+        newTenantCache.addServerCache(cacheId, cachePtr, ByteUtil.EMPTY_BYTE_ARRAY, cacheFactory, true, false, MetaDataProtocol.PHOENIX_VERSION);
+        newTenantCache.addServerCache(cacheId, cachePtr, ByteUtil.EMPTY_BYTE_ARRAY, cacheFactory, true, false, MetaDataProtocol.PHOENIX_VERSION);
+        assertEquals(maxBytes-1, memoryManager.getAvailableMemory());
+    }
+
     @Test
     public void testTimeoutClosesMemoryChunk() throws Exception {
         int maxServerCacheTimeToLive = 10;
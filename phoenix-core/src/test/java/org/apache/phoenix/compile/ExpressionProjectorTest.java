@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.compile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.junit.Test;
+
+public class ExpressionProjectorTest {
+
+    private static ExpressionProjector projector(Object value, PDataType type, SortOrder sortOrder) throws Exception {
+        return new ExpressionProjector("C", "T", LiteralExpression.newConstant(value, type, sortOrder), false);
+    }
+
+    private static void assertPrimitivesMatchObjects(ExpressionProjector projector) throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        assertEquals(((Number)projector.getValue(null, PLong.INSTANCE, ptr)).longValue(), projector.getLong(null, ptr));
+        assertEquals(((Number)projector.getValue(null, PInteger.INSTANCE, ptr)).intValue(), projector.getInt(null, ptr));
+        assertEquals(((Number)projector.getValue(null, PSmallint.INSTANCE, ptr)).shortValue(), projector.getShort(null, ptr));
+        assertEquals(((Number)projector.getValue(null, PTinyint.INSTANCE, ptr)).byteValue(), projector.getByte(null, ptr));
+        assertEquals(((Number)projector.getValue(null, PDouble.INSTANCE, ptr)).doubleValue(), projector.getDouble(null, ptr), 0);
+        assertEquals(((Number)projector.getValue(null, PFloat.INSTANCE, ptr)).floatValue(), projector.getFloat(null, ptr), 0);
+        assertTrue(ptr.getLength() != 0);
+    }
+
+    @Test
+    public void testPrimitiveGetters() throws Exception {
+        for (SortOrder sortOrder : SortOrder.values()) {
+            assertPrimitivesMatchObjects(projector(-42L, PLong.INSTANCE, sortOrder));
+            assertPrimitivesMatchObjects(projector(42, PInteger.INSTANCE, sortOrder));
+            assertPrimitivesMatchObjects(projector((short)-7, PSmallint.INSTANCE, sortOrder));
+            assertPrimitivesMatchObjects(projector(12.0, PDouble.INSTANCE, sortOrder));
+            assertPrimitivesMatchObjects(projector(-3.0f, PFloat.INSTANCE, sortOrder));
+            // Decoded through PDataType.toObject rather than a codec
+            assertPrimitivesMatchObjects(projector(new BigDecimal("17"), PDecimal.INSTANCE, sortOrder));
+        }
+        assertPrimitivesMatchObjects(projector(42, PUnsignedInt.INSTANCE, SortOrder.ASC));
+    }
+
+    @Test
+    public void testNullValue() throws Exception {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(new byte[] {1, 2, 3});
+        ExpressionProjector projector = projector(null, PLong.INSTANCE, SortOrder.getDefault());
+        assertEquals(0, projector.getLong(null, ptr));
+        assertEquals(0, ptr.getLength());
+        ptr.set(new byte[] {1, 2, 3});
+        projector = projector(null, PDecimal.INSTANCE, SortOrder.getDefault());
+        assertEquals(0, projector.getDouble(null, ptr), 0);
+        assertEquals(0, ptr.getLength());
+    }
+}
@@ -1566,6 +1566,37 @@ public class QueryCompilerTest extends BaseConnectionlessQueryTest {
         }
     }
     
+    @Test
+    public void testLooseIndexScanForMinMax() throws Exception {
+        Connection conn = DriverManager.getConnection(getUrl());
+        conn.createStatement().execute("CREATE TABLE t (k1 varchar not null, k2 bigint not null, k3 varchar not null, k4 varchar, v varchar"
+                + " constraint pk primary key(k1,k2 desc,k3,k4))");
+        String[] queries = {
+                "SELECT k1, max(k2) FROM T GROUP BY k1",
+                "SELECT k1, max(k2), min(k1) FROM T GROUP BY k1",
+                "SELECT k1, min(k2) FROM T GROUP BY k1 ORDER BY k1 DESC",
+                "SELECT k1, k2, min(k3) FROM T GROUP BY k1, k2",
+                "SELECT k1, max(k2) FROM T WHERE k1 = 'a' GROUP BY k1",
+                };
+        String[] fullScanQueries = {
+                "SELECT k1, min(k2) FROM T GROUP BY k1",
+                "SELECT k1, max(k2), count(*) FROM T GROUP BY k1",
+                "SELECT k1, max(k3) FROM T GROUP BY k1",
+                "SELECT k1, k2, k3, min(k4) FROM T GROUP BY k1, k2, k3",
+                "SELECT k1, max(k2) FROM T WHERE k3 = 'a' GROUP BY k1",
+                "SELECT k1, max(k2) FROM T WHERE v = 'a' GROUP BY k1",
+                "SELECT /*+ RANGE_SCAN */ k1, max(k2) FROM T GROUP BY k1",
+                };
+        for (String query : queries) {
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            assertTrue("Expected loose index scan in: " + query, QueryUtil.getExplainPlan(rs).contains("SERVER DISTINCT PREFIX FILTER"));
+        }
+        for (String query : fullScanQueries) {
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+            assertFalse("Did not expect loose index scan in: " + query, QueryUtil.getExplainPlan(rs).contains("SERVER DISTINCT PREFIX FILTER"));
+        }
+    }
+    
     @Test
     public void testLocalIndexCreationWithDefaultFamilyOption() throws Exception {
         Connection conn1 = DriverManager.getConnection(getUrl());
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.expression.function.SumAggregateFunction;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.memory.InsufficientMemoryException;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.PColumn;
+import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.TupleUtil;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+
+public class PrimitiveGroupByCacheTest {
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+    private static final int ROW_COUNT = 5000;
+
+    private static Expression column(String name, PDataType type) {
+        PColumn column = new PColumnImpl(PNameFactory.newName(name), PNameFactory.newName("f"), type, null, null,
+                true, 0, SortOrder.getDefault(), 0, null, false, null, false, false, Bytes.toBytes(name), HConstants.LATEST_TIMESTAMP);
+        return new KeyValueColumnExpression(column);
+    }
+
+    private static final Expression K = column("k", PInteger.INSTANCE);
+    private static final Expression A = column("a", PLong.INSTANCE);
+    private static final Expression B = column("b", PDouble.INSTANCE);
+    private static final Expression C = column("c", PVarchar.INSTANCE);
+
+    private static List<Tuple> getRows() {
+        List<Tuple> rows = new ArrayList<Tuple>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%05d", i));
+            List<Cell> cells = new ArrayList<Cell>(3);
+            // Leave some keys and values null
+            if (i % 11 != 0) {
+                cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("k"), PInteger.INSTANCE.toBytes((i * 31) % 700 - 350)));
+            }
+            if (i % 7 != 0) {
+                cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("a"), PLong.INSTANCE.toBytes((i * 7919L) % 1000 - 500)));
+            }
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("b"), PDouble.INSTANCE.toBytes(i * 0.25)));
+            rows.add(new MultiKeyValueTuple(cells));
+        }
+        return rows;
+    }
+
+    @Test
+    public void testMatchesAggregators() throws Exception {
+        List<SingleAggregateFunction> functions = Arrays.<SingleAggregateFunction>asList(
+                new CountAggregateFunction(CountAggregateFunction.STAR),
+                new CountAggregateFunction(Arrays.asList(A)),
+                new SumAggregateFunction(Arrays.asList(A)),
+                new SumAggregateFunction(Arrays.asList(B)));
+        byte[] serialized = ServerAggregators.serialize(functions, 0);
+        List<Expression> groupBy = Arrays.asList(K);
+        List<Tuple> rows = getRows();
+
+        ServerAggregators mapAggregators = ServerAggregators.deserialize(serialized, null, null);
+        Map<ImmutableBytesPtr, Aggregator[]> expected = Maps.newHashMap();
+        for (Tuple row : rows) {
+            ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(row, groupBy);
+            Aggregator[] rowAggregators = expected.get(key);
+            if (rowAggregators == null) {
+                rowAggregators = mapAggregators.newAggregators(null);
+                expected.put(key, rowAggregators);
+            }
+            mapAggregators.aggregate(rowAggregators, row);
+        }
+
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(100 * 1024 * 1024);
+        MemoryChunk chunk = memoryManager.allocate(0);
+        ServerAggregators aggregators = ServerAggregators.deserialize(serialized, null, null);
+        // Start small so that the table is resized along the way
+        PrimitiveGroupByCache cache = PrimitiveGroupByCache.newCache(chunk, groupBy, aggregators, 16);
+        assertNotNull(cache);
+        for (Tuple row : rows) {
+            cache.aggregate(TupleUtil.getConcatenatedValue(row, groupBy), row);
+        }
+        assertEquals(expected.size(), cache.size());
+        assertTrue(chunk.getSize() > 0);
+
+        RegionScanner scanner = cache.getScanner(null);
+        List<Cell> results = new ArrayList<Cell>();
+        boolean hasMore;
+        do {
+            hasMore = scanner.next(results);
+        } while (hasMore);
+        assertEquals(expected.size(), results.size());
+        for (Cell cell : results) {
+            Aggregator[] rowAggregators = expected.get(new ImmutableBytesPtr(CellUtil.cloneRow(cell)));
+            assertNotNull(rowAggregators);
+            assertArrayEquals(mapAggregators.toBytes(rowAggregators), CellUtil.cloneValue(cell));
+        }
+        cache.close();
+        assertEquals(100 * 1024 * 1024, memoryManager.getAvailableMemory());
+    }
+
+    private static List<Cell> getResults(GroupByCache cache) throws Exception {
+        RegionScanner scanner = cache.getScanner(null);
+        List<Cell> results = new ArrayList<Cell>();
+        boolean hasMore;
+        do {
+            hasMore = scanner.next(results);
+        } while (hasMore);
+        return results;
+    }
+
+    @Test
+    public void testCacheMatchesAggregate() throws Exception {
+        byte[] serialized = ServerAggregators.serialize(Arrays.<SingleAggregateFunction>asList(
+                new CountAggregateFunction(CountAggregateFunction.STAR),
+                new SumAggregateFunction(Arrays.asList(A)),
+                new SumAggregateFunction(Arrays.asList(B))), 0);
+        List<Expression> groupBy = Arrays.asList(K);
+        List<Tuple> rows = getRows();
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(100 * 1024 * 1024);
+
+        PrimitiveGroupByCache expected = PrimitiveGroupByCache.newCache(memoryManager.allocate(0), groupBy,
+                ServerAggregators.deserialize(serialized, null, null), 16);
+        for (Tuple row : rows) {
+            expected.aggregate(TupleUtil.getConcatenatedValue(row, groupBy), row);
+        }
+
+        ServerAggregators aggregators = ServerAggregators.deserialize(serialized, null, null);
+        PrimitiveGroupByCache cache = PrimitiveGroupByCache.newCache(memoryManager.allocate(0), groupBy, aggregators, 16);
+        // Aggregators of a group stay bound to it while other groups are added and the table resized
+        ImmutableBytesPtr firstKey = TupleUtil.getConcatenatedValue(rows.get(1), groupBy);
+        Aggregator[] first = cache.cache(firstKey);
+        for (Tuple row : rows) {
+            aggregators.aggregate(cache.cache(TupleUtil.getConcatenatedValue(row, groupBy)), row);
+        }
+        aggregators.aggregate(first, rows.get(1));
+        expected.aggregate(TupleUtil.getConcatenatedValue(rows.get(1), groupBy), rows.get(1));
+        assertEquals(expected.size(), cache.size());
+
+        // Groups are added in a different order, so compare by key
+        Map<ImmutableBytesPtr, byte[]> expectedValues = Maps.newHashMap();
+        for (Cell cell : getResults(expected)) {
+            expectedValues.put(new ImmutableBytesPtr(CellUtil.cloneRow(cell)), CellUtil.cloneValue(cell));
+        }
+        List<Cell> results = getResults(cache);
+        assertEquals(expectedValues.size(), results.size());
+        for (Cell cell : results) {
+            byte[] expectedValue = expectedValues.get(new ImmutableBytesPtr(CellUtil.cloneRow(cell)));
+            assertNotNull(expectedValue);
+            assertArrayEquals(expectedValue, CellUtil.cloneValue(cell));
+        }
+        assertArrayEquals(expectedValues.get(firstKey), aggregators.toBytes(first));
+        expected.close();
+        cache.close();
+        assertEquals(100 * 1024 * 1024, memoryManager.getAvailableMemory());
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        byte[] serialized = ServerAggregators.serialize(Arrays.<SingleAggregateFunction>asList(
+                new CountAggregateFunction(CountAggregateFunction.STAR),
+                new SumAggregateFunction(Arrays.asList(A)),
+                new SumAggregateFunction(Arrays.asList(B))), 0);
+        final List<Expression> groupBy = Arrays.asList(K);
+        List<Tuple> rows = getRows();
+        final GlobalMemoryManager overflowMemoryManager = new GlobalMemoryManager(100 * 1024 * 1024);
+        PrimitiveGroupByCache expected = PrimitiveGroupByCache.newCache(overflowMemoryManager.allocate(0), groupBy,
+                ServerAggregators.deserialize(serialized, null, null), 16);
+        for (Tuple row : rows) {
+            expected.aggregate(TupleUtil.getConcatenatedValue(row, groupBy), row);
+        }
+
+        // Enough memory for the initial table of 64 groups, but not to double it
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(4096);
+        final ServerAggregators aggregators = ServerAggregators.deserialize(serialized, null, null);
+        final List<GroupByCache> overflowCaches = new ArrayList<GroupByCache>();
+        Supplier<GroupByCache> overflowCacheSupplier = new Supplier<GroupByCache>() {
+            @Override
+            public GroupByCache get() {
+                GroupByCache overflowCache = PrimitiveGroupByCache.newCache(overflowMemoryManager.allocate(0), groupBy, aggregators, 16);
+                overflowCaches.add(overflowCache);
+                return overflowCache;
+            }
+        };
+        PrimitiveGroupByCache cache = PrimitiveGroupByCache.newCache(memoryManager.allocate(0), groupBy, aggregators, 16,
+                overflowCacheSupplier);
+        for (Tuple row : rows) {
+            cache.aggregate(TupleUtil.getConcatenatedValue(row, groupBy), row);
+        }
+        assertEquals(1, overflowCaches.size());
+        assertTrue(overflowCaches.get(0).size() > 0);
+        assertEquals(expected.size(), cache.size());
+
+        Map<ImmutableBytesPtr, byte[]> expectedValues = Maps.newHashMap();
+        for (Cell cell : getResults(expected)) {
+            expectedValues.put(new ImmutableBytesPtr(CellUtil.cloneRow(cell)), CellUtil.cloneValue(cell));
+        }
+        expected.close();
+        List<Cell> results = getResults(cache);
+        assertEquals(expectedValues.size(), results.size());
+        for (Cell cell : results) {
+            byte[] expectedValue = expectedValues.remove(new ImmutableBytesPtr(CellUtil.cloneRow(cell)));
+            assertNotNull(expectedValue);
+            assertArrayEquals(expectedValue, CellUtil.cloneValue(cell));
+        }
+        cache.close();
+        assertEquals(4096, memoryManager.getAvailableMemory());
+        assertEquals(100 * 1024 * 1024, overflowMemoryManager.getAvailableMemory());
+
+        // Without an overflow cache, running out of memory fails the aggregation
+        cache = PrimitiveGroupByCache.newCache(memoryManager.allocate(0), groupBy, aggregators, 16);
+        try {
+            for (Tuple row : rows) {
+                cache.aggregate(TupleUtil.getConcatenatedValue(row, groupBy), row);
+            }
+            fail();
+        } catch (InsufficientMemoryException e) {
+            // Expected
+        } finally {
+            cache.close();
+        }
+        assertEquals(4096, memoryManager.getAvailableMemory());
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024);
+        ServerAggregators aggregators = ServerAggregators.deserialize(ServerAggregators.serialize(
+                Arrays.<SingleAggregateFunction>asList(new CountAggregateFunction(CountAggregateFunction.STAR)), 0), null, null);
+        // Variable width key
+        assertNull(PrimitiveGroupByCache.newCache(memoryManager.allocate(0), Arrays.asList(C), aggregators, 16));
+        // Key longer than a long
+        assertNull(PrimitiveGroupByCache.newCache(memoryManager.allocate(0), Arrays.asList(K, A), aggregators, 16));
+        assertNotNull(PrimitiveGroupByCache.newCache(memoryManager.allocate(0), Arrays.asList(K, K), aggregators, 16));
+        // Aggregator without primitive state
+        ServerAggregators minAggregators = ServerAggregators.deserialize(ServerAggregators.serialize(
+                Arrays.<SingleAggregateFunction>asList(new MinAggregateFunction(Arrays.asList(A))), 0), null, null);
+        assertNull(PrimitiveGroupByCache.newCache(memoryManager.allocate(0), Arrays.asList(K), minAggregators, 16));
+    }
+}
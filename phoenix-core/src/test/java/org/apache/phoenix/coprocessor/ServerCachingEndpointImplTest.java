@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.coprocessor.Batch;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils.BlockingRpcCallback;
+import org.apache.hadoop.hbase.ipc.ServerRpcController;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.cache.ServerCacheClient;
+import org.apache.phoenix.coprocessor.ServerCachingProtocol.ServerCacheFactory;
+import org.apache.phoenix.coprocessor.generated.ServerCacheFactoryProtos;
+import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.AddServerCacheRequest;
+import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.AddServerCacheResponse;
+import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.RemoveServerCacheRequest;
+import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.RemoveServerCacheResponse;
+import org.apache.phoenix.coprocessor.generated.ServerCachingProtos.ServerCachingService;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.protobuf.ProtobufUtil;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ServerUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.RpcCallback;
+import com.google.protobuf.RpcController;
+
+public class ServerCachingEndpointImplTest {
+
+    private static final TableName TABLE_NAME = TableName.valueOf("T");
+
+    private Configuration conf;
+    private RegionCoprocessorEnvironment env;
+    private Table table;
+    private ServerCachingEndpointImpl endpoint;
+    // Relay keys sent along with the cache to the region server of each key
+    private final Map<String, List<String>> relays = new ConcurrentHashMap<String, List<String>>();
+    private final Set<String> failingKeys = Collections.synchronizedSet(new HashSet<String>());
+    private final Set<String> incompleteKeys = Collections.synchronizedSet(new HashSet<String>());
+    private final Set<String> blockingKeys = Collections.synchronizedSet(new HashSet<String>());
+    private final CountDownLatch unblocked = new CountDownLatch(1);
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws Throwable {
+        conf = HBaseConfiguration.create();
+        table = Mockito.mock(Table.class);
+        Mockito.when(table.coprocessorService(Mockito.eq(ServerCachingService.class), Mockito.any(byte[].class),
+                Mockito.any(byte[].class), Mockito.any(Batch.Call.class))).thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable {
+                        byte[] key = (byte[]) invocation.getArguments()[1];
+                        Batch.Call<ServerCachingService, AddServerCacheResponse> call =
+                                (Batch.Call<ServerCachingService, AddServerCacheResponse>) invocation.getArguments()[3];
+                        String target = Bytes.toString(key);
+                        if (failingKeys.contains(target)) {
+                            throw new IOException("Region server of " + target + " is down");
+                        }
+                        if (blockingKeys.contains(target)) {
+                            unblocked.await();
+                        }
+                        return Collections.singletonMap(key, call.call(new RelayTarget(target)));
+                    }
+                });
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.getTable(TABLE_NAME)).thenReturn(table);
+        TableDescriptor descriptor = Mockito.mock(TableDescriptor.class);
+        Mockito.when(descriptor.getTableName()).thenReturn(TABLE_NAME);
+        Region region = Mockito.mock(Region.class);
+        Mockito.when(region.getTableDescriptor()).thenReturn(descriptor);
+        env = Mockito.mock(RegionCoprocessorEnvironment.class);
+        Mockito.when(env.getConfiguration()).thenReturn(conf);
+        Mockito.when(env.getRegion()).thenReturn(region);
+        Mockito.when(env.createConnection(Mockito.any(Configuration.class))).thenReturn(connection);
+        Mockito.when(env.getSharedData()).thenReturn(new ConcurrentHashMap<String, Object>());
+        endpoint = new ServerCachingEndpointImpl();
+        endpoint.start(env);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        unblocked.countDown();
+        endpoint.stop(env);
+        ServerUtil.ConnectionFactory.shutdown();
+    }
+
+    @Test
+    public void testRelayToGroups() throws Exception {
+        ServerRpcController controller = new ServerRpcController();
+        AddServerCacheRequest request = newRequest("a", "b", "c", "d", "e");
+        assertTrue(addServerCache(controller, request).getReturn());
+        assertNull(controller.getFailedOn());
+        assertCacheAdded(request);
+        assertEquals(2, relays.size());
+        assertEquals(Arrays.asList("b"), relays.get("a"));
+        assertEquals(Arrays.asList("d", "e"), relays.get("c"));
+    }
+
+    @Test
+    public void testRelayFailure() throws Exception {
+        failingKeys.add("c");
+        ServerRpcController controller = new ServerRpcController();
+        AddServerCacheRequest request = newRequest("a", "b", "c", "d");
+        // The client sends to the region servers of the relay keys itself
+        assertFalse(addServerCache(controller, request).getReturn());
+        assertNull(controller.getFailedOn());
+        assertCacheAdded(request);
+    }
+
+    @Test
+    public void testRelayIncompleteInSubtree() throws Exception {
+        incompleteKeys.add("a");
+        ServerRpcController controller = new ServerRpcController();
+        AddServerCacheRequest request = newRequest("a", "b", "c", "d");
+        assertFalse(addServerCache(controller, request).getReturn());
+        assertNull(controller.getFailedOn());
+        assertEquals(Arrays.asList("b"), relays.get("a"));
+    }
+
+    @Test
+    public void testRelayTimeout() throws Exception {
+        conf.setInt(QueryServices.SERVER_CACHE_RELAY_TIMEOUT_MS_ATTRIB, 100);
+        blockingKeys.add("a");
+        ServerRpcController controller = new ServerRpcController();
+        AddServerCacheRequest request = newRequest("a", "b");
+        long start = System.currentTimeMillis();
+        assertFalse(addServerCache(controller, request).getReturn());
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertNull(controller.getFailedOn());
+        assertCacheAdded(request);
+    }
+
+    @Test
+    public void testNoRelayWhenLocalAddFails() throws Exception {
+        ServerRpcController controller = new ServerRpcController();
+        AddServerCacheRequest request = AddServerCacheRequest.newBuilder(newRequest("a", "b"))
+                .setCacheFactory(ServerCacheFactoryProtos.ServerCacheFactory.newBuilder()
+                        .setClassName("org.apache.phoenix.NoSuchCacheFactory"))
+                .build();
+        addServerCache(controller, request);
+        assertNotNull(controller.getFailedOn());
+        Mockito.verifyZeroInteractions(table);
+    }
+
+    private AddServerCacheResponse addServerCache(RpcController controller, AddServerCacheRequest request)
+            throws IOException {
+        BlockingRpcCallback<AddServerCacheResponse> done = new BlockingRpcCallback<AddServerCacheResponse>();
+        endpoint.addServerCache(controller, request, done);
+        return done.get();
+    }
+
+    private void assertCacheAdded(AddServerCacheRequest request) {
+        ImmutableBytesPtr cacheId = new ImmutableBytesPtr(request.getCacheId().toByteArray());
+        assertNotNull(GlobalCache.getTenantCache(env, null).getServerCache(cacheId));
+    }
+
+    private static AddServerCacheRequest newRequest(String... relayKeys) {
+        AddServerCacheRequest.Builder builder = AddServerCacheRequest.newBuilder();
+        builder.setCacheId(ByteString.copyFrom(ServerCacheClient.generateId()));
+        builder.setCachePtr(ProtobufUtil.toProto(new ImmutableBytesWritable(Bytes.toBytes("cache"))));
+        builder.setCacheFactory(ServerCacheFactoryProtos.ServerCacheFactory.newBuilder()
+                .setClassName(TestCacheFactory.class.getName()));
+        for (String relayKey : relayKeys) {
+            builder.addRelayKeys(ByteString.copyFrom(Bytes.toBytes(relayKey)));
+        }
+        builder.setRelayFanout(2);
+        return builder.build();
+    }
+
+    /**
+     * Region server a cache is relayed to, recording the keys it is to relay the cache to in turn
+     */
+    private class RelayTarget extends ServerCachingService {
+        private final String key;
+
+        private RelayTarget(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void addServerCache(RpcController controller, AddServerCacheRequest request,
+                RpcCallback<AddServerCacheResponse> done) {
+            List<String> relayKeys = new ArrayList<String>();
+            for (ByteString relayKey : request.getRelayKeysList()) {
+                relayKeys.add(Bytes.toString(relayKey.toByteArray()));
+            }
+            relays.put(key, relayKeys);
+            done.run(AddServerCacheResponse.newBuilder().setReturn(!incompleteKeys.contains(key)).build());
+        }
+
+        @Override
+        public void removeServerCache(RpcController controller, RemoveServerCacheRequest request,
+                RpcCallback<RemoveServerCacheResponse> done) {
+            done.run(RemoveServerCacheResponse.newBuilder().setReturn(true).build());
+        }
+    }
+
+    public static class TestCacheFactory implements ServerCacheFactory {
+
+        @Override
+        public void readFields(DataInput input) throws IOException {
+        }
+
+        @Override
+        public void write(DataOutput output) throws IOException {
+        }
+
+        @Override
+        public Closeable newCache(ImmutableBytesWritable cachePtr, byte[] txState, MemoryChunk chunk,
+                boolean useProtoForIndexMaintainer, int clientVersion) throws SQLException {
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.phoenix.coprocessor.UngroupedAggregateRegionObserver.PipelinedCommitter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+
+public class UngroupedAggregateRegionObserverTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Callable<Void> newBatch(final List<String> commits, final String name,
+            final CountDownLatch written) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                written.await();
+                commits.add(name);
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testFailedBatchRethrownToScan() throws Exception {
+        final IOException failure = new IOException("Region too busy");
+        PipelinedCommitter committer = new PipelinedCommitter(executor);
+        committer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                throw failure;
+            }
+        });
+        try {
+            committer.await();
+            fail("Failure of the batch should be rethrown");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        committer.close();
+    }
+
+    @Test
+    public void testFailedBatchRethrownOnNextSubmit() throws Exception {
+        PipelinedCommitter committer = new PipelinedCommitter(executor);
+        committer.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                throw new IOException("Region too busy");
+            }
+        });
+        final AtomicBoolean nextSubmitted = new AtomicBoolean();
+        try {
+            committer.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    nextSubmitted.set(true);
+                    return null;
+                }
+            });
+            fail("Failure of the batch should be rethrown");
+        } catch (IOException e) {
+            // expected
+        }
+        committer.close();
+        assertFalse(nextSubmitted.get());
+    }
+
+    @Test
+    public void testRemainderCommittedAfterInFlightBatch() throws Exception {
+        final List<String> commits = Lists.newArrayList();
+        final CountDownLatch written = new CountDownLatch(1);
+        PipelinedCommitter committer = new PipelinedCommitter(executor);
+        committer.submit(newBatch(commits, "batch", written));
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.countDown();
+            }
+        };
+        writer.start();
+        // The scan commits the remaining mutations once the in flight batch is written
+        committer.await();
+        commits.add("remainder");
+        writer.join();
+        committer.close();
+        assertEquals(Lists.newArrayList("batch", "remainder"), commits);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRegionCloseWaitsForInFlightBatch() throws Exception {
+        final UngroupedAggregateRegionObserver observer = new UngroupedAggregateRegionObserver();
+        RegionCoprocessorEnvironment env = Mockito.mock(RegionCoprocessorEnvironment.class);
+        Mockito.when(env.getConfiguration()).thenReturn(HBaseConfiguration.create());
+        final ObserverContext<RegionCoprocessorEnvironment> context = Mockito.mock(ObserverContext.class);
+        Mockito.when(context.getEnvironment()).thenReturn(env);
+
+        final List<String> commits = Collections.synchronizedList(Lists.<String>newArrayList());
+        final CountDownLatch written = new CountDownLatch(1);
+        observer.acquireWritingScan();
+        final PipelinedCommitter committer = new PipelinedCommitter(executor);
+        committer.submit(newBatch(commits, "batch", written));
+        // The scan is done while its last batch is still being written
+        Thread scan = new Thread() {
+            @Override
+            public void run() {
+                observer.releaseWritingScan(committer);
+            }
+        };
+        scan.start();
+        final CountDownLatch closed = new CountDownLatch(1);
+        Thread close = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    observer.preClose(context, false);
+                    commits.add("close");
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                closed.countDown();
+            }
+        };
+        close.start();
+        assertFalse(closed.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(commits.isEmpty());
+        written.countDown();
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        scan.join();
+        assertEquals(Lists.newArrayList("batch", "close"), commits);
+        try {
+            observer.acquireWritingScan();
+            fail("No scan should write once the region is closing");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -22,12 +22,22 @@ import com.google.common.collect.ImmutableList;
 import static org.apache.phoenix.execute.MutationState.joinSortedIntArrays;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
@@ -37,6 +47,7 @@ import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.job.JobManager;
 import org.apache.phoenix.schema.types.PUnsignedInt;
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.util.PhoenixRuntime;
@@ -175,4 +186,54 @@ public class MutationStateTest {
         }
 
     }
+
+    @Test
+    public void testSendInParallelUsesSeveralThreads() throws Exception {
+        // The instrumented pool is the one used by default on the client
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(60000, 2, 10, true);
+        try {
+            final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+            // Every table waits for another one to be sent at the same time
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            MutationState.sendInParallel(Arrays.asList("a", "b", "c", "d"), executor, this, 2,
+                    new MutationState.MutationSender<String>() {
+                        @Override
+                        public void send(String entry) throws SQLException {
+                            threads.add(Thread.currentThread());
+                            try {
+                                barrier.await(10, TimeUnit.SECONDS);
+                            } catch (Exception e) {
+                                throw new SQLException(e);
+                            }
+                        }
+                    });
+            assertEquals(2, threads.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSendInParallelRethrowsFailure() throws Exception {
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(60000, 2, 10, true);
+        try {
+            final SQLException failure = new SQLException("c");
+            try {
+                MutationState.sendInParallel(Arrays.asList("a", "b", "c", "d"), executor, this, 3,
+                        new MutationState.MutationSender<String>() {
+                            @Override
+                            public void send(String entry) throws SQLException {
+                                if ("c".equals(entry)) {
+                                    throw failure;
+                                }
+                            }
+                        });
+                fail();
+            } catch (SQLException e) {
+                assertSame(failure, e);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
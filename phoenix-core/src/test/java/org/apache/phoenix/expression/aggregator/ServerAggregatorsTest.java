@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.LongAddExpression;
+import org.apache.phoenix.expression.LongMultiplyExpression;
+import org.apache.phoenix.expression.LongSubtractExpression;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.expression.function.SumAggregateFunction;
+import org.apache.phoenix.schema.PColumn;
+import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class ServerAggregatorsTest {
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+    private static final int ROW_COUNT = 1000;
+
+    private static Expression column(String name, PDataType type) {
+        PColumn column = new PColumnImpl(PNameFactory.newName(name), PNameFactory.newName("f"), type, null, null,
+                true, 0, SortOrder.getDefault(), 0, null, false, null, false, false, Bytes.toBytes(name), HConstants.LATEST_TIMESTAMP);
+        return new KeyValueColumnExpression(column);
+    }
+
+    private static final Expression A = column("a", PLong.INSTANCE);
+    private static final Expression B = column("b", PDouble.INSTANCE);
+    private static final Expression C = column("c", PVarchar.INSTANCE);
+
+    private static List<Tuple> getRows() {
+        List<Tuple> rows = new ArrayList<Tuple>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%05d", i));
+            List<Cell> cells = new ArrayList<Cell>(3);
+            // Leave some values null
+            if (i % 7 != 0) {
+                cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("a"), PLong.INSTANCE.toBytes((i * 7919L) % 1000 - 500)));
+            }
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("b"), PDouble.INSTANCE.toBytes(i * 0.25)));
+            if (i % 5 != 0) {
+                cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("c"), PVarchar.INSTANCE.toBytes("v" + (i * 31) % 1000)));
+            }
+            rows.add(new MultiKeyValueTuple(cells));
+        }
+        return rows;
+    }
+
+    private static Expression literal(long value) {
+        return LiteralExpression.newConstant(value, PLong.INSTANCE);
+    }
+
+    @Test
+    public void testBatchMatchesRowAtATime() throws Exception {
+        List<SingleAggregateFunction> functions = Arrays.<SingleAggregateFunction>asList(
+                new CountAggregateFunction(CountAggregateFunction.STAR),
+                new CountAggregateFunction(Arrays.asList(A)),
+                new SumAggregateFunction(Arrays.asList(A)),
+                new SumAggregateFunction(Arrays.asList(B)),
+                new SumAggregateFunction(Arrays.<Expression>asList(new LongAddExpression(Arrays.asList(A, literal(3))))),
+                new SumAggregateFunction(Arrays.<Expression>asList(new LongSubtractExpression(Arrays.asList(literal(10), A)))),
+                new SumAggregateFunction(Arrays.<Expression>asList(new LongMultiplyExpression(Arrays.asList(A, A)))),
+                new MinAggregateFunction(Arrays.asList(A)),
+                new MaxAggregateFunction(Arrays.asList(A)),
+                new MinAggregateFunction(Arrays.asList(C)),
+                new MaxAggregateFunction(Arrays.asList(C)),
+                new MaxAggregateFunction(Arrays.asList(B)));
+        byte[] serialized = ServerAggregators.serialize(functions, 0);
+        List<Tuple> rows = getRows();
+
+        ServerAggregators rowAggregators = ServerAggregators.deserialize(serialized, null, null);
+        Aggregator[] rowAggs = rowAggregators.getAggregators();
+        for (Tuple row : rows) {
+            rowAggregators.aggregate(rowAggs, row);
+        }
+
+        ServerAggregators batchAggregators = ServerAggregators.deserialize(serialized, null, null);
+        Aggregator[] batchAggs = batchAggregators.getAggregators();
+        Tuple[] batch = new Tuple[64];
+        int count = 0;
+        for (Tuple row : rows) {
+            batch[count++] = row;
+            if (count == batch.length) {
+                batchAggregators.aggregate(batchAggs, batch, count);
+                count = 0;
+            }
+        }
+        batchAggregators.aggregate(batchAggs, batch, count);
+
+        assertArrayEquals(rowAggregators.toBytes(rowAggs), batchAggregators.toBytes(batchAggs));
+    }
+
+    @Test
+    public void testComparisonBatch() throws Exception {
+        Expression expression = new ComparisonExpression(Arrays.asList(A, literal(0)), CompareOp.GREATER);
+        List<Tuple> rows = getRows();
+        Tuple[] tuples = rows.toArray(new Tuple[rows.size()]);
+        ImmutableBytesWritable[] ptrs = new ImmutableBytesWritable[tuples.length];
+        boolean[] hasValue = new boolean[tuples.length];
+        for (int i = 0; i < tuples.length; i++) {
+            ptrs[i] = new ImmutableBytesWritable();
+            hasValue[i] = true;
+        }
+        expression.evaluateBatch(tuples, tuples.length, ptrs, hasValue);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (int i = 0; i < tuples.length; i++) {
+            assertEquals(expression.evaluate(tuples[i], ptr), hasValue[i]);
+            if (hasValue[i]) {
+                assertEquals(ptr, ptrs[i]);
+            }
+        }
+    }
+}
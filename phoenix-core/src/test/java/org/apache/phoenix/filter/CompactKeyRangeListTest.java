@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.RowKeySchema;
+import org.apache.phoenix.schema.RowKeySchema.RowKeySchemaBuilder;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.ScanUtil;
+import org.apache.phoenix.util.ScanUtil.BytesComparator;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.Test;
+
+public class CompactKeyRangeListTest {
+
+    private static List<KeyRange> getKeys(int count) {
+        List<KeyRange> keys = new ArrayList<KeyRange>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(KeyRange.getKeyRange(Bytes.toBytes(String.format("key%06d", i * 3))));
+        }
+        return keys;
+    }
+
+    private static CompactKeyRangeList roundTrip(List<KeyRange> keyRanges) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CompactKeyRangeList.write(keyRanges, new DataOutputStream(stream));
+        return CompactKeyRangeList.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<KeyRange> keys = new ArrayList<KeyRange>();
+        keys.add(KeyRange.IS_NULL_RANGE);
+        keys.addAll(getKeys(1000));
+        keys.add(KeyRange.getKeyRange(Bytes.toBytes("key0029990")));
+        keys.add(KeyRange.getKeyRange(Bytes.toBytes("z")));
+        CompactKeyRangeList compactKeys = roundTrip(keys);
+        assertEquals(keys, compactKeys);
+        assertEquals(KeyRange.IS_NULL_RANGE, compactKeys.get(0));
+        assertEquals(10, compactKeys.getMaxKeyLength());
+        assertEquals(Collections.<KeyRange>emptyList(), roundTrip(Collections.<KeyRange>emptyList()));
+    }
+
+    @Test
+    public void testIsCompactable() {
+        assertTrue(CompactKeyRangeList.isCompactable(getKeys(10)));
+        assertFalse(CompactKeyRangeList.isCompactable(Arrays.asList(
+                KeyRange.getKeyRange(Bytes.toBytes("a")),
+                KeyRange.getKeyRange(Bytes.toBytes("b"), true, Bytes.toBytes("c"), false))));
+    }
+
+    @Test
+    public void testSkipScanFilterSerialization() throws Exception {
+        List<List<KeyRange>> slots = Collections.singletonList(getKeys(1000));
+        SkipScanFilter filter = new SkipScanFilter(slots, SchemaUtil.VAR_BINARY_SCHEMA);
+        SkipScanFilter compactFilter = new SkipScanFilter(slots, SchemaUtil.VAR_BINARY_SCHEMA);
+        compactFilter.setCompactSlotThreshold(100);
+        byte[] compactBytes = compactFilter.toByteArray();
+        assertTrue(compactBytes.length < filter.toByteArray().length);
+
+        SkipScanFilter serverFilter = SkipScanFilter.parseFrom(compactBytes);
+        assertTrue(serverFilter.getSlots().get(0) instanceof CompactKeyRangeList);
+        assertEquals(slots, serverFilter.getSlots());
+
+        SkipScanFilter expectedFilter = SkipScanFilter.parseFrom(filter.toByteArray());
+        for (int i = 0; i < 3000; i += 7) {
+            KeyValue kv = KeyValue.createFirstOnRow(Bytes.toBytes(String.format("key%06d", i)));
+            ReturnCode expected = expectedFilter.filterKeyValue(kv);
+            assertEquals(expected, serverFilter.filterKeyValue(kv));
+            if (expected == ReturnCode.SEEK_NEXT_USING_HINT) {
+                assertEquals(expectedFilter.getNextCellHint(kv), serverFilter.getNextCellHint(kv));
+            }
+        }
+    }
+
+    @Test
+    public void testInPlaceComparison() throws Exception {
+        List<KeyRange> keys = getKeys(100);
+        CompactKeyRangeList compactKeys = roundTrip(keys);
+        BytesComparator comparator = ScanUtil.getComparator(true, SortOrder.ASC);
+        for (String value : Arrays.asList("a", "key000000", "key000001", "key000150", "key000297", "key0002970", "z")) {
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable(Bytes.toBytes("x" + value), 1, value.length());
+            for (int i = 0; i < keys.size(); i++) {
+                KeyRange keyRange = keys.get(i);
+                assertEquals(keyRange.compareLowerToUpperBound(ptr, comparator),
+                        compactKeys.compareLowerToUpperBound(i, ptr, comparator));
+                assertEquals(keyRange.compareUpperToLowerBound(ptr, true, comparator),
+                        compactKeys.compareUpperToLowerBound(i, ptr, true, comparator));
+                assertEquals(keyRange.compareUpperToLowerBound(ptr, false, comparator),
+                        compactKeys.compareUpperToLowerBound(i, ptr, false, comparator));
+            }
+            assertEquals(ScanUtil.searchClosestKeyRangeWithUpperHigherThanPtr(keys, ptr, 0, SchemaUtil.VAR_BINARY_SCHEMA.getField(0)),
+                    ScanUtil.searchClosestKeyRangeWithUpperHigherThanPtr(compactKeys, ptr, 0, SchemaUtil.VAR_BINARY_SCHEMA.getField(0)));
+        }
+        List<KeyRange> compactSubList = compactKeys.subList(10, 20);
+        assertTrue(compactSubList instanceof CompactKeyRangeList);
+        assertEquals(keys.subList(10, 20), compactSubList);
+    }
+
+    private static RowKeySchema getVarcharCharSchema() {
+        RowKeySchemaBuilder builder = new RowKeySchemaBuilder(2);
+        for (final boolean isFixedWidth : new boolean[] {false, true}) {
+            builder.addField(new PDatum() {
+                @Override
+                public boolean isNullable() {
+                    return !isFixedWidth;
+                }
+
+                @Override
+                public PDataType getDataType() {
+                    return isFixedWidth ? PChar.INSTANCE : PVarchar.INSTANCE;
+                }
+
+                @Override
+                public Integer getMaxLength() {
+                    return isFixedWidth ? 3 : null;
+                }
+
+                @Override
+                public Integer getScale() {
+                    return null;
+                }
+
+                @Override
+                public SortOrder getSortOrder() {
+                    return SortOrder.getDefault();
+                }
+            }, !isFixedWidth, SortOrder.getDefault());
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testMultiSlotNavigation() throws Exception {
+        List<KeyRange> firstSlot = new ArrayList<KeyRange>();
+        for (int i = 0; i < 500; i++) {
+            firstSlot.add(KeyRange.getKeyRange(Bytes.toBytes(String.format("a%04d", i * 2))));
+        }
+        List<KeyRange> secondSlot = Arrays.asList(
+                KeyRange.getKeyRange(Bytes.toBytes("b00"), true, Bytes.toBytes("b05"), false),
+                KeyRange.getKeyRange(Bytes.toBytes("c10")),
+                KeyRange.getKeyRange(Bytes.toBytes("c20"), true, Bytes.toBytes("d00"), true),
+                KeyRange.getKeyRange(Bytes.toBytes("e00")));
+        List<List<KeyRange>> slots = Arrays.asList(firstSlot, secondSlot);
+        RowKeySchema schema = getVarcharCharSchema();
+        SkipScanFilter filter = new SkipScanFilter(slots, schema);
+        filter.setCompactSlotThreshold(100);
+        byte[] compactBytes = filter.toByteArray();
+        filter.setCompactSlotThreshold(0);
+        byte[] bytes = filter.toByteArray();
+
+        List<byte[]> rows = new ArrayList<byte[]>();
+        for (int i = 0; i < 1000; i += 3) {
+            for (String second : Arrays.asList("b01", "b07", "c10", "c11", "c25", "e00", "f00")) {
+                rows.add(ByteUtil.concat(Bytes.toBytes(String.format("a%04d", i)),
+                        QueryConstants.SEPARATOR_BYTE_ARRAY, Bytes.toBytes(second)));
+            }
+        }
+        SkipScanFilter expectedFilter = SkipScanFilter.parseFrom(bytes);
+        SkipScanFilter serverFilter = SkipScanFilter.parseFrom(compactBytes);
+        assertTrue(serverFilter.getSlots().get(0) instanceof CompactKeyRangeList);
+        assertFalse(serverFilter.getSlots().get(1) instanceof CompactKeyRangeList);
+        assertEquals(expectedFilter.hashCode(), serverFilter.hashCode());
+        // Scan the rows as a region scanner would, seeking to the hint when asked to
+        int included = 0;
+        int i = 0;
+        while (i < rows.size() && !expectedFilter.filterAllRemaining()) {
+            KeyValue kv = KeyValue.createFirstOnRow(rows.get(i));
+            ReturnCode expected = expectedFilter.filterKeyValue(kv);
+            assertEquals(expected, serverFilter.filterKeyValue(kv));
+            assertEquals(expectedFilter.filterAllRemaining(), serverFilter.filterAllRemaining());
+            if (expected == ReturnCode.SEEK_NEXT_USING_HINT) {
+                Cell hint = expectedFilter.getNextCellHint(kv);
+                assertEquals(hint, serverFilter.getNextCellHint(kv));
+                while (i < rows.size() && Bytes.compareTo(rows.get(i), 0, rows.get(i).length,
+                        hint.getRowArray(), hint.getRowOffset(), hint.getRowLength()) < 0) {
+                    i++;
+                }
+            } else {
+                if (expected != ReturnCode.NEXT_ROW) {
+                    included++;
+                }
+                i++;
+            }
+        }
+        assertTrue(included > 0);
+
+        for (String[] region : new String[][] {{"", "a0051"}, {"a0100", "a0200"}, {"a0101", "a0500"},
+                {"a0500", "a0500\u0000c15"}, {"a0990", ""}, {"b", ""}}) {
+            byte[] lowerInclusiveKey = Bytes.toBytes(region[0]);
+            byte[] upperExclusiveKey = Bytes.toBytes(region[1]);
+            SkipScanFilter expectedIntersect = SkipScanFilter.parseFrom(bytes).intersect(lowerInclusiveKey, upperExclusiveKey);
+            SkipScanFilter intersect = SkipScanFilter.parseFrom(compactBytes).intersect(lowerInclusiveKey, upperExclusiveKey);
+            if (expectedIntersect == null) {
+                assertNull(intersect);
+            } else {
+                assertEquals(expectedIntersect.getSlots(), intersect.getSlots());
+                assertTrue(intersect.getSlots().get(0) instanceof CompactKeyRangeList);
+            }
+        }
+    }
+}
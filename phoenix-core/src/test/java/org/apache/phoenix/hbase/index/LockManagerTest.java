@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.LockManager.RowLock;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.Test;
+
+public class LockManagerTest {
+
+    private static ImmutableBytesPtr row(String row) {
+        return new ImmutableBytesPtr(Bytes.toBytes(row));
+    }
+
+    @Test
+    public void testReentrantLock() throws Exception {
+        LockManager lockManager = new LockManager();
+        RowLock lock1 = lockManager.lockRow(row("a"), 100);
+        RowLock lock2 = lockManager.lockRow(row("a"), 100);
+        lock1.release();
+        lock2.release();
+        try {
+            lock2.release();
+            fail("Expected the lock to be released already");
+        } catch (IllegalMonitorStateException e) {
+        }
+        lockManager.lockRow(row("a"), 100).release();
+    }
+
+    @Test
+    public void testLockTimeout() throws Exception {
+        final LockManager lockManager = new LockManager();
+        RowLock lock = lockManager.lockRow(row("a"), 100);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<RowLock> future = executor.submit(new Callable<RowLock>() {
+                @Override
+                public RowLock call() throws Exception {
+                    return lockManager.lockRow(row("a"), 10);
+                }
+            });
+            try {
+                future.get();
+                fail("Expected the lock to time out");
+            } catch (Exception e) {
+                assertEquals(TimeoutIOException.class, e.getCause().getClass());
+            }
+            lock.release();
+            future = executor.submit(new Callable<RowLock>() {
+                @Override
+                public RowLock call() throws Exception {
+                    RowLock rowLock = lockManager.lockRow(row("a"), 10);
+                    rowLock.release();
+                    return rowLock;
+                }
+            });
+            assertEquals(row("a"), future.get().getRowKey());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchesLockInRowKeyOrder() throws Exception {
+        final LockManager lockManager = new LockManager(4, null);
+        final List<ImmutableBytesPtr> rows = new ArrayList<ImmutableBytesPtr>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(row("row" + i));
+        }
+        final List<ImmutableBytesPtr> reversedRows = new ArrayList<ImmutableBytesPtr>(rows);
+        Collections.reverse(reversedRows);
+        final int[] counts = new int[rows.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 4; i++) {
+                final List<ImmutableBytesPtr> batch = i % 2 == 0 ? rows : reversedRows;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < 200; j++) {
+                            List<RowLock> rowLocks = lockManager.lockRows(batch, 10000);
+                            for (RowLock rowLock : rowLocks) {
+                                counts[rows.indexOf(rowLock.getRowKey())]++;
+                            }
+                            for (RowLock rowLock : rowLocks) {
+                                rowLock.release();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        int[] expected = new int[rows.size()];
+        Arrays.fill(expected, 4 * 200);
+        assertEquals(Arrays.toString(expected), Arrays.toString(counts));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Stoppable;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.VersionInfo;
+import org.apache.phoenix.hbase.index.exception.MultiIndexWriteFailureException;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.util.ScanUtil;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+public class TestAsyncIndexCommitter {
+    private static final byte[] ROW = Bytes.toBytes("row");
+
+    private static RegionCoprocessorEnvironment getEnvironment() {
+        RegionCoprocessorEnvironment e = Mockito.mock(RegionCoprocessorEnvironment.class);
+        Mockito.when(e.getConfiguration()).thenReturn(new Configuration());
+        Region mockRegion = Mockito.mock(Region.class);
+        Mockito.when(e.getRegion()).thenReturn(mockRegion);
+        TableDescriptor mockTableDesc = Mockito.mock(TableDescriptor.class);
+        Mockito.when(mockRegion.getTableDescriptor()).thenReturn(mockTableDesc);
+        Mockito.when(mockTableDesc.getTableName()).thenReturn(TableName.valueOf("test"));
+        Connection mockConnection = Mockito.mock(Connection.class);
+        Mockito.when(e.getConnection()).thenReturn(mockConnection);
+        return e;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static AsyncTable getTable(final List<Mutation> written, final Throwable failure) {
+        AsyncTable table = Mockito.mock(AsyncTable.class);
+        Mockito.when(table.batch(Mockito.anyList())).thenAnswer(new Answer<List<CompletableFuture<Object>>>() {
+            @Override
+            public List<CompletableFuture<Object>> answer(InvocationOnMock invocation) throws Throwable {
+                List<CompletableFuture<Object>> results = new ArrayList<CompletableFuture<Object>>();
+                for (Object mutation : (List<Object>)invocation.getArguments()[0]) {
+                    CompletableFuture<Object> result = new CompletableFuture<Object>();
+                    if (failure == null) {
+                        written.add((Mutation)mutation);
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(failure);
+                    }
+                    results.add(result);
+                }
+                return results;
+            }
+        });
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testWritesAllTablesAndTracksFailures() throws Exception {
+        List<Mutation> written = new ArrayList<Mutation>();
+        AsyncConnection connection = Mockito.mock(AsyncConnection.class);
+        Mockito.when(connection.getTable(TableName.valueOf("index1"))).thenReturn(getTable(written, null));
+        Mockito.when(connection.getTable(TableName.valueOf("index2"))).thenReturn(
+                getTable(written, new IOException("Simulated failure")));
+
+        Put put1 = new Put(ROW);
+        put1.addColumn(Bytes.toBytes("family"), Bytes.toBytes("qual"), null);
+        Put put2 = new Put(Bytes.toBytes("row2"));
+        put2.addColumn(Bytes.toBytes("family"), Bytes.toBytes("qual"), null);
+        HTableInterfaceReference index1 = new HTableInterfaceReference(new ImmutableBytesPtr(Bytes.toBytes("index1")));
+        HTableInterfaceReference index2 = new HTableInterfaceReference(new ImmutableBytesPtr(Bytes.toBytes("index2")));
+        Multimap<HTableInterfaceReference, Mutation> indexUpdates = ArrayListMultimap.<HTableInterfaceReference, Mutation> create();
+        indexUpdates.put(index1, put1);
+        indexUpdates.put(index1, put2);
+        indexUpdates.put(index2, put1);
+
+        AsyncIndexCommitter committer = new AsyncIndexCommitter(VersionInfo.getVersion());
+        committer.setup(connection, connection, Mockito.mock(Stoppable.class), getEnvironment());
+        committer.disableIndexOnFailure = true;
+        try {
+            committer.write(indexUpdates, false, ScanUtil.UNKNOWN_CLIENT_VERSION);
+            fail("Expected the write to index2 to fail");
+        } catch (MultiIndexWriteFailureException e) {
+            assertEquals(Arrays.asList(index2), e.getFailedTables());
+        }
+        assertEquals(Arrays.<Mutation>asList(put1, put2), written);
+
+        written.clear();
+        indexUpdates.removeAll(index2);
+        committer.write(indexUpdates, false, ScanUtil.UNKNOWN_CLIENT_VERSION);
+        assertEquals(Arrays.<Mutation>asList(put1, put2), written);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class PackedRowsRegionScannerTest {
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+
+    private static List<List<Cell>> getRows(int rowCount) {
+        List<List<Cell>> rows = new ArrayList<List<Cell>>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%03d", i));
+            List<Cell> cells = new ArrayList<Cell>(2);
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("a"), i, Bytes.toBytes(i)));
+            if (i % 2 == 0) {
+                cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("b"), i + 1, KeyValue.Type.DeleteColumn));
+            }
+            rows.add(cells);
+        }
+        return rows;
+    }
+
+    private static RegionScanner newScanner(final List<List<Cell>> rows) throws Exception {
+        RegionScanner scanner = Mockito.mock(RegionScanner.class);
+        Mockito.when(scanner.nextRaw(Mockito.<List<Cell>>any())).thenAnswer(new Answer<Boolean>() {
+            private int next = 0;
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ((List<Cell>)invocation.getArguments()[0]).addAll(rows.get(next++));
+                return next < rows.size();
+            }
+        });
+        return scanner;
+    }
+
+    @Test
+    public void testPackAndDecode() throws Exception {
+        List<List<Cell>> rows = getRows(10);
+        PackedRowsRegionScanner scanner = new PackedRowsRegionScanner(newScanner(rows), 4);
+        List<Tuple> tuples = new ArrayList<Tuple>();
+        List<Cell> block = new ArrayList<Cell>();
+        int nBlocks = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            block.clear();
+            hasMore = scanner.nextRaw(block);
+            assertEquals(1, block.size());
+            Result result = Result.create(block);
+            assertTrue(PackedRowsRegionScanner.isPackedRows(result));
+            PackedRowsRegionScanner.RowDecoder decoder = new PackedRowsRegionScanner.RowDecoder(result);
+            Tuple last = null;
+            while (decoder.hasNext()) {
+                last = decoder.next();
+                tuples.add(last);
+            }
+            // The block carries the row key of its last row
+            assertArrayEquals(CellUtil.cloneRow(last.getValue(0)), result.getRow());
+            nBlocks++;
+        }
+        assertEquals(3, nBlocks);
+        assertEquals(rows.size(), tuples.size());
+        for (int i = 0; i < rows.size(); i++) {
+            List<Cell> expected = rows.get(i);
+            Tuple tuple = tuples.get(i);
+            assertEquals(expected.size(), tuple.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertTrue(CellUtil.equals(expected.get(j), tuple.getValue(j)));
+                assertEquals(expected.get(j).getType(), tuple.getValue(j).getType());
+                assertTrue(CellUtil.matchingValue(expected.get(j), tuple.getValue(j)));
+            }
+        }
+    }
+
+    @Test
+    public void testNotPackedRows() throws Exception {
+        assertFalse(PackedRowsRegionScanner.isPackedRows(Result.create(getRows(1).get(0))));
+    }
+}
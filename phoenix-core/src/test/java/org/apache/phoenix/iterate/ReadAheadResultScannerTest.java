@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer.ScanController;
+import org.apache.hadoop.hbase.client.AdvancedScanResultConsumer.ScanResumer;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ReadAheadResultScannerTest {
+
+    private static Result result(int i) {
+        byte[] row = Bytes.toBytes(i);
+        return Result.create(Collections.<Cell>singletonList(
+                new KeyValue(row, Bytes.toBytes("f"), Bytes.toBytes("q"), new byte[100])));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReadAheadResultScanner newScanner(long maxBufferBytes) {
+        AsyncTable<AdvancedScanResultConsumer> table = Mockito.mock(AsyncTable.class);
+        Scan scan = new Scan();
+        ReadAheadResultScanner scanner = new ReadAheadResultScanner(table, scan, maxBufferBytes);
+        Mockito.verify(table).scan(scan, scanner);
+        return scanner;
+    }
+
+    @Test
+    public void testSuspendAndResume() throws Exception {
+        Result result = result(0);
+        long size = Result.getTotalSizeOfCells(result);
+        ReadAheadResultScanner scanner = newScanner(4 * size);
+        ScanController controller = Mockito.mock(ScanController.class);
+        ScanResumer resumer = Mockito.mock(ScanResumer.class);
+        Mockito.when(controller.suspend()).thenReturn(resumer);
+
+        Result[] batch = new Result[] {result(0), result(1), result(2)};
+        scanner.onNext(batch, controller);
+        Mockito.verify(controller, Mockito.never()).suspend();
+        scanner.onNext(new Result[] {result(3), result(4)}, controller);
+        Mockito.verify(controller).suspend();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(i, Bytes.toInt(scanner.next().getRow()));
+            Mockito.verify(resumer, Mockito.never()).resume();
+        }
+        // Two results left, at half of the max buffer size
+        assertEquals(2, Bytes.toInt(scanner.next().getRow()));
+        Mockito.verify(resumer).resume();
+        scanner.onComplete();
+        assertEquals(3, Bytes.toInt(scanner.next().getRow()));
+        assertEquals(4, Bytes.toInt(scanner.next().getRow()));
+        assertNull(scanner.next());
+    }
+
+    @Test
+    public void testError() throws Exception {
+        ReadAheadResultScanner scanner = newScanner(1024);
+        ScanController controller = Mockito.mock(ScanController.class);
+        scanner.onNext(new Result[] {result(0)}, controller);
+        IOException error = new IOException("test");
+        scanner.onError(error);
+        // Buffered results are returned before the error
+        assertEquals(0, Bytes.toInt(scanner.next().getRow()));
+        try {
+            scanner.next();
+            fail();
+        } catch (IOException e) {
+            assertSame(error, e);
+        }
+    }
+
+    @Test
+    public void testCloseTerminates() throws Exception {
+        ReadAheadResultScanner scanner = newScanner(1);
+        ScanController controller = Mockito.mock(ScanController.class);
+        ScanResumer resumer = Mockito.mock(ScanResumer.class);
+        Mockito.when(controller.suspend()).thenReturn(resumer);
+        scanner.onNext(new Result[] {result(0)}, controller);
+        scanner.close();
+        Mockito.verify(resumer).resume();
+        scanner.onNext(new Result[] {result(1)}, controller);
+        Mockito.verify(controller).terminate();
+        assertNull(scanner.next());
+    }
+}
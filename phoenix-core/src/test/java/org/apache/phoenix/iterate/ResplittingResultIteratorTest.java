@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ByteUtil;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Lists;
+
+public class ResplittingResultIteratorTest {
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+
+    private static List<Tuple> getRows(byte[] startKey, byte[] stopKey) {
+        List<Tuple> rows = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%04d", i));
+            if (Bytes.compareTo(row, startKey) >= 0 && (stopKey.length == 0 || Bytes.compareTo(row, stopKey) < 0)) {
+                rows.add(new SingleKeyValueTuple(new KeyValue(row, FAMILY, FAMILY, row)));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void testSplitRange() {
+        byte[][] keys = ResplittingResultIterator.splitRange(Bytes.toBytes("a"), Bytes.toBytes("z"), 4);
+        assertEquals(5, keys.length);
+        assertArrayEquals(Bytes.toBytes("a"), keys[0]);
+        assertArrayEquals(Bytes.toBytes("z"), keys[4]);
+        for (int i = 1; i < keys.length; i++) {
+            assertTrue(Bytes.compareTo(keys[i - 1], keys[i]) < 0);
+        }
+        keys = ResplittingResultIterator.splitRange(Bytes.toBytes("a"), ByteUtil.EMPTY_BYTE_ARRAY, 3);
+        assertEquals(4, keys.length);
+        assertEquals(0, keys[3].length);
+        assertTrue(Bytes.compareTo(keys[1], keys[0]) > 0);
+        assertTrue(Bytes.compareTo(keys[2], keys[1]) > 0);
+        assertNull(ResplittingResultIterator.splitRange(Bytes.toBytes("b"), Bytes.toBytes("a"), 3));
+        assertNull(ResplittingResultIterator.splitRange(Bytes.toBytes("a"), Bytes.toBytes("z"), 1));
+    }
+
+    @Test
+    public void testRowsInOrderAfterSplit() throws Exception {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        final List<Scan> pieceScans = Lists.newArrayList();
+        try {
+            ResplittingResultIterator.PieceSubmitter submitter = new ResplittingResultIterator.PieceSubmitter() {
+                @Override
+                public Future<PeekingResultIterator> submit(final Scan scan) throws SQLException {
+                    pieceScans.add(scan);
+                    return executor.submit(new Callable<PeekingResultIterator>() {
+                        @Override
+                        public PeekingResultIterator call() {
+                            return new MaterializedResultIterator(getRows(scan.getStartRow(), scan.getStopRow()));
+                        }
+                    });
+                }
+            };
+            Scan scan = new Scan();
+            List<Tuple> expected = getRows(ByteUtil.EMPTY_BYTE_ARRAY, ByteUtil.EMPTY_BYTE_ARRAY);
+            ResultIterator iterator = new ResplittingResultIterator(new MaterializedResultIterator(expected),
+                    scan, submitter, executor, 0, 100, 4);
+            ImmutableBytesWritable expectedKey = new ImmutableBytesWritable();
+            ImmutableBytesWritable actualKey = new ImmutableBytesWritable();
+            for (Tuple expectedRow : expected) {
+                Tuple actualRow = iterator.next();
+                expectedRow.getKey(expectedKey);
+                actualRow.getKey(actualKey);
+                assertEquals(expectedKey, actualKey);
+            }
+            assertNull(iterator.next());
+            iterator.close();
+            assertEquals(4, pieceScans.size());
+            // The rest of the range starts right after the 100th row
+            assertArrayEquals(ByteUtil.concat(Bytes.toBytes("row0099"), new byte[1]), pieceScans.get(0).getStartRow());
+            assertEquals(0, pieceScans.get(3).getStopRow().length);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testIdleThreadsCheckedEveryInterval() throws Exception {
+        // A pool with all its threads busy
+        ThreadPoolExecutor executor = Mockito.mock(ThreadPoolExecutor.class);
+        Mockito.when(executor.getActiveCount()).thenReturn(4);
+        Mockito.when(executor.getMaximumPoolSize()).thenReturn(4);
+        ResplittingResultIterator.PieceSubmitter submitter = Mockito.mock(ResplittingResultIterator.PieceSubmitter.class);
+        List<Tuple> expected = getRows(ByteUtil.EMPTY_BYTE_ARRAY, ByteUtil.EMPTY_BYTE_ARRAY);
+        ResultIterator iterator = new ResplittingResultIterator(new MaterializedResultIterator(expected),
+                new Scan(), submitter, executor, 0, 100, 4);
+        int count = 0;
+        while (iterator.next() != null) {
+            count++;
+        }
+        iterator.close();
+        assertEquals(expected.size(), count);
+        // Checked once the threshold is reached and then once per interval instead of once per row
+        int checks = (expected.size() - 100) / ResplittingResultIterator.IDLE_THREADS_CHECK_INTERVAL + 1;
+        Mockito.verify(executor, Mockito.times(checks)).getActiveCount();
+        Mockito.verifyZeroInteractions(submitter);
+    }
+}
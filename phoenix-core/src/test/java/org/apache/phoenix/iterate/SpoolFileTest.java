@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class SpoolFileTest {
+
+    private static byte[] record(int i) {
+        // Vary the length so that some records are larger than a block
+        byte[] b = new byte[Bytes.SIZEOF_INT + (i % 7) * 100 + (i % 50 == 0 ? 5000 : 0)];
+        Bytes.putInt(b, 0, i);
+        for (int j = Bytes.SIZEOF_INT; j < b.length; j++) {
+            b[j] = (byte)(i + j);
+        }
+        return b;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        testRoundTrip(false);
+    }
+
+    @Test
+    public void testMappedRoundTrip() throws Exception {
+        testRoundTrip(true);
+    }
+
+    private void testRoundTrip(boolean isMapped) throws Exception {
+        int nRecords = 1000;
+        SpoolFile spoolFile = new SpoolFile("SpoolFileTest", null, null, 1024, isMapped);
+        try {
+            long uncompressedLength = 0;
+            for (int i = 0; i < nRecords; i++) {
+                byte[] b = record(i);
+                spoolFile.getRecordOutput().writeInt(b.length);
+                spoolFile.append(b, 0, b.length);
+                uncompressedLength += Bytes.SIZEOF_INT + b.length;
+            }
+            spoolFile.finish();
+            assertEquals(spoolFile.getLength(), spoolFile.getFile().length());
+            if (isMapped) {
+                assertTrue(spoolFile.getLength() < uncompressedLength);
+            } else {
+                assertTrue(spoolFile.getLength() > uncompressedLength);
+            }
+
+            // Two readers over the same file don't interfere with each other
+            SpoolFile.Reader reader1 = spoolFile.newReader();
+            SpoolFile.Reader reader2 = spoolFile.newReader();
+            ImmutableBytesWritable block1 = new ImmutableBytesWritable();
+            ImmutableBytesWritable block2 = new ImmutableBytesWritable();
+            int nBlocks = 0;
+            int i = 0;
+            while (reader1.nextBlock(block1)) {
+                assertTrue(reader2.nextBlock(block2));
+                assertEquals(0, block1.compareTo(block2));
+                nBlocks++;
+                int offset = block1.getOffset();
+                int end = offset + block1.getLength();
+                while (offset < end) {
+                    int length = Bytes.toInt(block1.get(), offset);
+                    offset += Bytes.SIZEOF_INT;
+                    byte[] expected = record(i++);
+                    assertTrue(Bytes.equals(expected, 0, expected.length, block1.get(), offset, length));
+                    offset += length;
+                }
+                assertEquals(end, offset);
+            }
+            assertFalse(reader2.nextBlock(block2));
+            assertEquals(nRecords, i);
+            assertTrue(nBlocks > 1);
+        } finally {
+            spoolFile.close();
+        }
+        assertFalse(spoolFile.getFile().exists());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        for (boolean isMapped : new boolean[] {false, true}) {
+            SpoolFile spoolFile = new SpoolFile("SpoolFileTest", null, new File("/tmp"), isMapped);
+            spoolFile.finish();
+            assertEquals(0, spoolFile.getLength());
+            assertFalse(spoolFile.newReader().nextBlock(new ImmutableBytesWritable()));
+            spoolFile.close();
+            assertFalse(spoolFile.getFile().exists());
+        }
+    }
+}
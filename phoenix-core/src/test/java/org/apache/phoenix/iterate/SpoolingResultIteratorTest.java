@@ -43,7 +43,7 @@ public class SpoolingResultIteratorTest {
     private final static byte[] A = Bytes.toBytes("a");
     private final static byte[] B = Bytes.toBytes("b");
 
-    private void testSpooling(int threshold, long maxSizeSpool) throws Throwable {
+    private void testSpooling(int threshold, long maxSizeSpool, boolean isSpoolFileMapped) throws Throwable {
         Tuple[] results = new Tuple[] {
                 new SingleKeyValueTuple(new KeyValue(A, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1))),
                 new SingleKeyValueTuple(new KeyValue(B, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1))),
@@ -59,21 +59,25 @@ public class SpoolingResultIteratorTest {
         ResultIterator scanner = new SpoolingResultIterator(
                 SpoolingMetricsHolder.NO_OP_INSTANCE,
                 new MemoryMetricsHolder(new ReadMetricQueue(false,LogLevel.OFF), ""), iterator, memoryManager, threshold,
-                maxSizeSpool, "/tmp");
+                maxSizeSpool, "/tmp", isSpoolFileMapped);
         AssertResults.assertResults(scanner, expectedResults);
     }
 
     @Test
     public void testInMemorySpooling() throws Throwable {
-        testSpooling(1024*1024, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES);
+        testSpooling(1024*1024, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES, false);
     }
     @Test
     public void testOnDiskSpooling() throws Throwable {
-        testSpooling(1, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES);
+        testSpooling(1, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES, false);
+    }
+    @Test
+    public void testOnDiskMappedSpooling() throws Throwable {
+        testSpooling(1, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES, true);
     }
 
     @Test(expected = SpoolTooBigToDiskException.class)
     public void testFailToSpool() throws Throwable{
-    		testSpooling(1, 0L);
+    		testSpooling(1, 0L, false);
     }
 }
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.job.JobManager.JobClass;
+import org.apache.phoenix.job.JobManager.JobFutureTask;
+import org.apache.phoenix.job.JobManager.SchedulableJobCallable;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.junit.Test;
+
+public class FairJobQueueTest {
+
+    private static JobFutureTask<Void> newTask(final Object jobId, final Object tenantId,
+            final JobClass jobClass, final int maxParallelism) {
+        return new JobFutureTask<Void>(new SchedulableJobCallable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                return null;
+            }
+
+            @Override
+            public Object getJobId() {
+                return jobId;
+            }
+
+            @Override
+            public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                return null;
+            }
+
+            @Override
+            public Object getTenantId() {
+                return tenantId;
+            }
+
+            @Override
+            public JobClass getJobClass() {
+                return jobClass;
+            }
+
+            @Override
+            public int getMaxParallelism() {
+                return maxParallelism;
+            }
+        });
+    }
+
+    private static void offer(FairJobQueue queue, String jobId, String tenantId, JobClass jobClass,
+            int maxParallelism, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(queue.offer(newTask(jobId, tenantId, jobClass, maxParallelism)));
+        }
+    }
+
+    private static String pollJob(FairJobQueue queue) {
+        JobFutureTask<?> task = (JobFutureTask<?>)queue.poll();
+        return task == null ? null : (String)task.getJobId();
+    }
+
+    @Test
+    public void testJobsShareThreads() {
+        FairJobQueue queue = new FairJobQueue(100, 10, 0, 1);
+        offer(queue, "a", null, JobClass.NORMAL, 0, 10);
+        offer(queue, "b", null, JobClass.NORMAL, 0, 2);
+        assertEquals("a", pollJob(queue));
+        assertEquals("b", pollJob(queue));
+        assertEquals("a", pollJob(queue));
+        assertEquals("b", pollJob(queue));
+        assertEquals("a", pollJob(queue));
+        assertEquals("a", pollJob(queue));
+        assertEquals(6, queue.size());
+    }
+
+    @Test
+    public void testTenantsShareThreads() {
+        FairJobQueue queue = new FairJobQueue(100, 10, 0, 1);
+        offer(queue, "a", "t1", JobClass.NORMAL, 0, 4);
+        offer(queue, "c", "t1", JobClass.NORMAL, 0, 4);
+        offer(queue, "b", "t2", JobClass.NORMAL, 0, 4);
+        assertEquals("a", pollJob(queue));
+        assertEquals("b", pollJob(queue));
+        assertEquals("c", pollJob(queue));
+        assertEquals("b", pollJob(queue));
+        assertEquals("a", pollJob(queue));
+        assertEquals("b", pollJob(queue));
+    }
+
+    @Test
+    public void testLowLatencyJobsWeighted() {
+        FairJobQueue queue = new FairJobQueue(100, 100, 0, 4);
+        offer(queue, "normal", null, JobClass.NORMAL, 0, 10);
+        offer(queue, "lowLatency", null, JobClass.LOW_LATENCY, 0, 10);
+        int lowLatencyCount = 0;
+        for (int i = 0; i < 10; i++) {
+            if ("lowLatency".equals(pollJob(queue))) {
+                lowLatencyCount++;
+            }
+        }
+        assertEquals(8, lowLatencyCount);
+    }
+
+    @Test
+    public void testMaxParallelism() {
+        FairJobQueue queue = new FairJobQueue(100, 10, 0, 1);
+        offer(queue, "a", null, JobClass.NORMAL, 2, 5);
+        Runnable first = queue.poll();
+        assertEquals("a", pollJob(queue));
+        assertNull(queue.poll());
+        assertEquals(3, queue.size());
+        queue.taskCompleted(first);
+        assertEquals("a", pollJob(queue));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testReservedThreads() {
+        FairJobQueue queue = new FairJobQueue(100, 3, 1, 1);
+        offer(queue, "normal", null, JobClass.NORMAL, 0, 5);
+        assertEquals("normal", pollJob(queue));
+        Runnable second = queue.poll();
+        assertNull(queue.poll());
+        offer(queue, "lowLatency", null, JobClass.LOW_LATENCY, 0, 1);
+        assertEquals("lowLatency", pollJob(queue));
+        queue.taskCompleted(second);
+        assertEquals("normal", pollJob(queue));
+    }
+
+    @Test
+    public void testRemoveAndDrain() {
+        FairJobQueue queue = new FairJobQueue(3, 1, 0, 1);
+        JobFutureTask<Void> task = newTask("a", null, JobClass.NORMAL, 0);
+        assertTrue(queue.offer(task));
+        offer(queue, "b", null, JobClass.NORMAL, 0, 2);
+        assertFalse(queue.offer(newTask("c", null, JobClass.NORMAL, 0)));
+        assertTrue(queue.remove(task));
+        assertEquals(2, queue.size());
+        // Tasks that may not run are drained too
+        assertEquals("b", pollJob(queue));
+        List<Runnable> drained = new ArrayList<Runnable>();
+        assertEquals(1, queue.drainTo(drained));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testPutBlocksUntilSpace() throws Exception {
+        final FairJobQueue queue = new FairJobQueue(1, 1, 0, 1);
+        offer(queue, "a", null, JobClass.NORMAL, 0, 1);
+        final JobFutureTask<Void> task = newTask("b", null, JobClass.NORMAL, 0);
+        Thread putter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        putter.start();
+        putter.join(200);
+        assertTrue(putter.isAlive());
+        assertEquals(1, queue.size());
+        assertEquals("a", pollJob(queue));
+        putter.join(10000);
+        assertFalse(putter.isAlive());
+        assertEquals(1, queue.size());
+        assertTrue(queue.contains(task));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        FairJobQueue queue = new FairJobQueue(10, 1, 0, 1);
+        offer(queue, "a", null, JobClass.NORMAL, 0, 2);
+        offer(queue, "b", null, JobClass.NORMAL, 0, 1);
+        Iterator<Runnable> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if ("a".equals(((JobFutureTask<?>)iterator.next()).getJobId())) {
+                iterator.remove();
+            }
+        }
+        assertEquals(1, queue.size());
+        assertEquals("b", pollJob(queue));
+    }
+
+    @Test
+    public void testFairPoolRunsPlainRunnables() throws Exception {
+        // A single thread, so a leaked running slot would stop every later task
+        ThreadPoolExecutor executor = JobManager.createFairThreadPoolExec(60000, 1, 100, 0, 1);
+        try {
+            final CountDownLatch latch = new CountDownLatch(20);
+            for (int i = 0; i < 20; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.PColumn;
+import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PName;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+import org.apache.phoenix.util.TupleUtil;
+import org.junit.Test;
+
+public class CompactHashCacheTest {
+    private static final byte[] FAMILY = Bytes.toBytes("f1");
+    private static final byte[] KEY_QUALIFIER = Bytes.toBytes("k");
+    private static final byte[] VALUE_QUALIFIER = Bytes.toBytes("v");
+
+    private static byte[] serialize(boolean singleValueOnly, String[][] rows) throws IOException {
+        PName colName = PNameFactory.newName("k");
+        PColumn column = new PColumnImpl(colName, PNameFactory.newName("f1"), PVarchar.INSTANCE, null, null,
+                true, 1, SortOrder.getDefault(), 0, null, false, null, false, false, KEY_QUALIFIER, HConstants.LATEST_TIMESTAMP);
+        Expression keyExpression = new KeyValueColumnExpression(column);
+        TrustedByteArrayOutputStream baOut = new TrustedByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(baOut);
+        out.writeInt(1);
+        WritableUtils.writeVInt(out, ExpressionType.valueOf(keyExpression).ordinal());
+        keyExpression.write(out);
+        int exprSize = baOut.size() + Bytes.SIZEOF_INT;
+        out.writeInt(exprSize * (singleValueOnly ? -1 : 1));
+        out.writeInt(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            byte[] row = Bytes.toBytes("row" + i);
+            Cell[] cells = new Cell[] {
+                    new KeyValue(row, FAMILY, KEY_QUALIFIER, Bytes.toBytes(rows[i][0])),
+                    new KeyValue(row, FAMILY, VALUE_QUALIFIER, Bytes.toBytes(rows[i][1])) };
+            TupleUtil.write(new ResultTuple(Result.create(cells)), out);
+        }
+        out.flush();
+        return Arrays.copyOf(baOut.getBuffer(), baOut.size());
+    }
+
+    private static String getValue(Tuple tuple) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        assertTrue(tuple.getValue(FAMILY, VALUE_QUALIFIER, ptr));
+        return Bytes.toString(ptr.get(), ptr.getOffset(), ptr.getLength());
+    }
+
+    private static ImmutableBytesPtr key(String key) {
+        return new ImmutableBytesPtr(Bytes.toBytes(key));
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        byte[] bytes = serialize(false, new String[][] {
+                {"a", "1"}, {"b", "2"}, {"a", "3"}, {"c", "4"}, {"a", "5"} });
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024);
+        CompactHashCache cache = new CompactHashCache(bytes, memoryManager.allocate(0), 0);
+        assertEquals(5, cache.getRowCount());
+        assertEquals(3, cache.getKeyCount());
+
+        List<Tuple> tuples = cache.get(key("a"));
+        assertEquals(3, tuples.size());
+        assertEquals("1", getValue(tuples.get(0)));
+        assertEquals("3", getValue(tuples.get(1)));
+        assertEquals("5", getValue(tuples.get(2)));
+        tuples = cache.get(key("c"));
+        assertEquals(1, tuples.size());
+        assertEquals("4", getValue(tuples.get(0)));
+        assertNull(cache.get(key("d")));
+        assertNull(cache.get(key("")));
+    }
+
+    @Test
+    public void testSingleValueOnly() throws Exception {
+        byte[] bytes = serialize(true, new String[][] { {"a", "1"}, {"b", "2"}, {"a", "3"} });
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024);
+        CompactHashCache cache = new CompactHashCache(bytes, memoryManager.allocate(0), 0);
+        assertEquals(1, cache.get(key("b")).size());
+        try {
+            cache.get(key("a"));
+            fail();
+        } catch (IOException e) {
+        }
+    }
+
+    @Test
+    public void testMemoryAccounting() throws Exception {
+        String[][] rows = new String[1000][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new String[] { Integer.toString(i % 100), Integer.toString(i) };
+        }
+        byte[] bytes = serialize(false, rows);
+        long maxBytes = 1024 * 1024;
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(maxBytes);
+        MemoryChunk chunk = memoryManager.allocate(0);
+        CompactHashCache cache = new CompactHashCache(bytes, chunk, 0);
+        assertEquals(100, cache.getKeyCount());
+        assertEquals(10, cache.get(key("42")).size());
+        // Footprint is the buffer plus a few ints per row, well under the map based estimate
+        assertTrue(chunk.getSize() > bytes.length);
+        assertTrue(chunk.getSize() < bytes.length + 64 * rows.length);
+        assertEquals(maxBytes - chunk.getSize(), memoryManager.getAvailableMemory());
+        cache.close();
+        assertEquals(maxBytes, memoryManager.getAvailableMemory());
+    }
+}
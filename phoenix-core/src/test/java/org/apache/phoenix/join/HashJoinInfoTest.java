@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.parse.JoinTableNode.JoinType;
+import org.apache.phoenix.schema.PTable;
+import org.junit.Test;
+
+public class HashJoinInfoTest {
+    // Scan attribute the join info is serialized into
+    private static final String HASH_JOIN = "HashJoin";
+
+    @SuppressWarnings("unchecked")
+    private static HashJoinInfo newJoinInfo() throws Exception {
+        return new HashJoinInfo(null,
+                new ImmutableBytesPtr[] { new ImmutableBytesPtr(Bytes.toBytes(1L)) },
+                new List[] { Collections.<Expression> singletonList(LiteralExpression.newConstant("a")) },
+                new JoinType[] { JoinType.Inner }, new boolean[] { true }, new PTable[] { null },
+                new int[] { 0 }, null, null);
+    }
+
+    @Test
+    public void testPartitionSerialization() throws Exception {
+        HashJoinInfo joinInfo = newJoinInfo();
+        joinInfo.setPartition(3, 8);
+        Scan scan = new Scan();
+        HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo);
+        HashJoinInfo copy = HashJoinInfo.deserializeHashJoinFromScan(scan);
+        assertTrue(copy.isPartitioned());
+        assertEquals(3, copy.getPartitionIndex());
+        assertEquals(8, copy.getPartitionCount());
+        assertEquals(JoinType.Inner, copy.getJoinTypes()[0]);
+        assertEquals(joinInfo.getJoinIds()[0], copy.getJoinIds()[0]);
+    }
+
+    @Test
+    public void testNotPartitionedByDefault() throws Exception {
+        Scan scan = new Scan();
+        HashJoinInfo.serializeHashJoinIntoScan(scan, newJoinInfo());
+        HashJoinInfo copy = HashJoinInfo.deserializeHashJoinFromScan(scan);
+        assertFalse(copy.isPartitioned());
+        assertEquals(0, copy.getPartitionIndex());
+        assertEquals(1, copy.getPartitionCount());
+    }
+
+    @Test
+    public void testPartitionPassSerialization() throws Exception {
+        HashJoinInfo joinInfo = newJoinInfo();
+        Scan scan = new Scan();
+        HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo, 7, 8);
+        HashJoinInfo copy = HashJoinInfo.deserializeHashJoinFromScan(scan);
+        assertEquals(7, copy.getPartitionIndex());
+        assertEquals(8, copy.getPartitionCount());
+        // A later scan of the same plan that isn't partitioned must not inherit the last pass
+        assertFalse(joinInfo.isPartitioned());
+        HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo);
+        copy = HashJoinInfo.deserializeHashJoinFromScan(scan);
+        assertFalse(copy.isPartitioned());
+        assertEquals(0, copy.getPartitionIndex());
+    }
+
+    @Test
+    public void testDeserializeWithoutPartition() throws Exception {
+        HashJoinInfo joinInfo = newJoinInfo();
+        joinInfo.setPartition(3, 8);
+        Scan scan = new Scan();
+        HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo);
+        // Drop the partition count and index, each a single byte vint, as written by clients
+        // that predate partitioned hash joins
+        byte[] b = scan.getAttribute(HASH_JOIN);
+        scan.setAttribute(HASH_JOIN, Arrays.copyOf(b, b.length - 2));
+        HashJoinInfo copy = HashJoinInfo.deserializeHashJoinFromScan(scan);
+        assertFalse(copy.isPartitioned());
+        assertEquals(0, copy.getPartitionIndex());
+        assertEquals(1, copy.getPartitionCount());
+    }
+
+    @Test
+    public void testGetPartition() {
+        int partitionCount = 8;
+        int[] counts = new int[partitionCount];
+        for (int i = 0; i < 8000; i++) {
+            ImmutableBytesPtr key = new ImmutableBytesPtr(Bytes.toBytes("key" + i));
+            int partition = HashJoinInfo.getPartition(key, partitionCount);
+            assertTrue(partition >= 0 && partition < partitionCount);
+            // The same key in another buffer, as on the server, falls into the same partition
+            byte[] b = new byte[key.getLength() + 2];
+            System.arraycopy(key.get(), key.getOffset(), b, 1, key.getLength());
+            assertEquals(partition, HashJoinInfo.getPartition(
+                    new ImmutableBytesPtr(b, 1, key.getLength()), partitionCount));
+            counts[partition]++;
+        }
+        for (int count : counts) {
+            assertTrue("partition counts: " + Arrays.toString(counts), count > 500);
+        }
+        assertEquals(0, HashJoinInfo.getPartition(new ImmutableBytesPtr(Bytes.toBytes("key")), 1));
+    }
+}
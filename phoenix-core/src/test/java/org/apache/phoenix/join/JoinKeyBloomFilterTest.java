@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class JoinKeyBloomFilterTest {
+
+    private static ImmutableBytesWritable key(int i) {
+        return new ImmutableBytesWritable(Bytes.toBytes("key" + i));
+    }
+
+    @Test
+    public void testMightContain() {
+        JoinKeyBloomFilter.Builder builder = new JoinKeyBloomFilter.Builder(10, 1024 * 1024);
+        for (int i = 0; i < 1000; i++) {
+            builder.add(key(i));
+        }
+        JoinKeyBloomFilter filter = builder.build();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain(key(i)));
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain(key(i))) {
+                falsePositives++;
+            }
+        }
+        // Expected rate at 10 bits per key is about 1%
+        assertTrue("false positives: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void testSerialization() {
+        JoinKeyBloomFilter.Builder builder = new JoinKeyBloomFilter.Builder(8, 1024 * 1024);
+        for (int i = 0; i < 100; i++) {
+            builder.add(key(i));
+        }
+        JoinKeyBloomFilter filter = builder.build();
+        byte[] b = filter.toBytes();
+        byte[] padded = new byte[b.length + 3];
+        System.arraycopy(b, 0, padded, 2, b.length);
+        JoinKeyBloomFilter copy = JoinKeyBloomFilter.fromBytes(padded, 2, b.length);
+        assertEquals(filter.getNumHashFunctions(), copy.getNumHashFunctions());
+        assertEquals(filter.getBitCount(), copy.getBitCount());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(filter.mightContain(key(i)), copy.mightContain(key(i)));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        JoinKeyBloomFilter filter = new JoinKeyBloomFilter.Builder(10, 1024).build();
+        assertFalse(filter.mightContain(key(0)));
+        assertFalse(filter.mightContain(new ImmutableBytesWritable(new byte[0])));
+    }
+
+    @Test
+    public void testMaxBytes() {
+        JoinKeyBloomFilter.Builder builder = new JoinKeyBloomFilter.Builder(10, 1024);
+        for (int i = 0; i < 1000; i++) {
+            builder.add(key(i));
+        }
+        assertNull(builder.build());
+    }
+}
@@ -211,6 +211,25 @@ public class PMetaDataImplTest {
         assertEquals(2, metaData.getAge(aTableRef));
     }
 
+    @Test
+    public void testCloneIsIsolated() throws Exception {
+        TestTimeKeeper timeKeeper = new TestTimeKeeper();
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "10");
+        props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
+        PMetaData metaData = new PSynchronizedMetaData(new PMetaDataImpl(5, timeKeeper,  new ReadOnlyProps(props)));
+        addToTable(metaData, "a", 2, timeKeeper);
+        addToTable(metaData, "b", 2, timeKeeper);
+        PMetaData snapshot = metaData.clone();
+        addToTable(metaData, "c", 2, timeKeeper);
+        removeFromTable(metaData, "a", timeKeeper);
+        assertNames(metaData, "b", "c");
+        assertNames(snapshot, "a", "b");
+        addToTable(snapshot, "d", 7, timeKeeper);
+        assertNames(snapshot, "b", "d");
+        assertNames(metaData, "b", "c");
+    }
+
     @Test
     public void testSchema() throws Exception {
         TestTimeKeeper timeKeeper = new TestTimeKeeper();
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class CSVCommonsLoaderTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<CSVRecord> newBatch() throws Exception {
+        return CSVParser.parse("a,1\nb,2\n", CSVFormat.DEFAULT).getRecords();
+    }
+
+    @Test
+    public void testGetThreadWithMoreRegionsThanThreads() {
+        // Each thread gets a contiguous range of regions, whatever the row key
+        for (int region = 0; region < 8; region++) {
+            assertEquals(region / 2, CSVCommonsLoader.getThread(region, 8, 4, region * 31));
+            assertEquals(region / 2, CSVCommonsLoader.getThread(region, 8, 4, -region));
+        }
+        assertEquals(0, CSVCommonsLoader.getThread(0, 4, 4, 7));
+        assertEquals(3, CSVCommonsLoader.getThread(3, 4, 4, 7));
+    }
+
+    @Test
+    public void testGetThreadWithFewerRegionsThanThreads() {
+        // A single region is spread over all the threads
+        Set<Integer> threads = Sets.newHashSet();
+        for (int hash = -50; hash < 50; hash++) {
+            int thread = CSVCommonsLoader.getThread(0, 1, 4, hash);
+            assertTrue(thread >= 0 && thread < 4);
+            // The same row key always goes to the same thread
+            assertEquals(thread, CSVCommonsLoader.getThread(0, 1, 4, hash));
+            threads.add(thread);
+        }
+        assertEquals(Sets.newHashSet(0, 1, 2, 3), threads);
+
+        // Each region gets its own contiguous range of threads
+        Set<Integer> firstRegionThreads = Sets.newHashSet();
+        Set<Integer> secondRegionThreads = Sets.newHashSet();
+        for (int hash = 0; hash < 100; hash++) {
+            firstRegionThreads.add(CSVCommonsLoader.getThread(0, 2, 5, hash));
+            secondRegionThreads.add(CSVCommonsLoader.getThread(1, 2, 5, hash));
+        }
+        assertEquals(Sets.newHashSet(0, 1), firstRegionThreads);
+        assertEquals(Sets.newHashSet(2, 3, 4), secondRegionThreads);
+        assertEquals(0, CSVCommonsLoader.getThread(0, 1, 1, Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testEnqueueBlocksUntilUpsertThreadCatchesUp() throws Exception {
+        final BlockingQueue<List<CSVRecord>> queue = new ArrayBlockingQueue<>(1);
+        queue.put(newBatch());
+        final CountDownLatch upserting = new CountDownLatch(1);
+        final List<Future<Long>> futures = Collections.singletonList(executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                upserting.await();
+                return 0L;
+            }
+        }));
+        final List<CSVRecord> batch = newBatch();
+        final CountDownLatch enqueued = new CountDownLatch(1);
+        Thread parser = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    CSVCommonsLoader.enqueue(queue, batch, futures);
+                    enqueued.countDown();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        parser.start();
+        // Parsing waits while the queue of the upsert thread is full
+        assertFalse(enqueued.await(1500, TimeUnit.MILLISECONDS));
+        queue.take();
+        assertTrue(enqueued.await(10, TimeUnit.SECONDS));
+        assertSame(batch, queue.take());
+        upserting.countDown();
+        parser.join();
+    }
+
+    @Test
+    public void testEnqueueRethrowsUpsertThreadFailure() throws Exception {
+        final SQLException failure = new SQLException("Upsert failed");
+        BlockingQueue<List<CSVRecord>> queue = new ArrayBlockingQueue<>(1);
+        queue.put(newBatch());
+        List<Future<Long>> futures = Collections.singletonList(executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                throw failure;
+            }
+        }));
+        // The failed upsert thread never drains its queue, which must not block parsing forever
+        try {
+            CSVCommonsLoader.enqueue(queue, newBatch(), futures);
+            fail("The failure of the upsert thread should be rethrown");
+        } catch (SQLException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void testGetUpsertCount() throws Exception {
+        Future<Long> future = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return 42L;
+            }
+        });
+        assertEquals(42L, CSVCommonsLoader.getUpsertCount(future));
+    }
+}
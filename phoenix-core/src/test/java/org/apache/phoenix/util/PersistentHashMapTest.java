@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class PersistentHashMapTest {
+
+    /**
+     * Key with a caller chosen hash code, to force collisions and deep tries.
+     */
+    private static final class Key {
+        private final int hash;
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+            this.hash = id % 3 == 0 ? id % 7 : id * 0x9E3779B9;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key)o).id == id;
+        }
+    }
+
+    private static void assertContents(Map<Key,Integer> expected, PersistentHashMap<Key,Integer> actual, int maxId) {
+        assertEquals(expected.size(), actual.size());
+        Map<Key,Integer> iterated = Maps.newHashMap();
+        for (Map.Entry<Key,Integer> entry : actual) {
+            iterated.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(expected, iterated);
+        for (int id = 0; id < maxId; id++) {
+            Key key = new Key(id);
+            assertEquals(expected.get(key), actual.get(key));
+        }
+    }
+
+    @Test
+    public void testMatchesHashMap() {
+        Random random = new Random(0);
+        int maxId = 2000;
+        PersistentHashMap<Key,Integer> map = PersistentHashMap.empty();
+        Map<Key,Integer> expected = Maps.newHashMap();
+        List<PersistentHashMap<Key,Integer>> snapshots = Lists.newArrayList();
+        List<Map<Key,Integer>> expectedSnapshots = Lists.newArrayList();
+        for (int i = 0; i < 50000; i++) {
+            Key key = new Key(random.nextInt(maxId));
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                int value = random.nextInt();
+                map = map.put(key, value);
+                expected.put(key, value);
+            }
+            if (i % 10000 == 0) {
+                snapshots.add(map);
+                expectedSnapshots.add(Maps.newHashMap(expected));
+            }
+        }
+        assertContents(expected, map, maxId);
+        // Earlier versions are unaffected by later updates
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertContents(expectedSnapshots.get(i), snapshots.get(i), maxId);
+        }
+        for (Map.Entry<Key,Integer> entry : map) {
+            map = map.remove(entry.getKey());
+        }
+        assertEquals(0, map.size());
+        assertFalse(map.iterator().hasNext());
+    }
+
+    @Test
+    public void testUnchanged() {
+        Integer value = 1;
+        PersistentHashMap<String,Integer> map = PersistentHashMap.<String,Integer>empty().put("a", value);
+        assertSame(map, map.put("a", value));
+        assertSame(map, map.remove("b"));
+        assertNull(map.get("b"));
+        assertEquals(value, map.remove("b").get("a"));
+    }
+}
@@ -83,6 +83,8 @@ public class PhoenixRuntimeTest extends BaseConnectionlessQueryTest {
         assertEquals(
                 CSVCommonsLoader.DEFAULT_ARRAY_ELEMENT_SEPARATOR,
                 execCmd.getArrayElementSeparator());
+
+        assertEquals(1, execCmd.getUpsertThreads());
     }
 
     @Test
@@ -90,7 +92,7 @@ public class PhoenixRuntimeTest extends BaseConnectionlessQueryTest {
         PhoenixRuntime.ExecutionCommand execCmd = PhoenixRuntime.ExecutionCommand.parseArgs(
                 new String[] { "-t", "mytable", "myzkhost:2181",  "--strict", "file1.sql",
                         "test.csv", "file2.sql", "--header", "one, two,three", "-a", "!", "-d",
-                        ":", "-q", "3", "-e", "4" });
+                        ":", "-q", "3", "-e", "4", "-n", "8" });
 
         assertEquals("myzkhost:2181", execCmd.getConnectionString());
 
@@ -106,6 +108,7 @@ public class PhoenixRuntimeTest extends BaseConnectionlessQueryTest {
         assertEquals(ImmutableList.of("one", "two", "three"), execCmd.getColumns());
         assertTrue(execCmd.isStrict());
         assertEquals("!", execCmd.getArrayElementSeparator());
+        assertEquals(8, execCmd.getUpsertThreads());
     }
     
     @Test
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.junit.Test;
+
+public class TableRowEncoderTest extends BaseConnectionlessQueryTest {
+
+    private static final Object[][] ROWS = new Object[][] {
+        {"a", 1, new BigDecimal("12.3"), "x", "ab"},
+        {"b", 2, null, "y", null},
+        {"bb", -7, new BigDecimal("-0.01"), null, "abcde"},
+        {"c", 0, new BigDecimal("99999999.99"), "", "c"},
+    };
+
+    private static void assertEncodedLikeUpsert(String tableName, String tableDdl, String indexDdl) throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.setAutoCommit(false);
+            conn.createStatement().execute(tableDdl);
+            if (indexDdl != null) {
+                conn.createStatement().execute(indexDdl);
+            }
+            List<ColumnInfo> columnInfos = SchemaUtil.generateColumnInfo(conn, tableName, null, true);
+            TableRowEncoder encoder = TableRowEncoder.newEncoder(
+                    conn.unwrap(PhoenixConnection.class), tableName, columnInfos);
+            assertNotNull(encoder);
+            PreparedStatement stmt =
+                    conn.prepareStatement(QueryUtil.constructUpsertStatement(tableName, columnInfos));
+            for (Object[] row : ROWS) {
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] == null) {
+                        stmt.setNull(i + 1, columnInfos.get(i).getSqlType());
+                    } else {
+                        stmt.setObject(i + 1, row[i]);
+                    }
+                    encoder.setValue(i, row[i]);
+                }
+                stmt.execute();
+                encoder.encodeRow();
+                assertSameCells(PhoenixRuntime.getUncommittedDataIterator(conn, true),
+                        encoder.getEncodedCells());
+                conn.rollback();
+                encoder.clear();
+            }
+        }
+    }
+
+    private static void assertSameCells(Iterator<Pair<byte[], List<Cell>>> expected,
+            Iterator<Pair<byte[], List<Cell>>> actual) {
+        while (expected.hasNext()) {
+            Pair<byte[], List<Cell>> expectedTable = expected.next();
+            Pair<byte[], List<Cell>> actualTable = actual.next();
+            assertArrayEquals(expectedTable.getFirst(), actualTable.getFirst());
+            List<Cell> expectedCells = expectedTable.getSecond();
+            List<Cell> actualCells = actualTable.getSecond();
+            assertEquals(expectedCells.size(), actualCells.size());
+            for (int i = 0; i < expectedCells.size(); i++) {
+                Cell expectedCell = expectedCells.get(i);
+                Cell actualCell = actualCells.get(i);
+                assertArrayEquals(CellUtil.cloneRow(expectedCell), CellUtil.cloneRow(actualCell));
+                assertArrayEquals(CellUtil.cloneFamily(expectedCell), CellUtil.cloneFamily(actualCell));
+                assertArrayEquals(CellUtil.cloneQualifier(expectedCell), CellUtil.cloneQualifier(actualCell));
+                assertEquals(expectedCell.getTimestamp(), actualCell.getTimestamp());
+                assertEquals(expectedCell.getTypeByte(), actualCell.getTypeByte());
+                assertArrayEquals(CellUtil.cloneValue(expectedCell), CellUtil.cloneValue(actualCell));
+            }
+        }
+        assertFalse(actual.hasNext());
+    }
+
+    @Test
+    public void testSaltedTableWithIndex() throws Exception {
+        assertEncodedLikeUpsert("T_SALTED", "CREATE TABLE T_SALTED (K1 VARCHAR NOT NULL, K2 INTEGER NOT NULL, "
+                + "V1 DECIMAL(10,2), V2 VARCHAR, V3 CHAR(5) "
+                + "CONSTRAINT PK PRIMARY KEY (K1 DESC, K2)) SALT_BUCKETS=4",
+                "CREATE INDEX T_SALTED_IDX ON T_SALTED (V2) INCLUDE (V1)");
+    }
+
+    @Test
+    public void testImmutableSingleCellTable() throws Exception {
+        assertEncodedLikeUpsert("T_IMMUTABLE", "CREATE IMMUTABLE TABLE T_IMMUTABLE (K1 VARCHAR NOT NULL, K2 INTEGER NOT NULL, "
+                + "A.V1 DECIMAL(10,2), B.V2 VARCHAR, A.V3 CHAR(5) "
+                + "CONSTRAINT PK PRIMARY KEY (K1, K2)) "
+                + "IMMUTABLE_STORAGE_SCHEME=SINGLE_CELL_ARRAY_WITH_OFFSETS, COLUMN_ENCODED_BYTES=1",
+                null);
+    }
+
+    @Test
+    public void testUnsupportedTables() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+            conn.createStatement().execute("CREATE TABLE T_DEFAULT (K VARCHAR PRIMARY KEY, V INTEGER DEFAULT 1)");
+            assertNull(TableRowEncoder.newEncoder(pconn, "T_DEFAULT",
+                    SchemaUtil.generateColumnInfo(conn, "T_DEFAULT", null, true)));
+            conn.createStatement().execute("CREATE TABLE T_ROW_TIMESTAMP (K DATE NOT NULL, V INTEGER "
+                    + "CONSTRAINT PK PRIMARY KEY (K ROW_TIMESTAMP))");
+            assertNull(TableRowEncoder.newEncoder(pconn, "T_ROW_TIMESTAMP",
+                    SchemaUtil.generateColumnInfo(conn, "T_ROW_TIMESTAMP", null, true)));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.microbenchmarks;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixDriver;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.PhoenixRuntime;
+
+/**
+ * Helpers shared by the benchmarks. Everything runs against a connectionless connection,
+ * so plans are compiled and rows are encoded exactly as they would be against a cluster,
+ * but nothing is sent anywhere.
+ */
+final class BenchmarkUtil {
+    static final String URL = PhoenixRuntime.JDBC_PROTOCOL + PhoenixRuntime.JDBC_PROTOCOL_SEPARATOR + PhoenixRuntime.CONNECTIONLESS;
+
+    /**
+     * Table used by the benchmarks that operate on rows. Column encoding is disabled so that
+     * the cells produced by an UPSERT can be evaluated directly against the compiled plans.
+     */
+    static final String TABLE_DDL = "CREATE TABLE T (K VARCHAR NOT NULL PRIMARY KEY, A INTEGER, B BIGINT, C VARCHAR, D DECIMAL(10,2)) COLUMN_ENCODED_BYTES=0";
+
+    /**
+     * Table with a three column row key used by the skip scan benchmarks.
+     */
+    static final String KEY_TABLE_DDL = "CREATE TABLE S (K1 CHAR(2) NOT NULL, K2 INTEGER NOT NULL, K3 INTEGER NOT NULL, V VARCHAR CONSTRAINT PK PRIMARY KEY (K1, K2, K3)) COLUMN_ENCODED_BYTES=0";
+    static final String[] K1_VALUES = { "a0", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9" };
+    static final int K2_COUNT = 2000;
+    static final int K3_COUNT = 5;
+
+    private BenchmarkUtil() {
+    }
+
+    static PhoenixConnection connect() throws SQLException {
+        return PhoenixDriver.INSTANCE.connect(URL, new Properties()).unwrap(PhoenixConnection.class);
+    }
+
+    static void execute(PhoenixConnection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    static QueryPlan compileQuery(PhoenixConnection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            return stmt.unwrap(PhoenixStatement.class).compileQuery(sql);
+        }
+    }
+
+    /**
+     * Query over {@link #KEY_TABLE_DDL} that compiles into a skip scan over three values of the
+     * leading row key column and an IN list of the given size on the second one.
+     */
+    static String getKeyTableQuery(int inListSize) {
+        StringBuilder sb = new StringBuilder("SELECT V FROM S WHERE K1 IN ('a1', 'a4', 'a7') AND K2 IN (");
+        int step = Math.max(1, K2_COUNT / inListSize);
+        for (int i = 0; i < inListSize; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(i * step);
+        }
+        return sb.append(')').toString();
+    }
+
+    static byte[] getKeyTableRowKey(String k1, int k2, int k3) {
+        return ByteUtil.concat(PChar.INSTANCE.toBytes(k1), PInteger.INSTANCE.toBytes(k2), PInteger.INSTANCE.toBytes(k3));
+    }
+
+    /**
+     * Generates rows for {@link #TABLE_DDL} with deterministic values and returns them as
+     * tuples sorted by row key, the way a scan over the table would see them.
+     */
+    static List<Tuple> generateRows(PhoenixConnection conn, int nRows) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPSERT INTO T VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < nRows; i++) {
+                stmt.setString(1, String.format("row%08d", i));
+                stmt.setInt(2, (i * 7919) % 1000);
+                stmt.setLong(3, i * 31L);
+                stmt.setString(4, "value" + (i % 97));
+                stmt.setBigDecimal(5, BigDecimal.valueOf(i % 10000, 2));
+                stmt.execute();
+            }
+        }
+        return getUncommittedRows(conn);
+    }
+
+    /**
+     * Collects the cells of the uncommitted mutations of the connection, grouped into one
+     * tuple per row, and rolls the mutations back.
+     */
+    static List<Tuple> getUncommittedRows(PhoenixConnection conn) throws SQLException {
+        List<Cell> cells = new ArrayList<Cell>();
+        Iterator<Pair<byte[],List<Cell>>> iterator = PhoenixRuntime.getUncommittedDataIterator(conn);
+        while (iterator.hasNext()) {
+            cells.addAll(iterator.next().getSecond());
+        }
+        conn.rollback();
+        Collections.sort(cells, CellComparatorImpl.COMPARATOR);
+        List<Tuple> rows = new ArrayList<Tuple>();
+        List<Cell> rowCells = new ArrayList<Cell>();
+        for (Cell cell : cells) {
+            if (!rowCells.isEmpty() && !CellUtil.matchingRows(rowCells.get(0), cell)) {
+                rows.add(new MultiKeyValueTuple(rowCells));
+                rowCells = new ArrayList<Cell>();
+            }
+            rowCells.add(cell);
+        }
+        if (!rowCells.isEmpty()) {
+            rows.add(new MultiKeyValueTuple(rowCells));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.microbenchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Evaluation of compiled projection expressions over a batch of rows, one row at a time,
+ * as done by the scan and the client side projection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionEvaluateBenchmark {
+    private static final int ROW_COUNT = 1000;
+
+    public enum ExpressionKind {
+        ARITHMETIC("A * 2 + B - 1"),
+        CASE("CASE WHEN A < 100 THEN 'low' WHEN A < 500 THEN 'medium' ELSE 'high' END"),
+        STRING("UPPER(SUBSTR(C, 2, 4)) || K"),
+        DECIMAL("D * 1.5 + 10"),
+        BOOLEAN("A > 100 AND B < 10000 OR C LIKE 'value1%'");
+
+        private final String sql;
+
+        ExpressionKind(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    @Param
+    private ExpressionKind kind;
+
+    private PhoenixConnection conn;
+    private Expression expression;
+    private List<Tuple> rows;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    @Setup
+    public void setup() throws SQLException {
+        conn = BenchmarkUtil.connect();
+        BenchmarkUtil.execute(conn, BenchmarkUtil.TABLE_DDL);
+        expression = BenchmarkUtil.compileQuery(conn, "SELECT " + kind.sql + " FROM T")
+                .getProjector().getColumnProjector(0).getExpression();
+        rows = BenchmarkUtil.generateRows(conn, ROW_COUNT);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole blackhole) {
+        for (Tuple row : rows) {
+            blackhole.consume(expression.evaluate(row, ptr));
+            blackhole.consume(ptr.getLength());
+        }
+    }
+}
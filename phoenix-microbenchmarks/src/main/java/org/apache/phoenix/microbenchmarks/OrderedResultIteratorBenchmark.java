@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.microbenchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.iterate.MaterializedResultIterator;
+import org.apache.phoenix.iterate.OrderedResultIterator;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+/**
+ * In memory sort of a batch of rows by {@link OrderedResultIterator}, with and without a
+ * limit, which switches it from a full sort to a bounded top N.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderedResultIteratorBenchmark {
+    private static final int ROW_COUNT = 10000;
+
+    // Zero for no limit
+    @Param({ "0", "100" })
+    private int limit;
+
+    private PhoenixConnection conn;
+    private List<OrderByExpression> orderByExpressions;
+    private List<Tuple> rows;
+
+    @Setup
+    public void setup() throws SQLException {
+        conn = BenchmarkUtil.connect();
+        BenchmarkUtil.execute(conn, BenchmarkUtil.TABLE_DDL);
+        RowProjector projector = BenchmarkUtil.compileQuery(conn, "SELECT A, C FROM T").getProjector();
+        orderByExpressions = Lists.newArrayList(
+                OrderByExpression.createByCheckIfExpressionSortOrderDesc(projector.getColumnProjector(0).getExpression(), true, false),
+                OrderByExpression.createByCheckIfExpressionSortOrderDesc(projector.getColumnProjector(1).getExpression(), false, true));
+        rows = BenchmarkUtil.generateRows(conn, ROW_COUNT);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public int sort() throws SQLException {
+        OrderedResultIterator iterator = new OrderedResultIterator(new MaterializedResultIterator(rows),
+                orderByExpressions, false, Long.MAX_VALUE, limit == 0 ? null : limit, null, 0);
+        int count = 0;
+        try {
+            while (iterator.next() != null) {
+                count++;
+            }
+        } finally {
+            iterator.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.microbenchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.schema.types.PArrayDataType;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PIntegerArray;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.schema.types.PVarcharArray;
+import org.apache.phoenix.schema.types.PhoenixArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization and deserialization of values of the most commonly used types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PDataTypeBenchmark {
+    private Long longValue;
+    private byte[] longBytes;
+    private String stringValue;
+    private byte[] stringBytes;
+    private BigDecimal decimalValue;
+    private byte[] decimalBytes;
+    private PhoenixArray intArray;
+    private byte[] intArrayBytes;
+    private PhoenixArray stringArray;
+    private byte[] stringArrayBytes;
+
+    @Setup
+    public void setup() {
+        longValue = 1234567890123L;
+        longBytes = PLong.INSTANCE.toBytes(longValue);
+        stringValue = "The quick brown fox jumps over the lazy dog";
+        stringBytes = PVarchar.INSTANCE.toBytes(stringValue);
+        decimalValue = new BigDecimal("12345678.9012");
+        decimalBytes = PDecimal.INSTANCE.toBytes(decimalValue);
+        Object[] ints = new Object[100];
+        Object[] strings = new Object[100];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 31;
+            strings[i] = "element" + i;
+        }
+        intArray = PArrayDataType.instantiatePhoenixArray(PInteger.INSTANCE, ints);
+        intArrayBytes = PIntegerArray.INSTANCE.toBytes(intArray);
+        stringArray = PArrayDataType.instantiatePhoenixArray(PVarchar.INSTANCE, strings);
+        stringArrayBytes = PVarcharArray.INSTANCE.toBytes(stringArray);
+    }
+
+    @Benchmark
+    public byte[] encodeLong() {
+        return PLong.INSTANCE.toBytes(longValue);
+    }
+
+    @Benchmark
+    public Object decodeLong() {
+        return PLong.INSTANCE.toObject(longBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeVarchar() {
+        return PVarchar.INSTANCE.toBytes(stringValue);
+    }
+
+    @Benchmark
+    public Object decodeVarchar() {
+        return PVarchar.INSTANCE.toObject(stringBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeDecimal() {
+        return PDecimal.INSTANCE.toBytes(decimalValue);
+    }
+
+    @Benchmark
+    public Object decodeDecimal() {
+        return PDecimal.INSTANCE.toObject(decimalBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeIntegerArray() {
+        return PIntegerArray.INSTANCE.toBytes(intArray);
+    }
+
+    @Benchmark
+    public Object decodeIntegerArray() {
+        return PIntegerArray.INSTANCE.toObject(intArrayBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeVarcharArray() {
+        return PVarcharArray.INSTANCE.toBytes(stringArray);
+    }
+
+    @Benchmark
+    public Object decodeVarcharArray() {
+        return PVarcharArray.INSTANCE.toObject(stringArrayBytes);
+    }
+}
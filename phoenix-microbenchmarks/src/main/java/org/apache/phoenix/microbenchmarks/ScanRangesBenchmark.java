@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.microbenchmarks;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.ScanRanges;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.schema.types.PInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Intersection of the {@link ScanRanges} of a compiled query with region boundaries, as done
+ * for every region when a query is split into parallel scans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanRangesBenchmark {
+    private static final int REGIONS_PER_K1 = 20;
+
+    @Param({ "10", "100", "1000" })
+    private int inListSize;
+
+    private PhoenixConnection conn;
+    private Scan scan;
+    private ScanRanges scanRanges;
+    private byte[][] regionBoundaries;
+    private List<KeyRange> pointRanges;
+    private List<KeyRange> intervalRanges;
+
+    @Setup
+    public void setup() throws SQLException {
+        conn = BenchmarkUtil.connect();
+        BenchmarkUtil.execute(conn, BenchmarkUtil.KEY_TABLE_DDL);
+        QueryPlan plan = BenchmarkUtil.compileQuery(conn, BenchmarkUtil.getKeyTableQuery(inListSize));
+        scan = plan.getContext().getScan();
+        scanRanges = plan.getContext().getScanRanges();
+        List<byte[]> boundaries = new ArrayList<byte[]>();
+        boundaries.add(HConstants.EMPTY_START_ROW);
+        for (String k1 : BenchmarkUtil.K1_VALUES) {
+            for (int i = 0; i < REGIONS_PER_K1; i++) {
+                boundaries.add(BenchmarkUtil.getKeyTableRowKey(k1, i * BenchmarkUtil.K2_COUNT / REGIONS_PER_K1, 0));
+            }
+        }
+        boundaries.add(HConstants.EMPTY_END_ROW);
+        regionBoundaries = boundaries.toArray(new byte[boundaries.size()][]);
+        pointRanges = new ArrayList<KeyRange>(inListSize);
+        intervalRanges = new ArrayList<KeyRange>(inListSize);
+        for (int i = 0; i < inListSize; i++) {
+            pointRanges.add(KeyRange.getKeyRange(PInteger.INSTANCE.toBytes(i * 2)));
+            intervalRanges.add(KeyRange.getKeyRange(PInteger.INSTANCE.toBytes(i * 4), true,
+                    PInteger.INSTANCE.toBytes(i * 4 + 3), false));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public void intersectRegion(Blackhole blackhole) {
+        for (int i = 0; i < regionBoundaries.length - 1; i++) {
+            blackhole.consume(scanRanges.intersectRegion(regionBoundaries[i], regionBoundaries[i + 1], false));
+        }
+    }
+
+    @Benchmark
+    public void intersectScan(Blackhole blackhole) {
+        for (int i = 0; i < regionBoundaries.length - 1; i++) {
+            blackhole.consume(scanRanges.intersectScan(scan, regionBoundaries[i], regionBoundaries[i + 1], 0, true));
+        }
+    }
+
+    @Benchmark
+    public List<KeyRange> intersectKeyRanges() {
+        return KeyRange.intersect(pointRanges, intervalRanges);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.microbenchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Server side aggregation of a batch of rows using the aggregators that the client serializes
+ * onto the scan of an ungrouped aggregate query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerAggregatorsBenchmark {
+    private static final int ROW_COUNT = 1000;
+
+    private PhoenixConnection conn;
+    private ServerAggregators aggregators;
+    private List<Tuple> rows;
+
+    @Setup
+    public void setup() throws SQLException {
+        conn = BenchmarkUtil.connect();
+        BenchmarkUtil.execute(conn, BenchmarkUtil.TABLE_DDL);
+        byte[] serializedAggregators = BenchmarkUtil.compileQuery(conn, "SELECT COUNT(*), SUM(B), MIN(A), MAX(D), AVG(A) FROM T")
+                .getContext().getScan().getAttribute(BaseScannerRegionObserver.AGGREGATORS);
+        Configuration conf = HBaseConfiguration.create();
+        aggregators = ServerAggregators.deserialize(serializedAggregators, conf, null);
+        rows = BenchmarkUtil.generateRows(conn, ROW_COUNT);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public byte[] aggregate() {
+        Aggregator[] rowAggregators = aggregators.getAggregators();
+        aggregators.reset(rowAggregators);
+        for (Tuple row : rows) {
+            aggregators.aggregate(rowAggregators, row);
+        }
+        return aggregators.toBytes(rowAggregators);
+    }
+}
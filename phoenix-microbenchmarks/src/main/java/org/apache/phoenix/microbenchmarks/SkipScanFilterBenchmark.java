@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.microbenchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.filter.SkipScanFilter;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the {@link SkipScanFilter} of a compiled query over a sorted set of cells, seeking
+ * to the next cell hint the way the region scanner does, so that both the key comparisons
+ * and the hint computations are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipScanFilterBenchmark {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] QUALIFIER = Bytes.toBytes("V");
+
+    @Param({ "10", "100", "1000" })
+    private int inListSize;
+
+    private PhoenixConnection conn;
+    private SkipScanFilter filter;
+    private Cell[] cells;
+
+    @Setup
+    public void setup() throws SQLException {
+        conn = BenchmarkUtil.connect();
+        BenchmarkUtil.execute(conn, BenchmarkUtil.KEY_TABLE_DDL);
+        filter = BenchmarkUtil.compileQuery(conn, BenchmarkUtil.getKeyTableQuery(inListSize))
+                .getContext().getScanRanges().getSkipScanFilter();
+        if (filter == null) {
+            throw new IllegalStateException("Expected query to use a skip scan");
+        }
+        byte[] value = Bytes.toBytes("v");
+        cells = new Cell[BenchmarkUtil.K1_VALUES.length * BenchmarkUtil.K2_COUNT * BenchmarkUtil.K3_COUNT];
+        int i = 0;
+        for (String k1 : BenchmarkUtil.K1_VALUES) {
+            for (int k2 = 0; k2 < BenchmarkUtil.K2_COUNT; k2++) {
+                for (int k3 = 0; k3 < BenchmarkUtil.K3_COUNT; k3++) {
+                    cells[i++] = new KeyValue(BenchmarkUtil.getKeyTableRowKey(k1, k2, k3), FAMILY, QUALIFIER, value);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public int filter() {
+        // The filter is stateful, so use a fresh copy for each simulated scan
+        SkipScanFilter filter = new SkipScanFilter(this.filter, false);
+        int included = 0;
+        int i = 0;
+        while (i < cells.length && !filter.filterAllRemaining()) {
+            ReturnCode code = filter.filterKeyValue(cells[i]);
+            if (code == ReturnCode.SEEK_NEXT_USING_HINT) {
+                i = seek(filter.getNextCellHint(cells[i]), i + 1);
+            } else {
+                if (code == ReturnCode.INCLUDE || code == ReturnCode.INCLUDE_AND_NEXT_COL) {
+                    included++;
+                }
+                i++;
+            }
+        }
+        return included;
+    }
+
+    /**
+     * Returns the index of the first cell at or after from whose row is not before the hint.
+     */
+    private int seek(Cell hint, int from) {
+        int low = from;
+        int high = cells.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Cell cell = cells[mid];
+            if (Bytes.compareTo(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+                    hint.getRowArray(), hint.getRowOffset(), hint.getRowLength()) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}